@@ -0,0 +1,124 @@
+package br.com.vendas.auxiliares;
+
+/**
+ * Versão em memória dos filtros de grau montados por ConverteLimita.
+ *
+ * Avalia a disponibilidade de uma linha do catálogo para a receita sem ir
+ * ao banco. Cada tipo reproduz a condição SQL equivalente:
+ * - IGUALDADE  → converteGrau (esferico/cilindrico exatos, com transposição)
+ * - COMPLETO   → OpcoesCompleto.converteFiltroCompleto (converteGrau OR
+ *                convertePorChave, faixa LEAST/GREATEST sem transposição)
+ * - MULTIFOCAL → converteMultifocal (LEAST/GREATEST com adição)
+ * - BIFOCAL    → converteBifocal (esf_ini/esf_fim diretos com adição)
+ *
+ * Colunas NULL devem ser passadas como Double.NaN (toda comparação falha,
+ * como no SQL).
+ *
+ * @author OptoFreela
+ */
+public final class FiltroGrau {
+
+    private static final double EPS = 1e-6;
+
+    private enum Tipo { IGUALDADE, COMPLETO, MULTIFOCAL, BIFOCAL }
+
+    private final Tipo tipo;
+    private final double esf;
+    private final double cil;
+    private final double esfTransposto;
+    private final double cilTransposto;
+    private final double adicao;
+
+    private FiltroGrau(Tipo tipo, double esf, double cil, double adicao) {
+        this.tipo = tipo;
+        this.esf = arredondar(esf);
+        this.cil = arredondar(cil);
+        this.adicao = arredondar(adicao);
+
+        // Transposição para cilíndrico negativo (+ com +, - com +, plano com +)
+        if (cil > 0) {
+            this.esfTransposto = arredondar(esf + cil);
+            this.cilTransposto = arredondar(cil * -1);
+        } else {
+            this.esfTransposto = this.esf;
+            this.cilTransposto = this.cil;
+        }
+    }
+
+    /**
+     * Escolhe o filtro da mesma forma que SelecaoLentes.doPost.
+     *
+     * @param tipoVisao valor retornado por OpcoesCompleto.getTipoVisao()
+     * @param visao parâmetro "visao" da requisição
+     */
+    public static FiltroGrau paraReceita(String tipoVisao, String visao, double esf, double cil, double adicao) {
+        if ("multifocal".equals(tipoVisao) || "ocupacional".equals(tipoVisao)) {
+            return new FiltroGrau(Tipo.MULTIFOCAL, esf, cil, adicao);
+        } else if ("bifocal".equals(tipoVisao)) {
+            return new FiltroGrau(Tipo.BIFOCAL, esf, cil, adicao);
+        } else if ("longe".equalsIgnoreCase(visao)) {
+            return new FiltroGrau(Tipo.COMPLETO, esf, cil, 0);
+        } else if ("perto".equalsIgnoreCase(visao)) {
+            return new FiltroGrau(Tipo.COMPLETO, esf + adicao, cil, 0);
+        } else if ("meia_distancia".equalsIgnoreCase(visao)) {
+            return new FiltroGrau(Tipo.IGUALDADE, calcularMeiaDistancia(esf, adicao), cil, 0);
+        }
+        return new FiltroGrau(Tipo.IGUALDADE, esf, cil, 0);
+    }
+
+    /**
+     * Esférico para meia distância (70% da adição, arredondado ao 0,25).
+     */
+    public static double calcularMeiaDistancia(double esf, double adicao) {
+        double meiaAdicao = adicao * 0.7;
+        if (adicao < 2.00) {
+            meiaAdicao = Math.floor(meiaAdicao * 4) / 4.0;
+        } else {
+            meiaAdicao = Math.ceil(meiaAdicao * 4) / 4.0;
+        }
+        return esf + meiaAdicao;
+    }
+
+    /**
+     * Verifica se a linha do catálogo atende a receita.
+     */
+    public boolean aceita(double esferico, double cilindrico,
+                          double esfIni, double esfFim,
+                          double cilIni, double cilFim,
+                          double adiIni, double adiFim) {
+        switch (tipo) {
+            case IGUALDADE:
+                return igualdade(esferico, cilindrico);
+            case COMPLETO:
+                return igualdade(esferico, cilindrico)
+                        || faixa(esf, cil, esfIni, esfFim, cilIni, cilFim);
+            case MULTIFOCAL:
+                return faixa(esfTransposto, cilTransposto, esfIni, esfFim, cilIni, cilFim)
+                        && entre(adicao, Math.min(adiIni, adiFim), Math.max(adiIni, adiFim));
+            case BIFOCAL:
+                return entre(esfTransposto, esfIni, esfFim)
+                        && entre(cilTransposto, cilIni, cilFim)
+                        && entre(adicao, adiIni, adiFim);
+            default:
+                return false;
+        }
+    }
+
+    private boolean igualdade(double esferico, double cilindrico) {
+        return Math.abs(esferico - esfTransposto) < EPS && Math.abs(cilindrico - cilTransposto) < EPS;
+    }
+
+    private static boolean faixa(double e, double c, double esfIni, double esfFim, double cilIni, double cilFim) {
+        return entre(e, Math.min(esfIni, esfFim), Math.max(esfIni, esfFim))
+                && entre(c, Math.min(cilIni, cilFim), Math.max(cilIni, cilFim));
+    }
+
+    // NaN em qualquer lado → false (mesmo comportamento de NULL no SQL)
+    private static boolean entre(double valor, double inicio, double fim) {
+        return inicio <= valor + EPS && fim >= valor - EPS;
+    }
+
+    private static double arredondar(double valor) {
+        return Math.round(valor * 100) / 100.0;
+    }
+}
@@ -0,0 +1,208 @@
+package br.com.vendas.auxiliares;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import br.com.vendas.beans.LenteComTratamento;
+
+/**
+ * Seleção das K melhores variantes (codigoWeb) de uma marca, para o modo
+ * ranqueado de SelecaoLentes.
+ *
+ * Ordens suportadas:
+ * - "preco"  → menor preço total (lente + tratamento adicional + coloração) primeiro
+ * - "margem" → maior margem (preço total - custo) primeiro
+ *
+ * A seleção usa um heap limitado a K elementos (O(n log K)); a continuação é
+ * feita por cursor opaco (chave + codigoWeb da última variante entregue),
+ * então a página N custa o mesmo que a primeira.
+ *
+ * @author OptoFreela
+ */
+public class RankingVariantes {
+
+    public static final String ORDEM_PRECO = "preco";
+    public static final String ORDEM_MARGEM = "margem";
+
+    private static final Comparator<Candidata> ORDEM =
+            Comparator.<Candidata>comparingDouble(c -> c.chave).thenComparing(c -> c.desempate);
+
+    private final String ordem;
+    private final int k;
+
+    public RankingVariantes(String ordem, int k) {
+        this.ordem = ORDEM_MARGEM.equalsIgnoreCase(ordem) ? ORDEM_MARGEM : ORDEM_PRECO;
+        this.k = k;
+    }
+
+    public String getOrdem() {
+        return ordem;
+    }
+
+    /**
+     * Cria a candidata de uma variante; lentes OD/OE são adicionadas depois.
+     */
+    public Candidata novaCandidata(String marca, String codigoWeb) {
+        return new Candidata(marca, codigoWeb, ORDEM_MARGEM.equals(ordem));
+    }
+
+    /**
+     * Seleciona até K candidatas depois do cursor (null = desde o início),
+     * já ordenadas. Preenche a página com o total restante e o próximo cursor.
+     */
+    public Pagina selecionar(Collection<Candidata> candidatas, Cursor apos) {
+        // Heap invertido: o pior elemento fica no topo para ser descartado
+        PriorityQueue<Candidata> heap = new PriorityQueue<>(k + 1, ORDEM.reversed());
+        Candidata limite = apos != null ? apos.comoCandidata() : null;
+        int restantes = 0;
+
+        for (Candidata c : candidatas) {
+            if (limite != null && ORDEM.compare(c, limite) <= 0) continue;
+
+            restantes++;
+            heap.offer(c);
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        }
+
+        List<Candidata> selecionadas = new ArrayList<>(heap);
+        selecionadas.sort(ORDEM);
+
+        Pagina pagina = new Pagina();
+        pagina.variantes = selecionadas;
+        pagina.restantes = restantes;
+        if (restantes > selecionadas.size() && !selecionadas.isEmpty()) {
+            Candidata ultima = selecionadas.get(selecionadas.size() - 1);
+            pagina.proximoCursor = new Cursor(ultima.marca, ordem, ultima.chave, ultima.desempate).codificar();
+        }
+        return pagina;
+    }
+
+    /**
+     * Variante candidata: lentes OD/OE de um codigoWeb e sua chave de ordenação.
+     * A chave é sempre "menor é melhor" (margem entra negativa).
+     */
+    public static class Candidata {
+        private final String marca;
+        private final String codigoWeb;
+        private final String desempate;
+        private final boolean porMargem;
+        private final List<LenteComTratamento> od = new ArrayList<>();
+        private final List<LenteComTratamento> oe = new ArrayList<>();
+        private double chave = Double.MAX_VALUE;
+
+        private Candidata(String marca, String codigoWeb, boolean porMargem) {
+            this.marca = marca;
+            this.codigoWeb = codigoWeb;
+            this.desempate = codigoWeb != null ? codigoWeb : "";
+            this.porMargem = porMargem;
+        }
+
+        public void adicionar(LenteComTratamento lente, boolean olhoDireito) {
+            (olhoDireito ? od : oe).add(lente);
+
+            double preco = lente.getPrecoTotal();
+            double valor = porMargem ? -(preco - lente.getPrecoCusto()) : preco;
+            if (valor < chave) {
+                chave = valor;
+            }
+        }
+
+        public String getMarca() {
+            return marca;
+        }
+
+        public String getCodigoWeb() {
+            return codigoWeb;
+        }
+
+        public List<LenteComTratamento> getOD() {
+            return od;
+        }
+
+        public List<LenteComTratamento> getOE() {
+            return oe;
+        }
+    }
+
+    /**
+     * Resultado de uma seleção: variantes da página, quantas existiam a partir
+     * do cursor e o cursor da próxima página (null se acabou).
+     */
+    public static class Pagina {
+        private List<Candidata> variantes;
+        private int restantes;
+        private String proximoCursor;
+
+        public List<Candidata> getVariantes() {
+            return variantes;
+        }
+
+        public int getRestantes() {
+            return restantes;
+        }
+
+        public String getProximoCursor() {
+            return proximoCursor;
+        }
+    }
+
+    /**
+     * Cursor opaco (JSON em Base64 URL-safe) com a posição da última variante entregue.
+     */
+    public static class Cursor {
+        private String marca;
+        private String ordem;
+        private double chave;
+        private String codigoWeb;
+
+        private Cursor(String marca, String ordem, double chave, String codigoWeb) {
+            this.marca = marca;
+            this.ordem = ordem;
+            this.chave = chave;
+            this.codigoWeb = codigoWeb;
+        }
+
+        public String getMarca() {
+            return marca;
+        }
+
+        public String getOrdem() {
+            return ordem;
+        }
+
+        String codificar() {
+            byte[] json = new Gson().toJson(this).getBytes(StandardCharsets.UTF_8);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        }
+
+        /**
+         * Decodifica o cursor recebido do cliente; retorna null se inválido.
+         */
+        public static Cursor decodificar(String token) {
+            if (token == null || token.isEmpty()) return null;
+            try {
+                String json = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                Cursor cursor = new Gson().fromJson(json, Cursor.class);
+                return cursor != null && cursor.marca != null && cursor.codigoWeb != null ? cursor : null;
+            } catch (IllegalArgumentException | JsonParseException e) {
+                return null;
+            }
+        }
+
+        private Candidata comoCandidata() {
+            Candidata c = new Candidata(marca, codigoWeb, false);
+            c.chave = chave;
+            return c;
+        }
+    }
+}
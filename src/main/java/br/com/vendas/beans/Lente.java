@@ -32,10 +32,6 @@ public class Lente extends Produto {
     private int alturaMinima;
     private String afinamento;
     private String tecnicaProducao;
-    private double precoCusto;
-    private double precoVenda;
-    private double precoMinimo;
-    private double precoPar;
     private String unidade;
     private double margem;
     private String distancia;
@@ -99,10 +95,10 @@ public class Lente extends Produto {
         this.alturaMinima = outra.getAlturaMinima();
         this.afinamento = outra.getAfinamento();
         this.tecnicaProducao = outra.getTecnicaProducao();
-        this.precoCusto = outra.getPrecoCusto();
-        this.precoVenda = outra.getPrecoVenda();
-        this.precoMinimo = outra.getPrecoMinimo();
-        this.precoPar = outra.getPrecoPar();
+        this.setPrecoCusto(outra.getPrecoCustoDinheiro());
+        this.setPrecoVenda(outra.getPrecoVendaDinheiro());
+        this.setPrecoMinimo(outra.getPrecoMinimoDinheiro());
+        this.setPrecoPar(outra.getPrecoParDinheiro());
         this.unidade = outra.getUnidade();
         this.margem = outra.getMargem();
         this.distancia = outra.getDistancia();
@@ -339,38 +335,6 @@ public class Lente extends Produto {
         this.tecnicaProducao = tecnicaProducao;
     }
 
-    public double getPrecoCusto() {
-        return precoCusto;
-    }
-
-    public void setPrecoCusto(double precoCusto) {
-        this.precoCusto = precoCusto;
-    }
-
-    public double getPrecoVenda() {
-        return precoVenda;
-    }
-
-    public void setPrecoVenda(double precoVenda) {
-        this.precoVenda = precoVenda;
-    }
-
-    public double getPrecoMinimo() {
-        return precoMinimo;
-    }
-
-    public void setPrecoMinimo(double precoMinimo) {
-        this.precoMinimo = precoMinimo;
-    }
-
-    public double getPrecoPar() {
-        return precoPar;
-    }
-
-    public void setPrecoPar(double precoPar) {
-        this.precoPar = precoPar;
-    }
-
 	public String getUnidade() {
 		return unidade;
 	}
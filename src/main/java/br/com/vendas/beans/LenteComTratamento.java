@@ -1,5 +1,7 @@
 package br.com.vendas.beans;
 
+import br.com.vendas.util.Dinheiro;
+
 /**
  * Bean que representa uma lente com possibilidade de tratamento adicional.
  * 
@@ -41,7 +43,7 @@ public class LenteComTratamento extends Lente {
     private Integer tratamentoAdicionalId;
     private String tratamentoAdicionalNome;
     private String tratamentoAdicionalTipo;
-    private Double tratamentoAdicionalValor;
+    private Dinheiro tratamentoAdicionalValor;
     
     // ========================================
     // CAMPOS PARA COLORAÇÃO
@@ -53,7 +55,7 @@ public class LenteComTratamento extends Lente {
      */
     private String coloracaoNome;
     private String coloracaoTipo;  // "Total" ou "Degradê"
-    private Double coloracaoValor;
+    private Dinheiro coloracaoValor;
     private String coloracaoHex;   // Cor para preview
 
     // ========================================
@@ -99,10 +101,10 @@ public class LenteComTratamento extends Lente {
         this.setAlturaMinima(lente.getAlturaMinima());
         this.setAfinamento(lente.getAfinamento());
         this.setTecnicaProducao(lente.getTecnicaProducao());
-        this.setPrecoCusto(lente.getPrecoCusto());
-        this.setPrecoVenda(lente.getPrecoVenda());
-        this.setPrecoPar(lente.getPrecoPar());
-        this.setPrecoMinimo(lente.getPrecoMinimo());
+        this.setPrecoCusto(lente.getPrecoCustoDinheiro());
+        this.setPrecoVenda(lente.getPrecoVendaDinheiro());
+        this.setPrecoPar(lente.getPrecoParDinheiro());
+        this.setPrecoMinimo(lente.getPrecoMinimoDinheiro());
         this.setUnidade(lente.getUnidade());
         
         // Campos adicionais de Lente
@@ -160,16 +162,23 @@ public class LenteComTratamento extends Lente {
      * Calcula o preço total (lente + tratamento adicional + coloração se houver)
      */
     public Double getPrecoTotal() {
-        double base = this.getPrecoVenda();
+        return getPrecoTotalDinheiro().doubleValue();
+    }
+    
+    /**
+     * Preço total em centavos exatos
+     */
+    public Dinheiro getPrecoTotalDinheiro() {
+        Dinheiro base = this.getPrecoVendaDinheiro();
         
         // Adiciona tratamento adicional se houver
         if (precisaTratamentoAdicional() && this.tratamentoAdicionalValor != null) {
-            base += this.tratamentoAdicionalValor;
+            base = base.somar(this.tratamentoAdicionalValor);
         }
         
         // Adiciona coloração se houver
         if (temColoracao() && this.coloracaoValor != null) {
-            base += this.coloracaoValor;
+            base = base.somar(this.coloracaoValor);
         }
         
         return base;
@@ -203,7 +212,7 @@ public class LenteComTratamento extends Lente {
             if (sb.length() > 0) sb.append(" + ");
             sb.append(this.tratamentoAdicionalNome);
             if (this.tratamentoAdicionalValor != null) {
-                sb.append(" (R$ ").append(String.format("%.2f", this.tratamentoAdicionalValor)).append(")");
+                sb.append(" (").append(this.tratamentoAdicionalValor.formatar()).append(")");
             }
         }
         
@@ -215,7 +224,7 @@ public class LenteComTratamento extends Lente {
                 sb.append(" (").append(this.coloracaoTipo).append(")");
             }
             if (this.coloracaoValor != null) {
-                sb.append(" R$ ").append(String.format("%.2f", this.coloracaoValor));
+                sb.append(" ").append(this.coloracaoValor.formatar());
             }
         }
         
@@ -271,11 +280,15 @@ public class LenteComTratamento extends Lente {
     }
 
     public Double getTratamentoAdicionalValor() {
-        return tratamentoAdicionalValor;
+        return tratamentoAdicionalValor != null ? tratamentoAdicionalValor.doubleValue() : null;
     }
 
     public void setTratamentoAdicionalValor(Double tratamentoAdicionalValor) {
-        this.tratamentoAdicionalValor = tratamentoAdicionalValor;
+        this.tratamentoAdicionalValor = tratamentoAdicionalValor != null ? Dinheiro.de(tratamentoAdicionalValor) : null;
+    }
+
+    public Dinheiro getTratamentoAdicionalValorDinheiro() {
+        return tratamentoAdicionalValor;
     }
 
     // ========================================
@@ -299,11 +312,15 @@ public class LenteComTratamento extends Lente {
     }
 
     public Double getColoracaoValor() {
-        return coloracaoValor;
+        return coloracaoValor != null ? coloracaoValor.doubleValue() : null;
     }
 
     public void setColoracaoValor(Double coloracaoValor) {
-        this.coloracaoValor = coloracaoValor;
+        this.coloracaoValor = coloracaoValor != null ? Dinheiro.de(coloracaoValor) : null;
+    }
+
+    public Dinheiro getColoracaoValorDinheiro() {
+        return coloracaoValor;
     }
 
     public String getColoracaoHex() {
@@ -1,6 +1,6 @@
 package br.com.vendas.beans;
 
-
+import br.com.vendas.util.Dinheiro;
 
 public abstract class Produto {
 	
@@ -13,10 +13,11 @@ public abstract class Produto {
     private String unidade;
     private String modelo;
     private String tipo;
-    private double precoCusto;
-    private double precoVenda;
-    private double precoMinimo;
-    private double precoPar;
+    // Preços em centavos (ver Dinheiro); getters double mantidos para as telas
+    private long precoCusto;
+    private long precoVenda;
+    private long precoMinimo;
+    private long precoPar;
     private String ean;
     private String ncm;
     private String codProdFornecedor;
@@ -108,11 +109,19 @@ public abstract class Produto {
     }
 
     public double getPrecoVenda() {
-        return precoVenda;
+        return precoVenda / 100.0;
     }
 
     public void setPrecoVenda(double precoVenda) {
-        this.precoVenda = precoVenda;
+        this.precoVenda = Dinheiro.centavos(precoVenda);
+    }
+
+    public Dinheiro getPrecoVendaDinheiro() {
+        return Dinheiro.deCentavos(precoVenda);
+    }
+
+    public void setPrecoVenda(Dinheiro precoVenda) {
+        this.precoVenda = precoVenda != null ? precoVenda.getCentavos() : 0;
     }
  public String getUnidade() {
 		return unidade;
@@ -123,27 +132,51 @@ public abstract class Produto {
 	}
 
 	public double getPrecoCusto() {
-		return precoCusto;
+		return precoCusto / 100.0;
 	}
 
 	public void setPrecoCusto(double precoCusto) {
-		this.precoCusto = precoCusto;
+		this.precoCusto = Dinheiro.centavos(precoCusto);
+	}
+
+	public Dinheiro getPrecoCustoDinheiro() {
+		return Dinheiro.deCentavos(precoCusto);
+	}
+
+	public void setPrecoCusto(Dinheiro precoCusto) {
+		this.precoCusto = precoCusto != null ? precoCusto.getCentavos() : 0;
 	}
 
 	public double getPrecoMinimo() {
-		return precoMinimo;
+		return precoMinimo / 100.0;
 	}
 
 	public void setPrecoMinimo(double precoMinimo) {
-		this.precoMinimo = precoMinimo;
+		this.precoMinimo = Dinheiro.centavos(precoMinimo);
+	}
+
+	public Dinheiro getPrecoMinimoDinheiro() {
+		return Dinheiro.deCentavos(precoMinimo);
+	}
+
+	public void setPrecoMinimo(Dinheiro precoMinimo) {
+		this.precoMinimo = precoMinimo != null ? precoMinimo.getCentavos() : 0;
 	}
 
 	public double getPrecoPar() {
-		return precoPar;
+		return precoPar / 100.0;
 	}
 
 	public void setPrecoPar(double precoPar) {
-		this.precoPar = precoPar;
+		this.precoPar = Dinheiro.centavos(precoPar);
+	}
+
+	public Dinheiro getPrecoParDinheiro() {
+		return Dinheiro.deCentavos(precoPar);
+	}
+
+	public void setPrecoPar(Dinheiro precoPar) {
+		this.precoPar = precoPar != null ? precoPar.getCentavos() : 0;
 	}
 
 	public String getEan() {
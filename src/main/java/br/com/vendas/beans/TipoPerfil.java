@@ -0,0 +1,55 @@
+package br.com.vendas.beans;
+
+import java.util.Locale;
+
+/**
+ * Perfil normalizado, calculado UMA vez no login a partir de perfil.nome
+ * e guardado na sessão (atributo "perfilTipo").
+ *
+ * - CAIXA         → "caixa", "operador de caixa", "operador_caixa"
+ * - VENDEDOR      → "vendedor", "vendedora", "atendente"
+ * - ADMINISTRADOR → "admin", "administrador", "gerente"
+ * - OUTRO         → qualquer outro nome (ou sem perfil)
+ *
+ * @author OptoFreela
+ */
+public enum TipoPerfil {
+
+    CAIXA,
+    VENDEDOR,
+    ADMINISTRADOR,
+    OUTRO;
+
+    public static final String ATRIBUTO_SESSAO = "perfilTipo";
+
+    public static TipoPerfil deNome(String perfilNome) {
+        if (perfilNome == null) return OUTRO;
+
+        switch (perfilNome.trim().toLowerCase(Locale.ROOT)) {
+            case "caixa":
+            case "operador de caixa":
+            case "operador_caixa":
+                return CAIXA;
+
+            case "vendedor":
+            case "vendedora":
+            case "atendente":
+                return VENDEDOR;
+
+            case "admin":
+            case "administrador":
+            case "gerente":
+                return ADMINISTRADOR;
+
+            default:
+                return OUTRO;
+        }
+    }
+
+    /**
+     * Página inicial do perfil após o login.
+     */
+    public String paginaInicial() {
+        return this == CAIXA ? "caixa.html" : "index.html";
+    }
+}
@@ -0,0 +1,124 @@
+package br.com.vendas.beans;
+
+import java.io.Serializable;
+import java.security.Principal;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+
+/**
+ * Identidade do usuário da requisição, independente de onde veio:
+ * - token assinado no cookie (modo sem sessão, ver TokenSessao), ou
+ * - HttpSession (o LoginServlet grava o principal em ATRIBUTO)
+ *
+ * Uso nos servlets:
+ * <pre>
+ *   UsuarioPrincipal usuario = UsuarioPrincipal.de(request);
+ *   if (usuario == null) → não autenticado
+ * </pre>
+ *
+ * @author OptoFreela
+ */
+public final class UsuarioPrincipal implements Principal, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Atributo da requisição onde o AuthFilter deixa o principal resolvido. */
+    public static final String ATRIBUTO = UsuarioPrincipal.class.getName();
+
+    private final int usuarioId;
+    private final String nome;
+    private final Integer lojaId;
+    private final Integer perfilId;
+    private final TipoPerfil perfil;
+
+    public UsuarioPrincipal(int usuarioId, String nome, Integer lojaId, Integer perfilId, TipoPerfil perfil) {
+        this.usuarioId = usuarioId;
+        this.nome = nome;
+        this.lojaId = lojaId;
+        this.perfilId = perfilId;
+        this.perfil = perfil != null ? perfil : TipoPerfil.OUTRO;
+    }
+
+    /**
+     * Principal da requisição: o resolvido pelo AuthFilter ou, na falta dele,
+     * montado a partir da sessão. Retorna null se não houver usuário logado.
+     */
+    public static UsuarioPrincipal de(HttpServletRequest request) {
+        UsuarioPrincipal principal = (UsuarioPrincipal) request.getAttribute(ATRIBUTO);
+        if (principal != null) return principal;
+
+        HttpSession session = request.getSession(false);
+        principal = daSessao(session);
+        if (principal != null) {
+            request.setAttribute(ATRIBUTO, principal);
+        }
+        return principal;
+    }
+
+    /**
+     * Principal gravado na sessão no login (ou montado dos atributos avulsos).
+     */
+    public static UsuarioPrincipal daSessao(HttpSession session) {
+        if (session == null) return null;
+
+        UsuarioPrincipal gravado = (UsuarioPrincipal) session.getAttribute(ATRIBUTO);
+        if (gravado != null) return gravado;
+
+        // Sessões anteriores ao principal: monta a partir dos atributos avulsos
+        Integer usuarioId = (Integer) session.getAttribute("usuarioId");
+        if (usuarioId == null || session.getAttribute("usuario") == null) return null;
+
+        TipoPerfil perfil = (TipoPerfil) session.getAttribute(TipoPerfil.ATRIBUTO_SESSAO);
+        if (perfil == null) {
+            perfil = TipoPerfil.deNome((String) session.getAttribute("perfilNome"));
+        }
+
+        return new UsuarioPrincipal(usuarioId,
+                (String) session.getAttribute("usuarioNome"),
+                (Integer) session.getAttribute("lojaId"),
+                (Integer) session.getAttribute("perfilId"),
+                perfil);
+    }
+
+    public int getUsuarioId() {
+        return usuarioId;
+    }
+
+    /** Nome de exibição do usuário (usado como "vendedor" em vendas e orçamentos). */
+    @Override
+    public String getName() {
+        return nome;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public Integer getLojaId() {
+        return lojaId;
+    }
+
+    public Integer getPerfilId() {
+        return perfilId;
+    }
+
+    public TipoPerfil getPerfil() {
+        return perfil;
+    }
+
+    /** Perfil definido no cadastro (sem perfil não há restrição de página). */
+    public boolean temPerfil() {
+        return perfilId != null;
+    }
+
+    /** Admin, Administrador ou Gerente: enxergam todos os registros da loja. */
+    public boolean isAdministrador() {
+        return perfil == TipoPerfil.ADMINISTRADOR;
+    }
+
+    @Override
+    public String toString() {
+        return nome + " (ID: " + usuarioId + ", loja: " + lojaId + ", perfil: " + perfil + ")";
+    }
+}
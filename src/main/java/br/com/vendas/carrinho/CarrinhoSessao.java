@@ -0,0 +1,726 @@
+package br.com.vendas.carrinho;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import br.com.vendas.dao.CatalogoLentesCache;
+import br.com.vendas.dao.CompatibilidadeTratamentoCache;
+import br.com.vendas.util.Dinheiro;
+import jakarta.servlet.http.HttpSession;
+
+/**
+ * Carrinho guardado na sessão, num único atributo (ATRIBUTO).
+ *
+ * Serialização binária explícita (Externalizable), versionada pelo primeiro byte,
+ * com inteiros em varint (1-2 bytes para graus, ids e preços usuais):
+ * - Lente: só id no catálogo, grau (centésimos), quantidade e preços (centavos);
+ *   descrição, marca, família etc. vêm do CatalogoLentesCache na leitura, e a
+ *   chave da tela é remontada como no CarrinhoModel.js (gerarIdLente)
+ * - Tratamento: tratamento.id + valor; nome e tipo vêm do CompatibilidadeTratamentoCache
+ * - Produto genérico: não há catálogo de produtos, então descrição/marca/unidade
+ *   são gravadas junto
+ *
+ * Ao mudar o formato: incrementar VERSAO e manter a leitura da versão anterior.
+ * Sessão com versão desconhecida é descartada pelo Tomcat (InvalidClassException).
+ *
+ * Requisições da mesma sessão (duas abas) chegam em paralelo: alterações,
+ * leituras das listas e a serialização passam pelo mesmo lock. As listas
+ * devolvidas são cópias, e uma linha já no carrinho não é alterada (produto
+ * somado vira uma linha nova), então podem ser lidas fora do lock.
+ *
+ * Mantidos a cada alteração e lidos sem lock (O(1)):
+ * - total (produto somado ajusta pela diferença da linha); recalcularTotal()
+ *   refaz a soma das linhas após a revalidação dos preços
+ * - quantidade de itens (Σ quantidades de lentes e produtos)
+ * - produtos distintos (ids de lente + códigos de produto diferentes)
+ * Produtos ficam indexados por código (adicionarProduto sem varrer a lista)
+ * e numa árvore por marca (inclusão O(log n)); getProdutosPorMarca() monta
+ * a lista na primeira leitura após uma alteração e a reaproveita até a próxima.
+ *
+ * @author OptoFreela
+ */
+public class CarrinhoSessao implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String ATRIBUTO = "carrinhoSessao";
+
+    private static final byte VERSAO = 1;
+
+    private static final Comparator<LinhaProduto> POR_MARCA =
+            Comparator.comparing((LinhaProduto p) -> p.marca != null ? p.marca : "", String.CASE_INSENSITIVE_ORDER)
+                      .thenComparingInt(p -> p.codigo);
+
+    private final Object lock = new Object();
+
+    private Long clienteId;
+    private String clienteNome;
+    private final List<LinhaLente> lentes = new ArrayList<>();
+    private final List<LinhaProduto> produtos = new ArrayList<>();
+
+    // Índices e contadores (escritos sob lock)
+    private final Map<Integer, Integer> posicaoProduto = new HashMap<>();   // código → posição em produtos
+    private final Map<Integer, Integer> linhasPorLente = new HashMap<>();   // id da lente → linhas
+    private final TreeSet<LinhaProduto> produtosPorMarca = new TreeSet<>(POR_MARCA);
+    private volatile long totalCentavos;
+    private volatile long quantidadeCentesimos;
+    private volatile int produtosDistintos;
+    private volatile List<LinhaProduto> porMarca = Collections.emptyList();  // null = remontar
+
+    /** Exigido por Externalizable. */
+    public CarrinhoSessao() {
+    }
+
+    /**
+     * Carrinho da sessão (cria um vazio se não houver).
+     */
+    public static CarrinhoSessao da(HttpSession session) {
+        CarrinhoSessao carrinho = (CarrinhoSessao) session.getAttribute(ATRIBUTO);
+        if (carrinho != null) return carrinho;
+
+        // Duas abas sem carrinho: as duas devem receber o mesmo objeto
+        synchronized (CarrinhoSessao.class) {
+            carrinho = (CarrinhoSessao) session.getAttribute(ATRIBUTO);
+            if (carrinho == null) {
+                carrinho = new CarrinhoSessao();
+                session.setAttribute(ATRIBUTO, carrinho);
+            }
+            return carrinho;
+        }
+    }
+
+    /**
+     * Regrava o atributo após alteração, para o Tomcat marcar a sessão como
+     * modificada (persistência/replicação).
+     */
+    public void salvar(HttpSession session) {
+        session.setAttribute(ATRIBUTO, this);
+    }
+
+    // ========================================
+    // Conteúdo
+    // ========================================
+
+    /**
+     * Substitui cliente, lentes e produtos (envio completo do carrinho da tela).
+     */
+    public void substituir(Long clienteId, String clienteNome, List<LinhaLente> lentes,
+                           List<LinhaProduto> produtos, double total) {
+        synchronized (lock) {
+            this.clienteId = clienteId;
+            this.clienteNome = clienteNome;
+            this.totalCentavos = centavos(total);
+            this.lentes.clear();
+            this.lentes.addAll(lentes);
+            this.produtos.clear();
+            this.produtos.addAll(produtos);
+            reindexar();
+        }
+    }
+
+    /**
+     * Substitui o conteúdo pelo de outro carrinho (montado e revalidado fora
+     * da sessão), mantendo este objeto como o atributo da sessão.
+     */
+    public void substituirPor(CarrinhoSessao outro) {
+        if (outro == this) return;
+
+        List<LinhaLente> novasLentes = outro.getLentes();
+        List<LinhaProduto> novosProdutos = outro.getProdutos();
+        synchronized (lock) {
+            this.clienteId = outro.getClienteId();
+            this.clienteNome = outro.getClienteNome();
+            this.totalCentavos = outro.totalCentavos;
+            this.lentes.clear();
+            this.lentes.addAll(novasLentes);
+            this.produtos.clear();
+            this.produtos.addAll(novosProdutos);
+            reindexar();
+        }
+    }
+
+    /**
+     * Soma quantidade a um produto já no carrinho (mesmo código) ou inclui a linha.
+     */
+    public void adicionarProduto(LinhaProduto linha) {
+        synchronized (lock) {
+            Integer posicao = posicaoProduto.get(linha.codigo);
+            if (posicao != null) {
+                // Linha nova: quem leu a anterior (cópia da lista) não a vê mudar
+                LinhaProduto p = produtos.get(posicao);
+                LinhaProduto somada = p.somar(linha);
+                produtos.set(posicao, somada);
+                produtosPorMarca.remove(p);
+                produtosPorMarca.add(somada);
+                totalCentavos += somada.getSubtotalCentavos() - p.getSubtotalCentavos();
+            } else {
+                posicaoProduto.put(linha.codigo, produtos.size());
+                produtos.add(linha);
+                produtosPorMarca.add(linha);
+                totalCentavos += linha.getSubtotalCentavos();
+                produtosDistintos++;
+            }
+            quantidadeCentesimos += linha.quantidadeCentesimos;
+            porMarca = null;
+        }
+    }
+
+    /**
+     * Refaz índices e contadores a partir das listas (substituição completa
+     * ou leitura da sessão). Chamar com o lock.
+     */
+    private void reindexar() {
+        posicaoProduto.clear();
+        linhasPorLente.clear();
+        produtosPorMarca.clear();
+
+        long quantidade = 0;
+        for (LinhaLente l : lentes) {
+            linhasPorLente.merge(l.idLente, 1, Integer::sum);
+            quantidade += l.quantidadeCentesimos;
+        }
+        for (int i = 0; i < produtos.size(); i++) {
+            LinhaProduto p = produtos.get(i);
+            LinhaProduto anterior = posicaoProduto.containsKey(p.codigo)
+                    ? produtos.get(posicaoProduto.get(p.codigo)) : null;
+            if (anterior != null) produtosPorMarca.remove(anterior);
+            posicaoProduto.put(p.codigo, i);  // código repetido: soma na última linha
+            produtosPorMarca.add(p);
+            quantidade += p.quantidadeCentesimos;
+        }
+
+        quantidadeCentesimos = quantidade;
+        produtosDistintos = linhasPorLente.size() + posicaoProduto.size();
+        porMarca = null;
+    }
+
+    /**
+     * Inclui o produto numa cópia do carrinho, revalida a cópia e só então a
+     * adota. Com itens rejeitados o carrinho fica como estava (não salvar na
+     * sessão). O lock fica com a operação inteira: outra aba não altera o
+     * carrinho entre a cópia e a adoção.
+     */
+    public RevalidadorPrecos.Resultado adicionarProdutoRevalidado(LinhaProduto linha) throws SQLException {
+        synchronized (lock) {
+            CarrinhoSessao copia = copia();
+            copia.adicionarProduto(linha);
+
+            RevalidadorPrecos.Resultado resultado = RevalidadorPrecos.revalidar(copia);
+            if (resultado.isValido()) {
+                substituirPor(copia);
+            }
+            return resultado;
+        }
+    }
+
+    /**
+     * Cópia independente (lentes copiadas: a revalidação corrige os preços delas).
+     */
+    CarrinhoSessao copia() {
+        synchronized (lock) {
+            CarrinhoSessao copia = new CarrinhoSessao();
+            copia.clienteId = clienteId;
+            copia.clienteNome = clienteNome;
+            copia.totalCentavos = totalCentavos;
+            for (LinhaLente l : lentes) {
+                copia.lentes.add(l.copia());
+            }
+            copia.produtos.addAll(produtos);
+            copia.reindexar();
+            return copia;
+        }
+    }
+
+    /**
+     * Total recalculado das linhas: Σ precoTotal × quantidade das lentes
+     * + Σ preço × quantidade dos produtos (usado após revalidar os preços).
+     */
+    void recalcularTotal() {
+        synchronized (lock) {
+            long total = 0;
+            for (LinhaLente l : lentes) {
+                total += Dinheiro.deCentavos(l.precoTotalCentavos).multiplicar(l.getQuantidade()).getCentavos();
+            }
+            for (LinhaProduto p : produtos) {
+                total += p.getSubtotalCentavos();
+            }
+            totalCentavos = total;
+        }
+    }
+
+    public Long getClienteId() {
+        synchronized (lock) {
+            return clienteId;
+        }
+    }
+
+    public String getClienteNome() {
+        synchronized (lock) {
+            return clienteNome;
+        }
+    }
+
+    public double getTotal() {
+        return totalCentavos / 100.0;
+    }
+
+    /** Σ quantidades de lentes e produtos. */
+    public double getQuantidadeItens() {
+        return quantidadeCentesimos / 100.0;
+    }
+
+    /** Lentes (por id no catálogo) e produtos (por código) diferentes. */
+    public int getProdutosDistintos() {
+        return produtosDistintos;
+    }
+
+    /** Produtos ordenados por marca (sem diferenciar maiúsculas), depois por código. */
+    public List<LinhaProduto> getProdutosPorMarca() {
+        List<LinhaProduto> lista = porMarca;
+        if (lista != null) return lista;
+
+        synchronized (lock) {
+            if (porMarca == null) {
+                porMarca = Collections.unmodifiableList(new ArrayList<>(produtosPorMarca));
+            }
+            return porMarca;
+        }
+    }
+
+    /** Cópia das lentes no momento da chamada. */
+    public List<LinhaLente> getLentes() {
+        synchronized (lock) {
+            return Collections.unmodifiableList(new ArrayList<>(lentes));
+        }
+    }
+
+    /** Cópia dos produtos no momento da chamada. */
+    public List<LinhaProduto> getProdutos() {
+        synchronized (lock) {
+            return Collections.unmodifiableList(new ArrayList<>(produtos));
+        }
+    }
+
+    // ========================================
+    // Serialização
+    // ========================================
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        synchronized (lock) {
+            out.writeByte(VERSAO);
+            escreverVar(out, clienteId != null ? clienteId : -1L);
+            escreverTexto(out, clienteNome);
+            escreverVar(out, totalCentavos);
+
+            escreverVar(out, lentes.size());
+            for (LinhaLente l : lentes) {
+                l.escrever(out);
+            }
+
+            escreverVar(out, produtos.size());
+            for (LinhaProduto p : produtos) {
+                p.escrever(out);
+            }
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        synchronized (lock) {
+            byte versao = in.readByte();
+            if (versao != VERSAO) {
+                throw new InvalidClassException(CarrinhoSessao.class.getName(),
+                        "versão de carrinho desconhecida: " + versao);
+            }
+
+            long cliente = lerVar(in);
+            clienteId = cliente >= 0 ? cliente : null;
+            clienteNome = lerTexto(in);
+            totalCentavos = lerVar(in);
+
+            lentes.clear();
+            int nLentes = (int) lerVar(in);
+            for (int i = 0; i < nLentes; i++) {
+                lentes.add(LinhaLente.ler(in));
+            }
+
+            produtos.clear();
+            int nProdutos = (int) lerVar(in);
+            for (int i = 0; i < nProdutos; i++) {
+                produtos.add(LinhaProduto.ler(in));
+            }
+
+            reindexar();
+        }
+    }
+
+    private static long centavos(double valor) {
+        return Dinheiro.centavos(valor);
+    }
+
+    private static short centesimos(double grau) {
+        return (short) Math.round(grau * 100);
+    }
+
+    /** Inteiro com sinal em varint (zigzag + 7 bits por byte). */
+    private static void escreverVar(ObjectOutput out, long valor) throws IOException {
+        long v = (valor << 1) ^ (valor >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long lerVar(ObjectInput in) throws IOException {
+        long v = 0;
+        for (int deslocamento = 0; deslocamento < 64; deslocamento += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << deslocamento;
+            if ((b & 0x80) == 0) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        throw new InvalidClassException(CarrinhoSessao.class.getName(), "varint inválido");
+    }
+
+    private static void escreverTexto(ObjectOutput out, String texto) throws IOException {
+        out.writeBoolean(texto != null);
+        if (texto != null) out.writeUTF(texto);
+    }
+
+    private static String lerTexto(ObjectInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    // ========================================
+    // Linhas
+    // ========================================
+
+    /**
+     * Lente do carrinho (um olho). Dados descritivos resolvidos pelo id no catálogo.
+     */
+    public static final class LinhaLente {
+        private int idLente;           // produtoteste.idprodutoteste
+        private String olho;
+        private short esf;             // centésimos de dioptria
+        private short cil;
+        private short eixo;
+        private short adicao;
+        private long quantidadeCentesimos;
+        private long precoUnitarioCentavos;
+        private long precoTotalCentavos;
+        private int[] tratamentoIds = new int[0];
+        private long[] tratamentoValores = new long[0];
+        private String coloracaoNome;
+        private String coloracaoTipo;
+        private String coloracaoHex;
+        private long coloracaoCentavos;
+
+        public LinhaLente(int idLente, String olho, double esf, double cil, int eixo,
+                          double adicao, double quantidade, double precoUnitario, double precoTotal) {
+            this.idLente = idLente;
+            this.olho = olho;
+            this.esf = centesimos(esf);
+            this.cil = centesimos(cil);
+            this.eixo = (short) eixo;
+            this.adicao = centesimos(adicao);
+            this.quantidadeCentesimos = Math.round(quantidade * 100);
+            this.precoUnitarioCentavos = centavos(precoUnitario);
+            this.precoTotalCentavos = centavos(precoTotal);
+        }
+
+        private LinhaLente() {
+        }
+
+        private LinhaLente copia() {
+            LinhaLente l = new LinhaLente();
+            l.idLente = idLente;
+            l.olho = olho;
+            l.esf = esf;
+            l.cil = cil;
+            l.eixo = eixo;
+            l.adicao = adicao;
+            l.quantidadeCentesimos = quantidadeCentesimos;
+            l.precoUnitarioCentavos = precoUnitarioCentavos;
+            l.precoTotalCentavos = precoTotalCentavos;
+            l.tratamentoIds = tratamentoIds.clone();
+            l.tratamentoValores = tratamentoValores.clone();
+            l.coloracaoNome = coloracaoNome;
+            l.coloracaoTipo = coloracaoTipo;
+            l.coloracaoHex = coloracaoHex;
+            l.coloracaoCentavos = coloracaoCentavos;
+            return l;
+        }
+
+        public void adicionarTratamento(int id, double valor) {
+            int n = tratamentoIds.length;
+            int[] ids = new int[n + 1];
+            long[] valores = new long[n + 1];
+            System.arraycopy(tratamentoIds, 0, ids, 0, n);
+            System.arraycopy(tratamentoValores, 0, valores, 0, n);
+            ids[n] = id;
+            valores[n] = centavos(valor);
+            tratamentoIds = ids;
+            tratamentoValores = valores;
+        }
+
+        /**
+         * Aplica os preços do catálogo (centavos) e recalcula o total da linha:
+         * lente + tratamentos + coloração.
+         */
+        void corrigirPrecos(long precoLente, long[] valoresTratamento, long valorColoracao) {
+            long total = precoLente;
+            for (int i = 0; i < tratamentoIds.length; i++) {
+                tratamentoValores[i] = valoresTratamento[i];
+                total += valoresTratamento[i];
+            }
+            if (coloracaoNome != null) {
+                coloracaoCentavos = valorColoracao;
+                total += valorColoracao;
+            }
+            precoUnitarioCentavos = precoLente;
+            precoTotalCentavos = total;
+        }
+
+        public void setColoracao(String nome, String tipo, double valor, String hex) {
+            this.coloracaoNome = nome;
+            this.coloracaoTipo = tipo;
+            this.coloracaoCentavos = centavos(valor);
+            this.coloracaoHex = hex;
+        }
+
+        // --- gravados ---
+
+        public int getIdLente() { return idLente; }
+        public String getOlho() { return olho; }
+        public double getEsf() { return esf / 100.0; }
+        public double getCil() { return cil / 100.0; }
+        public int getEixo() { return eixo; }
+        public double getAdicao() { return adicao / 100.0; }
+        public double getQuantidade() { return quantidadeCentesimos / 100.0; }
+        public double getPrecoUnitario() { return precoUnitarioCentavos / 100.0; }
+        public double getPrecoTotal() { return precoTotalCentavos / 100.0; }
+        long getPrecoUnitarioCentavos() { return precoUnitarioCentavos; }
+        long getPrecoTotalCentavos() { return precoTotalCentavos; }
+        long getTratamentoCentavos(int i) { return tratamentoValores[i]; }
+        long getColoracaoCentavos() { return coloracaoCentavos; }
+        public int getQuantidadeTratamentos() { return tratamentoIds.length; }
+        public int getTratamentoId(int i) { return tratamentoIds[i]; }
+        public double getTratamentoValor(int i) { return tratamentoValores[i] / 100.0; }
+        public boolean temColoracao() { return coloracaoNome != null; }
+        public String getColoracaoNome() { return coloracaoNome; }
+        public String getColoracaoTipo() { return coloracaoTipo; }
+        public String getColoracaoHex() { return coloracaoHex; }
+        public double getColoracaoValor() { return coloracaoCentavos / 100.0; }
+
+        // --- resolvidos no catálogo ---
+
+        /**
+         * Chave da tela, igual a CarrinhoModel.gerarIdLente():
+         * lente_codigoWeb_olho_tratamentos(ordem de texto)_coloração
+         */
+        public String getChave() {
+            String codigoWeb = getCodigoWeb();
+            String[] codigos = new String[tratamentoIds.length];
+            for (int i = 0; i < codigos.length; i++) {
+                codigos[i] = String.valueOf(tratamentoIds[i]);
+            }
+            Arrays.sort(codigos);
+            return "lente_" + (codigoWeb != null && !codigoWeb.isEmpty() ? codigoWeb : String.valueOf(idLente))
+                    + "_" + olho
+                    + "_" + String.join("-", codigos)
+                    + "_" + (coloracaoNome != null && !coloracaoNome.isEmpty() ? coloracaoNome : "sem");
+        }
+
+        public String getDescricao() { return descritivo("descricao"); }
+        public String getMarca() { return descritivo("marca"); }
+        public String getFamilia() { return descritivo("familia"); }
+        public String getCodigoWeb() { return descritivo("cod_web"); }
+        public String getCodigoProdutoFornecedor() { return descritivo("cod_prod_fornecedor"); }
+        public String getMaterial() { return descritivo("material"); }
+        public String getIndice() { return descritivo("indice"); }
+        public String getDiametro() { return descritivo("diametro"); }
+
+        public String getUnidade() {
+            String unidade = descritivo("unidade");
+            return unidade != null ? unidade : "par";
+        }
+
+        public String getTratamentoNome(int i) {
+            return tratamento(i, true);
+        }
+
+        public String getTratamentoTipo(int i) {
+            return tratamento(i, false);
+        }
+
+        private String descritivo(String coluna) {
+            try {
+                CatalogoLentesCache.Snapshot catalogo = CatalogoLentesCache.get();
+                return catalogo.getDescritivo(coluna, catalogo.posicao(idLente));
+            } catch (SQLException e) {
+                System.err.println("⚠️ Catálogo indisponível para lente " + idLente + ": " + e.getMessage());
+                return null;
+            }
+        }
+
+        private String tratamento(int i, boolean nome) {
+            try {
+                CompatibilidadeTratamentoCache.Snapshot snap = CompatibilidadeTratamentoCache.get();
+                int indice = snap.indiceDoTratamentoId(tratamentoIds[i]);
+                if (indice < 0) return null;
+                return nome ? snap.getTratamentoNome(indice) : snap.getTratamentoTipo(indice);
+            } catch (SQLException e) {
+                System.err.println("⚠️ Tratamentos indisponíveis: " + e.getMessage());
+                return null;
+            }
+        }
+
+        private void escrever(ObjectOutput out) throws IOException {
+            escreverVar(out, idLente);
+            escreverTexto(out, olho);
+            escreverVar(out, esf);
+            escreverVar(out, cil);
+            escreverVar(out, eixo);
+            escreverVar(out, adicao);
+            escreverVar(out, quantidadeCentesimos);
+            escreverVar(out, precoUnitarioCentavos);
+            escreverVar(out, precoTotalCentavos);
+
+            escreverVar(out, tratamentoIds.length);
+            for (int i = 0; i < tratamentoIds.length; i++) {
+                escreverVar(out, tratamentoIds[i]);
+                escreverVar(out, tratamentoValores[i]);
+            }
+
+            out.writeBoolean(coloracaoNome != null);
+            if (coloracaoNome != null) {
+                out.writeUTF(coloracaoNome);
+                escreverTexto(out, coloracaoTipo);
+                escreverTexto(out, coloracaoHex);
+                escreverVar(out, coloracaoCentavos);
+            }
+        }
+
+        private static LinhaLente ler(ObjectInput in) throws IOException {
+            LinhaLente l = new LinhaLente();
+            l.idLente = (int) lerVar(in);
+            l.olho = lerTexto(in);
+            l.esf = (short) lerVar(in);
+            l.cil = (short) lerVar(in);
+            l.eixo = (short) lerVar(in);
+            l.adicao = (short) lerVar(in);
+            l.quantidadeCentesimos = lerVar(in);
+            l.precoUnitarioCentavos = lerVar(in);
+            l.precoTotalCentavos = lerVar(in);
+
+            int n = (int) lerVar(in);
+            l.tratamentoIds = new int[n];
+            l.tratamentoValores = new long[n];
+            for (int i = 0; i < n; i++) {
+                l.tratamentoIds[i] = (int) lerVar(in);
+                l.tratamentoValores[i] = lerVar(in);
+            }
+
+            if (in.readBoolean()) {
+                l.coloracaoNome = in.readUTF();
+                l.coloracaoTipo = lerTexto(in);
+                l.coloracaoHex = lerTexto(in);
+                l.coloracaoCentavos = lerVar(in);
+            }
+            return l;
+        }
+    }
+
+    /**
+     * Produto genérico (armação, acessório...). Sem catálogo: texto gravado junto.
+     */
+    public static final class LinhaProduto {
+        private int codigo;
+        private String descricao;
+        private String marca;
+        private String unidade;
+        private String tipo;
+        private long quantidadeCentesimos;
+        private long precoCentavos;
+
+        public LinhaProduto(int codigo, String descricao, String marca, String unidade, String tipo,
+                            double quantidade, double preco) {
+            this.codigo = codigo;
+            this.descricao = descricao;
+            this.marca = marca;
+            this.unidade = unidade;
+            this.tipo = tipo;
+            this.quantidadeCentesimos = Math.round(quantidade * 100);
+            this.precoCentavos = centavos(preco);
+        }
+
+        private LinhaProduto() {
+        }
+
+        /** Mesmo produto com a quantidade somada e o preço da linha nova. */
+        private LinhaProduto somar(LinhaProduto outra) {
+            LinhaProduto p = new LinhaProduto();
+            p.codigo = codigo;
+            p.descricao = descricao;
+            p.marca = marca;
+            p.unidade = unidade;
+            p.tipo = tipo;
+            p.quantidadeCentesimos = quantidadeCentesimos + outra.quantidadeCentesimos;
+            p.precoCentavos = outra.precoCentavos;
+            return p;
+        }
+
+        public int getCodigo() { return codigo; }
+        public String getDescricao() { return descricao; }
+        public String getMarca() { return marca; }
+        public String getUnidade() { return unidade; }
+        public String getTipo() { return tipo; }
+        public double getQuantidade() { return quantidadeCentesimos / 100.0; }
+        public double getPreco() { return precoCentavos / 100.0; }
+        public double getPrecoTotal() { return precoCentavos * quantidadeCentesimos / 10000.0; }
+        long getPrecoCentavos() { return precoCentavos; }
+        long getQuantidadeCentesimos() { return quantidadeCentesimos; }
+
+        /** Preço × quantidade, em centavos (mesma regra do total do carrinho). */
+        long getSubtotalCentavos() {
+            return Dinheiro.deCentavos(precoCentavos).multiplicar(getQuantidade()).getCentavos();
+        }
+
+        private void escrever(ObjectOutput out) throws IOException {
+            escreverVar(out, codigo);
+            escreverTexto(out, descricao);
+            escreverTexto(out, marca);
+            escreverTexto(out, unidade);
+            escreverTexto(out, tipo);
+            escreverVar(out, quantidadeCentesimos);
+            escreverVar(out, precoCentavos);
+        }
+
+        private static LinhaProduto ler(ObjectInput in) throws IOException {
+            LinhaProduto p = new LinhaProduto();
+            p.codigo = (int) lerVar(in);
+            p.descricao = lerTexto(in);
+            p.marca = lerTexto(in);
+            p.unidade = lerTexto(in);
+            p.tipo = lerTexto(in);
+            p.quantidadeCentesimos = lerVar(in);
+            p.precoCentavos = lerVar(in);
+            return p;
+        }
+    }
+}
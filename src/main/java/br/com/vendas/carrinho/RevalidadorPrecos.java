@@ -0,0 +1,221 @@
+package br.com.vendas.carrinho;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import br.com.vendas.carrinho.CarrinhoSessao.LinhaLente;
+import br.com.vendas.carrinho.CarrinhoSessao.LinhaProduto;
+import br.com.vendas.dao.CatalogoLentesCache;
+import br.com.vendas.dao.CompatibilidadeTratamentoCache;
+import br.com.vendas.dao.LentesDao;
+import br.com.vendas.util.Dinheiro;
+
+/**
+ * Revalida no servidor os preços que a tela enviou para o carrinho.
+ *
+ * Uma única passada sobre as linhas, sem consulta por item:
+ * - Lente: preco_venda do CatalogoLentesCache (snapshot em memória)
+ * - Tratamento: valor_venda do CompatibilidadeTratamentoCache
+ * - Coloração: uma consulta IN com os nomes distintos do carrinho
+ *
+ * Regra igual à do CarrinhoModel.js: precoTotal da lente = lente + tratamentos
+ * + coloração; total = Σ precoTotal × quantidade + Σ preço × quantidade dos produtos.
+ * Preço divergente é substituído pelo do catálogo (e listado em getCorrecoes());
+ * lente, tratamento ou coloração inexistente rejeita o carrinho.
+ *
+ * Tratamentos são identificados por tratamento.id (o id que o SelecaoLentes
+ * envia como tratamentoAdicionalId). Telas que mandam outro código
+ * (tratamentos.codigo, codigo_fornecedor) são resolvidas pelo nome em
+ * resolverTratamentoId(), ao montar o carrinho.
+ *
+ * Produtos genéricos não têm catálogo no banco: só preço ≥ 0 e quantidade > 0
+ * são conferidos, e entram no total recalculado.
+ *
+ * @author OptoFreela
+ */
+public final class RevalidadorPrecos {
+
+    private RevalidadorPrecos() {
+    }
+
+    /**
+     * Corrige os preços do carrinho pelos do catálogo e recalcula o total.
+     * Com itens rejeitados, o carrinho pode ficar parcialmente corrigido:
+     * não salvar na sessão nesse caso.
+     */
+    public static Resultado revalidar(CarrinhoSessao carrinho) throws SQLException {
+        Resultado resultado = new Resultado(carrinho.getTotal());
+
+        List<LinhaLente> lentes = carrinho.getLentes();
+        if (!lentes.isEmpty()) {
+            revalidarLentes(lentes, resultado);
+        }
+
+        for (LinhaProduto p : carrinho.getProdutos()) {
+            String erro = validarProduto(p);
+            if (erro != null) resultado.rejeitados.add(erro);
+        }
+
+        carrinho.recalcularTotal();
+        resultado.totalCorrigido = carrinho.getTotal();
+        return resultado;
+    }
+
+    /**
+     * tratamento.id do tratamento enviado pela tela, ou 0 (a revalidação rejeita).
+     *
+     * O código vale se for um tratamento.id com o mesmo nome (ou sem nome
+     * enviado); senão o tratamento é procurado pelo nome, de preferência um
+     * compatível com a família da lente.
+     */
+    public static int resolverTratamentoId(int codigo, String nome, String familia) throws SQLException {
+        CompatibilidadeTratamentoCache.Snapshot tratamentos = CompatibilidadeTratamentoCache.get();
+        boolean temNome = nome != null && !nome.trim().isEmpty();
+
+        int indice = codigo > 0 ? tratamentos.indiceDoTratamentoId(codigo) : -1;
+        if (indice >= 0 && (!temNome || nome.trim().equalsIgnoreCase(
+                String.valueOf(tratamentos.getTratamentoNome(indice)).trim()))) {
+            return codigo;
+        }
+        if (!temNome) return 0;
+
+        int[] candidatos = tratamentos.indicesDoTratamento(nome);
+        if (candidatos.length == 0) return 0;
+
+        int compativel = tratamentos.tratamentoCompativel(familia, candidatos);
+        return tratamentos.getTratamentoId(compativel >= 0 ? compativel : candidatos[0]);
+    }
+
+    /**
+     * Conferência possível para produto genérico (sem catálogo), ou null se válido.
+     */
+    public static String validarProduto(LinhaProduto p) {
+        if (p.getQuantidadeCentesimos() <= 0) {
+            return "Produto " + p.getCodigo() + ": quantidade inválida";
+        }
+        if (p.getPrecoCentavos() < 0) {
+            return "Produto " + p.getCodigo() + ": preço negativo";
+        }
+        return null;
+    }
+
+    private static void revalidarLentes(List<LinhaLente> lentes, Resultado resultado) throws SQLException {
+        CatalogoLentesCache.Snapshot catalogo = CatalogoLentesCache.get();
+        CompatibilidadeTratamentoCache.Snapshot tratamentos = CompatibilidadeTratamentoCache.get();
+
+        // Colorações: uma consulta para todos os nomes distintos
+        Set<String> nomesCor = new LinkedHashSet<>();
+        for (LinhaLente l : lentes) {
+            if (l.temColoracao()) nomesCor.add(l.getColoracaoNome());
+        }
+        Map<String, Dinheiro> valoresCor = nomesCor.isEmpty()
+                ? Collections.emptyMap()
+                : new LentesDao().buscarValoresColoracao(nomesCor);
+
+        for (int posicaoCarrinho = 0; posicaoCarrinho < lentes.size(); posicaoCarrinho++) {
+            LinhaLente l = lentes.get(posicaoCarrinho);
+            if (l.getQuantidade() <= 0) {
+                resultado.rejeitados.add("Lente " + l.getIdLente() + ": quantidade inválida");
+                continue;
+            }
+
+            int posicao = catalogo.posicao(l.getIdLente());
+            if (posicao < 0) {
+                resultado.rejeitados.add("Lente " + l.getIdLente() + " não encontrada no catálogo");
+                continue;
+            }
+            long precoLente = catalogo.getPrecoVendaCentavos(posicao);
+
+            boolean valido = true;
+            long[] valoresTratamento = new long[l.getQuantidadeTratamentos()];
+            for (int i = 0; i < valoresTratamento.length; i++) {
+                int indice = tratamentos.indiceDoTratamentoId(l.getTratamentoId(i));
+                if (indice < 0) {
+                    resultado.rejeitados.add("Tratamento " + l.getTratamentoId(i) + " não encontrado");
+                    valido = false;
+                    break;
+                }
+                valoresTratamento[i] = Dinheiro.centavos(tratamentos.getTratamentoValor(indice));
+            }
+
+            long valorCor = 0;
+            if (valido && l.temColoracao()) {
+                Dinheiro valor = valoresCor.get(l.getColoracaoNome());
+                if (valor == null) {
+                    resultado.rejeitados.add("Coloração \"" + l.getColoracaoNome() + "\" não encontrada");
+                    valido = false;
+                } else {
+                    valorCor = valor.getCentavos();
+                }
+            }
+            if (!valido) continue;
+
+            long unitarioAntes = l.getPrecoUnitarioCentavos();
+            long totalAntes = l.getPrecoTotalCentavos();
+            l.corrigirPrecos(precoLente, valoresTratamento, valorCor);
+
+            if (l.getPrecoUnitarioCentavos() != unitarioAntes || l.getPrecoTotalCentavos() != totalAntes) {
+                resultado.correcoes.add(new Correcao(posicaoCarrinho, l.getChave(),
+                        Dinheiro.deCentavos(l.getPrecoUnitarioCentavos()),
+                        Dinheiro.deCentavos(l.getPrecoTotalCentavos())));
+            }
+        }
+    }
+
+    // ========================================
+    // Resultado
+    // ========================================
+
+    public static final class Resultado {
+        private final double totalInformado;
+        private double totalCorrigido;
+        private final List<Correcao> correcoes = new ArrayList<>();
+        private final List<String> rejeitados = new ArrayList<>();
+
+        private Resultado(double totalInformado) {
+            this.totalInformado = totalInformado;
+        }
+
+        public boolean isValido() {
+            return rejeitados.isEmpty();
+        }
+
+        /** Houve preço de linha ou total diferente do enviado pela tela. */
+        public boolean isCorrigido() {
+            return !correcoes.isEmpty() || Dinheiro.centavos(totalInformado) != Dinheiro.centavos(totalCorrigido);
+        }
+
+        public double getTotalInformado() { return totalInformado; }
+        public double getTotalCorrigido() { return totalCorrigido; }
+        public List<Correcao> getCorrecoes() { return correcoes; }
+        public List<String> getRejeitados() { return rejeitados; }
+    }
+
+    /**
+     * Lente com preço corrigido: posição em getLentes() e chave remontada
+     * como gerarIdLente (igual à da tela quando ela envia tratamento.id).
+     */
+    public static final class Correcao {
+        private final int indice;
+        private final String chave;
+        private final Dinheiro precoUnitario;
+        private final Dinheiro precoTotal;
+
+        Correcao(int indice, String chave, Dinheiro precoUnitario, Dinheiro precoTotal) {
+            this.indice = indice;
+            this.chave = chave;
+            this.precoUnitario = precoUnitario;
+            this.precoTotal = precoTotal;
+        }
+
+        public int getIndice() { return indice; }
+        public String getChave() { return chave; }
+        public Dinheiro getPrecoUnitario() { return precoUnitario; }
+        public Dinheiro getPrecoTotal() { return precoTotal; }
+    }
+}
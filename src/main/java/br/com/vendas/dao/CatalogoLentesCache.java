@@ -0,0 +1,370 @@
+package br.com.vendas.dao;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import br.com.vendas.auxiliares.FiltroGrau;
+import br.com.vendas.util.Dinheiro;
+
+/**
+ * Catálogo de lentes (produtoteste) em memória, em formato colunar.
+ *
+ * Cada linha recebe uma posição 0..n-1. Para os atributos de faceta
+ * (marca, material, índice, antireflexo, fotossensível, antiblue, produção)
+ * e para visao é mantido um índice valor → BitSet de posições, de modo que
+ * contagens por faceta são interseções de bitsets. As demais colunas que a
+ * listagem filtra (FILTROS: fabricante, tratamento...) têm o mesmo índice,
+ * para as contagens respeitarem os mesmos filtros da listagem.
+ *
+ * Atributos numéricos (índice de refração) são comparados pelo número:
+ * "1.5", "1.50" e "1,50" são o mesmo valor, como no MySQL.
+ *
+ * As faixas de grau ficam em arrays de double (NULL = NaN) para avaliar a
+ * disponibilidade de uma receita com FiltroGrau, sem consulta ao banco.
+ *
+ * Colunas descritivas (DESCRITIVOS: descrição, código web, família...) ficam
+ * em arrays de String por posição, para resolver dados de uma lente pelo id
+ * (ex: itens do carrinho guardados só com id, quantidade e preço), e o
+ * preço de venda em centavos, para revalidar o carrinho sem consulta.
+ *
+ * O snapshot é imutável e recarregado após TTL_MS ou via invalidar().
+ *
+ * @author OptoFreela
+ */
+public final class CatalogoLentesCache {
+
+    private static final long TTL_MS = 5 * 60 * 1000L;
+
+    /** Atributos indexados por bitset (nome da coluna em produtoteste) */
+    public static final String[] FACETAS = {
+        "marca", "material", "indice", "antireflexo", "fotossensivel", "antiblue", "producao"
+    };
+
+    /**
+     * Demais colunas filtradas pela listagem (OpcoesCompleto), indexadas por
+     * bitset mas sem contagem própria
+     */
+    public static final String[] FILTROS = {
+        "fabricante", "tratamento", "afinamento", "ar_residual", "cor_foto", "familia", "permite_colorir"
+    };
+
+    /** Atributos comparados como número */
+    private static final Set<String> NUMERICOS = Set.of("indice");
+
+    /** Colunas de produtoteste resolvidas por id via getDescritivo() */
+    public static final String[] DESCRITIVOS = {
+        "cod_web", "cod_prod_fornecedor", "descricao", "marca", "familia",
+        "material", "indice", "diametro", "unidade"
+    };
+
+    private static final String SQL = """
+        SELECT idprodutoteste, visao, marca, material, indice, antireflexo, fotossensivel,
+               antiblue, producao, fabricante, tratamento, afinamento, ar_residual, cor_foto,
+               permite_colorir, esferico, cilindrico, esf_ini, esf_fim, cil_ini, cil_fim,
+               adi_ini, adi_fim, cod_web, cod_prod_fornecedor, descricao, familia, diametro, unidade,
+               preco_venda
+        FROM produtoteste
+        ORDER BY idprodutoteste
+    """;
+
+    private static volatile Snapshot snapshot;
+
+    private CatalogoLentesCache() {
+    }
+
+    /**
+     * Retorna o catálogo atual, recarregando do banco se expirou.
+     */
+    public static Snapshot get() throws SQLException {
+        Snapshot atual = snapshot;
+        if (atual != null && !atual.expirado()) {
+            return atual;
+        }
+        synchronized (CatalogoLentesCache.class) {
+            atual = snapshot;
+            if (atual == null || atual.expirado()) {
+                atual = carregar();
+                snapshot = atual;
+            }
+            return atual;
+        }
+    }
+
+    /**
+     * Descarta o catálogo; a próxima consulta recarrega do banco.
+     * Chamar após cadastrar ou alterar lentes em produtoteste.
+     */
+    public static void invalidar() {
+        snapshot = null;
+    }
+
+    private static Snapshot carregar() throws SQLException {
+        long inicio = System.currentTimeMillis();
+        Snapshot.Builder builder = new Snapshot.Builder();
+
+        try (Connection conn = ConnectionFactory.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                builder.adicionar(rs);
+            }
+        }
+
+        Snapshot novo = builder.build();
+        System.out.println("📚 Catálogo de lentes carregado: " + novo.tamanho() + " linhas em "
+                + (System.currentTimeMillis() - inicio) + " ms");
+        return novo;
+    }
+
+    /**
+     * Visão imutável do catálogo.
+     */
+    public static final class Snapshot {
+
+        private final long carregadoEm = System.currentTimeMillis();
+        private final int tamanho;
+        private final int[] idLente;
+        private final double[] esferico;
+        private final double[] cilindrico;
+        private final double[] esfIni;
+        private final double[] esfFim;
+        private final double[] cilIni;
+        private final double[] cilFim;
+        private final double[] adiIni;
+        private final double[] adiFim;
+        private final Map<String, Map<String, BitSet>> indices;
+        private final Map<String, Map<String, String>> rotulos;
+        private final String[][] descritivos;
+        private final long[] precoVenda;
+
+        private Snapshot(Builder b) {
+            this.tamanho = b.tamanho;
+            this.idLente = Arrays.copyOf(b.idLente, b.tamanho);
+            this.esferico = Arrays.copyOf(b.esferico, b.tamanho);
+            this.cilindrico = Arrays.copyOf(b.cilindrico, b.tamanho);
+            this.esfIni = Arrays.copyOf(b.esfIni, b.tamanho);
+            this.esfFim = Arrays.copyOf(b.esfFim, b.tamanho);
+            this.cilIni = Arrays.copyOf(b.cilIni, b.tamanho);
+            this.cilFim = Arrays.copyOf(b.cilFim, b.tamanho);
+            this.adiIni = Arrays.copyOf(b.adiIni, b.tamanho);
+            this.adiFim = Arrays.copyOf(b.adiFim, b.tamanho);
+            this.indices = b.indices;
+            this.rotulos = b.rotulos;
+            this.descritivos = new String[DESCRITIVOS.length][];
+            for (int c = 0; c < DESCRITIVOS.length; c++) {
+                this.descritivos[c] = Arrays.copyOf(b.descritivos[c], b.tamanho);
+            }
+            this.precoVenda = Arrays.copyOf(b.precoVenda, b.tamanho);
+        }
+
+        private boolean expirado() {
+            return System.currentTimeMillis() - carregadoEm > TTL_MS;
+        }
+
+        public int tamanho() {
+            return tamanho;
+        }
+
+        public int getIdLente(int posicao) {
+            return idLente[posicao];
+        }
+
+        /** preco_venda da lente em centavos (NULL = 0). */
+        public long getPrecoVendaCentavos(int posicao) {
+            return precoVenda[posicao];
+        }
+
+        /**
+         * Posição da lente pelo idprodutoteste (busca binária), ou -1.
+         */
+        public int posicao(int id) {
+            int i = Arrays.binarySearch(idLente, 0, tamanho, id);
+            return i >= 0 ? i : -1;
+        }
+
+        /**
+         * Valor de uma coluna de DESCRITIVOS na posição (null se ausente).
+         */
+        public String getDescritivo(String coluna, int posicao) {
+            for (int c = 0; c < DESCRITIVOS.length; c++) {
+                if (DESCRITIVOS[c].equals(coluna)) {
+                    return posicao >= 0 && posicao < tamanho ? descritivos[c][posicao] : null;
+                }
+            }
+            throw new IllegalArgumentException("Coluna não carregada: " + coluna);
+        }
+
+        /**
+         * Posições das linhas disponíveis para o filtro de grau.
+         */
+        public BitSet disponiveis(FiltroGrau filtro) {
+            BitSet resultado = new BitSet(tamanho);
+            for (int i = 0; i < tamanho; i++) {
+                if (filtro.aceita(esferico[i], cilindrico[i], esfIni[i], esfFim[i],
+                        cilIni[i], cilFim[i], adiIni[i], adiFim[i])) {
+                    resultado.set(i);
+                }
+            }
+            return resultado;
+        }
+
+        /**
+         * Posições das linhas cujo atributo é igual a algum dos valores
+         * (comparação sem diferenciar maiúsculas, ou numérica, como no MySQL).
+         */
+        public BitSet comValor(String atributo, String... valores) {
+            BitSet resultado = new BitSet(tamanho);
+            Map<String, BitSet> indice = indices.get(atributo);
+            if (indice == null || valores == null) return resultado;
+
+            for (String valor : valores) {
+                BitSet bits = indice.get(chave(atributo, valor));
+                if (bits != null) resultado.or(bits);
+            }
+            return resultado;
+        }
+
+        /**
+         * Conta, para cada valor do atributo, quantas posições de 'base' o possuem.
+         * Valores com contagem zero são omitidos.
+         */
+        public Map<String, Integer> contar(String atributo, BitSet base) {
+            Map<String, BitSet> indice = indices.get(atributo);
+            if (indice == null) return Collections.emptyMap();
+
+            Map<String, Integer> contagem = new LinkedHashMap<>();
+            BitSet tmp = new BitSet(tamanho);
+            for (Map.Entry<String, BitSet> e : indice.entrySet()) {
+                tmp.clear();
+                tmp.or(e.getValue());
+                tmp.and(base);
+                int n = tmp.cardinality();
+                if (n > 0) {
+                    contagem.put(rotulos.get(atributo).get(e.getKey()), n);
+                }
+            }
+            return contagem;
+        }
+
+        private static String chave(String atributo, String valor) {
+            if (valor == null) return "";
+            String texto = valor.trim();
+            if (NUMERICOS.contains(atributo)) {
+                try {
+                    return new BigDecimal(texto.replace(',', '.')).stripTrailingZeros().toPlainString();
+                } catch (NumberFormatException e) {
+                    // não numérico: compara como texto
+                }
+            }
+            return texto.toLowerCase();
+        }
+
+        /**
+         * Monta o snapshot linha a linha a partir do ResultSet.
+         */
+        private static final class Builder {
+            private int tamanho;
+            private int[] idLente = new int[1024];
+            private double[] esferico = new double[1024];
+            private double[] cilindrico = new double[1024];
+            private double[] esfIni = new double[1024];
+            private double[] esfFim = new double[1024];
+            private double[] cilIni = new double[1024];
+            private double[] cilFim = new double[1024];
+            private double[] adiIni = new double[1024];
+            private double[] adiFim = new double[1024];
+            private final Map<String, Map<String, BitSet>> indices = new HashMap<>();
+            private final Map<String, Map<String, String>> rotulos = new HashMap<>();
+            private final String[][] descritivos = new String[DESCRITIVOS.length][1024];
+            private long[] precoVenda = new long[1024];
+            private final Map<String, String> textos = new HashMap<>();
+
+            Builder() {
+                indices.put("visao", new HashMap<>());
+                rotulos.put("visao", new HashMap<>());
+                for (String faceta : FACETAS) {
+                    indices.put(faceta, new LinkedHashMap<>());
+                    rotulos.put(faceta, new HashMap<>());
+                }
+                for (String filtro : FILTROS) {
+                    indices.put(filtro, new HashMap<>());
+                    rotulos.put(filtro, new HashMap<>());
+                }
+            }
+
+            void adicionar(ResultSet rs) throws SQLException {
+                if (tamanho == idLente.length) crescer();
+
+                int i = tamanho++;
+                idLente[i] = rs.getInt("idprodutoteste");
+                esferico[i] = getDouble(rs, "esferico");
+                cilindrico[i] = getDouble(rs, "cilindrico");
+                esfIni[i] = getDouble(rs, "esf_ini");
+                esfFim[i] = getDouble(rs, "esf_fim");
+                cilIni[i] = getDouble(rs, "cil_ini");
+                cilFim[i] = getDouble(rs, "cil_fim");
+                adiIni[i] = getDouble(rs, "adi_ini");
+                adiFim[i] = getDouble(rs, "adi_fim");
+                precoVenda[i] = Dinheiro.centavos(rs.getDouble("preco_venda"));
+
+                indexar("visao", rs.getString("visao"), i);
+                for (String faceta : FACETAS) {
+                    indexar(faceta, rs.getString(faceta), i);
+                }
+                for (String filtro : FILTROS) {
+                    indexar(filtro, rs.getString(filtro), i);
+                }
+                for (int c = 0; c < DESCRITIVOS.length; c++) {
+                    String valor = rs.getString(DESCRITIVOS[c]);
+                    // Valores repetidos (marca, unidade...) compartilham a mesma String
+                    descritivos[c][i] = valor != null ? textos.computeIfAbsent(valor, v -> v) : null;
+                }
+            }
+
+            private void indexar(String atributo, String valor, int posicao) {
+                if (valor == null || valor.trim().isEmpty()) return;
+
+                String chave = chave(atributo, valor);
+                indices.get(atributo).computeIfAbsent(chave, k -> new BitSet()).set(posicao);
+                rotulos.get(atributo).putIfAbsent(chave, valor.trim());
+            }
+
+            private void crescer() {
+                int novo = idLente.length * 2;
+                idLente = Arrays.copyOf(idLente, novo);
+                esferico = Arrays.copyOf(esferico, novo);
+                cilindrico = Arrays.copyOf(cilindrico, novo);
+                esfIni = Arrays.copyOf(esfIni, novo);
+                esfFim = Arrays.copyOf(esfFim, novo);
+                cilIni = Arrays.copyOf(cilIni, novo);
+                cilFim = Arrays.copyOf(cilFim, novo);
+                adiIni = Arrays.copyOf(adiIni, novo);
+                adiFim = Arrays.copyOf(adiFim, novo);
+                precoVenda = Arrays.copyOf(precoVenda, novo);
+                for (int c = 0; c < DESCRITIVOS.length; c++) {
+                    descritivos[c] = Arrays.copyOf(descritivos[c], novo);
+                }
+            }
+
+            private static double getDouble(ResultSet rs, String coluna) throws SQLException {
+                double valor = rs.getDouble(coluna);
+                return rs.wasNull() ? Double.NaN : valor;
+            }
+
+            Snapshot build() {
+                return new Snapshot(this);
+            }
+        }
+    }
+}
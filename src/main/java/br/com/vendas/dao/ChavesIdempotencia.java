@@ -0,0 +1,174 @@
+package br.com.vendas.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chaves de idempotência do checkout (venda_idempotencia): a mesma venda
+ * enviada de novo (duplo clique em "Finalizar", retry após timeout) devolve
+ * o vendaId/idPedido da primeira, sem gravar outra venda.
+ *
+ * O front gera uma chave por checkout e a reenvia nas tentativas. A chave é
+ * reservada com INSERT na transação da venda, antes de qualquer gravação:
+ * - chave nova: o INSERT passa e a venda segue; concluir() grava os IDs
+ *   antes do commit (rollback da venda também desfaz a reserva)
+ * - chave já usada: erro de chave duplicada (1062) e reservar() devolve a
+ *   venda registrada. Se a primeira requisição ainda estiver gravando, o
+ *   INSERT espera o lock da linha dela e só decide após o commit/rollback.
+ *
+ * Chave por usuário (PRIMARY KEY id_usuario, chave). Registros ficam
+ * TTL_HORAS; limparExpiradas() apaga os vencidos no máximo a cada 10 minutos.
+ *
+ * <pre>
+ *   CREATE TABLE venda_idempotencia (
+ *     id_usuario INT NOT NULL, chave VARCHAR(64) NOT NULL,
+ *     id_venda BIGINT NULL, id_pedido BIGINT NULL, criado_em DATETIME NOT NULL,
+ *     PRIMARY KEY (id_usuario, chave), KEY idx_criado_em (criado_em));
+ * </pre>
+ *
+ * @author OptoFreela
+ */
+public final class ChavesIdempotencia {
+
+    public static final int TTL_HORAS = 24;
+
+    private static final int ER_DUP_ENTRY = 1062;
+    private static final long INTERVALO_LIMPEZA_MS = 10 * 60 * 1000L;
+
+    private static final AtomicLong proximaLimpeza = new AtomicLong();
+    private static volatile boolean estruturaVerificada;
+
+    private ChavesIdempotencia() {
+    }
+
+    /**
+     * Venda já registrada com a chave.
+     */
+    public static final class Registro {
+        public final long vendaId;
+        public final long idPedido;
+
+        Registro(long vendaId, long idPedido) {
+            this.vendaId = vendaId;
+            this.idPedido = idPedido;
+        }
+    }
+
+    /**
+     * Formato aceito: 8 a 64 caracteres [A-Za-z0-9_-] (UUID serve).
+     */
+    public static boolean chaveValida(String chave) {
+        if (chave == null || chave.length() < 8 || chave.length() > 64) return false;
+        for (int i = 0; i < chave.length(); i++) {
+            char c = chave.charAt(i);
+            boolean ok = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_';
+            if (!ok) return false;
+        }
+        return true;
+    }
+
+    // ========================================
+    // Na transação da venda
+    // ========================================
+
+    /**
+     * Reserva a chave. null = chave nova, gravar a venda; senão, a venda
+     * já registrada com ela (o chamador faz rollback e devolve esses IDs).
+     */
+    public static Registro reservar(Connection conn, int usuarioId, String chave) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO venda_idempotencia (id_usuario, chave, criado_em) VALUES (?, ?, NOW())")) {
+            stmt.setInt(1, usuarioId);
+            stmt.setString(2, chave);
+            stmt.executeUpdate();
+            return null;
+        } catch (SQLException e) {
+            if (e.getErrorCode() != ER_DUP_ENTRY) throw e;
+        }
+
+        // FOR SHARE: lê a versão commitada, não o snapshot da transação
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT id_venda, id_pedido FROM venda_idempotencia " +
+                "WHERE id_usuario = ? AND chave = ? FOR SHARE")) {
+            stmt.setInt(1, usuarioId);
+            stmt.setString(2, chave);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    long vendaId = rs.getLong("id_venda");
+                    if (!rs.wasNull()) {
+                        return new Registro(vendaId, rs.getLong("id_pedido"));
+                    }
+                }
+            }
+        }
+        throw new SQLException("Venda com esta chave ainda em processamento. Tente novamente.");
+    }
+
+    /**
+     * Grava os IDs da venda na chave reservada (antes do commit da venda).
+     */
+    public static void concluir(Connection conn, int usuarioId, String chave, long vendaId, long idPedido)
+            throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE venda_idempotencia SET id_venda = ?, id_pedido = ? WHERE id_usuario = ? AND chave = ?")) {
+            stmt.setLong(1, vendaId);
+            stmt.setLong(2, idPedido);
+            stmt.setInt(3, usuarioId);
+            stmt.setString(4, chave);
+            stmt.executeUpdate();
+        }
+    }
+
+    // ========================================
+    // Fora de transação
+    // ========================================
+
+    /**
+     * Apaga chaves com mais de TTL_HORAS; no máximo uma vez a cada 10 minutos
+     * por processo (as demais chamadas retornam na hora).
+     */
+    public static void limparExpiradas(Connection conn) throws SQLException {
+        long agora = System.currentTimeMillis();
+        long proxima = proximaLimpeza.get();
+        if (agora < proxima || !proximaLimpeza.compareAndSet(proxima, agora + INTERVALO_LIMPEZA_MS)) return;
+
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "DELETE FROM venda_idempotencia WHERE criado_em < NOW() - INTERVAL ? HOUR")) {
+            stmt.setInt(1, TTL_HORAS);
+            int apagadas = stmt.executeUpdate();
+            if (apagadas > 0) {
+                System.out.println("🧹 Chaves de idempotência expiradas removidas: " + apagadas);
+            }
+        }
+    }
+
+    /**
+     * CREATE TABLE faz commit implícito: chamar antes de abrir a transação.
+     */
+    public static void garantirEstrutura(Connection conn) throws SQLException {
+        if (estruturaVerificada) return;
+
+        synchronized (ChavesIdempotencia.class) {
+            if (estruturaVerificada) return;
+
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(
+                        "CREATE TABLE IF NOT EXISTS venda_idempotencia (" +
+                        "  id_usuario INT NOT NULL," +
+                        "  chave VARCHAR(64) NOT NULL," +
+                        "  id_venda BIGINT NULL," +
+                        "  id_pedido BIGINT NULL," +
+                        "  criado_em DATETIME NOT NULL," +
+                        "  PRIMARY KEY (id_usuario, chave)," +
+                        "  KEY idx_criado_em (criado_em))");
+            }
+
+            estruturaVerificada = true;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package br.com.vendas.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Colunas só com dígitos de CPF e telefones em clientes, para busca exata
+ * por índice (o cliente é procurado pelo CPF no caixa).
+ *
+ * Em vez de REPLACE(REPLACE(cpfCliente, '.', ''), '-', '') = ? — que não usa
+ * índice — as colunas abaixo são geradas (STORED) pelo próprio MySQL: todo
+ * INSERT/UPDATE em clientes as mantém, inclusive os feitos fora da aplicação,
+ * e o ALTER TABLE preenche as linhas existentes.
+ *
+ * Criadas pela migração WEB-INF/sql/migracoes/002_clientes_digitos.sql:
+ * <pre>
+ *   ALTER TABLE clientes
+ *     ADD COLUMN cpf_digitos VARCHAR(20) AS (NULLIF(DIGITOS(cpfCliente), '')) STORED,
+ *     ADD COLUMN whats_digitos VARCHAR(20) AS (NULLIF(DIGITOS(whatsCliente), '')) STORED,
+ *     ADD COLUMN telefone_digitos VARCHAR(20) AS (NULLIF(DIGITOS(telefoneCliente), '')) STORED;
+ *   CREATE UNIQUE INDEX uk_clientes_cpf_digitos ON clientes (cpf_digitos);
+ *   CREATE INDEX idx_clientes_whats_digitos ON clientes (whats_digitos);
+ *   CREATE INDEX idx_clientes_telefone_digitos ON clientes (telefone_digitos);
+ * </pre>
+ * DIGITOS(x) = REPLACEs aninhados de . - / ( ) + e espaço (expressão
+ * determinística, aceita em coluna gerada). CPF vazio vira NULL, então o
+ * índice único não conflita entre clientes sem CPF.
+ *
+ * Em runtime só se confere (somente leitura) que as colunas e índices
+ * existem; nada de DDL no caminho da requisição. Sem a migração, os
+ * chamadores usam a busca antiga.
+ *
+ * @author OptoFreela
+ */
+public final class ClienteDao {
+
+    private static final String[] COLUNAS = { "cpf_digitos", "whats_digitos", "telefone_digitos" };
+    private static final String MIGRACAO = "WEB-INF/sql/migracoes/002_clientes_digitos.sql";
+
+    private static final long INTERVALO_VERIFICACAO_MS = 60 * 1000L;
+
+    private static volatile boolean estruturaDisponivel;
+    private static volatile long proximaVerificacao;
+
+    private ClienteDao() {
+    }
+
+    /**
+     * Confere as colunas e índices da migração. Presentes: fica confirmado
+     * para o processo; ausentes: nova conferência após INTERVALO_VERIFICACAO_MS
+     * (a migração aplicada com o servidor no ar passa a valer sem reiniciar).
+     * @return false se a migração não foi aplicada: usar a busca antiga nesse caso
+     */
+    public static boolean garantirEstrutura(Connection conn) {
+        if (estruturaDisponivel) return true;
+        if (System.currentTimeMillis() < proximaVerificacao) return false;
+
+        synchronized (ClienteDao.class) {
+            if (estruturaDisponivel) return true;
+            if (System.currentTimeMillis() < proximaVerificacao) return false;
+
+            try {
+                boolean completa = true;
+                for (String coluna : COLUNAS) {
+                    if (!existeColuna(conn, coluna) || !existeIndice(conn, coluna)) {
+                        System.err.println("⚠️ clientes." + coluna + " (ou seu índice) não existe: execute " + MIGRACAO);
+                        completa = false;
+                    }
+                }
+                estruturaDisponivel = completa;
+
+            } catch (SQLException e) {
+                System.err.println("⚠️ Colunas de dígitos em clientes não verificadas: " + e.getMessage());
+            }
+
+            proximaVerificacao = System.currentTimeMillis() + INTERVALO_VERIFICACAO_MS;
+            return estruturaDisponivel;
+        }
+    }
+
+    /**
+     * Id do cliente pelo CPF (só dígitos) via índice, ou null.
+     */
+    public static Long buscarIdPorCpf(Connection conn, String cpfDigitos) throws SQLException {
+        String sql = "SELECT idCliente FROM clientes WHERE cpf_digitos = ? ORDER BY idCliente LIMIT 1";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, cpfDigitos);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : null;
+            }
+        }
+    }
+
+    private static boolean existeColuna(Connection conn, String coluna) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.COLUMNS " +
+                     "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'clientes' AND COLUMN_NAME = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, coluna);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static boolean existeIndice(Connection conn, String coluna) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.STATISTICS " +
+                     "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'clientes' " +
+                     "AND COLUMN_NAME = ? AND SEQ_IN_INDEX = 1";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, coluna);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package br.com.vendas.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Matriz em memória de compatibilidade família × tratamento.
+ *
+ * Carrega as tabelas familia, tratamento e familia_tratamento uma única vez
+ * e monta um BitSet por família (bit = índice do tratamento), junto com os
+ * dados do tratamento (id, nome, tipo, valor de venda).
+ *
+ * Usado no fallback de antireflexo de LentesDao.getLentesComFallback:
+ * em vez do JOIN de quatro tabelas por busca, as lentes BASE já carregadas
+ * para a receita são filtradas aqui.
+ *
+ * O snapshot é imutável e recarregado após TTL_MS ou via invalidar().
+ *
+ * @author OptoFreela
+ */
+public final class CompatibilidadeTratamentoCache {
+
+    private static final long TTL_MS = 5 * 60 * 1000L;
+
+    private static volatile Snapshot snapshot;
+
+    private CompatibilidadeTratamentoCache() {
+    }
+
+    /**
+     * Retorna a matriz atual, recarregando do banco se expirou.
+     */
+    public static Snapshot get() throws SQLException {
+        Snapshot atual = snapshot;
+        if (atual != null && !atual.expirado()) {
+            return atual;
+        }
+        synchronized (CompatibilidadeTratamentoCache.class) {
+            atual = snapshot;
+            if (atual == null || atual.expirado()) {
+                atual = carregar();
+                snapshot = atual;
+            }
+            return atual;
+        }
+    }
+
+    /**
+     * Descarta a matriz; a próxima busca recarrega do banco.
+     * Chamar após alterar familia, tratamento ou familia_tratamento.
+     */
+    public static void invalidar() {
+        snapshot = null;
+    }
+
+    private static Snapshot carregar() throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        List<String> nomes = new ArrayList<>();
+        List<String> tipos = new ArrayList<>();
+        List<Double> valores = new ArrayList<>();
+        Map<Integer, Integer> indicePorId = new HashMap<>();
+        Map<Integer, String> familiaPorId = new HashMap<>();
+        Map<String, BitSet> compatPorFamilia = new HashMap<>();
+
+        try (Connection conn = ConnectionFactory.getInstance().getConnection()) {
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT id, nome, tipoTratamento, valor_venda FROM tratamento ORDER BY id");
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    indicePorId.put(rs.getInt("id"), ids.size());
+                    ids.add(rs.getInt("id"));
+                    nomes.add(rs.getString("nome"));
+                    tipos.add(rs.getString("tipoTratamento"));
+                    valores.add(rs.getDouble("valor_venda"));
+                }
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT id, nome FROM familia");
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    familiaPorId.put(rs.getInt("id"), normalizar(rs.getString("nome")));
+                }
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT familia_id, tratamento_id FROM familia_tratamento");
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String familia = familiaPorId.get(rs.getInt("familia_id"));
+                    Integer indice = indicePorId.get(rs.getInt("tratamento_id"));
+                    if (familia == null || indice == null) continue;
+
+                    // Famílias homônimas se somam, como no JOIN por nome
+                    compatPorFamilia.computeIfAbsent(familia, k -> new BitSet(ids.size())).set(indice);
+                }
+            }
+        }
+
+        Snapshot novo = new Snapshot(ids, nomes, tipos, valores, compatPorFamilia);
+        System.out.println("🧮 Matriz família×tratamento carregada: " + compatPorFamilia.size()
+                + " famílias, " + ids.size() + " tratamentos");
+        return novo;
+    }
+
+    static String normalizar(String valor) {
+        return valor == null ? "" : valor.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Visão imutável da matriz de compatibilidade.
+     */
+    public static final class Snapshot {
+
+        private final long carregadoEm = System.currentTimeMillis();
+        private final int[] tratamentoId;
+        private final String[] tratamentoNome;
+        private final String[] tratamentoTipo;
+        private final double[] tratamentoValor;
+        private final Map<String, int[]> indicesPorNome;
+        private final Map<String, BitSet> compatPorFamilia;
+
+        private Snapshot(List<Integer> ids, List<String> nomes, List<String> tipos,
+                         List<Double> valores, Map<String, BitSet> compatPorFamilia) {
+            int n = ids.size();
+            this.tratamentoId = new int[n];
+            this.tratamentoNome = new String[n];
+            this.tratamentoTipo = new String[n];
+            this.tratamentoValor = new double[n];
+
+            Map<String, List<Integer>> porNome = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                tratamentoId[i] = ids.get(i);
+                tratamentoNome[i] = nomes.get(i);
+                tratamentoTipo[i] = tipos.get(i);
+                tratamentoValor[i] = valores.get(i);
+                porNome.computeIfAbsent(normalizar(nomes.get(i)), k -> new ArrayList<>()).add(i);
+            }
+
+            this.indicesPorNome = new HashMap<>();
+            for (Map.Entry<String, List<Integer>> e : porNome.entrySet()) {
+                indicesPorNome.put(e.getKey(), e.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+            this.compatPorFamilia = compatPorFamilia;
+        }
+
+        private boolean expirado() {
+            return System.currentTimeMillis() - carregadoEm > TTL_MS;
+        }
+
+        /**
+         * Índices dos tratamentos com o nome informado (resolver uma vez por busca).
+         */
+        public int[] indicesDoTratamento(String nomeTratamento) {
+            int[] indices = indicesPorNome.get(normalizar(nomeTratamento));
+            return indices != null ? indices : new int[0];
+        }
+
+        /**
+         * Retorna o primeiro tratamento dos candidatos compatível com a família,
+         * ou -1 se nenhum for.
+         */
+        public int tratamentoCompativel(String familia, int[] candidatos) {
+            if (candidatos.length == 0) return -1;
+
+            BitSet compat = compatPorFamilia.get(normalizar(familia));
+            if (compat == null) return -1;
+
+            for (int indice : candidatos) {
+                if (compat.get(indice)) return indice;
+            }
+            return -1;
+        }
+
+        /**
+         * Índice do tratamento pelo id (tratamentos carregados em ordem de id), ou -1.
+         */
+        public int indiceDoTratamentoId(int id) {
+            int i = Arrays.binarySearch(tratamentoId, id);
+            return i >= 0 ? i : -1;
+        }
+
+        public int getTratamentoId(int indice) {
+            return tratamentoId[indice];
+        }
+
+        public String getTratamentoNome(int indice) {
+            return tratamentoNome[indice];
+        }
+
+        public String getTratamentoTipo(int indice) {
+            return tratamentoTipo[indice];
+        }
+
+        public double getTratamentoValor(int indice) {
+            return tratamentoValor[indice];
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package br.com.vendas.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import jakarta.servlet.ServletContext;
+
+/**
+ * Escritor único com commit agrupado (group commit).
+ *
+ * Cada gravação entra numa fila; uma thread dedicada junta as que chegam
+ * dentro de JANELA_MS (até MAX_LOTE) e executa todas numa única transação,
+ * com um único COMMIT — um fsync do InnoDB para o lote, em vez de um por
+ * requisição no horário de pico.
+ *
+ * Garantia ao chamador igual à do commit individual: o futuro só é concluído
+ * com o id DEPOIS do COMMIT do lote. Cada gravação roda sob um SAVEPOINT: se
+ * uma falha, só ela é desfeita e recebe o erro; as demais seguem no lote.
+ * Falha no COMMIT falha todas as gravações do lote.
+ *
+ * Sem resposta em ESPERA_MAX_MS: se a gravação ainda está na fila, ela sai
+ * da fila e gravar() devolve null (nunca executada, o chamador grava direto).
+ * Se já está num lote, o COMMIT pode acontecer a qualquer momento: espera
+ * mais ESPERA_MAX_MS pelo desfecho e, sem ele, lança ResultadoIncerto, e não
+ * uma falha (repetir a gravação poderia duplicar o registro).
+ *
+ * Desligado por padrão (context-param gravacaoAgrupada.ativo no web.xml);
+ * desligado ou com fila cheia, o chamador grava direto (gravarDireto).
+ *
+ * @author OptoFreela
+ */
+public final class GravadorAgrupado {
+
+    private static final String ATRIBUTO = GravadorAgrupado.class.getName();
+    private static final long JANELA_MS = 5;
+    private static final int MAX_LOTE = 50;
+    private static final int FILA = 512;
+    private static final long ESPERA_MAX_MS = 30_000;
+
+    /**
+     * Uma gravação dentro da transação do lote; retorna o id gerado.
+     * Não deve chamar commit/rollback nem fechar a conexão.
+     */
+    @FunctionalInterface
+    public interface Gravacao {
+        long gravar(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Gravação já enviada ao banco num lote cujo desfecho (COMMIT ou
+     * rollback) não chegou a tempo: pode ter sido gravada ou não.
+     */
+    public static final class ResultadoIncerto extends SQLException {
+        private static final long serialVersionUID = 1L;
+
+        ResultadoIncerto(String mensagem, Throwable causa) {
+            super(mensagem, causa);
+        }
+    }
+
+    private final String nome;
+    private final BlockingQueue<Pendente> fila = new ArrayBlockingQueue<>(FILA);
+    private final Thread escritor;
+    private volatile boolean ativo = true;
+
+    private GravadorAgrupado(String nome) {
+        this.nome = nome;
+        this.escritor = new Thread(this::executar, "gravador-" + nome);
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    /**
+     * Registra o gravador no contexto, se gravacaoAgrupada.ativo = true.
+     * Chamadas repetidas (vários servlets) reaproveitam a mesma instância.
+     * @return o gravador, ou null se o modo estiver desligado
+     */
+    public static GravadorAgrupado configurar(ServletContext contexto, String nome) {
+        if (!"true".equalsIgnoreCase(contexto.getInitParameter("gravacaoAgrupada.ativo"))) {
+            return null;
+        }
+        synchronized (GravadorAgrupado.class) {
+            String atributo = ATRIBUTO + "." + nome;
+            GravadorAgrupado gravador = (GravadorAgrupado) contexto.getAttribute(atributo);
+            if (gravador == null) {
+                gravador = new GravadorAgrupado(nome);
+                contexto.setAttribute(atributo, gravador);
+                System.out.println("📝 Gravação agrupada ATIVA: " + nome);
+            }
+            return gravador;
+        }
+    }
+
+    /**
+     * Grava no próximo lote e espera o COMMIT.
+     * @return o id gerado, ou null se não foi executada (fila cheia ou sem
+     *         resposta antes de sair da fila): gravar direto
+     * @throws ResultadoIncerto se o lote não concluiu a tempo (não repetir)
+     */
+    public Long gravar(Gravacao gravacao) throws SQLException {
+        Pendente pendente = new Pendente(gravacao);
+        if (!ativo || !fila.offer(pendente)) {
+            return null;
+        }
+
+        try {
+            try {
+                return aguardar(pendente);
+            } catch (TimeoutException e) {
+                if (fila.remove(pendente)) {
+                    // Escritor não chegou a ela: não foi ao banco
+                    System.err.println("⚠️ " + nome + ": gravação sem vez no lote em " + ESPERA_MAX_MS +
+                            " ms, gravando direto");
+                    return null;
+                }
+            }
+
+            // Já está num lote: o desfecho vem com o COMMIT/rollback dele
+            try {
+                return aguardar(pendente);
+            } catch (TimeoutException e) {
+                throw new ResultadoIncerto("Gravação agrupada sem confirmação em " + (2 * ESPERA_MAX_MS) +
+                        " ms: pode ter sido gravada", e);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (fila.remove(pendente)) {
+                throw new SQLException("Gravação agrupada interrompida antes de executar", e);
+            }
+            throw new ResultadoIncerto("Gravação agrupada interrompida durante o lote: pode ter sido gravada", e);
+        }
+    }
+
+    private Long aguardar(Pendente pendente) throws SQLException, TimeoutException, InterruptedException {
+        try {
+            return pendente.futuro.get(ESPERA_MAX_MS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof SQLException) throw (SQLException) causa;
+            throw new SQLException("Falha na gravação agrupada", causa);
+        }
+    }
+
+    /**
+     * Grava numa transação própria (modo desligado ou fila cheia).
+     */
+    public static long gravarDireto(Gravacao gravacao) throws SQLException {
+        try (Connection conn = ConnectionFactory.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                long id = gravacao.gravar(conn);
+                conn.commit();
+                return id;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Para de aceitar gravações e conclui as que já estão na fila.
+     */
+    public void encerrar() {
+        ativo = false;
+        escritor.interrupt();
+        try {
+            escritor.join(ESPERA_MAX_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ========================================
+    // Thread escritora
+    // ========================================
+
+    private void executar() {
+        List<Pendente> lote = new ArrayList<>(MAX_LOTE);
+
+        while (ativo || !fila.isEmpty()) {
+            try {
+                Pendente primeiro = ativo ? fila.take() : fila.poll();
+                if (primeiro == null) break;
+                lote.add(primeiro);
+
+                // Junta o que chegar dentro da janela
+                long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(JANELA_MS);
+                while (lote.size() < MAX_LOTE) {
+                    long resta = limite - System.nanoTime();
+                    Pendente p = resta > 0 ? fila.poll(resta, TimeUnit.NANOSECONDS) : fila.poll();
+                    if (p == null) break;
+                    lote.add(p);
+                }
+            } catch (InterruptedException e) {
+                // encerrar(): grava o que já foi retirado e esvazia a fila
+                fila.drainTo(lote);
+            }
+
+            if (!lote.isEmpty()) {
+                gravarLote(lote);
+                lote.clear();
+            }
+        }
+        System.out.println("📝 Gravador " + nome + " encerrado");
+    }
+
+    private void gravarLote(List<Pendente> lote) {
+        List<Pendente> gravados = new ArrayList<>(lote.size());
+
+        try (Connection conn = ConnectionFactory.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (Pendente p : lote) {
+                    Savepoint ponto = conn.setSavepoint();
+                    try {
+                        p.id = p.gravacao.gravar(conn);
+                        conn.releaseSavepoint(ponto);
+                        gravados.add(p);
+                    } catch (SQLException | RuntimeException e) {
+                        conn.rollback(ponto);
+                        p.futuro.completeExceptionally(e);
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    e.addSuppressed(ex);
+                }
+                throw e;
+            }
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("❌ Erro no lote de " + nome + ": " + e.getMessage());
+            for (Pendente p : lote) {
+                p.futuro.completeExceptionally(e);
+            }
+            return;
+        }
+
+        // Só após o COMMIT
+        for (Pendente p : gravados) {
+            p.futuro.complete(p.id);
+        }
+        if (lote.size() > 1) {
+            System.out.println("📝 " + nome + ": " + gravados.size() + "/" + lote.size() + " gravações num commit");
+        }
+    }
+
+    private static final class Pendente {
+        final Gravacao gravacao;
+        final CompletableFuture<Long> futuro = new CompletableFuture<>();
+        long id;
+
+        Pendente(Gravacao gravacao) {
+            this.gravacao = gravacao;
+        }
+    }
+}
@@ -0,0 +1,585 @@
+package br.com.vendas.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import br.com.vendas.util.CursorPagina;
+
+/**
+ * Índice em memória para o autocomplete de clientes (BuscarClientes?termo=).
+ *
+ * Substitui o LIKE '%termo%' em quatro colunas (varredura da tabela a cada
+ * tecla) por:
+ * - Trigramas do nome (sem acento, minúsculo) e dos dígitos de CPF e telefones:
+ *   candidatos = interseção das listas dos trigramas do termo
+ * - Prefixos de 1-2 caracteres de cada palavra do nome e dos dígitos,
+ *   para termos curtos
+ *
+ * Os candidatos são conferidos (contém o termo) e ordenados por relevância:
+ * igual &gt; começa com &gt; palavra começa com &gt; contém; depois nome e id.
+ *
+ * Atualização (thread própria "indice-clientes", iniciada na primeira carga;
+ * nenhuma busca espera por ela):
+ * - Clientes novos: a cada DELTA_MS, só as linhas com idCliente maior que o
+ *   último carregado (busca pela chave primária)
+ * - Edições: atualizar(id) relê e reindexa um cliente (chamar após UPDATE);
+ *   alterações feitas fora da aplicação entram na recarga completa (TTL_MS)
+ * A recarga completa é montada fora do lock e trocada de uma vez (referência
+ * volátil): as buscas seguem no índice anterior enquanto isso. Clientes
+ * atualizados durante a recarga são relidos na estrutura nova após a troca.
+ * Só a primeira carga (ou após invalidar()) roda na requisição.
+ *
+ * Também resolve CPF → id em O(1) (idPorCpf), para o CPF digitado no caixa.
+ *
+ * Índice indisponível (falha de carga) → buscar() retorna null e o servlet
+ * usa o SQL.
+ *
+ * @author OptoFreela
+ */
+public final class IndiceClientes {
+
+    private static final long DELTA_MS = 30 * 1000L;
+    private static final long TTL_MS = 10 * 60 * 1000L;
+
+    private static final String SQL = """
+        SELECT idCliente, nomeCliente, cpfCliente, whatsCliente, telefoneCliente
+        FROM clientes
+        """;
+
+    // Marca os cursores gerados aqui (os do SQL trazem o nome puro)
+    private static final char MARCA_CURSOR = '~';
+
+    private static final Pattern ACENTOS = Pattern.compile("\\p{M}+");
+    private static final Pattern ESPACOS = Pattern.compile("\\s+");
+
+    private static final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Recarga completa e clientes novos, fora das requisições
+    private static final ScheduledExecutorService ATUALIZACAO = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "indice-clientes");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static volatile Estrutura estrutura;
+    private static volatile boolean agendado;
+
+    // Clientes atualizados durante a recarga completa (relidos na estrutura nova)
+    private static volatile Set<Long> atualizadosNaRecarga;
+
+    private IndiceClientes() {
+    }
+
+    // ========================================
+    // Busca
+    // ========================================
+
+    /**
+     * Página de clientes para o termo, em ordem de relevância.
+     * @return ids (até limite) e cursor da próxima página, ou null se o índice
+     *         estiver indisponível ou o cursor vier da busca SQL
+     */
+    public static Pagina buscar(String termo, CursorPagina cursor, int limite) {
+        Chave depois = null;
+        if (cursor != null) {
+            depois = Chave.doCursor(cursor);
+            if (depois == null) return null;
+        }
+
+        Estrutura atual = atual();
+        if (atual == null) return null;
+
+        String texto = normalizar(termo);
+        String digitos = digitos(termo);
+        boolean porNome = texto.chars().anyMatch(Character::isLetter) || digitos.isEmpty();
+        String consulta = porNome ? texto : digitos;
+        if (consulta.isEmpty()) return new Pagina(Collections.emptyList(), null);
+
+        // Maior no topo: a fila guarda os limite + 1 melhores
+        PriorityQueue<Chave> melhores = new PriorityQueue<>(limite + 2, Chave.ORDEM.reversed());
+
+        lock.readLock().lock();
+        try {
+            for (Long id : atual.candidatos(consulta)) {
+                Registro r = atual.registros.get(id);
+                int nivel = porNome ? r.nivelNome(consulta) : r.nivelDigitos(consulta);
+                if (nivel < 0) continue;
+                if (melhores.size() > limite && nivel > melhores.peek().nivel) continue;  // já fora do topo
+
+                Chave chave = new Chave(nivel, r.nome, r.id);
+                if (depois != null && Chave.ORDEM.compare(chave, depois) <= 0) continue;
+
+                melhores.add(chave);
+                if (melhores.size() > limite + 1) melhores.poll();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Chave> ordenadas = new ArrayList<>(melhores);
+        ordenadas.sort(Chave.ORDEM);
+
+        String proximo = null;
+        if (ordenadas.size() > limite) {
+            ordenadas.remove(limite);
+            proximo = ordenadas.get(limite - 1).cursor().getToken();
+        }
+
+        List<Long> ids = new ArrayList<>(ordenadas.size());
+        for (Chave c : ordenadas) {
+            ids.add(c.id);
+        }
+        return new Pagina(ids, proximo);
+    }
+
+    // ========================================
+    // Manutenção
+    // ========================================
+
+    /**
+     * Relê um cliente do banco e reindexa (após cadastro ou edição).
+     * Sem efeito se o índice ainda não foi carregado.
+     */
+    public static void atualizar(long idCliente) throws SQLException {
+        // Antes de ler a estrutura: recarga em andamento relê este cliente após a troca
+        Set<Long> naRecarga = atualizadosNaRecarga;
+        if (naRecarga != null) naRecarga.add(idCliente);
+
+        Estrutura atual = estrutura;
+        if (atual == null) return;
+
+        Registro novo = null;
+        try (Connection conn = ConnectionFactory.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL + "WHERE idCliente = ?")) {
+            stmt.setLong(1, idCliente);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) novo = Registro.de(rs);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            atual.remover(idCliente);
+            if (novo != null) atual.incluir(novo);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retira um cliente do índice (após exclusão).
+     */
+    public static void remover(long idCliente) {
+        // Como em atualizar()
+        Set<Long> naRecarga = atualizadosNaRecarga;
+        if (naRecarga != null) naRecarga.add(idCliente);
+
+        Estrutura atual = estrutura;
+        if (atual == null) return;
+
+        lock.writeLock().lock();
+        try {
+            atual.remover(idCliente);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Id do cliente pelo CPF (só dígitos) em O(1), ou null se não estiver no
+     * índice (ou índice indisponível) — nesse caso, consultar clientes.cpf_digitos.
+     */
+    public static Long idPorCpf(String cpfDigitos) {
+        if (cpfDigitos == null || cpfDigitos.isEmpty()) return null;
+
+        Estrutura atual = atual();
+        if (atual == null) return null;
+
+        lock.readLock().lock();
+        try {
+            return atual.porCpf.get(cpfDigitos);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Descarta o índice; a próxima busca recarrega do banco.
+     */
+    public static void invalidar() {
+        estrutura = null;
+    }
+
+    /**
+     * Para a thread de atualização (chamado ao encerrar a aplicação).
+     */
+    public static void encerrar() {
+        ATUALIZACAO.shutdownNow();
+    }
+
+    /**
+     * Estrutura atual. Só a primeira chamada (ou a seguinte a invalidar())
+     * carrega do banco; as atualizações rodam na thread de atualização.
+     */
+    private static Estrutura atual() {
+        Estrutura atual = estrutura;
+        if (atual != null) return atual;
+
+        try {
+            synchronized (IndiceClientes.class) {
+                atual = estrutura;
+                if (atual == null) {
+                    atual = carregar();
+                    estrutura = atual;
+                }
+                if (!agendado) {
+                    ATUALIZACAO.scheduleWithFixedDelay(IndiceClientes::atualizarEmSegundoPlano,
+                            DELTA_MS, DELTA_MS, TimeUnit.MILLISECONDS);
+                    agendado = true;
+                }
+            }
+            return atual;
+
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("⚠️ Índice de clientes indisponível: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * A cada DELTA_MS: recarga completa se passou TTL_MS, senão clientes novos.
+     * Erros só vão para o log (a tarefa continua agendada).
+     */
+    private static void atualizarEmSegundoPlano() {
+        Estrutura atual = estrutura;
+        if (atual == null) return;  // invalidado: a próxima busca carrega
+
+        try {
+            if (System.currentTimeMillis() - atual.carregadoEm > TTL_MS) {
+                recarregar();
+            } else {
+                incluirNovos(atual);
+            }
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("⚠️ Atualização do índice de clientes falhou: " + e.getMessage());
+        }
+    }
+
+    private static void recarregar() throws SQLException {
+        Set<Long> naRecarga = ConcurrentHashMap.newKeySet();
+        atualizadosNaRecarga = naRecarga;
+        try {
+            Estrutura nova = carregar();
+            estrutura = nova;
+
+            // Edições concorrentes foram aplicadas na estrutura antiga: relê na nova
+            atualizadosNaRecarga = null;
+            for (Long id : naRecarga) {
+                atualizar(id);
+            }
+        } finally {
+            atualizadosNaRecarga = null;
+        }
+    }
+
+    private static Estrutura carregar() throws SQLException {
+        long inicio = System.currentTimeMillis();
+        Estrutura nova = new Estrutura();
+
+        try (Connection conn = ConnectionFactory.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL)) {
+            stmt.setFetchSize(Integer.MIN_VALUE);  // streaming (MySQL)
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    nova.incluir(Registro.de(rs));
+                }
+            }
+        }
+
+        nova.carregadoEm = nova.verificadoEm = System.currentTimeMillis();
+        System.out.println("🔎 Índice de clientes carregado: " + nova.registros.size() + " clientes, " +
+                nova.trigramas.size() + " trigramas em " + (nova.carregadoEm - inicio) + " ms");
+        return nova;
+    }
+
+    private static void incluirNovos(Estrutura atual) throws SQLException {
+        List<Registro> novos = new ArrayList<>();
+        try (Connection conn = ConnectionFactory.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL + "WHERE idCliente > ? ORDER BY idCliente")) {
+            stmt.setLong(1, atual.maiorId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    novos.add(Registro.de(rs));
+                }
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Registro r : novos) {
+                atual.incluir(r);
+            }
+            atual.verificadoEm = System.currentTimeMillis();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!novos.isEmpty()) {
+            System.out.println("🔎 Índice de clientes: +" + novos.size() + " cliente(s)");
+        }
+    }
+
+    // ========================================
+    // Normalização
+    // ========================================
+
+    /**
+     * Minúsculas, sem acento, espaços simples: "  JOÃO  da Silva" → "joao da silva".
+     */
+    public static String normalizar(String valor) {
+        if (valor == null) return "";
+        String semAcento = ACENTOS.matcher(Normalizer.normalize(valor, Normalizer.Form.NFD)).replaceAll("");
+        return ESPACOS.matcher(semAcento.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Só os dígitos: "270.183.138-56" → "27018313856".
+     */
+    public static String digitos(String valor) {
+        if (valor == null) return "";
+        StringBuilder sb = new StringBuilder(valor.length());
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c >= '0' && c <= '9') sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    // ========================================
+    // Estruturas
+    // ========================================
+
+    /**
+     * Página de resultado: ids em ordem de relevância + cursor (null = fim).
+     */
+    public static final class Pagina {
+        private final List<Long> ids;
+        private final String proximoCursor;
+
+        Pagina(List<Long> ids, String proximoCursor) {
+            this.ids = ids;
+            this.proximoCursor = proximoCursor;
+        }
+
+        public List<Long> getIds() { return ids; }
+        public String getProximoCursor() { return proximoCursor; }
+        public boolean isTemMais() { return proximoCursor != null; }
+    }
+
+    /**
+     * Listas de ids por trigrama e por prefixo. Alterada só sob o write lock
+     * (ou antes de publicada, na carga).
+     */
+    private static final class Estrutura {
+        final Map<Long, Registro> registros = new HashMap<>();
+        final Map<String, Set<Long>> trigramas = new HashMap<>();
+        final Map<String, Set<Long>> prefixos = new HashMap<>();
+        final Map<String, Long> porCpf = new HashMap<>();  // CPF repetido: menor id
+        long maiorId;
+        long carregadoEm;
+        volatile long verificadoEm;
+
+        void incluir(Registro r) {
+            registros.put(r.id, r);
+            maiorId = Math.max(maiorId, r.id);
+            if (!r.cpf.isEmpty()) {
+                porCpf.merge(r.cpf, r.id, Math::min);
+            }
+            for (String t : r.trigramas()) {
+                trigramas.computeIfAbsent(t, k -> new HashSet<>()).add(r.id);
+            }
+            for (String p : r.prefixos()) {
+                prefixos.computeIfAbsent(p, k -> new HashSet<>()).add(r.id);
+            }
+        }
+
+        void remover(long id) {
+            Registro r = registros.remove(id);
+            if (r == null) return;
+            if (!r.cpf.isEmpty()) {
+                porCpf.remove(r.cpf, id);
+            }
+            retirar(trigramas, r.trigramas(), id);
+            retirar(prefixos, r.prefixos(), id);
+        }
+
+        private static void retirar(Map<String, Set<Long>> indice, Set<String> chaves, long id) {
+            for (String k : chaves) {
+                Set<Long> ids = indice.get(k);
+                if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                    indice.remove(k);
+                }
+            }
+        }
+
+        /**
+         * Ids que podem conter a consulta: interseção dos trigramas (começando
+         * pela lista menor) ou, para 1-2 caracteres, a lista do prefixo.
+         */
+        Set<Long> candidatos(String consulta) {
+            if (consulta.length() < 3) {
+                Set<Long> ids = prefixos.get(consulta);
+                return ids != null ? ids : Collections.emptySet();
+            }
+
+            List<Set<Long>> listas = new ArrayList<>();
+            for (String t : trigramasDe(consulta)) {
+                Set<Long> ids = trigramas.get(t);
+                if (ids == null) return Collections.emptySet();
+                listas.add(ids);
+            }
+            listas.sort(Comparator.comparingInt(Set::size));
+
+            Set<Long> resultado = new HashSet<>(listas.get(0));
+            for (int i = 1; i < listas.size() && !resultado.isEmpty(); i++) {
+                resultado.retainAll(listas.get(i));
+            }
+            return resultado;
+        }
+    }
+
+    private static Set<String> trigramasDe(String s) {
+        Set<String> ts = new HashSet<>();
+        for (int i = 0; i + 3 <= s.length(); i++) {
+            ts.add(s.substring(i, i + 3));
+        }
+        return ts;
+    }
+
+    /**
+     * Cliente no índice: nome normalizado e dígitos de CPF e telefones.
+     */
+    private static final class Registro {
+        final long id;
+        final String nome;
+        final String cpf;
+        final String[] fones;
+
+        private Registro(long id, String nome, String cpf, String[] fones) {
+            this.id = id;
+            this.nome = nome;
+            this.cpf = cpf;
+            this.fones = fones;
+        }
+
+        static Registro de(ResultSet rs) throws SQLException {
+            String whats = digitos(rs.getString("whatsCliente"));
+            String telefone = digitos(rs.getString("telefoneCliente"));
+            String[] fones = whats.isEmpty() || whats.equals(telefone)
+                    ? new String[] { telefone }
+                    : telefone.isEmpty() ? new String[] { whats } : new String[] { whats, telefone };
+            return new Registro(rs.getLong("idCliente"),
+                    normalizar(rs.getString("nomeCliente")),
+                    digitos(rs.getString("cpfCliente")),
+                    fones);
+        }
+
+        Set<String> trigramas() {
+            Set<String> ts = trigramasDe(nome);
+            ts.addAll(trigramasDe(cpf));
+            for (String f : fones) ts.addAll(trigramasDe(f));
+            return ts;
+        }
+
+        Set<String> prefixos() {
+            Set<String> ps = new HashSet<>();
+            for (String palavra : nome.split(" ")) adicionarPrefixos(ps, palavra);
+            adicionarPrefixos(ps, cpf);
+            for (String f : fones) adicionarPrefixos(ps, f);
+            return ps;
+        }
+
+        private static void adicionarPrefixos(Set<String> ps, String s) {
+            if (s.length() >= 1) ps.add(s.substring(0, 1));
+            if (s.length() >= 2) ps.add(s.substring(0, 2));
+        }
+
+        /** 0 igual, 1 começa com, 2 palavra começa com, 3 contém, -1 não casa. */
+        int nivelNome(String q) {
+            if (nome.equals(q)) return 0;
+            if (nome.startsWith(q)) return 1;
+            if (nome.contains(" " + q)) return 2;
+            if (q.length() >= 3 && nome.contains(q)) return 3;
+            return -1;
+        }
+
+        /** 0 CPF/telefone igual, 1 começa com, 3 contém, -1 não casa. */
+        int nivelDigitos(String q) {
+            int melhor = nivel(cpf, q);
+            for (String f : fones) {
+                int n = nivel(f, q);
+                if (n >= 0 && (melhor < 0 || n < melhor)) melhor = n;
+            }
+            return melhor;
+        }
+
+        private static int nivel(String valor, String q) {
+            if (valor.isEmpty()) return -1;
+            if (valor.equals(q)) return 0;
+            if (valor.startsWith(q)) return 1;
+            if (q.length() >= 3 && valor.contains(q)) return 3;
+            return -1;
+        }
+    }
+
+    /**
+     * Posição na ordem de relevância; vira o cursor da próxima página.
+     */
+    private static final class Chave {
+        static final Comparator<Chave> ORDEM =
+                Comparator.comparingInt((Chave c) -> c.nivel)
+                          .thenComparing(c -> c.nome)
+                          .thenComparingLong(c -> c.id);
+
+        final int nivel;
+        final String nome;
+        final long id;
+
+        Chave(int nivel, String nome, long id) {
+            this.nivel = nivel;
+            this.nome = nome;
+            this.id = id;
+        }
+
+        CursorPagina cursor() {
+            return new CursorPagina(MARCA_CURSOR + Integer.toString(nivel) + nome, id);
+        }
+
+        /** Chave de um cursor gerado aqui, ou null se veio da busca SQL. */
+        static Chave doCursor(CursorPagina cursor) {
+            String v = cursor.getValor();
+            if (v == null || v.length() < 2 || v.charAt(0) != MARCA_CURSOR || !Character.isDigit(v.charAt(1))) {
+                return null;
+            }
+            return new Chave(v.charAt(1) - '0', v.substring(2), cursor.getId());
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package br.com.vendas.dao;
 
-import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -8,11 +7,15 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -23,6 +26,8 @@ import br.com.vendas.beans.LenteODeOE;
 import br.com.vendas.beans.Produto;
 import br.com.vendas.beans.Tratamento;
 import br.com.vendas.beans.ColoracaoBean;
+import br.com.vendas.util.CatalogoVersao;
+import br.com.vendas.util.Dinheiro;
 
 public class LentesDao {
 	
@@ -324,6 +329,7 @@ public class LentesDao {
 
 		        int rowsInserted = stmt.executeUpdate();
 		        if (rowsInserted > 0) {
+		            CatalogoVersao.incrementar();
 		            System.out.println("Produto inserido com sucesso! → " + codFornecedor);
 		        }
 
@@ -365,10 +371,10 @@ public class LentesDao {
 	            lente.setAlturaMinima(rs.getInt("altura_minima"));
 	            lente.setAfinamento(rs.getString("afinamento"));
 	            lente.setTecnicaProducao(rs.getString("tecnica_producao"));
-	            lente.setPrecoCusto(rs.getDouble("preco_custo"));
-	            lente.setPrecoVenda(rs.getDouble("preco_venda"));
-	            lente.setPrecoMinimo(rs.getDouble("preco_minimo"));
-	            lente.setPrecoPar(rs.getDouble("preco_par"));
+	            lente.setPrecoCusto(Dinheiro.ler(rs, "preco_custo"));
+	            lente.setPrecoVenda(Dinheiro.ler(rs, "preco_venda"));
+	            lente.setPrecoMinimo(Dinheiro.ler(rs, "preco_minimo"));
+	            lente.setPrecoPar(Dinheiro.ler(rs, "preco_par"));
 	            lente.setUnidade(rs.getString("unidade"));
 
 	            
@@ -421,10 +427,10 @@ public class LentesDao {
 	                lente.setAlturaMinima(rs.getInt("altura_minima"));
 	                lente.setAfinamento(rs.getString("afinamento"));
 	                lente.setTecnicaProducao(rs.getString("tecnica_producao"));
-	                lente.setPrecoCusto(rs.getDouble("preco_custo"));
-	                lente.setPrecoVenda(rs.getDouble("preco_venda"));
-	                lente.setPrecoMinimo(rs.getDouble("preco_minimo"));
-	                lente.setPrecoPar(rs.getDouble("preco_par"));
+	                lente.setPrecoCusto(Dinheiro.ler(rs, "preco_custo"));
+	                lente.setPrecoVenda(Dinheiro.ler(rs, "preco_venda"));
+	                lente.setPrecoMinimo(Dinheiro.ler(rs, "preco_minimo"));
+	                lente.setPrecoPar(Dinheiro.ler(rs, "preco_par"));
 	                lente.setUnidade(rs.getString("unidade"));
 	            }
 	        }
@@ -451,6 +457,7 @@ public class LentesDao {
 			stmt.setString(2, lente.getCodProdFornecedor());
 		
 			stmt.execute();
+			CatalogoVersao.incrementar();
 			System.out.println("Gravado pelo LenteDao.gravaLente(Lente lente)");
 			stmt.close();
 		} catch (SQLException e) {
@@ -491,10 +498,10 @@ public class LentesDao {
             lente.setAlturaMinima(rs.getInt("altura_minima"));
             lente.setAfinamento(rs.getString("afinamento"));
             lente.setTecnicaProducao(rs.getString("tecnica_producao"));
-            lente.setPrecoCusto(rs.getDouble("preco_custo"));
-            lente.setPrecoVenda(rs.getDouble("preco_venda"));
-            lente.setPrecoMinimo(rs.getDouble("preco_minimo"));
-            lente.setPrecoPar(rs.getDouble("preco_par"));
+            lente.setPrecoCusto(Dinheiro.ler(rs, "preco_custo"));
+            lente.setPrecoVenda(Dinheiro.ler(rs, "preco_venda"));
+            lente.setPrecoMinimo(Dinheiro.ler(rs, "preco_minimo"));
+            lente.setPrecoPar(Dinheiro.ler(rs, "preco_par"));
             lente.setUnidade(rs.getString("unidade"));
            
             lentes.add(lente);
@@ -658,9 +665,9 @@ public class LentesDao {
             lente.setAlturaMinima(rs.getInt("altura_minima"));
             lente.setAfinamento(rs.getString("afinamento"));
             lente.setTecnicaProducao(rs.getString("producao"));
-            lente.setPrecoCusto(rs.getDouble("preco_custo"));
-            lente.setPrecoVenda(rs.getDouble("preco_venda"));
-            lente.setPrecoMinimo(rs.getDouble("preco_minimo"));
+            lente.setPrecoCusto(Dinheiro.ler(rs, "preco_custo"));
+            lente.setPrecoVenda(Dinheiro.ler(rs, "preco_venda"));
+            lente.setPrecoMinimo(Dinheiro.ler(rs, "preco_minimo"));
             lente.setUnidade(rs.getString("unidade"));
             System.out.println("marcas  :" + lente.getMarca());
             System.out.println("Unidade :" + lente.getUnidade());
@@ -745,8 +752,27 @@ public class LentesDao {
 	        System.out.println("🎨 Dados coloração carregados: " + dadosColoracao);
 	    }
 	    
-	    // 1. Busca normal (lentes que já vêm com o AR de fábrica)
-	    List<LenteODeOE> lentesNormais = getLentes(converteGrau, tipoOlho);
+	    // 1. Busca das lentes da receita.
+	    //    Com filtro AR, uma única query SEM o filtro de antireflexo traz tanto as
+	    //    lentes com AR de fábrica quanto as lentes BASE usadas no fallback.
+	    List<LenteODeOE> lentesReceita;
+	    List<LenteODeOE> lentesNormais;
+	    Set<String> nomesAR = null;
+	    
+	    if (temFiltroAR) {
+	        lentesReceita = getLentes(removerFiltroAntireflexo(converteGrau), tipoOlho);
+	        nomesAR = extrairValoresAntireflexo(converteGrau, filtroAntireflexo);
+	        
+	        lentesNormais = new ArrayList<>();
+	        for (LenteODeOE lente : lentesReceita) {
+	            if (lente.getAntireflexo() != null && nomesAR.contains(lente.getAntireflexo().trim().toLowerCase())) {
+	                lentesNormais.add(lente);
+	            }
+	        }
+	    } else {
+	        lentesReceita = null;
+	        lentesNormais = getLentes(converteGrau, tipoOlho);
+	    }
 	    
 	    // Converte para LenteComTratamento marcando como FABRICA
 	    for (LenteODeOE lente : lentesNormais) {
@@ -780,16 +806,20 @@ public class LentesDao {
 	    // 2. Se há filtro de AR, tenta fallback
 	    if (temFiltroAR) {
 	        
-	        // Monta query SEM o filtro de antireflexo para buscar lentes BASE
-	        String filtroSemAR = removerFiltroAntireflexo(converteGrau);
-	        
-	        // Busca lentes BASE + tratamento compatível
+	        // Lentes BASE da receita + tratamento compatível via matriz em memória
 	        List<LenteComTratamento> lentesComTratamento = 
-	            buscarLentesBaseComTratamento(filtroSemAR, tipoOlho, filtroAntireflexo);
+	            filtrarLentesBaseComTratamento(lentesReceita, filtroAntireflexo);
+	        
+	        // Adiciona ao resultado (evitando duplicatas por codigoWeb)
+	        Set<String> codigosWeb = new HashSet<>();
+	        for (LenteComTratamento lct : resultado) {
+	            if (lct.getCodigoWeb() != null) {
+	                codigosWeb.add(lct.getCodigoWeb());
+	            }
+	        }
 	        
-	        // Adiciona ao resultado (evitando duplicatas)
 	        for (LenteComTratamento lct : lentesComTratamento) {
-	            if (!existeNaLista(resultado, lct)) {
+	            if (lct.getCodigoWeb() == null || codigosWeb.add(lct.getCodigoWeb())) {
 	                // NOVO: Adiciona dados da coloração também nas lentes com fallback
 	                if (dadosColoracao != null) {
 	                    lct.setColoracaoNome(dadosColoracao.getNome());
@@ -838,60 +868,77 @@ public class LentesDao {
 	    System.out.println("⚠️ Coloração não encontrada na tabela: " + nomeColoracao);
 	    return null;
 	}
+
+	/**
+	 * valor_venda das colorações ativas pelo nome, numa única consulta (IN).
+	 * Nomes não encontrados ficam fora do mapa; a chave não diferencia
+	 * maiúsculas, como a comparação do MySQL.
+	 */
+	public Map<String, Dinheiro> buscarValoresColoracao(Collection<String> nomes) throws SQLException {
+	    Map<String, Dinheiro> valores = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+	    if (nomes.isEmpty()) return valores;
+	    
+	    StringBuilder sql = new StringBuilder("SELECT nome, valor_venda FROM coloracao WHERE ativo = 1 AND nome IN (");
+	    for (int i = 0; i < nomes.size(); i++) {
+	        sql.append(i == 0 ? "?" : ",?");
+	    }
+	    sql.append(')');
+	    
+	    try (Connection conexao = ConnectionFactory.getInstance().getConnection();
+	         PreparedStatement stmt = conexao.prepareStatement(sql.toString())) {
+	        
+	        int i = 1;
+	        for (String nome : nomes) {
+	            stmt.setString(i++, nome);
+	        }
+	        
+	        try (ResultSet rs = stmt.executeQuery()) {
+	            while (rs.next()) {
+	                Dinheiro valor = Dinheiro.ler(rs, "valor_venda");
+	                valores.put(rs.getString("nome"), valor != null ? valor : Dinheiro.ZERO);
+	            }
+	        }
+	    }
+	    return valores;
+	}
 	
 	
 	/**
-	 * Busca lentes BASE (sem AR) que são compatíveis com o tratamento selecionado
-	 * via tabela familia_tratamento.
+	 * Filtra, entre as lentes já carregadas para a receita, as lentes BASE (sem AR)
+	 * cuja família é compatível com o tratamento selecionado.
+	 * A compatibilidade vem de CompatibilidadeTratamentoCache (familia_tratamento em memória).
 	 */
-	private List<LenteComTratamento> buscarLentesBaseComTratamento(
-	        String filtroGrau, 
-	        String tipoOlho, 
+	private List<LenteComTratamento> filtrarLentesBaseComTratamento(
+	        List<LenteODeOE> lentesReceita, 
 	        String nomeTratamento) throws SQLException {
 	    
 	    List<LenteComTratamento> lentes = new ArrayList<>();
 	    
-	    // Query que busca lentes BASE + valida compatibilidade via familia_tratamento
-	    String sql = """
-	        SELECT p.*, 
-	               t.id AS trat_id,
-	               t.nome AS trat_nome,
-	               t.tipoTratamento AS trat_tipo,
-	               t.valor_venda AS trat_valor
-	        FROM produtoteste p
-	        INNER JOIN familia f ON p.familia = f.nome
-	        INNER JOIN familia_tratamento ft ON f.id = ft.familia_id
-	        INNER JOIN tratamento t ON ft.tratamento_id = t.id
-	        WHERE (p.antireflexo IS NULL OR p.antireflexo = '' OR p.antireflexo = 'Não' OR p.antireflexo = 'não')
-	          AND t.nome = ?
-	          AND """ + filtroGrau;
+	    CompatibilidadeTratamentoCache.Snapshot compat = CompatibilidadeTratamentoCache.get();
+	    int[] candidatos = compat.indicesDoTratamento(nomeTratamento);
 	    
-	    System.out.println("🔍 SQL Fallback: " + sql);
 	    System.out.println("🔍 Tratamento buscado: " + nomeTratamento);
 	    
-	    try (Connection conexao = ConnectionFactory.getInstance().getConnection();
-	         PreparedStatement stmt = conexao.prepareStatement(sql)) {
+	    if (candidatos.length == 0) {
+	        return lentes;
+	    }
+	    
+	    for (LenteODeOE base : lentesReceita) {
+	        if (!isLenteBase(base.getAntireflexo())) continue;
 	        
-	        stmt.setString(1, nomeTratamento);
+	        int indice = compat.tratamentoCompativel(base.getFamilia(), candidatos);
+	        if (indice < 0) continue;
 	        
-	        try (ResultSet rs = stmt.executeQuery()) {
-	            while (rs.next()) {
-	                LenteComTratamento lente = mapearResultSetParaLenteComTratamento(rs, tipoOlho);
-	                
-	                // Dados do tratamento adicional
-	                lente.setTratamentoAdicionalId(rs.getInt("trat_id"));
-	                lente.setTratamentoAdicionalNome(rs.getString("trat_nome"));
-	                lente.setTratamentoAdicionalTipo(rs.getString("trat_tipo"));
-	                lente.setTratamentoAdicionalValor(rs.getDouble("trat_valor"));
-	                lente.setOrigemTratamento("ADICIONAL");
-	                
-	                lentes.add(lente);
-	                
-	                System.out.println("✅ Lente BASE compatível: " + lente.getMarca() + 
-	                    " + " + lente.getTratamentoAdicionalNome() + 
-	                    " (R$ " + lente.getTratamentoAdicionalValor() + ")");
-	            }
-	        }
+	        LenteComTratamento lente = new LenteComTratamento(base);
+	        
+	        // Dados do tratamento adicional
+	        lente.setTratamentoAdicionalId(compat.getTratamentoId(indice));
+	        lente.setTratamentoAdicionalNome(compat.getTratamentoNome(indice));
+	        lente.setTratamentoAdicionalTipo(compat.getTratamentoTipo(indice));
+	        lente.setTratamentoAdicionalValor(compat.getTratamentoValor(indice));
+	        lente.setOrigemTratamento("ADICIONAL");
+	        
+	        lentes.add(lente);
 	    }
 	    
 	    System.out.println("📦 Lentes BASE encontradas: " + lentes.size());
@@ -899,44 +946,10 @@ public class LentesDao {
 	}
 
 	/**
-	 * Mapeia ResultSet para LenteComTratamento
+	 * Lente BASE = sem antireflexo de fábrica (NULL, vazio ou "Não")
 	 */
-	private LenteComTratamento mapearResultSetParaLenteComTratamento(ResultSet rs, String tipoOlho) 
-	        throws SQLException {
-	    
-	    LenteComTratamento lente = new LenteComTratamento();
-	    
-	    lente.setIdLente(rs.getInt("idprodutoteste"));
-	    lente.setCodProdFornecedor(rs.getString("cod_prod_fornecedor"));
-	    lente.setCodigoWeb(rs.getString("cod_web"));
-	    lente.setMarca(rs.getString("marca"));
-	    lente.setDescricao(rs.getString("descricao"));
-	    lente.setTipo(rs.getString("tipo"));
-	    lente.setFotossensivel(rs.getString("fotossensivel"));
-	    lente.setCorFoto(rs.getString("cor_foto"));
-	    lente.setEsferico(rs.getDouble("esferico"));
-	    lente.setCilindrico(rs.getDouble("cilindrico"));
-	    lente.setFabricante(rs.getString("fabricante"));
-	    lente.setFamilia(rs.getString("familia"));
-	    lente.setDiametro(rs.getString("diametro"));
-	    lente.setIr(rs.getDouble("indice"));
-	    lente.setAntiblue(rs.getString("antiblue"));
-	    lente.setAntireflexo(rs.getString("antireflexo"));
-	    lente.setArResidual(rs.getString("ar_residual"));
-	    lente.setTratamento(rs.getString("tratamento"));
-	    lente.setMaterial(rs.getString("material"));
-	    lente.setCor(rs.getString("cor"));
-	    lente.setAdicao(rs.getDouble("adicao"));
-	    lente.setAlturaMinima(rs.getInt("altura_minima"));
-	    lente.setAfinamento(rs.getString("afinamento"));
-	    lente.setTecnicaProducao(rs.getString("producao"));
-	    lente.setPrecoCusto(rs.getDouble("preco_custo"));
-	    lente.setPrecoVenda(rs.getDouble("preco_venda"));
-	    lente.setPrecoMinimo(rs.getDouble("preco_minimo"));
-	    lente.setUnidade(rs.getString("unidade"));
-	    lente.setTipoOlho(tipoOlho);
-	    
-	    return lente;
+	private boolean isLenteBase(String antireflexo) {
+	    return antireflexo == null || antireflexo.isEmpty() || antireflexo.equalsIgnoreCase("Não");
 	}
 	
 	/**
@@ -1020,17 +1033,28 @@ public class LentesDao {
 	}
 
 	/**
-	 * Verifica se a lente já existe na lista (por codigoWeb)
+	 * Extrai os valores de antireflexo do filtro (ex: antireflexo = 'Crizal Sapphire'),
+	 * em minúsculas, para separar em memória as lentes com AR de fábrica.
 	 */
-	private boolean existeNaLista(List<LenteComTratamento> lista, LenteComTratamento lente) {
-	    for (LenteComTratamento l : lista) {
-	        if (l.getCodigoWeb() != null && l.getCodigoWeb().equals(lente.getCodigoWeb())) {
-	            return true;
+	private Set<String> extrairValoresAntireflexo(String filtro, String filtroAntireflexo) {
+	    Set<String> valores = new HashSet<>();
+	    
+	    if (filtro != null) {
+	        Matcher m = PADRAO_ANTIREFLEXO.matcher(filtro);
+	        while (m.find()) {
+	            valores.add(m.group(1).trim().toLowerCase());
 	        }
 	    }
-	    return false;
+	    
+	    if (valores.isEmpty()) {
+	        valores.add(filtroAntireflexo.trim().toLowerCase());
+	    }
+	    
+	    return valores;
 	}
 
+	private static final Pattern PADRAO_ANTIREFLEXO = Pattern.compile("antireflexo\\s*=\\s*'([^']*)'");
+
 	// ============================================================
 	// IMPORT NECESSÁRIO (adicionar no topo do arquivo):
 	// import br.com.vendas.beans.LenteComTratamento;
@@ -1069,9 +1093,9 @@ public class LentesDao {
            lente.setAfinamento(rs.getString("afinamento"));
            //lente.setTecnicaProducao(rs.getString("tecnica_producao"));
            lente.setTecnicaProducao(rs.getString("producao"));
-           lente.setPrecoCusto(rs.getDouble("preco_custo"));
-           lente.setPrecoVenda(rs.getDouble("preco_venda"));
-           lente.setPrecoMinimo(rs.getDouble("preco_minimo"));
+           lente.setPrecoCusto(Dinheiro.ler(rs, "preco_custo"));
+           lente.setPrecoVenda(Dinheiro.ler(rs, "preco_venda"));
+           lente.setPrecoMinimo(Dinheiro.ler(rs, "preco_minimo"));
            lente.setUnidade(rs.getString("unidade"));
            System.out.println("marcas  :" + lente.getMarca());
            System.out.println("Unidade :" + lente.getUnidade());
@@ -1098,7 +1122,7 @@ public class LentesDao {
 	    }
 	}
 
-    public boolean atualizarPrecoProdutoPorCodigo(String codigo, String campo, BigDecimal valor) { // Remova 'throws SQLException' temporariamente para capturar aqui
+    public boolean atualizarPrecoProdutoPorCodigo(String codigo, String campo, Dinheiro valor) { // Remova 'throws SQLException' temporariamente para capturar aqui
         String coluna;
         switch (campo) {
             case "custo": coluna = "preco_custo"; break;
@@ -1110,9 +1134,12 @@ public class LentesDao {
         String sql = "UPDATE produtoteste SET " + coluna + " = ? WHERE idprodutoteste = ?";
         try (Connection conn = ConnectionFactory.getInstance().getConnection();
 	             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setBigDecimal(1, valor);
+            Dinheiro.vincular(stmt, 1, valor);
             stmt.setString(2, codigo);
             int rowsAffected = stmt.executeUpdate(); // Captura o resultado
+            if (rowsAffected > 0) {
+                CatalogoVersao.incrementar();
+            }
             System.out.println("DEBUG DAO: Query executada: " + sql);
             System.out.println("DEBUG DAO: Parâmetros: valor=" + valor + ", codigo=" + codigo);
             System.out.println("DEBUG DAO: Linhas afetadas: " + rowsAffected);
@@ -1124,7 +1151,7 @@ public class LentesDao {
         }
     }
 
-    public boolean atualizarPrecoProduto(Long id, String campo, BigDecimal valor) throws SQLException {
+    public boolean atualizarPrecoProduto(Long id, String campo, Dinheiro valor) throws SQLException {
         String coluna;
         switch (campo) {
             case "custo":
@@ -1143,9 +1170,13 @@ public class LentesDao {
         String sql = "UPDATE produtoteste SET " + coluna + " = ? WHERE idprodutoteste = ?";
         try (Connection conn = ConnectionFactory.getInstance().getConnection();
 	             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setBigDecimal(1, valor);
+            Dinheiro.vincular(stmt, 1, valor);
             stmt.setLong(2, id);
-            return stmt.executeUpdate() > 0;
+            if (stmt.executeUpdate() > 0) {
+                CatalogoVersao.incrementar();
+                return true;
+            }
+            return false;
         }
     }
 
@@ -1157,13 +1188,14 @@ public class LentesDao {
              PreparedStatement statement = conn.prepareStatement(sql)) {
 
             for (Produto p : produtos) {
-                statement.setDouble(1, p.getPrecoCusto());
-                statement.setDouble(2, p.getPrecoVenda());
+                Dinheiro.vincular(statement, 1, p.getPrecoCustoDinheiro());
+                Dinheiro.vincular(statement, 2, p.getPrecoVendaDinheiro());
                 statement.setLong(3, p.getId());
                 statement.addBatch();
             }
 
             statement.executeBatch();
+            CatalogoVersao.incrementar();
         }
     }
    private static final String SELECT_ALL = "SELECT * FROM produtoteste ORDER BY idprodutoteste DESC";
@@ -1192,15 +1224,15 @@ public class LentesDao {
        
      
        
-       produto.setPrecoVenda(resultSet.getDouble("preco_venda"));
-       produto.setPrecoCusto(resultSet.getDouble("preco_custo"));
-       produto.setPrecoMinimo(resultSet.getDouble("preco_minimo"));
+       produto.setPrecoVenda(Dinheiro.ler(resultSet, "preco_venda"));
+       produto.setPrecoCusto(Dinheiro.ler(resultSet, "preco_custo"));
+       produto.setPrecoMinimo(Dinheiro.ler(resultSet, "preco_minimo"));
 
        return produto;
    }
 
    public List<Lente> buscarProdutosGeral(Long id, String fabricante, String marca, String tipo, String material,
-           String codigo, BigDecimal precoMin, BigDecimal precoMax, Boolean ativo) throws SQLException {
+           String codigo, Dinheiro precoMin, Dinheiro precoMax, Boolean ativo) throws SQLException {
 
 StringBuilder sql = new StringBuilder("""
 SELECT * 
@@ -1229,8 +1261,8 @@ if (marca != null && !marca.isEmpty()) stmt.setString(index++, "%" + marca + "%"
 if (tipo != null && !tipo.isEmpty()) stmt.setString(index++, "%" + tipo + "%");
 if (material != null && !material.isEmpty()) stmt.setString(index++, "%" + material + "%");
 if (codigo != null && !codigo.isEmpty()) stmt.setString(index++, "%" + codigo + "%");
-if (precoMin != null) stmt.setBigDecimal(index++, precoMin);
-if (precoMax != null) stmt.setBigDecimal(index++, precoMax);
+if (precoMin != null) Dinheiro.vincular(stmt, index++, precoMin);
+if (precoMax != null) Dinheiro.vincular(stmt, index++, precoMax);
 
 try (ResultSet rs = stmt.executeQuery()) {
 while (rs.next()) {
@@ -1301,9 +1333,9 @@ return produtos;
 	        // 16-20
 	        setNullableString(stmt, 16, produto.getAfinamento());
 	        setNullableString(stmt, 17, normalizeSimNao(produto.getAntiblue()));
-	        setNullableDouble(stmt, 18, produto.getPrecoCusto());
-	        setNullableDouble(stmt, 19, produto.getPrecoVenda());
-	        setNullableDouble(stmt, 20, produto.getPrecoMinimo());
+	        Dinheiro.vincular(stmt, 18, produto.getPrecoCustoDinheiro());
+	        Dinheiro.vincular(stmt, 19, produto.getPrecoVendaDinheiro());
+	        Dinheiro.vincular(stmt, 20, produto.getPrecoMinimoDinheiro());
 
 	        // 21-25
 	        setNullableString(stmt, 21, produto.getUnidade());
@@ -1321,6 +1353,7 @@ return produtos;
 
 	        int rows = stmt.executeUpdate();
 	        if (rows > 0) {
+	            CatalogoVersao.incrementar();
 	            try (ResultSet rs = stmt.getGeneratedKeys()) {
 	                if (rs.next()) produto.setId(rs.getLong(1));
 	            }
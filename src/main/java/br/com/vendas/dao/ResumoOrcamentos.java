@@ -0,0 +1,231 @@
+package br.com.vendas.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import br.com.vendas.util.Dinheiro;
+
+/**
+ * Resumo diário de orçamentos por loja e status (orcamento_resumo_diario),
+ * lido pelo DashboardOrcamentos no lugar de agregar orcamentos inteira.
+ *
+ * Uma linha por (loja, dia, status) com quantidade e valor. O dia é o da
+ * criação do orçamento: conversões e expirações movem o orçamento entre os
+ * status do MESMO dia (taxa de conversão = CONVERTIDO / total dos criados).
+ *
+ * Mantido na mesma transação da gravação:
+ * - registrarNovo(): chamado pelo INSERT do SalvarOrcamento
+ * - mudarStatus(): UPDATE do status + ajuste do resumo (conversão, expiração)
+ * Orçamento sem loja fica em id_loja = 0.
+ *
+ * reconstruir() refaz o resumo a partir de orcamentos (histórico, ou após
+ * alteração direta no banco); roda sozinho na primeira vez, com a tabela vazia.
+ *
+ * CREATE TABLE faz commit implícito no MySQL: garantirEstrutura() roda fora
+ * de transação, na inicialização (AplicacaoListener, antes de qualquer
+ * requisição). Se ela falhar, volta a rodar no init do SalvarOrcamento e na
+ * leitura do dashboard; até lá, as gravações não tocam o resumo e ele é
+ * reconstruído quando a tabela é verificada (de novo, se houver gravação
+ * ignorada durante a reconstrução).
+ *
+ * <pre>
+ *   CREATE TABLE orcamento_resumo_diario (
+ *     id_loja INT NOT NULL, dia DATE NOT NULL, status VARCHAR(20) NOT NULL,
+ *     quantidade INT NOT NULL, valor DECIMAL(14,2) NOT NULL,
+ *     PRIMARY KEY (id_loja, dia, status));
+ * </pre>
+ *
+ * @author OptoFreela
+ */
+public final class ResumoOrcamentos {
+
+    private static final String SQL_SOMAR =
+            "INSERT INTO orcamento_resumo_diario (id_loja, dia, status, quantidade, valor) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE quantidade = quantidade + VALUES(quantidade), valor = valor + VALUES(valor)";
+
+    private static final String SQL_NOVO =
+            "INSERT INTO orcamento_resumo_diario (id_loja, dia, status, quantidade, valor) " +
+            "VALUES (?, CURDATE(), ?, 1, ?) " +
+            "ON DUPLICATE KEY UPDATE quantidade = quantidade + 1, valor = valor + VALUES(valor)";
+
+    private static final int MAX_RECONSTRUCOES = 3;
+
+    private static volatile boolean estruturaVerificada;
+    private static volatile boolean alteracoesIgnoradas;  // gravação antes da tabela existir
+
+    private ResumoOrcamentos() {
+    }
+
+    // ========================================
+    // Manutenção (na transação do chamador)
+    // ========================================
+
+    /**
+     * Soma um orçamento recém-inserido (data_hora = NOW()) ao resumo de hoje.
+     */
+    public static void registrarNovo(Connection conn, Integer lojaId, String status, Dinheiro total)
+            throws SQLException {
+        if (!estruturaVerificada) {
+            alteracoesIgnoradas = true;
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_NOVO)) {
+            stmt.setInt(1, lojaId != null ? lojaId : 0);
+            stmt.setString(2, status);
+            Dinheiro.vincular(stmt, 3, total != null ? total : Dinheiro.ZERO);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Altera o status do orçamento e move quantidade/valor entre os status
+     * do dia de criação. A linha do orçamento fica bloqueada (FOR UPDATE) até
+     * o commit do chamador.
+     * @return o status anterior, ou null se o orçamento não existe
+     */
+    public static String mudarStatus(Connection conn, long orcamentoId, String novoStatus) throws SQLException {
+        String anterior;
+        int lojaId;
+        java.sql.Date dia;
+        Dinheiro total;
+
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT status, COALESCE(id_loja, 0) AS id_loja, DATE(data_hora) AS dia, total " +
+                "FROM orcamentos WHERE id = ? FOR UPDATE")) {
+            stmt.setLong(1, orcamentoId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) return null;
+                anterior = rs.getString("status");
+                lojaId = rs.getInt("id_loja");
+                dia = rs.getDate("dia");
+                total = Dinheiro.ler(rs, "total");
+            }
+        }
+        if (novoStatus.equals(anterior)) return anterior;
+
+        try (PreparedStatement stmt = conn.prepareStatement("UPDATE orcamentos SET status = ? WHERE id = ?")) {
+            stmt.setString(1, novoStatus);
+            stmt.setLong(2, orcamentoId);
+            stmt.executeUpdate();
+        }
+
+        if (!estruturaVerificada) {
+            alteracoesIgnoradas = true;
+            return anterior;
+        }
+
+        Dinheiro valor = total != null ? total : Dinheiro.ZERO;
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_SOMAR)) {
+            if (anterior != null) {
+                adicionar(stmt, lojaId, dia, anterior, -1, valor.negar());
+            }
+            adicionar(stmt, lojaId, dia, novoStatus, 1, valor);
+            stmt.executeBatch();
+        }
+        return anterior;
+    }
+
+    private static void adicionar(PreparedStatement stmt, int lojaId, java.sql.Date dia, String status,
+                                  int quantidade, Dinheiro valor) throws SQLException {
+        stmt.setInt(1, lojaId);
+        stmt.setDate(2, dia);
+        stmt.setString(3, status);
+        stmt.setInt(4, quantidade);
+        Dinheiro.vincular(stmt, 5, valor);
+        stmt.addBatch();
+    }
+
+    // ========================================
+    // Reconstrução
+    // ========================================
+
+    /**
+     * Refaz o resumo inteiro a partir de orcamentos, numa transação.
+     * @return linhas do resumo geradas
+     */
+    public static int reconstruir(Connection conn) throws SQLException {
+        garantirEstrutura(conn);
+        return recalcular(conn);
+    }
+
+    private static int recalcular(Connection conn) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            long inicio = System.currentTimeMillis();
+            stmt.executeUpdate("DELETE FROM orcamento_resumo_diario");
+            int linhas = stmt.executeUpdate(
+                    "INSERT INTO orcamento_resumo_diario (id_loja, dia, status, quantidade, valor) " +
+                    "SELECT COALESCE(id_loja, 0), DATE(data_hora), status, COUNT(*), COALESCE(SUM(total), 0) " +
+                    "FROM orcamentos WHERE status IS NOT NULL " +
+                    "GROUP BY COALESCE(id_loja, 0), DATE(data_hora), status");
+            conn.commit();
+            System.out.println("🧮 Resumo diário de orçamentos reconstruído: " + linhas + " linhas em " +
+                    (System.currentTimeMillis() - inicio) + " ms");
+            return linhas;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    // ========================================
+    // Estrutura (executa uma vez por processo)
+    // ========================================
+
+    /**
+     * Cria a tabela se não existir; vazia com orçamentos já gravados (ou com
+     * gravações feitas antes da verificação) → reconstrói. Chamar fora de transação.
+     */
+    public static void garantirEstrutura(Connection conn) throws SQLException {
+        if (estruturaVerificada) return;
+
+        synchronized (ResumoOrcamentos.class) {
+            if (estruturaVerificada) return;
+
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(
+                        "CREATE TABLE IF NOT EXISTS orcamento_resumo_diario (" +
+                        "  id_loja INT NOT NULL," +
+                        "  dia DATE NOT NULL," +
+                        "  status VARCHAR(20) NOT NULL," +
+                        "  quantidade INT NOT NULL DEFAULT 0," +
+                        "  valor DECIMAL(14,2) NOT NULL DEFAULT 0," +
+                        "  PRIMARY KEY (id_loja, dia, status))");
+
+                boolean vazia;
+                try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM orcamento_resumo_diario LIMIT 1")) {
+                    vazia = !rs.next();
+                }
+                boolean temOrcamentos;
+                try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM orcamentos LIMIT 1")) {
+                    temOrcamentos = rs.next();
+                }
+                if ((vazia && temOrcamentos) || alteracoesIgnoradas) {
+                    // Gravação ignorada durante o recalcular() pode ter ficado fora dele: refaz
+                    int tentativas = 0;
+                    do {
+                        alteracoesIgnoradas = false;
+                        recalcular(conn);
+                    } while (alteracoesIgnoradas && ++tentativas < MAX_RECONSTRUCOES);
+
+                    if (alteracoesIgnoradas) {
+                        // Segue sem o resumo; a próxima verificação reconstrói de novo
+                        System.err.println("⚠️ Resumo diário de orçamentos: gravações durante a reconstrução, " +
+                                "verificação adiada");
+                        return;
+                    }
+                }
+            }
+
+            estruturaVerificada = true;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package br.com.vendas.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sequência numérica reservada em blocos (hi/lo) na tabela sequencias.
+ *
+ * Cada JVM reserva um bloco de números com um único UPDATE atômico
+ * (proximo = proximo + tamanho) numa conexão própria, em autocommit: a linha
+ * do contador fica travada só durante esse UPDATE, não durante a venda.
+ * Dentro do bloco os números saem de um AtomicLong, sem banco e sem trava.
+ * Quando restam LIMIAR números, o bloco seguinte é reservado em segundo
+ * plano; se ainda não chegou quando o atual acaba, a reserva é feita na hora.
+ *
+ * Números únicos entre servidores (cada bloco pertence a uma JVM), mas não
+ * contínuos nem em ordem cronológica entre servidores; o resto de um bloco
+ * se perde ao reiniciar e o número de uma venda desfeita não é reaproveitado.
+ *
+ * <pre>
+ *   CREATE TABLE sequencias (nome VARCHAR(64) PRIMARY KEY, proximo BIGINT NOT NULL);
+ * </pre>
+ * Criada na primeira reserva; a linha da sequência começa no valor da
+ * consulta semente (ex.: MAX(id_pedido) + 1 de vendas).
+ *
+ * @author OptoFreela
+ */
+public final class SequenciaBlocos {
+
+    // Uma thread para as reservas em segundo plano de todas as sequências
+    private static final ExecutorService RESERVAS = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "sequencia-blocos");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String nome;
+    private final int tamanhoBloco;
+    private final int limiar;
+    private final String sqlSemente;
+
+    private volatile Bloco atual = new Bloco(0, 0);
+    private volatile Bloco reservado;                       // próximo bloco, já reservado
+    private final AtomicBoolean reservando = new AtomicBoolean();
+    private volatile boolean estruturaVerificada;
+
+    /**
+     * @param sqlSemente SELECT de um valor: primeiro número, se a sequência ainda não existir
+     */
+    public SequenciaBlocos(String nome, int tamanhoBloco, String sqlSemente) {
+        if (tamanhoBloco < 1) throw new IllegalArgumentException("Bloco inválido: " + tamanhoBloco);
+        this.nome = nome;
+        this.tamanhoBloco = tamanhoBloco;
+        this.limiar = Math.max(1, tamanhoBloco / 4);
+        this.sqlSemente = sqlSemente;
+    }
+
+    /**
+     * Próximo número. Só acessa o banco quando o bloco acaba sem o seguinte pronto.
+     */
+    public long proximo() throws SQLException {
+        while (true) {
+            Bloco bloco = atual;
+            long numero = bloco.proximo.getAndIncrement();
+            if (numero < bloco.fim) {
+                if (bloco.fim - numero == limiar) {
+                    reservarEmSegundoPlano();
+                }
+                return numero;
+            }
+            trocar(bloco);
+        }
+    }
+
+    /**
+     * Para a thread de reservas em segundo plano (chamado ao encerrar a
+     * aplicação). Depois disso, blocos são reservados na hora, no proximo().
+     */
+    public static void encerrar() {
+        RESERVAS.shutdownNow();
+    }
+
+    private synchronized void trocar(Bloco esgotado) throws SQLException {
+        if (atual != esgotado) return;  // outra thread já trocou
+
+        Bloco novo = reservado;
+        reservado = null;
+        if (novo == null) {
+            novo = reservar();
+        }
+        atual = novo;
+    }
+
+    private void reservarEmSegundoPlano() {
+        if (reservado != null || !reservando.compareAndSet(false, true)) return;
+
+        try {
+            RESERVAS.execute(() -> {
+                try {
+                    Bloco bloco = reservar();
+                    synchronized (this) {
+                        if (reservado == null) {
+                            reservado = bloco;
+                        }
+                    }
+                } catch (SQLException | RuntimeException e) {
+                    // O próximo trocar() reserva na hora
+                    System.err.println("⚠️ Sequência " + nome + ": reserva antecipada falhou: " + e.getMessage());
+                } finally {
+                    reservando.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            reservando.set(false);
+        }
+    }
+
+    /**
+     * Reserva [fim - tamanho, fim) com um UPDATE atômico, em conexão própria.
+     */
+    private Bloco reservar() throws SQLException {
+        try (Connection conn = ConnectionFactory.getInstance().getConnection()) {
+            conn.setAutoCommit(true);
+            garantirEstrutura(conn);
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE sequencias SET proximo = LAST_INSERT_ID(proximo + ?) WHERE nome = ?")) {
+                stmt.setInt(1, tamanhoBloco);
+                stmt.setString(2, nome);
+                if (stmt.executeUpdate() == 0) {
+                    throw new SQLException("Sequência não encontrada: " + nome);
+                }
+            }
+
+            long fim;
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT LAST_INSERT_ID()")) {
+                rs.next();
+                fim = rs.getLong(1);
+            }
+
+            System.out.println("🔢 Sequência " + nome + ": bloco " + (fim - tamanhoBloco) + ".." + (fim - 1));
+            return new Bloco(fim - tamanhoBloco, fim);
+        }
+    }
+
+    private void garantirEstrutura(Connection conn) throws SQLException {
+        if (estruturaVerificada) return;
+
+        synchronized (SequenciaBlocos.class) {
+            if (estruturaVerificada) return;
+
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(
+                        "CREATE TABLE IF NOT EXISTS sequencias (" +
+                        "  nome VARCHAR(64) NOT NULL PRIMARY KEY," +
+                        "  proximo BIGINT NOT NULL)");
+            }
+
+            // Primeira vez: começa depois do que já existe (INSERT IGNORE: outro servidor pode ter criado)
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT IGNORE INTO sequencias (nome, proximo) SELECT ?, (" + sqlSemente + ")")) {
+                stmt.setString(1, nome);
+                if (stmt.executeUpdate() > 0) {
+                    System.out.println("🔢 Sequência " + nome + " criada");
+                }
+            }
+
+            estruturaVerificada = true;
+        }
+    }
+
+    private static final class Bloco {
+        final AtomicLong proximo;
+        final long fim;  // exclusivo
+
+        Bloco(long inicio, long fim) {
+            this.proximo = new AtomicLong(inicio);
+            this.fim = fim;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package br.com.vendas.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import br.com.vendas.beans.Otica;
+import br.com.vendas.beans.Perfil;
+import br.com.vendas.beans.Usuario;
+import br.com.vendas.util.SenhaHash;
+
+/**
+ * Credenciais e perfil de login (usuario + loja + perfil).
+ *
+ * - Busca por usuario.username_normalizado, coluna gerada STORED
+ *   (LOWER(TRIM(username))) com índice único, em vez de LOWER(u.username) = LOWER(?),
+ *   que não usa índice. Gerada pelo MySQL: renomear o username no banco troca o
+ *   login na hora, sem backfill
+ * - Senha verificada por PBKDF2 (SenhaHash) no pool limitado
+ * - Migração: usuário com senha em texto puro (senha_hash NULL) entra uma vez
+ *   pela comparação antiga; em seguida o hash é gravado e a coluna senha é limpa.
+ *   Para redefinir a senha de alguém direto no banco: senha = 'nova', senha_hash = NULL.
+ * - Credencial (id, senha, senha_hash) lida a cada login, por índice: senha
+ *   redefinida no banco vale na hora
+ * - Perfil (usuario + loja + perfil, com JOINs) fica em cache por 60 s por id,
+ *   absorvendo o pico de logins na abertura da loja; troca de loja ou perfil
+ *   direto no banco vale em até 60 s. Segredos não entram no cache
+ *
+ * Colunas criadas pela migração WEB-INF/sql/migracoes/001_usuario_username_normalizado.sql:
+ * <pre>
+ *   ALTER TABLE usuario
+ *     ADD COLUMN username_normalizado VARCHAR(100)
+ *         GENERATED ALWAYS AS (LOWER(TRIM(username))) STORED,
+ *     ADD UNIQUE INDEX uk_usuario_username_norm (username_normalizado);
+ *   ALTER TABLE usuario ADD COLUMN senha_hash VARCHAR(255) NULL;
+ * </pre>
+ * Em runtime só se confere (somente leitura) que as colunas existem; nada
+ * de DDL no caminho do login. Sem a migração, o login continua pela busca
+ * antiga (LOWER(u.username) = ?, sem índice) e, sem senha_hash, pela senha
+ * em texto puro, sem migrar; a conferência se repete a cada 60 s até a
+ * migração ser aplicada.
+ *
+ * @author OptoFreela
+ */
+public class UsuarioDao {
+
+    private static final long TTL_MS = 60 * 1000;
+    private static final int MAX_CACHE = 1000;
+
+    private static final String SELECT_PERFIL =
+            "SELECT u.id, u.nome, u.username, u.email, u.id_loja, u.id_perfil, " +
+            "l.nome as loja_nome, l.endereco as loja_endereco, l.cidade as loja_cidade, " +
+            "l.estado as loja_estado, l.telefone as loja_telefone, " +
+            "p.nome as perfil_nome " +
+            "FROM usuario u " +
+            "LEFT JOIN loja l ON u.id_loja = l.id " +
+            "LEFT JOIN perfil p ON u.id_perfil = p.id " +
+            "WHERE u.id = ?";
+
+    private static final long INTERVALO_VERIFICACAO_MS = 60 * 1000L;
+
+    private static final Map<Integer, PerfilCache> cache = new ConcurrentHashMap<>();
+    private static volatile boolean normalizadoDisponivel;
+    private static volatile boolean senhaHashDisponivel;
+    private static volatile long proximaVerificacao;
+
+    private UsuarioDao() {
+    }
+
+    /**
+     * Autentica pelo username (sem diferenciar maiúsculas) e senha.
+     * @return o usuário (sem senha) ou null se inválido
+     * @throws SenhaHash.Ocupado se o pool de hash estiver saturado
+     */
+    public static Usuario autenticar(String username, String senha) throws SQLException, SenhaHash.Ocupado {
+        String chave = normalizar(username);
+        if (chave.isEmpty() || senha == null) return null;
+
+        // Conexão devolvida antes do PBKDF2: não fica presa durante o hash
+        Credencial credencial;
+        try (Connection conn = ConnectionFactory.getInstance().getConnection()) {
+            verificarEstrutura(conn);
+            credencial = credencial(conn, chave);
+        }
+        if (credencial == null) return null;
+
+        if (credencial.senhaHash != null) {
+            if (!SenhaHash.verificar(senha, credencial.senhaHash)) return null;
+        } else {
+            // Legado: senha em texto puro → migra para hash no primeiro login válido
+            if (!SenhaHash.igualTextoPuro(senha, credencial.senha)) return null;
+
+            if (senhaHashDisponivel) {
+                migrarSenha(credencial.id, senha);
+            }
+        }
+
+        return perfil(credencial.id);
+    }
+
+    public static String normalizar(String username) {
+        return username == null ? "" : username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // ========================================
+    // Versão da sessão assinada (TokenSessao)
+    // ========================================
+
+    private static final String MIGRACAO_SESSAO = "WEB-INF/sql/migracoes/003_usuario_sessao_versao.sql";
+    private static final int ER_BAD_FIELD = 1054;
+
+    /**
+     * usuario.sessao_versao atual; -1 se o usuário não existir mais.
+     */
+    public static int sessaoVersao(int idUsuario) throws SQLException {
+        try (Connection conn = ConnectionFactory.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT sessao_versao FROM usuario WHERE id = ?")) {
+            stmt.setInt(1, idUsuario);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        } catch (SQLException e) {
+            throw semColunaSessao(e);
+        }
+    }
+
+    /**
+     * Incrementa usuario.sessao_versao: todos os tokens já emitidos para o
+     * usuário deixam de valer.
+     */
+    public static void revogarSessoes(int idUsuario) throws SQLException {
+        try (Connection conn = ConnectionFactory.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "UPDATE usuario SET sessao_versao = sessao_versao + 1 WHERE id = ?")) {
+            stmt.setInt(1, idUsuario);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw semColunaSessao(e);
+        }
+    }
+
+    private static SQLException semColunaSessao(SQLException e) {
+        if (e.getErrorCode() != ER_BAD_FIELD) return e;
+        System.err.println("❌ usuario.sessao_versao não existe: execute " + MIGRACAO_SESSAO);
+        return new SQLException("Coluna usuario.sessao_versao ausente. Execute a migração " + MIGRACAO_SESSAO, e);
+    }
+
+    // ========================================
+    // Consulta (credencial sem cache, perfil com cache)
+    // ========================================
+
+    /**
+     * id, senha e senha_hash pelo username normalizado (sem cache).
+     */
+    private static Credencial credencial(Connection conn, String chave) throws SQLException {
+        String sql = "SELECT id, senha, " + (senhaHashDisponivel ? "senha_hash" : "NULL AS senha_hash") +
+                     " FROM usuario WHERE " +
+                     (normalizadoDisponivel ? "username_normalizado = ?" : "LOWER(username) = ?");
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, chave);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) return null;
+
+                String hash = rs.getString("senha_hash");
+                return new Credencial(rs.getInt("id"),
+                        rs.getString("senha"),
+                        SenhaHash.ehHash(hash) ? hash : null);
+            }
+        }
+    }
+
+    /**
+     * Usuário com loja e perfil, do cache se lido há menos de TTL_MS.
+     */
+    private static Usuario perfil(int idUsuario) throws SQLException {
+        long agora = System.currentTimeMillis();
+
+        PerfilCache emCache = cache.get(idUsuario);
+        if (emCache != null && agora - emCache.carregadoEm < TTL_MS) {
+            return emCache.usuario;
+        }
+
+        Usuario usuario;
+        try (Connection conn = ConnectionFactory.getInstance().getConnection()) {
+            usuario = consultarPerfil(conn, idUsuario);
+        }
+
+        if (usuario != null) {
+            if (cache.size() >= MAX_CACHE) cache.clear();
+            cache.put(idUsuario, new PerfilCache(usuario));
+        }
+        return usuario;
+    }
+
+    private static Usuario consultarPerfil(Connection conn, int idUsuario) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SELECT_PERFIL)) {
+            stmt.setInt(1, idUsuario);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) return null;
+
+                Usuario usuario = new Usuario();
+                usuario.setId(rs.getInt("id"));
+                usuario.setNome(rs.getString("nome"));
+                usuario.setUsername(rs.getString("username"));
+                usuario.setEmail(rs.getString("email"));
+
+                int idLoja = rs.getInt("id_loja");
+                if (idLoja > 0) {
+                    Otica otica = new Otica();
+                    otica.setIdOtica(idLoja);
+                    otica.setNomeOtica(rs.getString("loja_nome"));
+                    otica.setEnderecoOtica(rs.getString("loja_endereco"));
+                    otica.setCidadeOtica(rs.getString("loja_cidade"));
+                    otica.setEstadoOtica(rs.getString("loja_estado"));
+                    otica.setTelefoneOtica(rs.getString("loja_telefone"));
+                    usuario.setOtica(otica);
+                }
+
+                int idPerfil = rs.getInt("id_perfil");
+                if (idPerfil > 0) {
+                    Perfil perfil = new Perfil();
+                    perfil.setId(idPerfil);
+                    perfil.setNome(rs.getString("perfil_nome"));
+                    usuario.setPerfil(perfil);
+                }
+
+                return usuario;
+            }
+        }
+    }
+
+    private static void migrarSenha(int idUsuario, String senha) throws SQLException, SenhaHash.Ocupado {
+        String hash = SenhaHash.gerar(senha);
+
+        try (Connection conn = ConnectionFactory.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "UPDATE usuario SET senha_hash = ?, senha = '' WHERE id = ? AND senha_hash IS NULL")) {
+            stmt.setString(1, hash);
+            stmt.setInt(2, idUsuario);
+            if (stmt.executeUpdate() > 0) {
+                System.out.println("🔐 Senha do usuário " + idUsuario + " migrada para PBKDF2");
+            }
+        }
+    }
+
+    // ========================================
+    // Estrutura (conferida sem DDL)
+    // ========================================
+
+    private static final String MIGRACAO = "WEB-INF/sql/migracoes/001_usuario_username_normalizado.sql";
+
+    /**
+     * Confere a migração: username_normalizado gerada e senha_hash. Completa:
+     * fica confirmado para o processo; incompleta: busca antiga para o que
+     * faltar e nova conferência após INTERVALO_VERIFICACAO_MS (a migração
+     * aplicada com o servidor no ar passa a valer sem reiniciar).
+     */
+    private static void verificarEstrutura(Connection conn) {
+        if (normalizadoDisponivel && senhaHashDisponivel) return;
+        if (System.currentTimeMillis() < proximaVerificacao) return;
+
+        synchronized (UsuarioDao.class) {
+            if (normalizadoDisponivel && senhaHashDisponivel) return;
+            if (System.currentTimeMillis() < proximaVerificacao) return;
+
+            try {
+                String extraNormalizado = extraColuna(conn, "username_normalizado");
+                normalizadoDisponivel = extraNormalizado != null
+                        && extraNormalizado.toUpperCase(Locale.ROOT).contains("STORED GENERATED");
+                senhaHashDisponivel = extraColuna(conn, "senha_hash") != null;
+
+                if (!normalizadoDisponivel || !senhaHashDisponivel) {
+                    System.err.println("⚠️ Estrutura de usuario desatualizada (login pela busca antiga): execute " + MIGRACAO);
+                }
+            } catch (SQLException e) {
+                System.err.println("⚠️ Estrutura de usuario não verificada: " + e.getMessage());
+            }
+
+            proximaVerificacao = System.currentTimeMillis() + INTERVALO_VERIFICACAO_MS;
+        }
+    }
+
+    /**
+     * information_schema.COLUMNS.EXTRA da coluna ("" se comum), ou null se não existir.
+     */
+    private static String extraColuna(Connection conn, String coluna) throws SQLException {
+        String sql = "SELECT EXTRA FROM information_schema.COLUMNS " +
+                     "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'usuario' AND COLUMN_NAME = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, coluna);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) return null;
+                String extra = rs.getString(1);
+                return extra != null ? extra : "";
+            }
+        }
+    }
+
+    private static final class Credencial {
+        final int id;
+        final String senha;
+        final String senhaHash;
+
+        Credencial(int id, String senha, String senhaHash) {
+            this.id = id;
+            this.senha = senha;
+            this.senhaHash = senhaHash;
+        }
+    }
+
+    private static final class PerfilCache {
+        final Usuario usuario;
+        final long carregadoEm = System.currentTimeMillis();
+
+        PerfilCache(Usuario usuario) {
+            this.usuario = usuario;
+        }
+    }
+}
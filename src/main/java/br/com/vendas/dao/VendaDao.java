@@ -0,0 +1,288 @@
+package br.com.vendas.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import br.com.vendas.util.Dinheiro;
+import br.com.vendas.util.GsonUtils;
+
+/**
+ * Gravações de venda comuns ao SalvarVenda e ao ConverterOrcamento:
+ * número do pedido (SequenciaBlocos), itens (itens_venda) e pagamentos
+ * (venda_pagamentos).
+ *
+ * Itens e pagamentos rodam na transação do chamador; o número do pedido é
+ * reservado fora dela (não volta em rollback).
+ *
+ * Item no JSON (como o front envia ao SalvarVenda; o ConverterOrcamento
+ * monta o mesmo formato a partir de orcamento_itens):
+ * <pre>
+ *   { "codigo": 123, "descricao": "Lente X - OD", "quantidade": 1,
+ *     "preco_unitario": "250.00", "preco_total": "250.00",
+ *     "tratamentos": [ { "tipo": "antireflexo", "codigo": 9, "nome": "...", "valor": 80 } ],
+ *     "coloracao": { "nome": "Marrom", "valor": 50, "hex": "#8B4513", "tipo": "Degradê" },
+ *     "unidade": "PAR", "tipo": "LENTE" }
+ * </pre>
+ *
+ * Pagamento no JSON (como o front já envia):
+ * <pre>
+ *   { "forma": "CREDITO", "valor": "300.00", "parcelas": 3, "bandeira": "Visa",
+ *     "convenio_id": null, "funcionario_convenio_id": null, "autorizacao": null }
+ * </pre>
+ *
+ * @author OptoFreela
+ */
+public final class VendaDao {
+
+    // Números de pedido: blocos de 20 por servidor, começando após o maior id_pedido existente
+    private static final SequenciaBlocos PEDIDOS = new SequenciaBlocos("vendas.id_pedido", 20,
+            "SELECT COALESCE(MAX(id_pedido), 0) + 1 FROM vendas");
+
+    // Linhas por INSERT de várias linhas (itens e pagamentos de uma venda cabem num só)
+    public static final int LINHAS_POR_INSERT = 100;
+
+    private static final String SQL_ITEM =
+        "INSERT INTO itens_venda (id_venda, id_produto, descricao, quantidade, " +
+        "preco_unitario, preco_tabela, subtotal, tratamentos, unidade, tipo)";
+    private static final String GRUPO_ITEM = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private VendaDao() {
+    }
+
+    /**
+     * Gera próximo ID de pedido (bloco reservado por JVM, sem MAX(id_pedido) na transação)
+     */
+    public static long gerarIdPedido() throws SQLException {
+        return PEDIDOS.proximo();
+    }
+
+    /**
+     * Primeiro pagamento em convênio (define tipo_venda = 'convenio'), ou null.
+     */
+    public static JsonObject pagamentoConvenio(JsonArray pagamentos) {
+        for (JsonElement elem : pagamentos) {
+            JsonObject pag = elem.getAsJsonObject();
+            if ("CONVENIO".equals(getStringOrNull(pag, "forma"))) {
+                return pag;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Soma dos valores dos pagamentos.
+     */
+    public static Dinheiro somarPagamentos(JsonArray pagamentos) {
+        Dinheiro soma = Dinheiro.ZERO;
+        for (JsonElement elem : pagamentos) {
+            soma = soma.somar(getDinheiro(elem.getAsJsonObject(), "valor"));
+        }
+        return soma;
+    }
+
+    /**
+     * Insere os itens da venda em itens_venda, num único INSERT de várias
+     * linhas (até LINHAS_POR_INSERT por comando). Tratamentos e coloração
+     * vão juntos na coluna tratamentos (ver montarTratamentosJson).
+     */
+    public static void inserirItens(Connection conn, long vendaId, JsonArray itens) throws SQLException {
+        for (int inicio = 0; inicio < itens.size(); inicio += LINHAS_POR_INSERT) {
+            int linhas = Math.min(LINHAS_POR_INSERT, itens.size() - inicio);
+
+            try (PreparedStatement stmt = conn.prepareStatement(insertMultiplo(SQL_ITEM, GRUPO_ITEM, linhas))) {
+                int idx = 1;
+                for (int i = inicio; i < inicio + linhas; i++) {
+                    JsonObject item = itens.get(i).getAsJsonObject();
+
+                    stmt.setLong(idx++, vendaId);
+                    stmt.setLong(idx++, item.has("codigo") ? item.get("codigo").getAsLong() : 0);
+                    stmt.setString(idx++, getStringOrNull(item, "descricao"));
+                    stmt.setDouble(idx++, item.has("quantidade") ? item.get("quantidade").getAsDouble() : 1);
+                    Dinheiro precoUnitario = getDinheiro(item, "preco_unitario");
+                    Dinheiro.vincular(stmt, idx++, precoUnitario);
+                    Dinheiro.vincular(stmt, idx++, precoUnitario);
+                    Dinheiro.vincular(stmt, idx++, getDinheiro(item, "preco_total"));
+
+                    String tratamentosJson = montarTratamentosJson(item);
+                    if (!tratamentosJson.equals("[]")) {
+                        stmt.setString(idx++, tratamentosJson);
+                    } else {
+                        stmt.setNull(idx++, Types.VARCHAR);
+                    }
+
+                    stmt.setString(idx++, getStringOrNull(item, "unidade"));
+                    stmt.setString(idx++, getStringOrNull(item, "tipo"));
+                }
+
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * ✅ Combina tratamentos + coloração em um único JSON
+     * 
+     * Estrutura resultante:
+     * [
+     *   { "tipo": "antireflexo", "codigo": 123, "nome": "Crizal Easy", "valor": 150.00 },
+     *   { "tipo": "coloracao", "nome": "Marrom Degradê", "valor": 50.00, "hex": "#8B4513", "tipoColoracao": "Degradê" }
+     * ]
+     */
+    public static String montarTratamentosJson(JsonObject item) {
+        JsonArray resultado = new JsonArray();
+
+        // 1. Adiciona tratamentos (usa tipo do frontend ou fallback para 'antireflexo')
+        if (item.has("tratamentos") && item.get("tratamentos").isJsonArray()) {
+            JsonArray tratamentos = item.get("tratamentos").getAsJsonArray();
+            for (JsonElement t : tratamentos) {
+                if (t.isJsonObject()) {
+                    JsonObject trat = t.getAsJsonObject();
+                    JsonObject novoTrat = new JsonObject();
+
+                    // Usa tipo do frontend ou fallback
+                    if (trat.has("tipo") && !trat.get("tipo").isJsonNull()) {
+                        novoTrat.add("tipo", trat.get("tipo"));
+                    } else {
+                        novoTrat.addProperty("tipo", "antireflexo");
+                    }
+
+                    if (trat.has("codigo")) novoTrat.add("codigo", trat.get("codigo"));
+                    if (trat.has("nome")) novoTrat.add("nome", trat.get("nome"));
+                    if (trat.has("valor")) novoTrat.add("valor", trat.get("valor"));
+
+                    resultado.add(novoTrat);
+                }
+            }
+        }
+
+        // 2. Adiciona coloração (se existir)
+        if (item.has("coloracao") && !item.get("coloracao").isJsonNull()) {
+            JsonElement coloracaoEl = item.get("coloracao");
+
+            if (coloracaoEl.isJsonObject()) {
+                JsonObject coloracao = coloracaoEl.getAsJsonObject();
+                JsonObject novaColoracao = new JsonObject();
+                novaColoracao.addProperty("tipo", "coloracao");
+
+                if (coloracao.has("nome")) novaColoracao.add("nome", coloracao.get("nome"));
+                if (coloracao.has("valor")) novaColoracao.add("valor", coloracao.get("valor"));
+                if (coloracao.has("hex")) novaColoracao.add("hex", coloracao.get("hex"));
+                if (coloracao.has("tipo")) {
+                    // Tipo da coloração (Total, Degradê) - renomeia para evitar conflito
+                    novaColoracao.add("tipoColoracao", coloracao.get("tipo"));
+                }
+
+                resultado.add(novaColoracao);
+            }
+        }
+
+        return GsonUtils.getGson().toJson(resultado);
+    }
+
+    /**
+     * Insere os pagamentos da venda em venda_pagamentos (status PENDENTE),
+     * num único INSERT de várias linhas (até LINHAS_POR_INSERT por comando).
+     */
+    public static void inserirPagamentos(Connection conn, long vendaId, JsonArray pagamentos) throws SQLException {
+        String sqlPagamento =
+            "INSERT INTO venda_pagamentos (id_venda, forma_pagamento, valor, parcelas, " +
+            "valor_parcela, bandeira, id_empresa_convenio, id_funcionario_convenio, " +
+            "numero_autorizacao, status, observacoes)";
+        String grupo = "(?, ?, ?, ?, ?, ?, ?, ?, ?, 'PENDENTE', ?)";
+
+        for (int inicio = 0; inicio < pagamentos.size(); inicio += LINHAS_POR_INSERT) {
+            int linhas = Math.min(LINHAS_POR_INSERT, pagamentos.size() - inicio);
+
+            try (PreparedStatement stmt = conn.prepareStatement(insertMultiplo(sqlPagamento, grupo, linhas))) {
+                int idx = 1;
+                for (int i = inicio; i < inicio + linhas; i++) {
+                    JsonObject pag = pagamentos.get(i).getAsJsonObject();
+
+                    String forma = getStringOrNull(pag, "forma");
+                    Dinheiro valor = getDinheiro(pag, "valor");
+                    int parcelas = pag.has("parcelas") ? pag.get("parcelas").getAsInt() : 1;
+                    // Parcela regular; os centavos que sobram da divisão vão nas primeiras
+                    Dinheiro valorParcela = parcelas > 0 ? valor.parcelar(parcelas)[parcelas - 1] : valor;
+                    String bandeira = getStringOrNull(pag, "bandeira");
+                    String observacao = montarObservacaoPagamento(forma, bandeira, parcelas);
+
+                    stmt.setLong(idx++, vendaId);  // id_venda = vendas.id (auto-increment)
+                    stmt.setString(idx++, forma);   // forma_pagamento
+                    Dinheiro.vincular(stmt, idx++, valor);
+                    stmt.setInt(idx++, parcelas);
+                    Dinheiro.vincular(stmt, idx++, valorParcela);
+                    stmt.setString(idx++, bandeira);
+
+                    // Convênio
+                    if (pag.has("convenio_id") && !pag.get("convenio_id").isJsonNull()) {
+                        stmt.setLong(idx++, pag.get("convenio_id").getAsLong());
+                    } else {
+                        stmt.setNull(idx++, Types.BIGINT);
+                    }
+
+                    if (pag.has("funcionario_convenio_id") && !pag.get("funcionario_convenio_id").isJsonNull()) {
+                        stmt.setLong(idx++, pag.get("funcionario_convenio_id").getAsLong());
+                    } else {
+                        stmt.setNull(idx++, Types.BIGINT);
+                    }
+
+                    stmt.setString(idx++, getStringOrNull(pag, "autorizacao"));
+                    stmt.setString(idx++, observacao);
+                }
+
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * INSERT de várias linhas: "INSERT ... (colunas) VALUES grupo, grupo, ...".
+     * Um comando e uma ida ao banco por lote, em vez de uma por linha
+     * (o driver não reescreve addBatch sem rewriteBatchedStatements na URL).
+     */
+    public static String insertMultiplo(String sqlInsert, String grupo, int linhas) {
+        StringBuilder sql = new StringBuilder(sqlInsert.length() + 8 + linhas * (grupo.length() + 2));
+        sql.append(sqlInsert).append(" VALUES ");
+        for (int i = 0; i < linhas; i++) {
+            if (i > 0) sql.append(", ");
+            sql.append(grupo);
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Monta observação do pagamento
+     */
+    private static String montarObservacaoPagamento(String forma, String bandeira, int parcelas) {
+        StringBuilder obs = new StringBuilder();
+
+        if (bandeira != null && !bandeira.isEmpty()) {
+            obs.append(bandeira);
+        }
+
+        if (parcelas > 1) {
+            if (obs.length() > 0) obs.append(" - ");
+            obs.append(parcelas).append("x");
+        }
+
+        return obs.length() > 0 ? obs.toString() : null;
+    }
+
+    private static String getStringOrNull(JsonObject obj, String key) {
+        if (obj.has(key) && !obj.get(key).isJsonNull()) {
+            return obj.get(key).getAsString();
+        }
+        return null;
+    }
+
+    private static Dinheiro getDinheiro(JsonObject obj, String key) {
+        String texto = getStringOrNull(obj, key);
+        return texto != null && !texto.isEmpty() ? Dinheiro.parse(texto) : Dinheiro.ZERO;
+    }
+}
@@ -2,6 +2,10 @@ package br.com.vendas.filter;
 
 import java.io.IOException;
 
+import br.com.vendas.beans.TipoPerfil;
+import br.com.vendas.beans.UsuarioPrincipal;
+import br.com.vendas.filter.TabelaRotas.Visibilidade;
+import br.com.vendas.util.TokenSessao;
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.FilterConfig;
@@ -10,7 +14,6 @@ import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 
 /**
  * AuthFilter.java
@@ -21,17 +24,58 @@ import jakarta.servlet.http.HttpSession;
  * - Login (servlet)
  * - Logout (servlet)
  * - Recursos estáticos (css, js, images, fonts)
+ *   (/css, /js e /img nem chegam aqui: são atendidos pelo EstaticosFilter)
  * 
  * CONTROLE DE ACESSO POR PERFIL:
  * - Perfil "Caixa" → só acessa caixa.html
  * - Outros perfis → só acessam index.html (não podem acessar caixa.html)
+ *
+ * As rotas são classificadas por uma TabelaRotas imutável montada no init()
+ * (trie de caminhos/prefixos + trie de extensões). O perfil já vem
+ * normalizado da sessão (TipoPerfil, gravado pelo LoginServlet), então a
+ * verificação por requisição não aloca nem converte strings.
+ *
+ * IDENTIDADE:
+ * - Com tokenSessao.ativo=true, o cookie assinado (TokenSessao) vale em
+ *   qualquer nó, sem sessão fixa nem replicação
+ * - Sem token válido, usa a HttpSession como antes
+ * - O usuário resolvido fica na requisição: UsuarioPrincipal.de(request)
  * 
  * @author OptoFreela
  */
 public class AuthFilter implements Filter {
 
+    private TabelaRotas rotas;
+    private TokenSessao tokenSessao;
+
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
+        TabelaRotas.Builder b = TabelaRotas.builder()
+            // Página de login
+            .exato("/login.html", Visibilidade.PUBLICA)
+            .exato("/login.jsp", Visibilidade.PUBLICA)
+            // Servlets de login/logout (aceita ambas URLs)
+            .exato("/LoginServlet", Visibilidade.PUBLICA)
+            .exato("/Login", Visibilidade.PUBLICA)
+            .exato("/LogoutServlet", Visibilidade.PUBLICA)
+            .exato("/Logout", Visibilidade.PUBLICA)
+            // Páginas por perfil
+            .exato("", Visibilidade.EXCETO_CAIXA)
+            .exato("/", Visibilidade.EXCETO_CAIXA)
+            .exato("/index.html", Visibilidade.EXCETO_CAIXA)
+            .exato("/caixa.html", Visibilidade.SOMENTE_CAIXA);
+
+        // Recursos estáticos
+        for (String prefixo : new String[] { "/css/", "/js/", "/images/", "/fonts/", "/assets/", "/static/" }) {
+            b.prefixo(prefixo, Visibilidade.PUBLICA);
+        }
+        for (String ext : new String[] { ".css", ".js", ".png", ".jpg", ".jpeg", ".gif", ".ico", ".svg",
+                                         ".woff", ".woff2", ".ttf", ".eot" }) {
+            b.extensao(ext, Visibilidade.PUBLICA);
+        }
+
+        rotas = b.build();
+        tokenSessao = TokenSessao.configurar(filterConfig.getServletContext());
         System.out.println("✅ AuthFilter inicializado (com controle de perfil)");
     }
 
@@ -44,145 +88,74 @@ public class AuthFilter implements Filter {
         
         String uri = httpRequest.getRequestURI();
         String contextPath = httpRequest.getContextPath();
-        String path = uri.substring(contextPath.length());
         
-        // 🔍 DEBUG: Log de toda requisição
-        System.out.println("");
-        System.out.println("┌─────────────────────────────────────────────────────────────────┐");
-        System.out.println("│ 🔍 AuthFilter - REQUISIÇÃO INTERCEPTADA                        │");
-        System.out.println("├─────────────────────────────────────────────────────────────────┤");
-        System.out.println("│ URI completa: " + uri);
-        System.out.println("│ Context Path: " + contextPath);
-        System.out.println("│ Path extraído: " + path);
-        System.out.println("│ Método: " + httpRequest.getMethod());
+        Visibilidade visibilidade = rotas.classificar(uri, contextPath.length());
         
         // Recursos que não precisam de autenticação
-        boolean isPublic = isPublicResource(path);
-        System.out.println("│ É recurso público? " + isPublic);
-        
-        if (isPublic) {
-            System.out.println("│ ✅ LIBERADO - Recurso público");
-            System.out.println("└─────────────────────────────────────────────────────────────────┘");
+        if (visibilidade == Visibilidade.PUBLICA) {
             chain.doFilter(request, response);
             return;
         }
         
-        // Verifica sessão
-        HttpSession session = httpRequest.getSession(false);
-        boolean isLoggedIn = (session != null && session.getAttribute("usuario") != null);
-        
-        System.out.println("│ Sessão existe? " + (session != null));
-        System.out.println("│ Usuário na sessão? " + isLoggedIn);
+        // Verifica token assinado (se ativo) ou sessão
+        UsuarioPrincipal usuario = tokenSessao != null ? tokenSessao.verificar(httpRequest) : null;
+        if (usuario == null) {
+            usuario = UsuarioPrincipal.daSessao(httpRequest.getSession(false));
+        }
         
-        if (!isLoggedIn) {
-            System.out.println("│ ❌ BLOQUEADO - Redirecionando para login");
-            System.out.println("└─────────────────────────────────────────────────────────────────┘");
+        if (usuario == null) {
+            System.out.println("🔒 AuthFilter - sem sessão, redirecionando para login: " + uri);
             httpResponse.sendRedirect(contextPath + "/login.html?error=session");
             return;
         }
         
-        // ✅ NOVO: Verificar autorização por perfil
-        String perfilNome = (String) session.getAttribute("perfilNome");
-        System.out.println("│ Perfil do usuário: " + (perfilNome != null ? perfilNome : "Não definido"));
-        
-        // Verificar se precisa redirecionar baseado no perfil
-        String redirecionamento = verificarAutorizacaoPorPerfil(path, perfilNome, contextPath);
-        
-        if (redirecionamento != null) {
-            System.out.println("│ 🔀 REDIRECIONANDO - Perfil não autorizado para esta página");
-            System.out.println("│ Destino: " + redirecionamento);
-            System.out.println("└─────────────────────────────────────────────────────────────────┘");
-            httpResponse.sendRedirect(redirecionamento);
-            return;
+        httpRequest.setAttribute(UsuarioPrincipal.ATRIBUTO, usuario);
+        
+        // Verificar autorização por perfil (só nas páginas restritas)
+        if (visibilidade != Visibilidade.AUTENTICADA) {
+            TipoPerfil perfil = usuario.temPerfil() ? usuario.getPerfil() : null;
+            String redirecionamento = verificarAutorizacaoPorPerfil(visibilidade, perfil, contextPath);
+            
+            if (redirecionamento != null) {
+                System.out.println("🔀 AuthFilter - perfil não autorizado para " + uri + ", destino: " + redirecionamento);
+                httpResponse.sendRedirect(redirecionamento);
+                return;
+            }
         }
         
-        System.out.println("│ ✅ LIBERADO - Usuário autenticado e autorizado");
-        System.out.println("└─────────────────────────────────────────────────────────────────┘");
         chain.doFilter(request, response);
     }
 
     /**
-     * ✅ NOVO: Verifica se o usuário pode acessar a página baseado no perfil
+     * Verifica se o usuário pode acessar a página baseado no perfil
      * 
-     * @param path Caminho da requisição
-     * @param perfilNome Nome do perfil do usuário
+     * @param visibilidade Classificação da rota (SOMENTE_CAIXA ou EXCETO_CAIXA)
+     * @param perfil Perfil normalizado do usuário (null = sem perfil)
      * @param contextPath Contexto da aplicação
      * @return URL de redirecionamento ou null se autorizado
      */
-    private String verificarAutorizacaoPorPerfil(String path, String perfilNome, String contextPath) {
-        if (perfilNome == null) {
+    private String verificarAutorizacaoPorPerfil(Visibilidade visibilidade, TipoPerfil perfil, String contextPath) {
+        if (perfil == null) {
             return null; // Sem perfil definido, deixa passar
         }
         
-        String perfilLower = perfilNome.toLowerCase().trim();
-        boolean isCaixa = perfilLower.equals("caixa") || 
-                          perfilLower.equals("operador de caixa") || 
-                          perfilLower.equals("operador_caixa");
+        boolean isCaixa = perfil == TipoPerfil.CAIXA;
         
         // Perfil CAIXA tentando acessar index.html ou raiz
-        if (isCaixa && (path.equals("/index.html") || path.equals("/") || path.isEmpty())) {
+        if (isCaixa && visibilidade == Visibilidade.EXCETO_CAIXA) {
             return contextPath + "/caixa.html";
         }
         
         // Perfil NÃO-CAIXA tentando acessar caixa.html
-        if (!isCaixa && path.equals("/caixa.html")) {
+        if (!isCaixa && visibilidade == Visibilidade.SOMENTE_CAIXA) {
             return contextPath + "/index.html";
         }
         
         return null; // Autorizado
     }
 
-    /**
-     * Verifica se é um recurso público (não precisa de autenticação)
-     */
-    private boolean isPublicResource(String path) {
-        // Página de login
-        if (path.equals("/login.html") || path.equals("/login.jsp")) {
-            return true;
-        }
-        
-        // Servlets de login/logout (aceita ambas URLs)
-        if (path.equals("/LoginServlet") || path.equals("/Login") ||
-            path.equals("/LogoutServlet") || path.equals("/Logout")) {
-            return true;
-        }
-        
-        // Recursos estáticos
-        if (path.startsWith("/css/") || 
-            path.startsWith("/js/") || 
-            path.startsWith("/images/") || 
-            path.startsWith("/fonts/") ||
-            path.startsWith("/assets/") ||
-            path.startsWith("/static/")) {
-            return true;
-        }
-        
-        // Arquivos estáticos por extensão
-        if (path.endsWith(".css") || 
-            path.endsWith(".js") || 
-            path.endsWith(".png") || 
-            path.endsWith(".jpg") || 
-            path.endsWith(".jpeg") || 
-            path.endsWith(".gif") || 
-            path.endsWith(".ico") || 
-            path.endsWith(".svg") ||
-            path.endsWith(".woff") ||
-            path.endsWith(".woff2") ||
-            path.endsWith(".ttf") ||
-            path.endsWith(".eot")) {
-            return true;
-        }
-        
-        // Raiz vazia (redireciona para index) - precisa de autenticação
-        if (path.equals("/") || path.isEmpty()) {
-            return false;
-        }
-        
-        return false;
-    }
-
     @Override
     public void destroy() {
         System.out.println("AuthFilter destruído");
     }
-}
\ No newline at end of file
+}
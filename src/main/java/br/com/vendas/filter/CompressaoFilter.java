@@ -0,0 +1,432 @@
+package br.com.vendas.filter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * CompressaoFilter.java
+ * Compressão gzip das respostas, antes do AuthFilter.
+ *
+ * DINÂMICO (SelecaoLentes, ListarVendas, ListarOrcamentos...):
+ * - Resposta é bufferizada até o limite (init-param "limiteBytes", padrão 1 KB)
+ * - Acima do limite e com Content-Type texto/JSON → gzip em streaming
+ * - Abaixo do limite → enviada como está (gzip não compensa)
+ * - Só se o cliente mandar "Accept-Encoding: gzip"
+ *
+ * ASSÍNCRONO (startAsync):
+ * - A resposta só é finalizada (gzip fechado) quando o AsyncContext conclui,
+ *   não no retorno do chain
+ * - setWriteListener (I/O não bloqueante) passa a saída direto para a
+ *   resposta original, sem compressão: o gzip bloqueante não acompanha isReady()
+ *
+ * ERRO (exceção saindo do chain ou onError do async):
+ * - A resposta NÃO é finalizada: sem trailer gzip nem último chunk, o cliente
+ *   vê a resposta interrompida (ex: CSV abortado no ExportarCsv) em vez de um
+ *   200 completo e truncado. Se nada saiu ainda, o buffer é descartado e o
+ *   container monta a página de erro; se já saiu, o container derruba a conexão
+ *
+ * Estáticos (/css, /js, /img) não passam por aqui: são atendidos antes
+ * pelo EstaticosFilter, já com a variante .gz pré-comprimida.
+ *
+ * @author OptoFreela
+ */
+public class CompressaoFilter implements Filter {
+
+    private static final int LIMITE_PADRAO = 1024;
+
+    private static final String[] TIPOS_COMPRIMIVEIS = {
+        "application/json", "text/", "application/javascript", "application/xml", "image/svg+xml"
+    };
+
+    private int limiteBytes = LIMITE_PADRAO;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        String limite = filterConfig.getInitParameter("limiteBytes");
+        if (limite != null && !limite.isBlank()) {
+            limiteBytes = Integer.parseInt(limite.trim());
+        }
+
+        System.out.println("✅ CompressaoFilter inicializado (limite " + limiteBytes + " bytes)");
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        if (!aceitaGzip(httpRequest)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        RespostaComprimivel wrapper = new RespostaComprimivel(httpResponse, limiteBytes);
+        try {
+            chain.doFilter(request, wrapper);
+        } catch (IOException | ServletException | RuntimeException e) {
+            // Falhou no meio: não fecha o gzip/chunk, senão sai como resposta completa
+            wrapper.abortar();
+            throw e;
+        }
+
+        if (httpRequest.isAsyncStarted()) {
+            // A resposta continua após o retorno: finaliza quando o async terminar
+            httpRequest.getAsyncContext().addListener(new FinalizarAoConcluir(wrapper));
+        } else {
+            wrapper.finalizar();
+        }
+    }
+
+    /**
+     * Finaliza a resposta comprimível ao fim de um processamento assíncrono.
+     */
+    private static class FinalizarAoConcluir implements AsyncListener {
+
+        private final RespostaComprimivel wrapper;
+
+        FinalizarAoConcluir(RespostaComprimivel wrapper) {
+            this.wrapper = wrapper;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException {
+            wrapper.finalizar();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            wrapper.abortar();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Novo ciclo (startAsync de novo): continua ouvindo
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    static boolean aceitaGzip(HttpServletRequest request) {
+        String aceita = request.getHeader("Accept-Encoding");
+        if (aceita == null) return false;
+
+        for (String parte : aceita.split(",")) {
+            String[] campos = parte.trim().split(";");
+            if (!campos[0].trim().equalsIgnoreCase("gzip")) continue;
+
+            // "gzip;q=0" significa recusado
+            for (int i = 1; i < campos.length; i++) {
+                String p = campos[i].trim();
+                if (p.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(p.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean tipoComprimivel(String contentType) {
+        if (contentType == null) return false;
+        String tipo = contentType.toLowerCase(Locale.ROOT);
+        for (String t : TIPOS_COMPRIMIVEIS) {
+            if (tipo.startsWith(t)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void destroy() {
+        System.out.println("🛑 CompressaoFilter destruído");
+    }
+
+    // ========================================
+    // Wrapper da resposta
+    // ========================================
+
+    /**
+     * Segura o Content-Length e a saída até decidir se comprime.
+     */
+    private static class RespostaComprimivel extends HttpServletResponseWrapper {
+
+        private final HttpServletResponse original;
+        private final int limite;
+        private SaidaComprimivel saida;
+        private PrintWriter writer;
+        private long contentLength = -1;
+        private boolean abortada;
+
+        RespostaComprimivel(HttpServletResponse original, int limite) {
+            super(original);
+            this.original = original;
+            this.limite = limite;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() já foi chamado");
+            }
+            return saida();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (saida != null) {
+                    throw new IllegalStateException("getOutputStream() já foi chamado");
+                }
+                writer = new PrintWriter(new OutputStreamWriter(saida(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            contentLength = len;
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            contentLength = len;
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if ("Content-Length".equalsIgnoreCase(name)) {
+                contentLength = value != null ? Long.parseLong(value) : -1;
+                return;
+            }
+            super.setHeader(name, value);
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) writer.flush();
+            if (saida != null) saida.flush();
+            if (saida == null || saida.decidido()) {
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            if (saida != null) saida.descartar();
+            super.resetBuffer();
+        }
+
+        @Override
+        public void reset() {
+            if (saida != null) saida.descartar();
+            contentLength = -1;
+            super.reset();
+        }
+
+        private SaidaComprimivel saida() {
+            if (saida == null) {
+                saida = new SaidaComprimivel(this);
+            }
+            return saida;
+        }
+
+        void finalizar() throws IOException {
+            if (abortada) return;
+            if (writer != null) {
+                writer.close();
+            } else if (saida != null) {
+                saida.close();
+            } else if (contentLength >= 0 && !original.isCommitted()) {
+                original.setContentLengthLong(contentLength);
+            }
+        }
+
+        /**
+         * Erro: descarta o que não saiu e libera o gzip sem escrever o trailer.
+         * A saída original fica aberta para o container tratar o erro.
+         */
+        void abortar() {
+            abortada = true;
+            if (saida != null) saida.abortar();
+        }
+    }
+
+    /**
+     * Bufferiza até o limite; ao estourar (ou no close) decide entre gzip e
+     * envio direto.
+     */
+    private static class SaidaComprimivel extends ServletOutputStream {
+
+        private final RespostaComprimivel resposta;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private OutputStream destino;
+        private boolean fechado;
+        private boolean direto;  // setWriteListener: saída original, sem gzip
+
+        SaidaComprimivel(RespostaComprimivel resposta) {
+            this.resposta = resposta;
+        }
+
+        boolean decidido() {
+            return destino != null;
+        }
+
+        void descartar() {
+            if (destino == null) {
+                buffer.reset();
+            }
+        }
+
+        void abortar() {
+            fechado = true;
+            if (destino == null) {
+                buffer.reset();
+            } else if (destino instanceof Gzip) {
+                ((Gzip) destino).descartar();
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (destino != null) {
+                destino.write(b);
+                return;
+            }
+            buffer.write(b);
+            if (buffer.size() > resposta.limite) decidir(true);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (destino != null) {
+                destino.write(b, off, len);
+                return;
+            }
+            buffer.write(b, off, len);
+            if (buffer.size() > resposta.limite) decidir(true);
+        }
+
+        /**
+         * flush() antes de decidir é ignorado: os servlets fazem
+         * out.print(json); out.flush(), e a decisão precisa do tamanho.
+         */
+        @Override
+        public void flush() throws IOException {
+            if (destino != null) destino.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fechado) return;
+            fechado = true;
+
+            if (destino == null) decidir(false);
+            destino.close();
+        }
+
+        private void decidir(boolean grande) throws IOException {
+            HttpServletResponse original = resposta.original;
+
+            boolean comprimir = grande
+                    && !original.isCommitted()
+                    && original.getHeader("Content-Encoding") == null
+                    && tipoComprimivel(original.getContentType());
+
+            if (comprimir) {
+                original.setHeader("Content-Encoding", "gzip");
+                original.addHeader("Vary", "Accept-Encoding");
+                destino = new Gzip(original.getOutputStream());
+            } else {
+                // Resposta completa no buffer: tamanho exato; senão, o informado pelo servlet
+                if (!original.isCommitted()) {
+                    if (!grande) {
+                        original.setContentLengthLong(buffer.size());
+                    } else if (resposta.contentLength >= 0) {
+                        original.setContentLengthLong(resposta.contentLength);
+                    }
+                }
+                destino = original.getOutputStream();
+            }
+
+            buffer.writeTo(destino);
+            buffer = null;
+        }
+
+        @Override
+        public boolean isReady() {
+            if (!direto) return true;
+            try {
+                return resposta.original.getOutputStream().isReady();
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        /**
+         * I/O não bloqueante: sem compressão, tudo direto na saída original
+         * (o que já estava no buffer vai antes do listener assumir).
+         */
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            if (destino instanceof Gzip) {
+                throw new IllegalStateException("Resposta já em gzip: I/O não bloqueante não suportado");
+            }
+            try {
+                if (destino == null) {
+                    HttpServletResponse original = resposta.original;
+                    if (resposta.contentLength >= 0 && !original.isCommitted()) {
+                        original.setContentLengthLong(resposta.contentLength);
+                    }
+                    destino = original.getOutputStream();
+                    buffer.writeTo(destino);
+                    buffer = null;
+                }
+                direto = true;
+                resposta.original.getOutputStream().setWriteListener(writeListener);
+            } catch (IOException e) {
+                throw new IllegalStateException("Falha ao passar para I/O não bloqueante", e);
+            }
+        }
+    }
+
+    /**
+     * GZIPOutputStream que pode ser descartado sem escrever o trailer.
+     */
+    private static class Gzip extends GZIPOutputStream {
+
+        Gzip(OutputStream destino) throws IOException {
+            super(destino, 8192);
+        }
+
+        void descartar() {
+            def.end();
+        }
+    }
+}
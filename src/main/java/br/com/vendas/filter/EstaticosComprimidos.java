@@ -0,0 +1,152 @@
+package br.com.vendas.filter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Variantes .gz pré-comprimidas dos arquivos estáticos (js, css...).
+ *
+ * Na subida, cada arquivo dos diretórios informados é comprimido uma vez
+ * para o diretório de cache. Se o .gz já existe e é mais novo que o
+ * original (restart sem deploy), não é recomprimido. Em tempo de execução,
+ * um arquivo alterado é detectado pela data de modificação e recomprimido
+ * na primeira requisição.
+ *
+ * @author OptoFreela
+ */
+class EstaticosComprimidos {
+
+    private final File raiz;
+    private final File cache;
+    private final Map<String, File> variantes = new ConcurrentHashMap<>();
+
+    /**
+     * @param raiz diretório real do webapp (getRealPath("/"))
+     * @param cache diretório onde os .gz são gravados
+     */
+    EstaticosComprimidos(File raiz, File cache) {
+        this.raiz = raiz;
+        this.cache = cache;
+    }
+
+    /**
+     * Gera (ou reaproveita) os .gz de todos os arquivos dos diretórios.
+     */
+    void preparar(String[] diretorios, String[] extensoes) {
+        int gerados = 0;
+        int reaproveitados = 0;
+
+        for (String dir : diretorios) {
+            File base = new File(raiz, dir.trim());
+            if (!base.isDirectory()) continue;
+
+            for (File arquivo : listar(base)) {
+                if (!temExtensao(arquivo.getName(), extensoes)) continue;
+
+                String caminho = "/" + raiz.toPath().relativize(arquivo.toPath()).toString().replace(File.separatorChar, '/');
+                File gz = arquivoGz(caminho);
+                try {
+                    if (atualizado(arquivo, gz)) {
+                        reaproveitados++;
+                    } else {
+                        comprimir(arquivo, gz);
+                        gerados++;
+                    }
+                    variantes.put(caminho, gz);
+                } catch (IOException e) {
+                    System.err.println("⚠️ Não foi possível comprimir " + caminho + ": " + e.getMessage());
+                }
+            }
+        }
+
+        System.out.println("🗜️ Estáticos pré-comprimidos: " + gerados + " gerados, " + reaproveitados + " reaproveitados");
+    }
+
+    /**
+     * Retorna o .gz atualizado do caminho (ex: /js/main.js), ou null se não houver.
+     */
+    File variante(String caminho) {
+        File gz = variantes.get(caminho);
+        if (gz == null) return null;
+
+        File original = new File(raiz, caminho);
+        if (!original.isFile()) return null;
+
+        if (!atualizado(original, gz)) {
+            synchronized (this) {
+                try {
+                    if (!atualizado(original, gz)) {
+                        comprimir(original, gz);
+                    }
+                } catch (IOException e) {
+                    System.err.println("⚠️ Falha ao recomprimir " + caminho + ": " + e.getMessage());
+                    return null;
+                }
+            }
+        }
+        return gz;
+    }
+
+    /**
+     * Data de modificação do arquivo original (para Last-Modified).
+     */
+    long ultimaModificacao(String caminho) {
+        return new File(raiz, caminho).lastModified();
+    }
+
+    private File arquivoGz(String caminho) {
+        return new File(cache, caminho.substring(1) + ".gz");
+    }
+
+    private static boolean atualizado(File original, File gz) {
+        return gz.isFile() && gz.lastModified() >= original.lastModified();
+    }
+
+    private static void comprimir(File original, File gz) throws IOException {
+        gz.getParentFile().mkdirs();
+        File tmp = new File(gz.getPath() + ".tmp");
+
+        try (InputStream in = new FileInputStream(original);
+             OutputStream out = new GZIPOutputStream(new FileOutputStream(tmp), 8192)) {
+            in.transferTo(out);
+        }
+
+        if (!tmp.renameTo(gz)) {
+            gz.delete();
+            if (!tmp.renameTo(gz)) {
+                throw new IOException("não foi possível gravar " + gz);
+            }
+        }
+    }
+
+    private static boolean temExtensao(String nome, String[] extensoes) {
+        for (String ext : extensoes) {
+            if (nome.endsWith(ext.trim())) return true;
+        }
+        return false;
+    }
+
+    static List<File> listar(File dir) {
+        List<File> arquivos = new ArrayList<>();
+        File[] filhos = dir.listFiles();
+        if (filhos == null) return arquivos;
+
+        for (File f : filhos) {
+            if (f.isDirectory()) {
+                arquivos.addAll(listar(f));
+            } else {
+                arquivos.add(f);
+            }
+        }
+        return arquivos;
+    }
+}
@@ -0,0 +1,256 @@
+package br.com.vendas.filter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * EstaticosFilter.java
+ * Caminho rápido para /css, /js e /img, ANTES do CompressaoFilter e do AuthFilter.
+ *
+ * - Arquivos servidos de um cache em memória (bytes + variante gzip)
+ * - Nunca chama o restante da cadeia: AuthFilter só vê requisições dinâmicas
+ * - URL versionada (?v=<fingerprint>) → Cache-Control de 1 ano, immutable
+ * - URL sem versão (ou versão antiga) → no-cache, revalidada por ETag/Last-Modified (304)
+ * - Arquivo alterado em disco é recarregado (verificação a cada 2 s por arquivo)
+ *
+ * O fingerprint atual de um arquivo fica disponível em
+ * EstaticosFilter.versionar(servletContext, "/js/main.js"); o PaginasFilter
+ * usa para versionar as referências das páginas .html.
+ *
+ * @author OptoFreela
+ */
+public class EstaticosFilter implements Filter {
+
+    private static final String ATRIBUTO = EstaticosFilter.class.getName();
+    private static final long INTERVALO_VERIFICACAO_MS = 2000;
+    private static final String CACHE_VERSIONADO = "public, max-age=31536000, immutable";
+    private static final String CACHE_REVALIDAR = "no-cache";
+
+    private ServletContext contexto;
+    private File raiz;
+    private EstaticosComprimidos comprimidos;
+    private final Map<String, Recurso> recursos = new ConcurrentHashMap<>();
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        contexto = filterConfig.getServletContext();
+        contexto.setAttribute(ATRIBUTO, this);
+
+        String real = contexto.getRealPath("/");
+        if (real == null) {
+            System.out.println("⚠️ EstaticosFilter: webapp não expandido, servindo via container");
+            return;
+        }
+        raiz = new File(real);
+
+        File tempdir = (File) contexto.getAttribute(ServletContext.TEMPDIR);
+        if (tempdir != null) {
+            comprimidos = new EstaticosComprimidos(raiz, new File(tempdir, "gz"));
+            comprimidos.preparar(parametro(filterConfig, "diretoriosComprimidos", "/js,/css"),
+                                 parametro(filterConfig, "extensoesComprimidas", ".js,.css,.svg"));
+        }
+
+        long bytes = 0;
+        for (String dir : parametro(filterConfig, "diretorios", "/css,/js,/img")) {
+            for (File arquivo : EstaticosComprimidos.listar(new File(raiz, dir.trim()))) {
+                Recurso r = carregar(caminho(arquivo));
+                if (r != null) bytes += r.corpo.length;
+            }
+        }
+
+        System.out.println("✅ EstaticosFilter inicializado: " + recursos.size() + " arquivos, " + (bytes / 1024) + " KB em memória");
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        if (raiz == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String metodo = httpRequest.getMethod();
+        if (!"GET".equals(metodo) && !"HEAD".equals(metodo)) {
+            httpResponse.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+
+        String path = caminhoRequisicao(httpRequest);
+        Recurso recurso = recurso(path);
+        if (recurso == null) {
+            httpResponse.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        boolean versionada = recurso.fingerprint.equals(httpRequest.getParameter("v"));
+        httpResponse.setHeader("Cache-Control", versionada ? CACHE_VERSIONADO : CACHE_REVALIDAR);
+        httpResponse.setHeader("ETag", recurso.etag);
+        httpResponse.setDateHeader("Last-Modified", recurso.modificado);
+        if (recurso.gzip != null) {
+            httpResponse.setHeader("Vary", "Accept-Encoding");
+        }
+
+        if (naoModificado(httpRequest, recurso)) {
+            httpResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] corpo = recurso.corpo;
+        if (recurso.gzip != null && CompressaoFilter.aceitaGzip(httpRequest)) {
+            corpo = recurso.gzip;
+            httpResponse.setHeader("Content-Encoding", "gzip");
+        }
+
+        if (recurso.tipo != null) {
+            httpResponse.setContentType(recurso.tipo);
+        }
+        httpResponse.setContentLength(corpo.length);
+
+        if ("GET".equals(metodo)) {
+            httpResponse.getOutputStream().write(corpo);
+        }
+    }
+
+    /**
+     * Caminho com fingerprint (ex: /js/main.js?v=3f2a...), ou o próprio caminho
+     * se o arquivo não estiver no cache.
+     */
+    public static String versionar(ServletContext contexto, String caminho) {
+        EstaticosFilter filtro = (EstaticosFilter) contexto.getAttribute(ATRIBUTO);
+        Recurso r = filtro != null ? filtro.recurso(caminho) : null;
+        return r != null ? caminho + "?v=" + r.fingerprint : caminho;
+    }
+
+    /**
+     * Recurso do cache, recarregado se o arquivo mudou desde a última verificação.
+     */
+    private Recurso recurso(String path) {
+        if (path.contains("..")) return null;
+
+        Recurso r = recursos.get(path);
+        long agora = System.currentTimeMillis();
+
+        if (r != null && agora - r.verificadoEm < INTERVALO_VERIFICACAO_MS) {
+            return r;
+        }
+
+        File arquivo = new File(raiz, path);
+        if (r != null && arquivo.lastModified() == r.modificadoDisco) {
+            r.verificadoEm = agora;
+            return r;
+        }
+
+        // Novo ou alterado (ou removido)
+        return carregar(path);
+    }
+
+    private Recurso carregar(String path) {
+        File arquivo = new File(raiz, path);
+        if (!arquivo.isFile()) {
+            recursos.remove(path);
+            return null;
+        }
+
+        try {
+            Recurso r = new Recurso();
+            r.modificadoDisco = arquivo.lastModified();
+            r.corpo = Files.readAllBytes(arquivo.toPath());
+            r.modificado = r.modificadoDisco / 1000 * 1000;
+            r.fingerprint = fingerprint(r.corpo);
+            r.etag = "\"" + r.fingerprint + "\"";
+            r.tipo = contexto.getMimeType(path);
+            r.verificadoEm = System.currentTimeMillis();
+
+            File gz = comprimidos != null ? comprimidos.variante(path) : null;
+            if (gz != null) {
+                byte[] gzip = Files.readAllBytes(gz.toPath());
+                if (gzip.length < r.corpo.length) r.gzip = gzip;
+            }
+
+            recursos.put(path, r);
+            return r;
+        } catch (IOException e) {
+            System.err.println("⚠️ EstaticosFilter: erro ao ler " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean naoModificado(HttpServletRequest request, Recurso recurso) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String candidato : ifNoneMatch.split(",")) {
+                String valor = candidato.trim();
+                if (valor.startsWith("W/")) valor = valor.substring(2);
+                if (valor.equals(recurso.etag) || valor.equals("*")) return true;
+            }
+            return false;
+        }
+
+        long desde = request.getDateHeader("If-Modified-Since");
+        return desde >= recurso.modificado;
+    }
+
+    private String caminho(File arquivo) {
+        return "/" + raiz.toPath().relativize(arquivo.toPath()).toString().replace(File.separatorChar, '/');
+    }
+
+    private static String fingerprint(byte[] corpo) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(corpo);
+            return HexFormat.of().formatHex(hash, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String[] parametro(FilterConfig config, String nome, String padrao) {
+        String valor = config.getInitParameter(nome);
+        return (valor != null && !valor.isBlank() ? valor : padrao).split(",");
+    }
+
+    /**
+     * Caminho dentro do contexto (servletPath + pathInfo): decodificado
+     * (%20 → espaço) e sem parâmetros de caminho (;jsessionid=...).
+     */
+    private static String caminhoRequisicao(HttpServletRequest request) {
+        String pathInfo = request.getPathInfo();
+        return request.getServletPath() + (pathInfo != null ? pathInfo : "");
+    }
+
+    @Override
+    public void destroy() {
+        recursos.clear();
+        System.out.println("🛑 EstaticosFilter destruído");
+    }
+
+    private static final class Recurso {
+        byte[] corpo;
+        byte[] gzip;
+        String tipo;
+        String fingerprint;
+        String etag;
+        long modificado;
+        long modificadoDisco;
+        volatile long verificadoEm;
+    }
+}
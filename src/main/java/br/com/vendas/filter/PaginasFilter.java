@@ -0,0 +1,171 @@
+package br.com.vendas.filter;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * PaginasFilter.java
+ * Serve as páginas .html com as referências a css/, js/ e img/ versionadas
+ * (href="css/x.css" → href="css/x.css?v=<fingerprint>"), usando
+ * EstaticosFilter.versionar(). Assim o navegador guarda esses arquivos por
+ * 1 ano e baixa de novo só quando o conteúdo muda.
+ *
+ * - Mapeado DEPOIS do AuthFilter: as regras de acesso às páginas continuam valendo
+ * - A página em si vai com no-cache (as versões mudam sem a página mudar)
+ * - Texto da página em cache, relido se o arquivo mudar (verificação a cada 2 s)
+ * - Módulos importados pelo main.js não passam por aqui: ficam sem versão e
+ *   são revalidados por ETag no EstaticosFilter
+ *
+ * @author OptoFreela
+ */
+public class PaginasFilter implements Filter {
+
+    private static final long INTERVALO_VERIFICACAO_MS = 2000;
+    private static final Pattern REFERENCIA =
+            Pattern.compile("((?:href|src)=\")((?:css|js|img)/[^\"?#]+)(\")");
+
+    private ServletContext contexto;
+    private File raiz;
+    private final Map<String, Pagina> paginas = new ConcurrentHashMap<>();
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        contexto = filterConfig.getServletContext();
+
+        String real = contexto.getRealPath("/");
+        if (real == null) {
+            System.out.println("⚠️ PaginasFilter: webapp não expandido, páginas sem versão");
+            return;
+        }
+        raiz = new File(real);
+        System.out.println("✅ PaginasFilter inicializado");
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        String metodo = httpRequest.getMethod();
+        if (raiz == null || (!"GET".equals(metodo) && !"HEAD".equals(metodo))) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String path = caminhoRequisicao(httpRequest);
+        if (path.isEmpty() || path.equals("/")) {
+            path = "/index.html";
+        }
+
+        Pagina pagina = pagina(path);
+        if (pagina == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        byte[] corpo = versionar(path, pagina.texto).getBytes(StandardCharsets.UTF_8);
+        httpResponse.setContentType("text/html;charset=UTF-8");
+        httpResponse.setHeader("Cache-Control", "no-cache");
+        httpResponse.setContentLength(corpo.length);
+
+        if ("GET".equals(metodo)) {
+            httpResponse.getOutputStream().write(corpo);
+        }
+    }
+
+    /**
+     * Troca cada referência relativa a css/, js/ ou img/ pela versionada.
+     */
+    private String versionar(String path, String texto) {
+        String diretorio = path.substring(0, path.lastIndexOf('/') + 1);
+
+        Matcher m = REFERENCIA.matcher(texto);
+        StringBuilder sb = new StringBuilder(texto.length() + 512);
+        while (m.find()) {
+            String relativo = m.group(2);
+            String versao = "";
+            try {
+                // Chave do EstaticosFilter é o caminho decodificado (href="img/a%20b.png")
+                String absoluto = diretorio + URLDecoder.decode(relativo.replace("+", "%2B"), StandardCharsets.UTF_8);
+                versao = EstaticosFilter.versionar(contexto, absoluto).substring(absoluto.length());
+            } catch (IllegalArgumentException e) {
+                // %-escape inválido: referência fica sem versão
+            }
+            m.appendReplacement(sb, Matcher.quoteReplacement(m.group(1) + relativo + versao + m.group(3)));
+        }
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    private Pagina pagina(String path) {
+        if (path.contains("..")) return null;
+
+        Pagina p = paginas.get(path);
+        long agora = System.currentTimeMillis();
+        if (p != null && agora - p.verificadoEm < INTERVALO_VERIFICACAO_MS) {
+            return p;
+        }
+
+        File arquivo = new File(raiz, path);
+        if (!arquivo.isFile()) {
+            paginas.remove(path);
+            return null;
+        }
+        if (p != null && arquivo.lastModified() == p.modificadoDisco) {
+            p.verificadoEm = agora;
+            return p;
+        }
+
+        try {
+            Pagina nova = new Pagina();
+            nova.modificadoDisco = arquivo.lastModified();
+            nova.texto = Files.readString(arquivo.toPath(), StandardCharsets.UTF_8);
+            nova.verificadoEm = agora;
+            paginas.put(path, nova);
+            return nova;
+        } catch (IOException e) {
+            System.err.println("⚠️ PaginasFilter: erro ao ler " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Caminho dentro do contexto (servletPath + pathInfo): decodificado
+     * (%20 → espaço) e sem parâmetros de caminho (;jsessionid=...).
+     */
+    private static String caminhoRequisicao(HttpServletRequest request) {
+        String pathInfo = request.getPathInfo();
+        return request.getServletPath() + (pathInfo != null ? pathInfo : "");
+    }
+
+    @Override
+    public void destroy() {
+        paginas.clear();
+        System.out.println("🛑 PaginasFilter destruído");
+    }
+
+    private static final class Pagina {
+        String texto;
+        long modificadoDisco;
+        volatile long verificadoEm;
+    }
+}
@@ -0,0 +1,149 @@
+package br.com.vendas.filter;
+
+import java.util.Arrays;
+
+/**
+ * Tabela imutável de classificação de rotas do AuthFilter, montada no init().
+ *
+ * - Caminhos exatos e prefixos ("/css/") ficam numa trie de caracteres
+ * - Extensões (".png") ficam numa trie de sufixos, percorrida de trás para frente
+ * - Sem correspondência → AUTENTICADA
+ *
+ * A consulta trabalha direto sobre a URI (com deslocamento do context path),
+ * sem substring nem toLowerCase: só comparações de char e buscas em arrays.
+ *
+ * @author OptoFreela
+ */
+final class TabelaRotas {
+
+    /** Visibilidade de uma rota. */
+    enum Visibilidade {
+        /** Sem login (login.html, LoginServlet, estáticos) */
+        PUBLICA,
+        /** Qualquer usuário logado */
+        AUTENTICADA,
+        /** Só perfil CAIXA; demais vão para index.html */
+        SOMENTE_CAIXA,
+        /** Qualquer perfil exceto CAIXA, que vai para caixa.html */
+        EXCETO_CAIXA
+    }
+
+    private final No exatos;
+    private final No extensoes;
+
+    private TabelaRotas(No exatos, No extensoes) {
+        this.exatos = exatos;
+        this.extensoes = extensoes;
+    }
+
+    /**
+     * Classifica uri[inicio..] (inicio = tamanho do context path).
+     */
+    Visibilidade classificar(String uri, int inicio) {
+        // Trie de caminhos: resultado exato no fim, ou o prefixo mais longo no caminho
+        Visibilidade prefixo = null;
+        No no = exatos;
+        int i = inicio;
+
+        while (no != null) {
+            if (no.prefixo != null) prefixo = no.prefixo;
+            if (i == uri.length()) {
+                if (no.exato != null) return no.exato;
+                break;
+            }
+            no = no.filho(uri.charAt(i++));
+        }
+        if (prefixo != null) return prefixo;
+
+        // Trie de extensões, do último caractere até o '.'
+        no = extensoes;
+        for (int j = uri.length() - 1; j >= inicio && no != null; j--) {
+            char c = uri.charAt(j);
+            if (c == '/') break;
+            no = no.filho(c);
+            if (c == '.') {
+                if (no != null && no.exato != null) return no.exato;
+                break;
+            }
+        }
+
+        return Visibilidade.AUTENTICADA;
+    }
+
+    // ========================================
+    // Construção
+    // ========================================
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    static final class Builder {
+        private final No exatos = new No();
+        private final No extensoes = new No();
+
+        /** Caminho exato (ex: "/login.html", "" para a raiz sem barra). */
+        Builder exato(String caminho, Visibilidade v) {
+            inserir(exatos, caminho).exato = v;
+            return this;
+        }
+
+        /** Tudo que começa com o prefixo (ex: "/css/"). */
+        Builder prefixo(String prefixo, Visibilidade v) {
+            inserir(exatos, prefixo).prefixo = v;
+            return this;
+        }
+
+        /** Extensão com o ponto (ex: ".png"). */
+        Builder extensao(String extensao, Visibilidade v) {
+            inserir(extensoes, new StringBuilder(extensao).reverse().toString()).exato = v;
+            return this;
+        }
+
+        TabelaRotas build() {
+            return new TabelaRotas(exatos, extensoes);
+        }
+
+        private static No inserir(No raiz, String chave) {
+            No no = raiz;
+            for (int i = 0; i < chave.length(); i++) {
+                no = no.filhoOuNovo(chave.charAt(i));
+            }
+            return no;
+        }
+    }
+
+    /**
+     * Nó da trie: filhos em arrays ordenados (busca binária por caractere).
+     * Só é alterado durante a construção.
+     */
+    private static final class No {
+        private char[] chaves = new char[0];
+        private No[] filhos = new No[0];
+        private Visibilidade exato;
+        private Visibilidade prefixo;
+
+        No filho(char c) {
+            int i = Arrays.binarySearch(chaves, c);
+            return i >= 0 ? filhos[i] : null;
+        }
+
+        No filhoOuNovo(char c) {
+            int i = Arrays.binarySearch(chaves, c);
+            if (i >= 0) return filhos[i];
+
+            int pos = -i - 1;
+            char[] novasChaves = new char[chaves.length + 1];
+            No[] novosFilhos = new No[filhos.length + 1];
+            System.arraycopy(chaves, 0, novasChaves, 0, pos);
+            System.arraycopy(filhos, 0, novosFilhos, 0, pos);
+            novasChaves[pos] = c;
+            novosFilhos[pos] = new No();
+            System.arraycopy(chaves, pos, novasChaves, pos + 1, chaves.length - pos);
+            System.arraycopy(filhos, pos, novosFilhos, pos + 1, filhos.length - pos);
+            chaves = novasChaves;
+            filhos = novosFilhos;
+            return novosFilhos[pos];
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package br.com.vendas.listener;
+
+import java.sql.Connection;
+
+import br.com.vendas.dao.ConnectionFactory;
+import br.com.vendas.dao.IndiceClientes;
+import br.com.vendas.dao.ResumoOrcamentos;
+import br.com.vendas.dao.SequenciaBlocos;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+
+/**
+ * AplicacaoListener.java
+ * Inicialização da aplicação, antes da primeira requisição, e encerramento
+ * das threads de fundo ao parar (redeploy sem threads órfãs).
+ *
+ * - Resumo diário de orçamentos (ResumoOrcamentos): tabela criada e
+ *   reconstruída aqui, sem gravações concorrentes. Feito no init de um
+ *   servlet, um orçamento gravado durante a reconstrução ficaria fora dela.
+ * - Encerramento: thread de atualização do IndiceClientes e thread de
+ *   reservas da SequenciaBlocos
+ *
+ * Falha aqui não impede a subida: o resumo volta a ser verificado no
+ * primeiro acesso (SalvarOrcamento / DashboardOrcamentos).
+ *
+ * @author OptoFreela
+ */
+public class AplicacaoListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        try (Connection conn = ConnectionFactory.getInstance().getConnection()) {
+            ResumoOrcamentos.garantirEstrutura(conn);
+            System.out.println("✅ Resumo diário de orçamentos verificado na inicialização");
+        } catch (Exception e) {
+            System.err.println("⚠️ Resumo diário de orçamentos não verificado na inicialização: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        IndiceClientes.encerrar();
+        SequenciaBlocos.encerrar();
+    }
+}
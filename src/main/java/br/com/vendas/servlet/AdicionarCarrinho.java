@@ -2,6 +2,7 @@ package br.com.vendas.servlet;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -11,6 +12,10 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
+import br.com.vendas.carrinho.CarrinhoSessao;
+import br.com.vendas.carrinho.CarrinhoSessao.LinhaLente;
+import br.com.vendas.carrinho.CarrinhoSessao.LinhaProduto;
+import br.com.vendas.carrinho.RevalidadorPrecos;
 import br.com.vendas.util.GsonUtils;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
@@ -66,7 +71,8 @@ public class AdicionarCarrinho extends HttpServlet {
             // 2. PROCESSA LENTES
             // ========================================
             
-            List<ItemCarrinho> lentes = new ArrayList<>();
+            List<LinhaLente> lentes = new ArrayList<>();
+            List<String> chavesTela = new ArrayList<>();  // "id" de cada lente no CarrinhoModel.js
             
             if (lentesJson != null && !lentesJson.isEmpty()) {
                 // Compatível com Gson < 2.8.6 (usa jsonParser.parse ao invés de JsonParser.parseString)
@@ -75,23 +81,21 @@ public class AdicionarCarrinho extends HttpServlet {
                 
                 for (JsonElement element : lentesArray) {
                     JsonObject lenteObj = element.getAsJsonObject();
-                    ItemCarrinho item = processarLente(lenteObj);
+                    LinhaLente item = processarLente(lenteObj);
                     lentes.add(item);
+                    chavesTela.add(getStringSeguro(lenteObj, "id"));
                     
-                    System.out.println("  📦 Lente: " + item.descricao);
-                    System.out.println("      Olho: " + item.olho);
-                    System.out.println("      Qtd: " + item.quantidade);
-                    System.out.println("      Preço: " + item.precoTotal);
+                    System.out.println("  📦 Lente: " + getStringSeguro(lenteObj, "descricao"));
+                    System.out.println("      Olho: " + item.getOlho());
+                    System.out.println("      Qtd: " + item.getQuantidade());
+                    System.out.println("      Preço: " + item.getPrecoTotal());
                     
-                    if (item.tratamentos != null && !item.tratamentos.isEmpty()) {
-                        System.out.println("      Tratamentos:");
-                        for (Tratamento t : item.tratamentos) {
-                            System.out.println("        - " + t.nome + " (R$ " + t.valor + ")");
-                        }
+                    if (item.getQuantidadeTratamentos() > 0) {
+                        System.out.println("      Tratamentos: " + item.getQuantidadeTratamentos());
                     }
                     
-                    if (item.coloracao != null) {
-                        System.out.println("      Coloração: " + item.coloracao.nome);
+                    if (item.temColoracao()) {
+                        System.out.println("      Coloração: " + item.getColoracaoNome());
                     }
                 }
             }
@@ -102,7 +106,7 @@ public class AdicionarCarrinho extends HttpServlet {
             // 3. PROCESSA PRODUTOS
             // ========================================
             
-            List<ItemCarrinho> produtos = new ArrayList<>();
+            List<LinhaProduto> produtos = new ArrayList<>();
             
             if (produtosJson != null && !produtosJson.isEmpty()) {
                 // Compatível com Gson < 2.8.6 (usa jsonParser.parse ao invés de JsonParser.parseString)
@@ -111,47 +115,80 @@ public class AdicionarCarrinho extends HttpServlet {
                 
                 for (JsonElement element : produtosArray) {
                     JsonObject produtoObj = element.getAsJsonObject();
-                    ItemCarrinho item = processarProduto(produtoObj);
+                    LinhaProduto item = processarProduto(produtoObj);
                     produtos.add(item);
                     
-                    System.out.println("  📦 Produto: " + item.descricao);
+                    System.out.println("  📦 Produto: " + item.getDescricao());
                 }
             }
             
             System.out.println("Total de produtos: " + produtos.size());
             
             // ========================================
-            // 4. SALVA NA SESSÃO
+            // 4. REVALIDA PREÇOS (catálogo, sem consulta por item)
             // ========================================
             
-            HttpSession session = request.getSession();
+            CarrinhoSessao carrinho = new CarrinhoSessao();
+            carrinho.substituir(
+                    clienteId != null && !clienteId.isEmpty() ? Long.valueOf(clienteId) : null,
+                    clienteNome,
+                    lentes,
+                    produtos,
+                    totalStr != null ? Double.parseDouble(totalStr) : 0.0);
+            
+            RevalidadorPrecos.Resultado revalidacao = RevalidadorPrecos.revalidar(carrinho);
+            
+            if (!revalidacao.isValido()) {
+                System.out.println("⚠️ Carrinho rejeitado: " + revalidacao.getRejeitados());
+                
+                resultado.addProperty("success", false);
+                resultado.addProperty("message", "Itens indisponíveis: " + String.join("; ", revalidacao.getRejeitados()));
+                resultado.add("rejeitados", gson.toJsonTree(revalidacao.getRejeitados()));
+                out.print(gson.toJson(resultado));
+                out.flush();
+                return;
+            }
             
-            // Cria objeto de pedido
-            PedidoCarrinho pedido = new PedidoCarrinho();
-            pedido.clienteId = clienteId != null ? Long.parseLong(clienteId) : null;
-            pedido.clienteNome = clienteNome;
-            pedido.lentes = lentes;
-            pedido.produtos = produtos;
-            pedido.total = totalStr != null ? Double.parseDouble(totalStr) : 0.0;
+            if (revalidacao.isCorrigido()) {
+                System.out.println("⚠️ Preços corrigidos pelo catálogo: total " +
+                        revalidacao.getTotalInformado() + " → " + revalidacao.getTotalCorrigido());
+            }
+            
+            // ========================================
+            // 5. SALVA NA SESSÃO
+            // ========================================
             
-            // Salva na sessão
-            session.setAttribute("pedidoCarrinho", pedido);
-            session.setAttribute("carrinhoLentes", lentes);
-            session.setAttribute("carrinhoProdutos", produtos);
-            session.setAttribute("carrinhoCliente", clienteNome);
-            session.setAttribute("carrinhoTotal", pedido.total);
+            // Um único atributo, com serialização compacta (ver CarrinhoSessao);
+            // o conteúdo entra no carrinho já na sessão (sob o lock dele)
+            HttpSession session = request.getSession();
+            CarrinhoSessao carrinhoSessao = CarrinhoSessao.da(session);
+            carrinhoSessao.substituirPor(carrinho);
+            carrinhoSessao.salvar(session);
             
             System.out.println("✅ Pedido salvo na sessão!");
             
             // ========================================
-            // 5. RETORNA SUCESSO
+            // 6. RETORNA SUCESSO (com os preços do servidor)
             // ========================================
             
             resultado.addProperty("success", true);
             resultado.addProperty("message", "Itens adicionados ao carrinho com sucesso!");
             resultado.addProperty("quantidadeLentes", lentes.size());
             resultado.addProperty("quantidadeProdutos", produtos.size());
-            resultado.addProperty("total", pedido.total);
+            resultado.addProperty("total", carrinho.getTotal());
+            resultado.addProperty("precosCorrigidos", revalidacao.isCorrigido());
+            
+            JsonArray correcoes = new JsonArray();
+            for (RevalidadorPrecos.Correcao c : revalidacao.getCorrecoes()) {
+                JsonObject correcao = new JsonObject();
+                // Chave da própria tela; a remontada só se ela não veio
+                String chaveTela = chavesTela.get(c.getIndice());
+                correcao.addProperty("id", !chaveTela.isEmpty() ? chaveTela : c.getChave());
+                correcao.add("precoUnitario", gson.toJsonTree(c.getPrecoUnitario()));
+                correcao.add("precoTotal", gson.toJsonTree(c.getPrecoTotal()));
+                correcoes.add(correcao);
+            }
+            resultado.add("correcoes", correcoes);
             
             // URL de redirecionamento (opcional)
             // resultado.addProperty("redirectUrl", "pagamento.jsp");
@@ -169,56 +206,41 @@ public class AdicionarCarrinho extends HttpServlet {
     }
 
     /**
-     * Processa uma lente do JSON
+     * Processa uma lente do JSON (descrição, marca e o id da tela vêm do catálogo)
      */
-    private ItemCarrinho processarLente(JsonObject obj) {
-        ItemCarrinho item = new ItemCarrinho();
-        
-        item.id = getStringSeguro(obj, "id");
-        item.tipo = "lente";
-        item.codigo = getIntSeguro(obj, "codigo");
-        item.codigoWeb = getStringSeguro(obj, "codigoWeb");
-        item.codigoProdutoFornecedor = getStringSeguro(obj, "codigoProdutoFornecedor");
-        item.marca = getStringSeguro(obj, "marca");
-        item.familia = getStringSeguro(obj, "familia");
-        item.descricao = getStringSeguro(obj, "descricao");
-        item.olho = getStringSeguro(obj, "olho");
-        item.esf = getDoubleSeguro(obj, "esf");
-        item.cil = getDoubleSeguro(obj, "cil");
-        item.eixo = getIntSeguro(obj, "eixo");
-        item.adicao = getDoubleSeguro(obj, "adicao");
-        item.material = getStringSeguro(obj, "material");
-        item.indice = getStringSeguro(obj, "indice");
-        item.diametro = getStringSeguro(obj, "diametro");
-        item.unidade = getStringSeguro(obj, "unidade");
-        item.quantidade = getDoubleSeguro(obj, "quantidade");
-        item.precoUnitario = getDoubleSeguro(obj, "precoUnitario");
-        item.precoTotal = getDoubleSeguro(obj, "precoTotal");
+    private LinhaLente processarLente(JsonObject obj) throws SQLException {
+        LinhaLente item = new LinhaLente(
+                getIntSeguro(obj, "codigo"),
+                getStringSeguro(obj, "olho"),
+                getDoubleSeguro(obj, "esf"),
+                getDoubleSeguro(obj, "cil"),
+                getIntSeguro(obj, "eixo"),
+                getDoubleSeguro(obj, "adicao"),
+                getDoubleSeguro(obj, "quantidade"),
+                getDoubleSeguro(obj, "precoUnitario"),
+                getDoubleSeguro(obj, "precoTotal"));
         
         // Processa tratamentos
         if (obj.has("tratamentos") && obj.get("tratamentos").isJsonArray()) {
-            item.tratamentos = new ArrayList<>();
             JsonArray tratamentosArray = obj.getAsJsonArray("tratamentos");
             
             for (JsonElement element : tratamentosArray) {
                 JsonObject tratObj = element.getAsJsonObject();
-                Tratamento tratamento = new Tratamento();
-                tratamento.codigo = getIntSeguro(tratObj, "codigo");
-                tratamento.nome = getStringSeguro(tratObj, "nome");
-                tratamento.codigoFornecedor = getStringSeguro(tratObj, "codigoFornecedor");
-                tratamento.valor = getDoubleSeguro(tratObj, "valor");
-                item.tratamentos.add(tratamento);
+                // "codigo" = tratamento.id (SelecaoLentes); outro código é resolvido pelo nome
+                int tratamentoId = RevalidadorPrecos.resolverTratamentoId(
+                        getIntSeguro(tratObj, "codigo"), getStringSeguro(tratObj, "nome"), item.getFamilia());
+                item.adicionarTratamento(tratamentoId, getDoubleSeguro(tratObj, "valor"));
             }
         }
         
         // Processa coloração
         if (obj.has("coloracao") && !obj.get("coloracao").isJsonNull()) {
             JsonObject corObj = obj.getAsJsonObject("coloracao");
-            item.coloracao = new Coloracao();
-            item.coloracao.nome = getStringSeguro(corObj, "nome");
-            item.coloracao.tipo = getStringSeguro(corObj, "tipo");
-            item.coloracao.valor = getDoubleSeguro(corObj, "valor");
-            item.coloracao.hex = getStringSeguro(corObj, "hex");
+            item.setColoracao(
+                    getStringSeguro(corObj, "nome"),
+                    getStringSeguro(corObj, "tipo"),
+                    getDoubleSeguro(corObj, "valor"),
+                    getStringSeguro(corObj, "hex"));
         }
         
         return item;
@@ -227,20 +249,15 @@ public class AdicionarCarrinho extends HttpServlet {
     /**
      * Processa um produto do JSON
      */
-    private ItemCarrinho processarProduto(JsonObject obj) {
-        ItemCarrinho item = new ItemCarrinho();
-        
-        item.id = getStringSeguro(obj, "id");
-        item.tipo = "produto";
-        item.codigo = getIntSeguro(obj, "codigo");
-        item.descricao = getStringSeguro(obj, "descricao");
-        item.marca = getStringSeguro(obj, "marca");
-        item.unidade = getStringSeguro(obj, "unidade");
-        item.quantidade = getDoubleSeguro(obj, "quantidade");
-        item.precoUnitario = getDoubleSeguro(obj, "precoUnitario");
-        item.precoTotal = item.precoUnitario * item.quantidade;
-        
-        return item;
+    private LinhaProduto processarProduto(JsonObject obj) {
+        return new LinhaProduto(
+                getIntSeguro(obj, "codigo"),
+                getStringSeguro(obj, "descricao"),
+                getStringSeguro(obj, "marca"),
+                getStringSeguro(obj, "unidade"),
+                "produto",
+                getDoubleSeguro(obj, "quantidade"),
+                getDoubleSeguro(obj, "precoUnitario"));
     }
 
     // ========================================
@@ -282,67 +299,4 @@ public class AdicionarCarrinho extends HttpServlet {
         // Redireciona GET para POST
         doPost(request, response);
     }
-
-    // ========================================
-    // CLASSES INTERNAS
-    // ========================================
-
-    /**
-     * Representa um item do carrinho
-     */
-    public static class ItemCarrinho {
-        public String id;
-        public String tipo; // "lente" ou "produto"
-        public int codigo;
-        public String codigoWeb;
-        public String codigoProdutoFornecedor;
-        public String marca;
-        public String familia;
-        public String descricao;
-        public String olho;
-        public double esf;
-        public double cil;
-        public int eixo;
-        public double adicao;
-        public String material;
-        public String indice;
-        public String diametro;
-        public String unidade;
-        public double quantidade;
-        public double precoUnitario;
-        public double precoTotal;
-        public List<Tratamento> tratamentos;
-        public Coloracao coloracao;
-    }
-
-    /**
-     * Representa um tratamento
-     */
-    public static class Tratamento {
-        public int codigo;
-        public String nome;
-        public String codigoFornecedor;
-        public double valor;
-    }
-
-    /**
-     * Representa uma coloração
-     */
-    public static class Coloracao {
-        public String nome;
-        public String tipo;
-        public double valor;
-        public String hex;
-    }
-
-    /**
-     * Representa o pedido completo
-     */
-    public static class PedidoCarrinho {
-        public Long clienteId;
-        public String clienteNome;
-        public List<ItemCarrinho> lentes;
-        public List<ItemCarrinho> produtos;
-        public double total;
-    }
-}
\ No newline at end of file
+}
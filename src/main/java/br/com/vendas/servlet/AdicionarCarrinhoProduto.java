@@ -5,8 +5,9 @@ import java.io.PrintWriter;
 
 import com.google.gson.Gson;
 
-import br.com.vendas.beans.ProdutoGenerico;
-import br.com.vendas.carrinho.CarrinhoDistinto;
+import br.com.vendas.carrinho.CarrinhoSessao;
+import br.com.vendas.carrinho.CarrinhoSessao.LinhaProduto;
+import br.com.vendas.carrinho.RevalidadorPrecos;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
@@ -28,11 +29,7 @@ public class AdicionarCarrinhoProduto extends HttpServlet {
         response.setContentType("application/json;charset=UTF-8");
         
         HttpSession session = request.getSession();
-        CarrinhoDistinto carrinho = (CarrinhoDistinto) session.getAttribute("carrinho");
-        
-        if (carrinho == null) {
-            carrinho = new CarrinhoDistinto();
-        }
+        CarrinhoSessao carrinho = CarrinhoSessao.da(session);
         
         try {
             // Parâmetros do produto
@@ -54,23 +51,34 @@ public class AdicionarCarrinhoProduto extends HttpServlet {
             double quantidade = quantidadeParam != null ? Double.parseDouble(quantidadeParam) : 1.0;
             double preco = precoParam != null ? Double.parseDouble(precoParam) : 0.0;
             
-            // Cria o produto
-            ProdutoGenerico produto = new ProdutoGenerico();
-            produto.setId((long) codigo);
-            produto.setCodProdFornecedor(String.valueOf(codigo));
-            produto.setDescricao(descricao != null ? descricao : "Produto " + codigo);
-            produto.setMarca(marca != null ? marca : "");
-            produto.setUnidade(unidade != null ? unidade : "un");
-            produto.setPrecoVenda(preco);
-            produto.setPrecoMinimo(preco * 0.8); // 80% como preço mínimo padrão
-            produto.setTipo(tipo != null ? tipo : "Produto");
-            produto.setChave((long) codigo);
+            // Linha do produto (código, textos, quantidade e preço; sem o grafo de Produto)
+            LinhaProduto produto = new LinhaProduto(
+                    codigo,
+                    descricao != null ? descricao : "Produto " + codigo,
+                    marca != null ? marca : "",
+                    unidade != null ? unidade : "un",
+                    tipo != null ? tipo : "Produto",
+                    quantidade,
+                    preco);
             
-            // Adiciona ao carrinho
-            carrinho.adicionarOuAtualizarItem(produto, quantidade);
+            // Sem catálogo de produtos: confere quantidade e preço antes de alterar o carrinho
+            String invalido = RevalidadorPrecos.validarProduto(produto);
+            if (invalido != null) {
+                enviarErro(response, invalido);
+                return;
+            }
+            
+            // Adiciona numa cópia (soma se o código já estiver nele), revalida as lentes
+            // já no carrinho e recalcula o total; o carrinho só muda se tudo for válido
+            RevalidadorPrecos.Resultado revalidacao = carrinho.adicionarProdutoRevalidado(produto);
+            if (!revalidacao.isValido()) {
+                System.out.println("⚠️ Itens do carrinho indisponíveis: " + revalidacao.getRejeitados());
+                enviarErro(response, "Itens indisponíveis: " + String.join("; ", revalidacao.getRejeitados()));
+                return;
+            }
             
             // Salva na sessão
-            session.setAttribute("carrinho", carrinho);
+            carrinho.salvar(session);
             
             // Log
             System.out.println("✅ Produto adicionado ao carrinho: " + produto.getDescricao() + " (Qtd: " + quantidade + ")");
@@ -81,6 +89,8 @@ public class AdicionarCarrinhoProduto extends HttpServlet {
             resp.mensagem = "Produto adicionado ao carrinho";
             resp.codigo = codigo;
             resp.quantidade = quantidade;
+            resp.total = carrinho.getTotal();
+            resp.precosCorrigidos = revalidacao.isCorrigido();
             
             Gson gson = new Gson();
             PrintWriter out = response.getWriter();
@@ -124,5 +134,7 @@ public class AdicionarCarrinhoProduto extends HttpServlet {
         String mensagem;
         int codigo;
         double quantidade;
+        double total;
+        boolean precosCorrigidos;
     }
 }
@@ -6,12 +6,19 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
+import br.com.vendas.dao.ClienteDao;
 import br.com.vendas.dao.ConnectionFactory;
+import br.com.vendas.dao.IndiceClientes;
+import br.com.vendas.util.CursorPagina;
 import br.com.vendas.util.GsonUtils;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
@@ -26,13 +33,25 @@ import jakarta.servlet.http.HttpServletResponse;
  * GET /BuscarClientes?termo=douglas
  * GET /BuscarClientes?cpf=270.183.138-56
  * GET /BuscarClientes?id=123
+ * GET /BuscarClientes?telefone=(11) 98765-4321
+ * GET /BuscarClientes?termo=douglas&cursor=... → próxima página
+ * 
+ * BUSCA POR TERMO: IndiceClientes (trigramas em memória, ranqueado por
+ * relevância); o LIKE no banco fica como fallback.
+ * 
+ * PAGINAÇÃO (termo e recentes): por chave, sem OFFSET — termo ordena por
+ * relevância (no índice) ou (nomeCliente, idCliente) no fallback, recentes
+ * por idCliente DESC. Parâmetro limit
+ * (padrão 10 no termo e 5 nos recentes, máximo 50).
  * 
  * RETORNA:
  * {
  *   success: boolean,
  *   clientes: [
  *     { id, nome, cpf, telefone, whatsapp, email, dataCadastro, ... }
- *   ]
+ *   ],
+ *   temMais: boolean,
+ *   proximoCursor: string | null
  * }
  * 
  * @author OptoFreela
@@ -40,6 +59,8 @@ import jakarta.servlet.http.HttpServletResponse;
 public class BuscarClientes extends HttpServlet {
     private static final long serialVersionUID = 1L;
     
+    private static final int LIMITE_MAXIMO = 50;
+    
     private Gson gson = GsonUtils.getGson();
 
     public BuscarClientes() {
@@ -59,7 +80,10 @@ public class BuscarClientes extends HttpServlet {
         try {
             String termo = request.getParameter("termo");
             String cpf = request.getParameter("cpf");
+            String telefone = request.getParameter("telefone");
             String idStr = request.getParameter("id");
+            CursorPagina cursor = CursorPagina.ler(request.getParameter("cursor"));
+            String limitStr = request.getParameter("limit");
             
             Connection conn = ConnectionFactory.getInstance().getConnection();
             
@@ -69,15 +93,34 @@ public class BuscarClientes extends HttpServlet {
                 if (idStr != null && !idStr.isEmpty()) {
                     // Busca por ID específico
                     clientes = buscarPorId(conn, Long.parseLong(idStr));
+                    CursorPagina.paginar(clientes, 1, null, resultado);
                 } else if (cpf != null && !cpf.isEmpty()) {
                     // Busca por CPF exato
                     clientes = buscarPorCpf(conn, cpf);
+                    CursorPagina.paginar(clientes, 1, null, resultado);
+                } else if (telefone != null && !telefone.isEmpty()) {
+                    // Busca por telefone/WhatsApp exato
+                    clientes = buscarPorTelefone(conn, telefone);
+                    CursorPagina.paginar(clientes, clientes.size(), null, resultado);
                 } else if (termo != null && !termo.isEmpty()) {
                     // Busca por termo (nome ou CPF parcial)
-                    clientes = buscarPorTermo(conn, termo);
+                    int limite = CursorPagina.limite(limitStr, 10, LIMITE_MAXIMO);
+                    IndiceClientes.Pagina pagina = IndiceClientes.buscar(termo, cursor, limite);
+                    if (pagina != null) {
+                        // Índice em memória (ranqueado); banco só para os dados das linhas
+                        clientes = buscarPorIds(conn, pagina.getIds());
+                        resultado.addProperty("temMais", pagina.isTemMais());
+                        resultado.addProperty("proximoCursor", pagina.getProximoCursor());
+                    } else {
+                        // Fallback: LIKE no banco
+                        clientes = buscarPorTermo(conn, termo, cursor, limite);
+                        CursorPagina.paginar(clientes, limite, "nome", resultado);
+                    }
                 } else {
                     // Retorna últimos clientes cadastrados
-                    clientes = buscarRecentes(conn);
+                    int limite = CursorPagina.limite(limitStr, 5, LIMITE_MAXIMO);
+                    clientes = buscarRecentes(conn, cursor, limite);
+                    CursorPagina.paginar(clientes, limite, null, resultado);
                 }
                 
                 resultado.add("clientes", clientes);
@@ -122,14 +165,33 @@ public class BuscarClientes extends HttpServlet {
     }
 
     /**
-     * Busca cliente por CPF exato
+     * Busca cliente por CPF exato: mapa em memória (IndiceClientes), depois
+     * clientes.cpf_digitos (índice); REPLACE na coluna só se as colunas de
+     * dígitos não puderem ser criadas.
      */
     private JsonArray buscarPorCpf(Connection conn, String cpf) throws SQLException {
-        JsonArray clientes = new JsonArray();
-        
         // Remove formatação do CPF para busca
         String cpfLimpo = cpf.replaceAll("[^0-9]", "");
         
+        // Mapa em memória; confere o CPF da linha (pode ter sido alterado desde a carga)
+        Long id = IndiceClientes.idPorCpf(cpfLimpo);
+        if (id != null) {
+            JsonArray clientes = buscarPorId(conn, id);
+            if (clientes.size() == 1) {
+                JsonElement cpfLinha = clientes.get(0).getAsJsonObject().get("cpf");
+                if (!cpfLinha.isJsonNull() && cpfLimpo.equals(IndiceClientes.digitos(cpfLinha.getAsString()))) {
+                    return clientes;
+                }
+            }
+        }
+        
+        if (ClienteDao.garantirEstrutura(conn)) {
+            id = ClienteDao.buscarIdPorCpf(conn, cpfLimpo);
+            return id != null ? buscarPorId(conn, id) : new JsonArray();
+        }
+        
+        JsonArray clientes = new JsonArray();
+        
         String sql = "SELECT * FROM clientes WHERE REPLACE(REPLACE(cpfCliente, '.', ''), '-', '') = ? LIMIT 1";
         
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -146,26 +208,99 @@ public class BuscarClientes extends HttpServlet {
     }
 
     /**
-     * Busca clientes por termo (nome ou CPF parcial)
+     * Busca clientes por telefone ou WhatsApp exato (só dígitos, via índice)
      */
-    private JsonArray buscarPorTermo(Connection conn, String termo) throws SQLException {
+    private JsonArray buscarPorTelefone(Connection conn, String telefone) throws SQLException {
         JsonArray clientes = new JsonArray();
+        String digitos = telefone.replaceAll("[^0-9]", "");
+        if (digitos.isEmpty()) return clientes;
+        
+        String sql = ClienteDao.garantirEstrutura(conn)
+                ? "SELECT * FROM clientes WHERE whats_digitos = ? OR telefone_digitos = ? " +
+                  "ORDER BY idCliente DESC LIMIT 10"
+                : "SELECT * FROM clientes " +
+                  "WHERE REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(whatsCliente, '(', ''), ')', ''), '-', ''), ' ', ''), '.', '') = ? " +
+                  "   OR REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(telefoneCliente, '(', ''), ')', ''), '-', ''), ' ', ''), '.', '') = ? " +
+                  "ORDER BY idCliente DESC LIMIT 10";
         
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, digitos);
+            stmt.setString(2, digitos);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    clientes.add(montarCliente(rs));
+                }
+            }
+        }
+        
+        return clientes;
+    }
+
+    /**
+     * Clientes pelos ids (chave primária), na ordem da lista
+     */
+    private JsonArray buscarPorIds(Connection conn, List<Long> ids) throws SQLException {
+        JsonArray clientes = new JsonArray();
+        if (ids.isEmpty()) return clientes;
+        
+        StringBuilder sql = new StringBuilder("SELECT * FROM clientes WHERE idCliente IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        sql.append(')');
+        
+        Map<Long, JsonObject> porId = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setLong(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    porId.put(rs.getLong("idCliente"), montarCliente(rs));
+                }
+            }
+        }
+        
+        for (Long id : ids) {
+            JsonObject cliente = porId.get(id);
+            if (cliente != null) clientes.add(cliente);
+        }
+        return clientes;
+    }
+
+    /**
+     * Busca clientes por termo (nome ou CPF parcial) direto no banco.
+     * Fallback de IndiceClientes (índice indisponível).
+     */
+    private JsonArray buscarPorTermo(Connection conn, String termo, CursorPagina cursor, int limite)
+            throws SQLException {
+        JsonArray clientes = new JsonArray();
+        
+        // idCliente desempata nomes iguais (ordem estável entre páginas)
         String sql = "SELECT * FROM clientes " +
-                     "WHERE nomeCliente LIKE ? " +
+                     "WHERE (nomeCliente LIKE ? " +
                      "   OR cpfCliente LIKE ? " +
                      "   OR whatsCliente LIKE ? " +
-                     "   OR telefoneCliente LIKE ? " +
-                     "ORDER BY nomeCliente " +
-                     "LIMIT 10";
+                     "   OR telefoneCliente LIKE ?) " +
+                     (cursor != null ? "AND (nomeCliente > ? OR (nomeCliente = ? AND idCliente > ?)) " : "") +
+                     "ORDER BY nomeCliente, idCliente " +
+                     "LIMIT ?";
         
         String termoBusca = "%" + termo + "%";
         
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, termoBusca);
-            stmt.setString(2, termoBusca);
-            stmt.setString(3, termoBusca);
-            stmt.setString(4, termoBusca);
+            int idx = 1;
+            stmt.setString(idx++, termoBusca);
+            stmt.setString(idx++, termoBusca);
+            stmt.setString(idx++, termoBusca);
+            stmt.setString(idx++, termoBusca);
+            if (cursor != null) {
+                stmt.setString(idx++, cursor.getValor());
+                stmt.setString(idx++, cursor.getValor());
+                stmt.setLong(idx++, cursor.getId());
+            }
+            stmt.setInt(idx, limite + 1);  // uma a mais: indica se há próxima página
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -180,16 +315,24 @@ public class BuscarClientes extends HttpServlet {
     /**
      * Retorna últimos clientes cadastrados
      */
-    private JsonArray buscarRecentes(Connection conn) throws SQLException {
+    private JsonArray buscarRecentes(Connection conn, CursorPagina cursor, int limite) throws SQLException {
         JsonArray clientes = new JsonArray();
         
-        String sql = "SELECT * FROM clientes ORDER BY idCliente DESC LIMIT 5";
+        String sql = "SELECT * FROM clientes " +
+                     (cursor != null ? "WHERE idCliente < ? " : "") +
+                     "ORDER BY idCliente DESC LIMIT ?";
         
-        try (PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int idx = 1;
+            if (cursor != null) {
+                stmt.setLong(idx++, cursor.getId());
+            }
+            stmt.setInt(idx, limite + 1);
             
-            while (rs.next()) {
-                clientes.add(montarCliente(rs));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    clientes.add(montarCliente(rs));
+                }
             }
         }
         
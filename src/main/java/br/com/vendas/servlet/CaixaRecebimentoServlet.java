@@ -12,8 +12,9 @@ import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
-import br.com.vendas.beans.Usuario;
+import br.com.vendas.beans.UsuarioPrincipal;
 import br.com.vendas.dao.ConnectionFactory;
+import br.com.vendas.util.CacheAgregados;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -38,6 +39,14 @@ import jakarta.servlet.http.HttpServletResponse;
 public class CaixaRecebimentoServlet extends HttpServlet {
     private static final long serialVersionUID = 1L;
     private final Gson gson = new Gson();
+    
+    /**
+     * Totalizadores por (loja, data): 5 s atuais, até 30 s servidos enquanto
+     * recalcula. Invalidado ao gravar venda ou confirmar pagamento.
+     */
+    public static final String CACHE_TOTALIZADORES_NOME = "caixa.totalizadores";
+    private static final CacheAgregados CACHE_TOTALIZADORES =
+            CacheAgregados.registrar(CACHE_TOTALIZADORES_NOME, 5_000, 30_000);
 
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
@@ -90,10 +99,10 @@ public class CaixaRecebimentoServlet extends HttpServlet {
         if (idLojaParam != null && !idLojaParam.isEmpty()) {
             idLoja = Integer.parseInt(idLojaParam);
         } else {
-            // Tentar obter da sessão
-            Usuario usuario = (Usuario) request.getSession().getAttribute("usuario");
-            if (usuario != null && usuario.getOtica() != null) {
-                idLoja = usuario.getOtica().getIdOtica();
+            // Tentar obter do usuário logado (token assinado ou sessão)
+            UsuarioPrincipal usuario = UsuarioPrincipal.de(request);
+            if (usuario != null && usuario.getLojaId() != null) {
+                idLoja = usuario.getLojaId();
             }
         }
         
@@ -174,7 +183,7 @@ public class CaixaRecebimentoServlet extends HttpServlet {
      * Retorna totalizadores do dia
      */
     private void buscarTotalizadores(HttpServletRequest request, HttpServletResponse response)
-            throws IOException, SQLException {
+            throws Exception {
         
         String dataParam = request.getParameter("data");
         String idLojaParam = request.getParameter("idLoja");
@@ -187,6 +196,19 @@ public class CaixaRecebimentoServlet extends HttpServlet {
                 ? Integer.parseInt(idLojaParam)
                 : 1;
         
+        // Caixas abertos no mesmo dia/loja consultam juntos (ver CACHE_TOTALIZADORES)
+        String json = CACHE_TOTALIZADORES.obter(CacheAgregados.chave(idLoja, data),
+                () -> gson.toJson(calcularTotalizadores(data, idLoja)));
+        
+        PrintWriter out = response.getWriter();
+        out.print(json);
+        out.flush();
+    }
+    
+    /**
+     * Calcula os totalizadores do dia (sem cache)
+     */
+    private JsonObject calcularTotalizadores(LocalDate data, int idLoja) throws SQLException {
         JsonObject totais = new JsonObject();
         
         String sql = """
@@ -284,10 +306,9 @@ public class CaixaRecebimentoServlet extends HttpServlet {
         resultado.addProperty("success", true);
         resultado.addProperty("data", data.toString());
         resultado.add("totais", totais);
+        resultado.addProperty("geradoEm", System.currentTimeMillis());
         
-        PrintWriter out = response.getWriter();
-        out.print(gson.toJson(resultado));
-        out.flush();
+        return resultado;
     }
     
     /**
@@ -12,6 +12,8 @@ import java.util.List;
 import com.google.gson.Gson;
 
 import br.com.vendas.dao.ConnectionFactory;
+import br.com.vendas.util.CatalogoVersao;
+import br.com.vendas.util.RespostaCatalogoCache;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
@@ -23,6 +25,8 @@ import jakarta.servlet.http.HttpServletResponse;
 public class Coloracao extends HttpServlet {
 	 private static final long serialVersionUID = 1L;
 
+	 private static final RespostaCatalogoCache cache = new RespostaCatalogoCache("coloracao");
+
 	    @Override
 	    protected void doGet(HttpServletRequest request, HttpServletResponse response) 
 	            throws ServletException, IOException {
@@ -34,6 +38,12 @@ public class Coloracao extends HttpServlet {
 	        
 	        System.out.println("🎨 Coloracoes - tipo: " + tipo);
 	        
+	        // Versão lida antes do banco: 304 / corpo em cache se nada mudou
+	        long versao = CatalogoVersao.atual();
+	        if (cache.responderDoCache(request, response, versao)) {
+	            return;
+	        }
+	        
 	        Object resultado;
 	        
 	        try {
@@ -50,6 +60,11 @@ public class Coloracao extends HttpServlet {
 	        String json = new Gson().toJson(resultado);
 	        System.out.println("📤 Resposta: " + json);
 	        
+	        if (!(resultado instanceof ErrorResponse)) {
+	            cache.responder(request, response, versao, json);
+	            return;
+	        }
+	        
 	        PrintWriter out = response.getWriter();
 	        out.print(json);
 	        out.flush();
@@ -12,7 +12,9 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
 import br.com.vendas.dao.ConnectionFactory;
+import br.com.vendas.util.CatalogoVersao;
 import br.com.vendas.util.GsonUtils;
+import br.com.vendas.util.RespostaCatalogoCache;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
@@ -38,6 +40,8 @@ import jakarta.servlet.http.HttpServletResponse;
 public class ConfiguracoesPagamento extends HttpServlet {
     private static final long serialVersionUID = 1L;
     
+    private static final RespostaCatalogoCache cache = new RespostaCatalogoCache("config-pagamento");
+    
     private Gson gson = GsonUtils.getGson();
 
     public ConfiguracoesPagamento() {
@@ -51,7 +55,12 @@ public class ConfiguracoesPagamento extends HttpServlet {
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
         
-        PrintWriter out = response.getWriter();
+        // Versão lida antes do banco: 304 / corpo em cache se nada mudou
+        long versao = CatalogoVersao.atual();
+        if (cache.responderDoCache(request, response, versao)) {
+            return;
+        }
+        
         JsonObject resultado = new JsonObject();
         
         try {
@@ -98,6 +107,13 @@ public class ConfiguracoesPagamento extends HttpServlet {
             resultado.add("convenios", new JsonArray());
         }
         
+        // Valores padrão de erro não entram no cache
+        if (resultado.get("success").getAsBoolean()) {
+            cache.responder(request, response, versao, gson.toJson(resultado));
+            return;
+        }
+        
+        PrintWriter out = response.getWriter();
         out.print(gson.toJson(resultado));
         out.flush();
     }
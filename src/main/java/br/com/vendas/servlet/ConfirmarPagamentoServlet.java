@@ -12,13 +12,14 @@ import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
+import br.com.vendas.beans.UsuarioPrincipal;
 import br.com.vendas.dao.ConnectionFactory;
+import br.com.vendas.util.CacheAgregados;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 
 /**
  * ConfirmarPagamentoServlet.java
@@ -53,16 +54,16 @@ public class ConfirmarPagamentoServlet extends HttpServlet {
         
         JsonObject resultado = new JsonObject();
         
-        // Verificar sessão
-        HttpSession session = request.getSession(false);
-        if (session == null || session.getAttribute("usuario") == null) {
+        // Verificar usuário (token assinado ou sessão)
+        UsuarioPrincipal usuario = UsuarioPrincipal.de(request);
+        if (usuario == null) {
             resultado.addProperty("success", false);
             resultado.addProperty("error", "Usuário não autenticado");
             enviarResposta(response, resultado, HttpServletResponse.SC_UNAUTHORIZED);
             return;
         }
         
-        String usuarioNome = (String) session.getAttribute("usuarioNome");
+        String usuarioNome = usuario.getNome();
         
         Connection conn = null;
         
@@ -116,6 +117,7 @@ public class ConfirmarPagamentoServlet extends HttpServlet {
                 }
                 
                 conn.commit();
+                CacheAgregados.invalidar(CaixaRecebimentoServlet.CACHE_TOTALIZADORES_NOME);
                 
                 resultado.addProperty("success", true);
                 resultado.addProperty("idPagamento", idPagamento);
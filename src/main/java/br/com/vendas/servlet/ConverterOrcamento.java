@@ -0,0 +1,443 @@
+package br.com.vendas.servlet;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import br.com.vendas.beans.UsuarioPrincipal;
+import br.com.vendas.dao.ConnectionFactory;
+import br.com.vendas.dao.ResumoOrcamentos;
+import br.com.vendas.dao.VendaDao;
+import br.com.vendas.util.CacheAgregados;
+import br.com.vendas.util.Dinheiro;
+import br.com.vendas.util.GsonUtils;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * ConverterOrcamento.java
+ * Converte um orçamento em venda no servidor
+ *
+ * O front envia só o id do orçamento e os pagamentos; cliente, itens e
+ * valores saem do próprio orçamento gravado (sem reenviar o carrinho).
+ *
+ * ENDPOINT:
+ * POST /ConverterOrcamento
+ *
+ * BODY (JSON):
+ * {
+ *   "orcamento_id": 123,
+ *   "pagamentos": [ { "forma": "PIX", "valor": "450.00" } ],   // mesmo formato do SalvarVenda
+ *   "desconto_valor": "50.00",      // opcional, sempre em reais (desconto_tipo gravado = "valor")
+ *   "observacoes": "..."            // opcional
+ * }
+ *
+ * FLUXO (uma transação):
+ * 1. Orçamento bloqueado (FOR UPDATE): existe, não convertido, acessível ao usuário
+ * 2. INSERT em vendas com cliente e total do orçamento (total = orçamento - desconto)
+ * 3. Itens de orcamento_itens para itens_venda via VendaDao.inserirItens (tratamentos e
+ *    coloração normalizados como no SalvarVenda)
+ * 4. Pagamentos em venda_pagamentos (a soma deve fechar com o total)
+ * 5. Orçamento → CONVERTIDO via ResumoOrcamentos (mantém o resumo do dashboard)
+ *
+ * @author OptoFreela
+ */
+public class ConverterOrcamento extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    private Gson gson = GsonUtils.getGson();
+
+    public ConverterOrcamento() {
+        super();
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+
+        PrintWriter out = response.getWriter();
+        JsonObject resultado = new JsonObject();
+
+        Connection conn = null;
+
+        try {
+            // Usuário resolvido pelo AuthFilter (token assinado ou sessão)
+            UsuarioPrincipal usuario = UsuarioPrincipal.de(request);
+            if (usuario == null) {
+                throw new Exception("Usuário não autenticado. Faça login novamente.");
+            }
+
+            Integer usuarioId = usuario.getUsuarioId();
+            String usuarioNome = usuario.getNome();
+            Integer lojaId = usuario.getLojaId();
+
+            // Lê o body JSON
+            StringBuilder sb = new StringBuilder();
+            BufferedReader reader = request.getReader();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sb.append(line);
+            }
+
+            JsonParser parser = new JsonParser();
+            JsonObject dados = parser.parse(sb.toString()).getAsJsonObject();
+
+            if (!dados.has("orcamento_id") || dados.get("orcamento_id").isJsonNull()) {
+                throw new Exception("Orçamento não informado");
+            }
+            long orcamentoId = dados.get("orcamento_id").getAsLong();
+
+            JsonArray pagamentos = dados.has("pagamentos") ? dados.get("pagamentos").getAsJsonArray() : new JsonArray();
+            Dinheiro descontoValor = getDinheiro(dados, "desconto_valor");
+            String observacoes = getStringOrNull(dados, "observacoes");
+
+            System.out.println("╔════════════════════════════════════════════════════════════════╗");
+            System.out.println("║  🔄 CONVERTENDO ORÇAMENTO EM VENDA                             ║");
+            System.out.println("╠════════════════════════════════════════════════════════════════╣");
+            System.out.println("║  📋 Orçamento: #" + orcamentoId);
+            System.out.println("║  👤 Usuário: " + usuarioNome + " (ID: " + usuarioId + ")");
+            System.out.println("║  🏪 Loja ID: " + lojaId);
+            System.out.println("╚════════════════════════════════════════════════════════════════╝");
+
+            if (pagamentos.size() == 0) {
+                throw new Exception("A venda deve ter pelo menos uma forma de pagamento");
+            }
+
+            conn = ConnectionFactory.getInstance().getConnection();
+            conn.setAutoCommit(false);
+
+            try {
+                // 1. Orçamento (bloqueado até o commit: duas conversões simultâneas não passam)
+                Orcamento orcamento = buscarOrcamento(conn, orcamentoId);
+
+                if (orcamento == null) {
+                    throw new Exception("Orçamento #" + orcamentoId + " não encontrado");
+                }
+                if ("CONVERTIDO".equals(orcamento.status)) {
+                    throw new Exception("Orçamento #" + orcamentoId + " já foi convertido em venda");
+                }
+                if (usuario.isAdministrador()) {
+                    if (lojaId != null && orcamento.lojaId != null && !lojaId.equals(orcamento.lojaId)) {
+                        throw new Exception("Orçamento de outra loja");
+                    }
+                } else if (orcamento.vendedorId == null || !orcamento.vendedorId.equals(usuarioId)) {
+                    throw new Exception("Orçamento de outro vendedor");
+                }
+
+                // 2. Valores: subtotal do orçamento, total com desconto, pagamentos fechando o total
+                Dinheiro subtotal = orcamento.total != null ? orcamento.total : Dinheiro.ZERO;
+                if (descontoValor.isNegativo() || descontoValor.compareTo(subtotal) > 0) {
+                    throw new Exception("Desconto inválido: " + descontoValor.formatar());
+                }
+                Dinheiro total = subtotal.subtrair(descontoValor);
+
+                Dinheiro somaPagamentos = VendaDao.somarPagamentos(pagamentos);
+                if (!somaPagamentos.equals(total)) {
+                    throw new Exception("Soma dos pagamentos (" + somaPagamentos.formatar() +
+                            ") diferente do total da venda (" + total.formatar() + ")");
+                }
+
+                // 3. Venda
+                long idPedido = VendaDao.gerarIdPedido();
+                long vendaId = inserirVenda(conn, orcamento, idPedido, lojaId, usuarioId, usuarioNome,
+                        subtotal, descontoValor, total, observacoes, pagamentos);
+
+                System.out.println("✅ Venda inserida: ID=" + vendaId + ", Pedido=" + idPedido);
+
+                // 4. Itens copiados do orçamento
+                int itens = copiarItens(conn, orcamentoId, vendaId);
+                if (itens == 0) {
+                    throw new Exception("Orçamento #" + orcamentoId + " não tem itens");
+                }
+
+                System.out.println("✅ " + itens + " itens copiados do orçamento");
+
+                // 5. Pagamentos
+                VendaDao.inserirPagamentos(conn, vendaId, pagamentos);
+
+                System.out.println("✅ " + pagamentos.size() + " pagamentos inseridos");
+
+                // 6. Status do orçamento (+ resumo diário do dashboard)
+                ResumoOrcamentos.mudarStatus(conn, orcamentoId, "CONVERTIDO");
+
+                conn.commit();
+                CacheAgregados.invalidar(CaixaRecebimentoServlet.CACHE_TOTALIZADORES_NOME);
+                CacheAgregados.invalidar(DashboardOrcamentos.CACHE_NOME);
+
+                resultado.addProperty("success", true);
+                resultado.addProperty("vendaId", vendaId);
+                resultado.addProperty("idPedido", idPedido);
+                resultado.addProperty("orcamentoId", orcamentoId);
+                resultado.addProperty("total", total.toString());
+                resultado.addProperty("message", "Orçamento convertido em venda!");
+
+                System.out.println("═══════════════════════════════════════════════════════════════════");
+                System.out.println("✅ ORÇAMENTO #" + orcamentoId + " CONVERTIDO!");
+                System.out.println("   Venda: " + vendaId + " | Pedido: " + idPedido + " | Total: " + total.formatar());
+                System.out.println("═══════════════════════════════════════════════════════════════════");
+
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (Exception e) {
+            System.err.println("❌ Erro ao converter orçamento: " + e.getMessage());
+            e.printStackTrace();
+
+            resultado.addProperty("success", false);
+            resultado.addProperty("message", "Erro ao converter orçamento: " + e.getMessage());
+
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        out.print(gson.toJson(resultado));
+        out.flush();
+    }
+
+    /**
+     * Orçamento com CPF do cliente, bloqueado para a conversão
+     */
+    private Orcamento buscarOrcamento(Connection conn, long orcamentoId) throws SQLException {
+        String sql =
+            "SELECT o.cliente_id, o.cliente_nome, o.total, o.status, o.id_loja, o.vendedor_id, " +
+            "       c.cpfCliente " +
+            "FROM orcamentos o " +
+            "LEFT JOIN clientes c ON c.idCliente = o.cliente_id " +
+            "WHERE o.id = ? " +
+            "FOR UPDATE OF o";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, orcamentoId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+
+                Orcamento orc = new Orcamento();
+                orc.id = orcamentoId;
+                long clienteId = rs.getLong("cliente_id");
+                orc.clienteId = rs.wasNull() || clienteId == 0 ? null : clienteId;
+                orc.clienteNome = rs.getString("cliente_nome");
+                orc.clienteCpf = rs.getString("cpfCliente");
+                orc.total = Dinheiro.ler(rs, "total");
+                orc.status = rs.getString("status");
+                orc.lojaId = rs.getObject("id_loja", Integer.class);
+                orc.vendedorId = rs.getObject("vendedor_id", Integer.class);
+                return orc;
+            }
+        }
+    }
+
+    /**
+     * Insere a venda (mesmas colunas do SalvarVenda)
+     */
+    private long inserirVenda(Connection conn, Orcamento orcamento, long idPedido, Integer lojaId,
+                              Integer usuarioId, String usuarioNome, Dinheiro subtotal, Dinheiro desconto,
+                              Dinheiro total, String observacoes, JsonArray pagamentos)
+            throws Exception {
+
+        // Tipo de venda
+        String tipoVenda = "normal";
+        Long idEmpresaConvenio = null;
+        String numeroAutorizacao = null;
+
+        JsonObject pagConvenio = VendaDao.pagamentoConvenio(pagamentos);
+        if (pagConvenio != null) {
+            tipoVenda = "convenio";
+            idEmpresaConvenio = pagConvenio.has("convenio_id") && !pagConvenio.get("convenio_id").isJsonNull()
+                ? pagConvenio.get("convenio_id").getAsLong() : null;
+            numeroAutorizacao = getStringOrNull(pagConvenio, "autorizacao");
+        }
+
+        String origem = "Convertido do orçamento #" + orcamento.id;
+        String obs = observacoes != null && !observacoes.trim().isEmpty()
+            ? observacoes.trim() + " | " + origem : origem;
+
+        Integer loja = lojaId != null ? lojaId : (orcamento.lojaId != null ? orcamento.lojaId : 1);
+
+        String sqlVenda =
+            "INSERT INTO vendas (id_pedido, id_loja, id_usuario, data, cliente, cpf, id_cliente, vendedor, " +
+            "subtotal, desconto, desconto_tipo, total, observacoes, " +
+            "status, status_pagamento, tipo_venda, id_empresa_convenio, numero_autorizacao_convenio) " +
+            "VALUES (?, ?, ?, NOW(), ?, ?, ?, ?, ?, ?, ?, ?, ?, 'Pendente', 'Pendente', ?, ?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sqlVenda, Statement.RETURN_GENERATED_KEYS)) {
+            int idx = 1;
+            stmt.setLong(idx++, idPedido);
+            stmt.setInt(idx++, loja);
+            stmt.setInt(idx++, usuarioId);
+            stmt.setString(idx++, orcamento.clienteNome);
+            stmt.setString(idx++, orcamento.clienteCpf);
+
+            if (orcamento.clienteId != null) {
+                stmt.setLong(idx++, orcamento.clienteId);
+            } else {
+                stmt.setNull(idx++, Types.INTEGER);
+            }
+
+            stmt.setString(idx++, usuarioNome);
+            Dinheiro.vincular(stmt, idx++, subtotal);
+            Dinheiro.vincular(stmt, idx++, desconto);
+            // desconto_valor chega em reais: "percentual" aqui gravaria reais como percentual
+            stmt.setString(idx++, "valor");
+            Dinheiro.vincular(stmt, idx++, total);
+            stmt.setString(idx++, obs);
+            stmt.setString(idx++, tipoVenda);
+
+            if (idEmpresaConvenio != null) {
+                stmt.setLong(idx++, idEmpresaConvenio);
+            } else {
+                stmt.setNull(idx++, Types.BIGINT);
+            }
+
+            stmt.setString(idx++, numeroAutorizacao);
+
+            stmt.executeUpdate();
+
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
+                if (rs.next()) {
+                    return rs.getLong(1);
+                }
+            }
+        }
+
+        throw new Exception("Erro ao obter ID da venda");
+    }
+
+    /**
+     * Itens do orçamento no formato de item do SalvarVenda, gravados por
+     * VendaDao.inserirItens: tratamentos e coloração passam pela mesma
+     * normalização (montarTratamentosJson) de uma venda do carrinho.
+     * Lentes levam o olho na descrição.
+     *
+     * Não é INSERT ... SELECT: itens_venda.tratamentos junta tratamentos_json e
+     * coloracao_json reescrevendo chaves (tipo padrão, tipo → tipoColoracao),
+     * o que em SQL exigiria JSON_TABLE/JSON_ARRAYAGG sem ordem garantida e
+     * erro em JSON inválido. O custo fica no servidor de aplicação: um SELECT
+     * e INSERTs multi-linha (VendaDao.LINHAS_POR_INSERT), na mesma transação;
+     * o ganho pedido (sem reenviar o carrinho) continua.
+     * @return itens copiados
+     */
+    private int copiarItens(Connection conn, long orcamentoId, long vendaId) throws SQLException {
+        String sql =
+            "SELECT codigo, descricao, olho, quantidade, preco_unitario, preco_total, " +
+            "       tratamentos_json, coloracao_json, unidade, tipo " +
+            "FROM orcamento_itens " +
+            "WHERE orcamento_id = ? " +
+            "ORDER BY id";
+
+        JsonArray itens = new JsonArray();
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, orcamentoId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    JsonObject item = new JsonObject();
+
+                    long codigo = rs.getLong("codigo");
+                    if (!rs.wasNull()) item.addProperty("codigo", codigo);
+
+                    String descricao = rs.getString("descricao");
+                    String olho = rs.getString("olho");
+                    if (descricao != null && olho != null && !olho.isEmpty()) {
+                        descricao = descricao + " - " + olho;
+                    }
+                    item.addProperty("descricao", descricao);
+
+                    double quantidade = rs.getDouble("quantidade");
+                    item.addProperty("quantidade", rs.wasNull() ? 1 : quantidade);
+
+                    Dinheiro precoUnitario = Dinheiro.ler(rs, "preco_unitario");
+                    Dinheiro precoTotal = Dinheiro.ler(rs, "preco_total");
+                    if (precoUnitario != null) item.addProperty("preco_unitario", precoUnitario.toString());
+                    if (precoTotal != null) item.addProperty("preco_total", precoTotal.toString());
+
+                    JsonElement tratamentos = lerJson(rs.getString("tratamentos_json"));
+                    if (tratamentos != null) item.add("tratamentos", tratamentos);
+                    JsonElement coloracao = lerJson(rs.getString("coloracao_json"));
+                    if (coloracao != null) item.add("coloracao", coloracao);
+
+                    item.addProperty("unidade", rs.getString("unidade"));
+                    item.addProperty("tipo", rs.getString("tipo"));
+
+                    itens.add(item);
+                }
+            }
+        }
+
+        VendaDao.inserirItens(conn, vendaId, itens);
+        return itens.size();
+    }
+
+    /**
+     * JSON gravado no orçamento; vazio ou inválido = null (item sem tratamentos/coloração)
+     */
+    private JsonElement lerJson(String texto) {
+        if (texto == null || texto.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return new JsonParser().parse(texto);
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Obtém string ou null de um JsonObject
+     */
+    private String getStringOrNull(JsonObject obj, String key) {
+        if (obj.has(key) && !obj.get(key).isJsonNull()) {
+            return obj.get(key).getAsString();
+        }
+        return null;
+    }
+
+    /**
+     * Valor monetário do JSON, lido do texto do número (centavos exatos); ausente = zero
+     */
+    private Dinheiro getDinheiro(JsonObject obj, String key) {
+        String texto = getStringOrNull(obj, key);
+        return texto != null && !texto.isEmpty() ? Dinheiro.parse(texto) : Dinheiro.ZERO;
+    }
+
+    private static final class Orcamento {
+        long id;
+        Long clienteId;
+        String clienteNome;
+        String clienteCpf;
+        Dinheiro total;
+        String status;
+        Integer lojaId;
+        Integer vendedorId;
+    }
+}
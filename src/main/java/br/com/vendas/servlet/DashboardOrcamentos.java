@@ -11,7 +11,10 @@ import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
+import br.com.vendas.beans.UsuarioPrincipal;
 import br.com.vendas.dao.ConnectionFactory;
+import br.com.vendas.dao.ResumoOrcamentos;
+import br.com.vendas.util.CacheAgregados;
 import br.com.vendas.util.GsonUtils;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
@@ -20,11 +23,31 @@ import jakarta.servlet.http.HttpServletResponse;
 
 /**
  * Servlet implementation class DashboardOrcamentos
+ * 
+ * Métricas, gráfico por dia, status e comparativo vêm do resumo diário
+ * (ResumoOrcamentos): custo proporcional aos dias do período, não ao número
+ * de orçamentos. Top clientes e últimos orçamentos seguem em orcamentos.
+ * 
+ * LOJA:
+ * - Administrador: todas as lojas (inclusive orçamentos sem loja), ou só a
+ *   informada em ?loja= (0 = orçamentos sem loja)
+ * - Demais: loja do usuário logado (sem loja: todas, como antes)
+ * 
+ * Resposta em CacheAgregados por (loja, período): vários gerentes abrindo o
+ * dashboard ao mesmo tempo disparam um único cálculo ("geradoEm" informa quando).
+ * 
+ * GET /DashboardOrcamentos?periodo=30
+ * GET /DashboardOrcamentos?periodo=30&loja=2  → só a loja 2 (admin)
+ * GET /DashboardOrcamentos?acao=reconstruir  → refaz o resumo (admin)
  */
 public class DashboardOrcamentos extends HttpServlet {
     private static final long serialVersionUID = 1L;
     
     private Gson gson = GsonUtils.getGson();
+    
+    // Resposta por (loja, período): 30 s atual, até 5 min servida enquanto recalcula
+    public static final String CACHE_NOME = "dashboardOrcamentos";
+    private static final CacheAgregados CACHE = CacheAgregados.registrar(CACHE_NOME, 30_000, 300_000);
 
     public DashboardOrcamentos() {
         super();
@@ -52,46 +75,28 @@ public class DashboardOrcamentos extends HttpServlet {
                     periodo = 30;
                 }
             }
+            periodo = Math.max(1, Math.min(periodo, 366));
             
-            System.out.println("╔════════════════════════════════════════════════════════════════╗");
-            System.out.println("║  📊 DASHBOARD DE ORÇAMENTOS                                    ║");
-            System.out.println("╚════════════════════════════════════════════════════════════════╝");
-            System.out.println("Período: últimos " + periodo + " dias");
-            
-            Connection conn = ConnectionFactory.getInstance().getConnection();
+            UsuarioPrincipal usuario = UsuarioPrincipal.de(request);
+            Integer lojaId = lojaDoFiltro(usuario, request.getParameter("loja"));
             
-            try {
-                // 1. Métricas principais
-                JsonObject metricas = getMetricasPrincipais(conn, periodo);
-                resultado.add("metricas", metricas);
-                
-                // 2. Orçamentos por dia (para gráfico de linha)
-                JsonArray porDia = getOrcamentosPorDia(conn, periodo);
-                resultado.add("porDia", porDia);
-                
-                // 3. Distribuição por status (para gráfico de pizza)
-                JsonArray porStatus = getDistribuicaoPorStatus(conn, periodo);
-                resultado.add("porStatus", porStatus);
-                
-                // 4. Top clientes
-                JsonArray topClientes = getTopClientes(conn, periodo);
-                resultado.add("topClientes", topClientes);
-                
-                // 5. Últimos orçamentos
-                JsonArray ultimos = getUltimosOrcamentos(conn, 5);
-                resultado.add("ultimosOrcamentos", ultimos);
-                
-                // 6. Comparativo com período anterior
-                JsonObject comparativo = getComparativoPeriodo(conn, periodo);
-                resultado.add("comparativo", comparativo);
-                
-                resultado.addProperty("success", true);
-                resultado.addProperty("periodo", periodo);
-                
-            } finally {
-                if (conn != null) conn.close();
+            if ("reconstruir".equals(request.getParameter("acao"))) {
+                if (usuario == null || !usuario.isAdministrador()) {
+                    throw new Exception("Apenas administradores podem reconstruir o resumo");
+                }
+                try (Connection conn = ConnectionFactory.getInstance().getConnection()) {
+                    ResumoOrcamentos.reconstruir(conn);
+                }
+                CacheAgregados.invalidar(CACHE_NOME);
             }
             
+            // Requisições iguais (loja, período) simultâneas calculam uma vez só
+            final int dias = periodo;
+            out.print(CACHE.obter(CacheAgregados.chave(lojaId, periodo),
+                    () -> gson.toJson(montarDashboard(dias, lojaId))));
+            out.flush();
+            return;
+            
         } catch (Exception e) {
             System.err.println("❌ Erro ao gerar dashboard: " + e.getMessage());
             e.printStackTrace();
@@ -105,25 +110,72 @@ public class DashboardOrcamentos extends HttpServlet {
     }
 
     /**
-     * Obtém métricas principais
+     * Calcula o dashboard completo (sem cache)
      */
-    private JsonObject getMetricasPrincipais(Connection conn, int periodo) throws SQLException {
+    private JsonObject montarDashboard(int periodo, Integer lojaId) throws SQLException {
+        System.out.println("╔════════════════════════════════════════════════════════════════╗");
+        System.out.println("║  📊 DASHBOARD DE ORÇAMENTOS                                    ║");
+        System.out.println("╚════════════════════════════════════════════════════════════════╝");
+        System.out.println("Período: últimos " + periodo + " dias");
+        
+        JsonObject resultado = new JsonObject();
+        
+        try (Connection conn = ConnectionFactory.getInstance().getConnection()) {
+            // Cria/reconstrói o resumo diário na primeira chamada
+            ResumoOrcamentos.garantirEstrutura(conn);
+            
+            // 1. Métricas principais
+            JsonObject metricas = getMetricasPrincipais(conn, periodo, lojaId);
+            resultado.add("metricas", metricas);
+            
+            // 2. Orçamentos por dia (para gráfico de linha)
+            JsonArray porDia = getOrcamentosPorDia(conn, periodo, lojaId);
+            resultado.add("porDia", porDia);
+            
+            // 3. Distribuição por status (para gráfico de pizza)
+            JsonArray porStatus = getDistribuicaoPorStatus(conn, periodo, lojaId);
+            resultado.add("porStatus", porStatus);
+            
+            // 4. Top clientes
+            JsonArray topClientes = getTopClientes(conn, periodo, lojaId);
+            resultado.add("topClientes", topClientes);
+            
+            // 5. Últimos orçamentos
+            JsonArray ultimos = getUltimosOrcamentos(conn, 5, lojaId);
+            resultado.add("ultimosOrcamentos", ultimos);
+            
+            // 6. Comparativo com período anterior
+            JsonObject comparativo = getComparativoPeriodo(conn, periodo, lojaId);
+            resultado.add("comparativo", comparativo);
+        }
+        
+        resultado.addProperty("success", true);
+        resultado.addProperty("periodo", periodo);
+        resultado.addProperty("geradoEm", System.currentTimeMillis());
+        
+        return resultado;
+    }
+
+    /**
+     * Obtém métricas principais (do resumo diário)
+     */
+    private JsonObject getMetricasPrincipais(Connection conn, int periodo, Integer lojaId) throws SQLException {
         JsonObject metricas = new JsonObject();
         
         String sql = 
             "SELECT " +
-            "  COUNT(*) as total, " +
-            "  SUM(CASE WHEN status = 'PENDENTE' THEN 1 ELSE 0 END) as pendentes, " +
-            "  SUM(CASE WHEN status = 'CONVERTIDO' THEN 1 ELSE 0 END) as convertidos, " +
-            "  SUM(CASE WHEN status = 'EXPIRADO' THEN 1 ELSE 0 END) as expirados, " +
-            "  COALESCE(SUM(total), 0) as valor_total, " +
-            "  COALESCE(AVG(total), 0) as valor_medio, " +
-            "  COALESCE(SUM(CASE WHEN status = 'CONVERTIDO' THEN total ELSE 0 END), 0) as valor_convertido " +
-            "FROM orcamentos " +
-            "WHERE data_hora >= DATE_SUB(NOW(), INTERVAL ? DAY)";
+            "  COALESCE(SUM(quantidade), 0) as total, " +
+            "  COALESCE(SUM(CASE WHEN status = 'PENDENTE' THEN quantidade ELSE 0 END), 0) as pendentes, " +
+            "  COALESCE(SUM(CASE WHEN status = 'CONVERTIDO' THEN quantidade ELSE 0 END), 0) as convertidos, " +
+            "  COALESCE(SUM(CASE WHEN status = 'EXPIRADO' THEN quantidade ELSE 0 END), 0) as expirados, " +
+            "  COALESCE(SUM(valor), 0) as valor_total, " +
+            "  COALESCE(SUM(CASE WHEN status = 'CONVERTIDO' THEN valor ELSE 0 END), 0) as valor_convertido " +
+            "FROM orcamento_resumo_diario " +
+            "WHERE dia >= DATE_SUB(CURDATE(), INTERVAL ? DAY)" + filtroLoja(lojaId);
         
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, periodo);
+            vincularLoja(stmt, 2, lojaId);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -132,7 +184,7 @@ public class DashboardOrcamentos extends HttpServlet {
                     int convertidos = rs.getInt("convertidos");
                     int expirados = rs.getInt("expirados");
                     double valorTotal = rs.getDouble("valor_total");
-                    double valorMedio = rs.getDouble("valor_medio");
+                    double valorMedio = total > 0 ? valorTotal / total : 0;
                     double valorConvertido = rs.getDouble("valor_convertido");
                     
                     metricas.addProperty("total", total);
@@ -158,24 +210,26 @@ public class DashboardOrcamentos extends HttpServlet {
     }
 
     /**
-     * Obtém orçamentos agrupados por dia
+     * Obtém orçamentos agrupados por dia (do resumo diário)
      */
-    private JsonArray getOrcamentosPorDia(Connection conn, int periodo) throws SQLException {
+    private JsonArray getOrcamentosPorDia(Connection conn, int periodo, Integer lojaId) throws SQLException {
         JsonArray resultado = new JsonArray();
         
         String sql = 
             "SELECT " +
-            "  DATE(data_hora) as dia, " +
-            "  COUNT(*) as quantidade, " +
-            "  SUM(total) as valor, " +
-            "  SUM(CASE WHEN status = 'CONVERTIDO' THEN 1 ELSE 0 END) as convertidos " +
-            "FROM orcamentos " +
-            "WHERE data_hora >= DATE_SUB(NOW(), INTERVAL ? DAY) " +
-            "GROUP BY DATE(data_hora) " +
+            "  dia, " +
+            "  SUM(quantidade) as quantidade, " +
+            "  SUM(valor) as valor, " +
+            "  SUM(CASE WHEN status = 'CONVERTIDO' THEN quantidade ELSE 0 END) as convertidos " +
+            "FROM orcamento_resumo_diario " +
+            "WHERE dia >= DATE_SUB(CURDATE(), INTERVAL ? DAY)" + filtroLoja(lojaId) + " " +
+            "GROUP BY dia " +
+            "HAVING SUM(quantidade) > 0 " +
             "ORDER BY dia ASC";
         
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, periodo);
+            vincularLoja(stmt, 2, lojaId);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -193,23 +247,25 @@ public class DashboardOrcamentos extends HttpServlet {
     }
 
     /**
-     * Obtém distribuição por status
+     * Obtém distribuição por status (do resumo diário)
      */
-    private JsonArray getDistribuicaoPorStatus(Connection conn, int periodo) throws SQLException {
+    private JsonArray getDistribuicaoPorStatus(Connection conn, int periodo, Integer lojaId) throws SQLException {
         JsonArray resultado = new JsonArray();
         
         String sql = 
             "SELECT " +
             "  status, " +
-            "  COUNT(*) as quantidade, " +
-            "  SUM(total) as valor " +
-            "FROM orcamentos " +
-            "WHERE data_hora >= DATE_SUB(NOW(), INTERVAL ? DAY) " +
+            "  SUM(quantidade) as quantidade, " +
+            "  SUM(valor) as valor " +
+            "FROM orcamento_resumo_diario " +
+            "WHERE dia >= DATE_SUB(CURDATE(), INTERVAL ? DAY)" + filtroLoja(lojaId) + " " +
             "GROUP BY status " +
+            "HAVING SUM(quantidade) > 0 " +
             "ORDER BY quantidade DESC";
         
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, periodo);
+            vincularLoja(stmt, 2, lojaId);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -228,7 +284,7 @@ public class DashboardOrcamentos extends HttpServlet {
     /**
      * Obtém top clientes por valor
      */
-    private JsonArray getTopClientes(Connection conn, int periodo) throws SQLException {
+    private JsonArray getTopClientes(Connection conn, int periodo, Integer lojaId) throws SQLException {
         JsonArray resultado = new JsonArray();
         
         String sql = 
@@ -240,13 +296,14 @@ public class DashboardOrcamentos extends HttpServlet {
             "FROM orcamentos " +
             "WHERE data_hora >= DATE_SUB(NOW(), INTERVAL ? DAY) " +
             "  AND cliente_nome IS NOT NULL " +
-            "  AND cliente_nome != 'Cliente não informado' " +
+            "  AND cliente_nome != 'Cliente não informado'" + filtroLojaOrcamentos(lojaId) + " " +
             "GROUP BY cliente_nome " +
             "ORDER BY valor_total DESC " +
             "LIMIT 5";
         
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, periodo);
+            vincularLoja(stmt, 2, lojaId);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -266,17 +323,22 @@ public class DashboardOrcamentos extends HttpServlet {
     /**
      * Obtém últimos orçamentos
      */
-    private JsonArray getUltimosOrcamentos(Connection conn, int limite) throws SQLException {
+    private JsonArray getUltimosOrcamentos(Connection conn, int limite, Integer lojaId) throws SQLException {
         JsonArray resultado = new JsonArray();
         
         String sql = 
             "SELECT id, cliente_nome, total, status, data_hora " +
             "FROM orcamentos " +
+            (lojaId != null ? "WHERE id_loja <=> NULLIF(?, 0) " : "") +
             "ORDER BY data_hora DESC " +
             "LIMIT ?";
         
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, limite);
+            int idx = 1;
+            if (lojaId != null) {
+                stmt.setInt(idx++, lojaId);
+            }
+            stmt.setInt(idx, limite);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -295,44 +357,36 @@ public class DashboardOrcamentos extends HttpServlet {
     }
 
     /**
-     * Compara com período anterior
+     * Compara com período anterior (do resumo diário, numa consulta)
      */
-    private JsonObject getComparativoPeriodo(Connection conn, int periodo) throws SQLException {
+    private JsonObject getComparativoPeriodo(Connection conn, int periodo, Integer lojaId) throws SQLException {
         JsonObject comparativo = new JsonObject();
         
-        // Período atual
-        String sqlAtual = 
-            "SELECT COUNT(*) as total, COALESCE(SUM(total), 0) as valor " +
-            "FROM orcamentos " +
-            "WHERE data_hora >= DATE_SUB(NOW(), INTERVAL ? DAY)";
-        
-        // Período anterior
-        String sqlAnterior = 
-            "SELECT COUNT(*) as total, COALESCE(SUM(total), 0) as valor " +
-            "FROM orcamentos " +
-            "WHERE data_hora >= DATE_SUB(NOW(), INTERVAL ? DAY) " +
-            "  AND data_hora < DATE_SUB(NOW(), INTERVAL ? DAY)";
+        String sql = 
+            "SELECT " +
+            "  COALESCE(SUM(CASE WHEN dia >= DATE_SUB(CURDATE(), INTERVAL ? DAY) THEN quantidade END), 0) as total_atual, " +
+            "  COALESCE(SUM(CASE WHEN dia >= DATE_SUB(CURDATE(), INTERVAL ? DAY) THEN valor END), 0) as valor_atual, " +
+            "  COALESCE(SUM(CASE WHEN dia < DATE_SUB(CURDATE(), INTERVAL ? DAY) THEN quantidade END), 0) as total_anterior, " +
+            "  COALESCE(SUM(CASE WHEN dia < DATE_SUB(CURDATE(), INTERVAL ? DAY) THEN valor END), 0) as valor_anterior " +
+            "FROM orcamento_resumo_diario " +
+            "WHERE dia >= DATE_SUB(CURDATE(), INTERVAL ? DAY)" + filtroLoja(lojaId);
         
         int totalAtual = 0, totalAnterior = 0;
         double valorAtual = 0, valorAnterior = 0;
         
-        try (PreparedStatement stmt = conn.prepareStatement(sqlAtual)) {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, periodo);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    totalAtual = rs.getInt("total");
-                    valorAtual = rs.getDouble("valor");
-                }
-            }
-        }
-        
-        try (PreparedStatement stmt = conn.prepareStatement(sqlAnterior)) {
-            stmt.setInt(1, periodo * 2);
             stmt.setInt(2, periodo);
+            stmt.setInt(3, periodo);
+            stmt.setInt(4, periodo);
+            stmt.setInt(5, periodo * 2);
+            vincularLoja(stmt, 6, lojaId);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    totalAnterior = rs.getInt("total");
-                    valorAnterior = rs.getDouble("valor");
+                    totalAtual = rs.getInt("total_atual");
+                    valorAtual = rs.getDouble("valor_atual");
+                    totalAnterior = rs.getInt("total_anterior");
+                    valorAnterior = rs.getDouble("valor_anterior");
                 }
             }
         }
@@ -356,6 +410,47 @@ public class DashboardOrcamentos extends HttpServlet {
         return comparativo;
     }
 
+    // ========================================
+    // HELPERS
+    // ========================================
+
+    /**
+     * Loja do filtro (null = todas): administrador vê todas ou a escolhida;
+     * os demais, a própria loja.
+     */
+    private Integer lojaDoFiltro(UsuarioPrincipal usuario, String lojaParam) {
+        if (usuario == null) {
+            return null;
+        }
+        if (usuario.isAdministrador()) {
+            if (lojaParam != null && !lojaParam.trim().isEmpty()) {
+                try {
+                    return Integer.parseInt(lojaParam.trim());
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+            return null;
+        }
+        return usuario.getLojaId();
+    }
+
+    // Filtro opcional por loja no resumo diário (null = todas; sem loja = 0)
+    private String filtroLoja(Integer lojaId) {
+        return lojaId != null ? " AND id_loja = ?" : "";
+    }
+
+    // Mesmo filtro em orcamentos, onde "sem loja" é id_loja NULL
+    private String filtroLojaOrcamentos(Integer lojaId) {
+        return lojaId != null ? " AND id_loja <=> NULLIF(?, 0)" : "";
+    }
+
+    private void vincularLoja(PreparedStatement stmt, int indice, Integer lojaId) throws SQLException {
+        if (lojaId != null) {
+            stmt.setInt(indice, lojaId);
+        }
+    }
+
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
@@ -0,0 +1,357 @@
+package br.com.vendas.servlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import br.com.vendas.beans.UsuarioPrincipal;
+import br.com.vendas.dao.ConnectionFactory;
+import br.com.vendas.util.Dinheiro;
+import br.com.vendas.util.EscritorCsv;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * ExportarCsv.java
+ * Exportação de vendas e orçamentos em CSV para a contabilidade
+ *
+ * ENDPOINT:
+ * GET /ExportarCsv?tipo=vendas&inicio=2026-01-01&fim=2026-06-30&loja=2
+ *
+ * PARÂMETROS:
+ * - tipo: vendas (padrão) ou orcamentos
+ * - inicio / fim: datas (yyyy-MM-dd), inclusivas; padrão = mês atual até hoje
+ * - loja: só para administrador sem loja definida (os demais ficam na própria loja)
+ *
+ * CONTEÚDO (uma linha por item; venda/orçamento sem itens sai numa linha só):
+ * - vendas: dados da venda + item + resumo dos pagamentos (agregados uma vez
+ *   por venda numa tabela derivada, juntada por id_venda)
+ * - orcamentos: dados do orçamento + item
+ * Valores da venda/orçamento (subtotal, total, pagamentos) só na primeira
+ * linha de cada um, para que a soma da coluna no Excel não conte em dobro.
+ *
+ * STREAMING:
+ * ResultSet forward-only com fetchSize = Integer.MIN_VALUE (o Connector/J
+ * entrega linha a linha) e cada linha vai direto para a resposta via
+ * EscritorCsv: memória constante com 1 mil ou 1 milhão de linhas.
+ * ORDER BY data, id mantém as linhas de cada venda/orçamento juntas (os
+ * valores "só na primeira linha" dependem disso); a ordenação é do MySQL,
+ * o Tomcat continua recebendo linha a linha.
+ *
+ * ERRO NO MEIO DO ENVIO:
+ * Com a resposta já enviada não há como trocar o status; o erro sobe como
+ * IOException e o container aborta a conexão, então o download falha no
+ * navegador em vez de terminar com 200 e um CSV truncado.
+ *
+ * FILTRO AUTOMÁTICO (igual ao ListarVendas / ListarOrcamentos):
+ * - Administrador: vendas da loja
+ * - Vendedor: apenas as próprias
+ *
+ * @author OptoFreela
+ */
+public class ExportarCsv extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    // Cliente lento (download grande) não derruba a consulta em andamento
+    private static final int NET_WRITE_TIMEOUT_S = 600;
+
+    public ExportarCsv() {
+        super();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        UsuarioPrincipal usuario = UsuarioPrincipal.de(request);
+        if (usuario == null) {
+            enviarErro(response, HttpServletResponse.SC_UNAUTHORIZED, "Usuário não autenticado. Faça login novamente.");
+            return;
+        }
+
+        String tipo = request.getParameter("tipo");
+        if (tipo == null || tipo.isEmpty()) {
+            tipo = "vendas";
+        }
+        if (!"vendas".equals(tipo) && !"orcamentos".equals(tipo)) {
+            enviarErro(response, HttpServletResponse.SC_BAD_REQUEST, "Tipo inválido: " + tipo);
+            return;
+        }
+
+        LocalDate inicio;
+        LocalDate fim;
+        Integer lojaFiltro;
+        try {
+            LocalDate hoje = LocalDate.now();
+            inicio = data(request.getParameter("inicio"), hoje.withDayOfMonth(1));
+            fim = data(request.getParameter("fim"), hoje);
+            lojaFiltro = lojaDoFiltro(usuario, request.getParameter("loja"));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            enviarErro(response, HttpServletResponse.SC_BAD_REQUEST, "Parâmetro inválido: " + e.getMessage());
+            return;
+        }
+        if (fim.isBefore(inicio)) {
+            enviarErro(response, HttpServletResponse.SC_BAD_REQUEST, "Data final anterior à inicial");
+            return;
+        }
+
+        System.out.println("╔════════════════════════════════════════════════════════════════╗");
+        System.out.println("║  📤 EXPORTANDO CSV                                             ║");
+        System.out.println("╚════════════════════════════════════════════════════════════════╝");
+        System.out.println("Tipo: " + tipo + " | " + inicio + " a " + fim + " | Loja: " +
+                (lojaFiltro != null ? lojaFiltro : "todas") + " | Usuário: " + usuario.getNome());
+
+        long inicioMs = System.currentTimeMillis();
+        long linhas = 0;
+
+        try (Connection conn = ConnectionFactory.getInstance().getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SET SESSION net_write_timeout = " + NET_WRITE_TIMEOUT_S);
+            }
+
+            List<Object> params = new ArrayList<>();
+            String sql = "vendas".equals(tipo)
+                    ? sqlVendas(usuario, lojaFiltro, inicio, fim, params)
+                    : sqlOrcamentos(usuario, lojaFiltro, inicio, fim, params);
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(Integer.MIN_VALUE);
+                for (int i = 0; i < params.size(); i++) {
+                    stmt.setObject(i + 1, params.get(i));
+                }
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    response.setContentType("text/csv");
+                    response.setCharacterEncoding("UTF-8");
+                    response.setHeader("Content-Disposition",
+                            "attachment; filename=\"" + tipo + "_" + inicio + "_" + fim + ".csv\"");
+
+                    OutputStream out = response.getOutputStream();
+                    EscritorCsv csv = new EscritorCsv(out);
+
+                    if ("vendas".equals(tipo)) {
+                        escreverVendas(rs, csv);
+                    } else {
+                        escreverOrcamentos(rs, csv);
+                    }
+
+                    csv.flush();
+                    linhas = csv.getLinhas() - 1;
+                }
+            }
+
+            System.out.println("✅ CSV de " + tipo + ": " + linhas + " linhas em " +
+                    (System.currentTimeMillis() - inicioMs) + " ms");
+
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("❌ Erro ao exportar CSV: " + e.getMessage());
+            e.printStackTrace();
+
+            if (response.isCommitted()) {
+                // Já em envio: aborta a conexão (sem o fim da resposta, o download falha)
+                throw new IOException("Exportação de CSV interrompida: " + e.getMessage(), e);
+            }
+            response.reset();
+            enviarErro(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                    "Erro ao exportar: " + e.getMessage());
+        }
+    }
+
+    // ========================================
+    // VENDAS
+    // ========================================
+
+    private String sqlVendas(UsuarioPrincipal usuario, Integer lojaFiltro, LocalDate inicio, LocalDate fim,
+                             List<Object> params) {
+        StringBuilder sql = new StringBuilder();
+
+        sql.append("SELECT v.id, v.id_pedido, v.data, v.id_loja, v.vendedor, v.cliente, v.cpf, ");
+        sql.append("  v.tipo_venda, v.status, v.status_pagamento, v.subtotal, v.desconto, v.total, ");
+        sql.append("  i.id_produto, i.descricao as item_descricao, i.tipo as item_tipo, i.quantidade, ");
+        sql.append("  i.preco_unitario, i.subtotal as item_subtotal, ");
+        sql.append("  pg.pagamentos, pg.total_pago ");
+        sql.append("FROM vendas v ");
+        sql.append("LEFT JOIN itens_venda i ON i.id_venda = v.id ");
+
+        // Pagamentos agregados uma vez por venda do período (não por linha de item)
+        sql.append("LEFT JOIN (");
+        sql.append("  SELECT p.id_venda, ");
+        sql.append("    GROUP_CONCAT(CONCAT(p.forma_pagamento, ' ', p.parcelas, 'x ', p.valor, ' ', p.status) ");
+        sql.append("      ORDER BY p.id SEPARATOR ' | ') as pagamentos, ");
+        sql.append("    SUM(CASE WHEN p.status = 'CONFIRMADO' THEN p.valor END) as total_pago ");
+        sql.append("  FROM venda_pagamentos p ");
+        sql.append("  JOIN vendas vp ON vp.id = p.id_venda ");
+        sql.append("  WHERE vp.data >= ? AND vp.data < ? ");
+        params.add(java.sql.Date.valueOf(inicio));
+        params.add(java.sql.Date.valueOf(fim.plusDays(1)));
+        filtroAcesso(sql, params, usuario, lojaFiltro, "vp.id_loja", "vp.id_usuario");
+        sql.append("  GROUP BY p.id_venda");
+        sql.append(") pg ON pg.id_venda = v.id ");
+
+        sql.append("WHERE v.data >= ? AND v.data < ? ");
+        params.add(java.sql.Date.valueOf(inicio));
+        params.add(java.sql.Date.valueOf(fim.plusDays(1)));
+
+        filtroAcesso(sql, params, usuario, lojaFiltro, "v.id_loja", "v.id_usuario");
+
+        sql.append("ORDER BY v.data, v.id");
+        return sql.toString();
+    }
+
+    private void escreverVendas(ResultSet rs, EscritorCsv csv) throws SQLException, IOException {
+        csv.cabecalho("venda", "pedido", "data", "loja", "vendedor", "cliente", "cpf", "tipo_venda",
+                "status", "status_pagamento", "subtotal", "desconto", "total", "pagamentos", "total_pago",
+                "produto", "item", "tipo_item", "quantidade", "preco_unitario", "subtotal_item");
+
+        long vendaAnterior = -1;
+        while (rs.next()) {
+            long id = rs.getLong("id");
+            boolean primeira = id != vendaAnterior;
+            vendaAnterior = id;
+
+            csv.inteiro(id);
+            csv.texto(rs.getString("id_pedido"));
+            csv.dataHora(rs.getTimestamp("data"));
+            csv.texto(rs.getString("id_loja"));
+            csv.texto(rs.getString("vendedor"));
+            csv.texto(rs.getString("cliente"));
+            csv.texto(rs.getString("cpf"));
+            csv.texto(rs.getString("tipo_venda"));
+            csv.texto(rs.getString("status"));
+            csv.texto(rs.getString("status_pagamento"));
+
+            // Valores da venda só na primeira linha
+            csv.dinheiro(primeira ? Dinheiro.ler(rs, "subtotal") : null);
+            csv.dinheiro(primeira ? Dinheiro.ler(rs, "desconto") : null);
+            csv.dinheiro(primeira ? Dinheiro.ler(rs, "total") : null);
+            csv.texto(primeira ? rs.getString("pagamentos") : null);
+            csv.dinheiro(primeira ? Dinheiro.ler(rs, "total_pago") : null);
+
+            csv.texto(rs.getString("id_produto"));
+            csv.texto(rs.getString("item_descricao"));
+            csv.texto(rs.getString("item_tipo"));
+            double quantidade = rs.getDouble("quantidade");
+            csv.decimal(quantidade, rs.wasNull());
+            csv.dinheiro(Dinheiro.ler(rs, "preco_unitario"));
+            csv.dinheiro(Dinheiro.ler(rs, "item_subtotal"));
+            csv.fimLinha();
+        }
+    }
+
+    // ========================================
+    // ORÇAMENTOS
+    // ========================================
+
+    private String sqlOrcamentos(UsuarioPrincipal usuario, Integer lojaFiltro, LocalDate inicio, LocalDate fim,
+                                 List<Object> params) {
+        StringBuilder sql = new StringBuilder();
+
+        sql.append("SELECT o.id, o.data_hora, o.id_loja, o.vendedor, o.cliente_id, o.cliente_nome, ");
+        sql.append("  o.status, o.total, o.observacoes, ");
+        sql.append("  i.tipo, i.codigo_web, i.marca, i.familia, i.descricao, i.olho, i.quantidade, ");
+        sql.append("  i.preco_unitario, i.preco_total ");
+        sql.append("FROM orcamentos o ");
+        sql.append("LEFT JOIN orcamento_itens i ON i.orcamento_id = o.id ");
+        sql.append("WHERE o.data_hora >= ? AND o.data_hora < ? ");
+        params.add(java.sql.Date.valueOf(inicio));
+        params.add(java.sql.Date.valueOf(fim.plusDays(1)));
+
+        filtroAcesso(sql, params, usuario, lojaFiltro, "o.id_loja", "o.vendedor_id");
+
+        sql.append("ORDER BY o.data_hora, o.id");
+        return sql.toString();
+    }
+
+    private void escreverOrcamentos(ResultSet rs, EscritorCsv csv) throws SQLException, IOException {
+        csv.cabecalho("orcamento", "data", "loja", "vendedor", "cliente_id", "cliente", "status", "total",
+                "observacoes", "tipo_item", "codigo", "marca", "familia", "item", "olho", "quantidade",
+                "preco_unitario", "preco_total");
+
+        long orcamentoAnterior = -1;
+        while (rs.next()) {
+            long id = rs.getLong("id");
+            boolean primeira = id != orcamentoAnterior;
+            orcamentoAnterior = id;
+
+            csv.inteiro(id);
+            csv.dataHora(rs.getTimestamp("data_hora"));
+            csv.texto(rs.getString("id_loja"));
+            csv.texto(rs.getString("vendedor"));
+            csv.texto(rs.getString("cliente_id"));
+            csv.texto(rs.getString("cliente_nome"));
+            csv.texto(rs.getString("status"));
+
+            // Total do orçamento só na primeira linha
+            csv.dinheiro(primeira ? Dinheiro.ler(rs, "total") : null);
+            csv.texto(primeira ? rs.getString("observacoes") : null);
+
+            csv.texto(rs.getString("tipo"));
+            csv.texto(rs.getString("codigo_web"));
+            csv.texto(rs.getString("marca"));
+            csv.texto(rs.getString("familia"));
+            csv.texto(rs.getString("descricao"));
+            csv.texto(rs.getString("olho"));
+            double quantidade = rs.getDouble("quantidade");
+            csv.decimal(quantidade, rs.wasNull());
+            csv.dinheiro(Dinheiro.ler(rs, "preco_unitario"));
+            csv.dinheiro(Dinheiro.ler(rs, "preco_total"));
+            csv.fimLinha();
+        }
+    }
+
+    // ========================================
+    // HELPERS
+    // ========================================
+
+    /**
+     * Admin: loja do usuário (ou a escolhida, se não tiver loja); vendedor: só os próprios registros.
+     */
+    private void filtroAcesso(StringBuilder sql, List<Object> params, UsuarioPrincipal usuario,
+                              Integer lojaFiltro, String colunaLoja, String colunaUsuario) {
+        if (usuario.isAdministrador()) {
+            if (lojaFiltro != null) {
+                sql.append("AND ").append(colunaLoja).append(" = ? ");
+                params.add(lojaFiltro);
+            }
+        } else {
+            sql.append("AND ").append(colunaUsuario).append(" = ? ");
+            params.add(usuario.getUsuarioId());
+        }
+    }
+
+    private Integer lojaDoFiltro(UsuarioPrincipal usuario, String lojaParam) {
+        if (usuario.getLojaId() != null) {
+            return usuario.getLojaId();
+        }
+        if (lojaParam != null && !lojaParam.isEmpty()) {
+            return Integer.parseInt(lojaParam.trim());
+        }
+        return null;
+    }
+
+    private LocalDate data(String valor, LocalDate padrao) {
+        return valor != null && !valor.isEmpty() ? LocalDate.parse(valor.trim()) : padrao;
+    }
+
+    private void enviarErro(HttpServletResponse response, int status, String mensagem) throws IOException {
+        response.setStatus(status);
+        response.setContentType("text/plain");
+        response.setCharacterEncoding("UTF-8");
+
+        PrintWriter out = response.getWriter();
+        out.print(mensagem);
+        out.flush();
+    }
+}
@@ -0,0 +1,176 @@
+package br.com.vendas.servlet;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.SQLException;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.gson.Gson;
+
+import br.com.vendas.auxiliares.FiltroGrau;
+import br.com.vendas.dao.CatalogoLentesCache;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Contagem de lentes disponíveis por valor de faceta para a receita digitada.
+ *
+ * Recebe os mesmos parâmetros de SelecaoLentes (rod_esf, rod_cil, rod_adicao,
+ * roe_*, visao e filtros já escolhidos como marca, material...) e devolve,
+ * para cada faceta, quantas lentes cada valor traria.
+ *
+ * Calculado sobre CatalogoLentesCache: disponibilidade da receita (OD ∪ OE)
+ * ∩ visao ∩ demais filtros da listagem ∩ filtros das OUTRAS facetas
+ * selecionadas, tudo com bitsets. Os demais filtros são os mesmos do
+ * OpcoesCompleto: FILTROS (fabricante, tratamento, família...), permite_colorir
+ * explícito e coloração escolhida (exige permite_colorir = 'Sim').
+ *
+ * Resposta:
+ * { total: 123, facetas: { marca: { "Varilux": 40, ... }, material: {...}, ... }, tempoMs: 2 }
+ *
+ * @author OptoFreela
+ */
+public class FacetasLentes extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        request.setCharacterEncoding("UTF-8");
+        response.setContentType("application/json;charset=UTF-8");
+
+        long inicio = System.nanoTime();
+        Object resultado;
+
+        try {
+            resultado = calcularFacetas(request, CatalogoLentesCache.get(), inicio);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            resultado = new ErrorResponse("Erro ao carregar catálogo: " + e.getMessage());
+        }
+
+        PrintWriter out = response.getWriter();
+        out.print(new Gson().toJson(resultado));
+        out.flush();
+    }
+
+    private FacetasResponse calcularFacetas(HttpServletRequest request,
+                                            CatalogoLentesCache.Snapshot catalogo,
+                                            long inicio) {
+
+        String visao = request.getParameter("visao");
+        String tipoVisao = normalizarVisao(visao);
+
+        FiltroGrau od = FiltroGrau.paraReceita(tipoVisao, visao,
+                parseDoubleSeguro(request.getParameter("rod_esf")),
+                parseDoubleSeguro(request.getParameter("rod_cil")),
+                parseDoubleSeguro(request.getParameter("rod_adicao")));
+        FiltroGrau oe = FiltroGrau.paraReceita(tipoVisao, visao,
+                parseDoubleSeguro(request.getParameter("roe_esf")),
+                parseDoubleSeguro(request.getParameter("roe_cil")),
+                parseDoubleSeguro(request.getParameter("roe_adicao")));
+
+        // Disponibilidade da receita: lentes que servem para OD ou OE
+        BitSet base = catalogo.disponiveis(od);
+        base.or(catalogo.disponiveis(oe));
+
+        if (tipoVisao != null) {
+            base.and(catalogo.comValor("visao", tipoVisao));
+        }
+
+        // Filtros da listagem que não são facetas: restringem todas as contagens
+        for (String filtro : CatalogoLentesCache.FILTROS) {
+            String[] valores = request.getParameterValues(filtro);
+            if (valores != null && valores.length > 0) {
+                base.and(catalogo.comValor(filtro, valores));
+            }
+        }
+        String coloracao = request.getParameter("coloracao");
+        if (coloracao != null && !coloracao.isEmpty() && !coloracao.equalsIgnoreCase("Sem Coloração")) {
+            base.and(catalogo.comValor("permite_colorir", "Sim"));
+        }
+
+        // Filtros já escolhidos pelo vendedor, por faceta
+        Map<String, BitSet> selecionados = new LinkedHashMap<>();
+        for (String faceta : CatalogoLentesCache.FACETAS) {
+            String[] valores = request.getParameterValues(faceta);
+            if (valores != null && valores.length > 0) {
+                selecionados.put(faceta, catalogo.comValor(faceta, valores));
+            }
+        }
+
+        // Cada faceta conta sobre os filtros das demais (não se auto-restringe)
+        Map<String, Map<String, Integer>> facetas = new LinkedHashMap<>();
+        for (String faceta : CatalogoLentesCache.FACETAS) {
+            BitSet universo = (BitSet) base.clone();
+            for (Map.Entry<String, BitSet> sel : selecionados.entrySet()) {
+                if (!sel.getKey().equals(faceta)) {
+                    universo.and(sel.getValue());
+                }
+            }
+            facetas.put(faceta, catalogo.contar(faceta, universo));
+        }
+
+        BitSet todos = (BitSet) base.clone();
+        for (BitSet sel : selecionados.values()) {
+            todos.and(sel);
+        }
+
+        FacetasResponse resp = new FacetasResponse();
+        resp.total = todos.cardinality();
+        resp.facetas = facetas;
+        resp.tempoMs = (System.nanoTime() - inicio) / 1_000_000.0;
+
+        System.out.println("📊 FacetasLentes - total: " + resp.total + " em " + resp.tempoMs + " ms");
+        return resp;
+    }
+
+    /**
+     * Mesma regra de OpcoesCompleto: Perto/Longe/meia_distancia são "Monofocal"
+     */
+    private String normalizarVisao(String visao) {
+        if (visao == null || visao.isEmpty()) return null;
+
+        if (visao.equalsIgnoreCase("Perto") || visao.equalsIgnoreCase("meia_distancia") || visao.equalsIgnoreCase("Longe")) {
+            return "Monofocal";
+        }
+        return visao;
+    }
+
+    private double parseDoubleSeguro(String valor) {
+        if (valor == null || valor.isEmpty()) return 0.0;
+        try {
+            return Double.parseDouble(valor);
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        doGet(request, response);
+    }
+
+    // ========================================
+    // DTOs internos
+    // ========================================
+
+    private static class FacetasResponse {
+        int total;
+        Map<String, Map<String, Integer>> facetas;
+        double tempoMs;
+    }
+
+    private static class ErrorResponse {
+        String error;
+        ErrorResponse(String msg) { this.error = msg; }
+    }
+}
@@ -1,26 +1,28 @@
 package br.com.vendas.servlet;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.text.NumberFormat;
-import java.text.SimpleDateFormat;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
 import br.com.vendas.dao.ConnectionFactory;
-import br.com.vendas.util.GsonUtils;
+import br.com.vendas.util.Dinheiro;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
@@ -37,15 +39,33 @@ import jakarta.servlet.http.HttpServletResponse;
  * - Impresso diretamente (Ctrl+P)
  * - Salvo como PDF pelo navegador
  * 
+ * RENDERIZAÇÃO:
+ * - Template pré-compilado: os trechos fixos (cabeçalho, CSS, tabelas) são
+ *   convertidos para bytes UTF-8 uma vez; só os dados do orçamento são
+ *   codificados a cada impressão, direto no OutputStream da resposta.
+ * - Orçamento e itens numa única conexão; JSON de tratamentos/coloração
+ *   lido com um JsonParser compartilhado.
+ * - Documento guardado por (id, versão): a versão é um SHA-256 calculado no
+ *   MySQL sobre a linha do orçamento (cliente, total, status, data) e sobre
+ *   todas as colunas exibidas dos itens (contagem + XOR do hash de cada item),
+ *   na mesma consulta do cabeçalho. Reimpressão com a mesma versão sai do
+ *   cache sem trazer os itens; só o rodapé (hora de geração) é novo.
+ *   Dados escritos no HTML são escapados.
+ * 
  * @author OptoFreela
  */
 public class ImprimirOrcamento extends HttpServlet {
     private static final long serialVersionUID = 1L;
     
-    private Gson gson = GsonUtils.getGson();
-    private NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(new Locale("pt", "BR"));
-    private SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm");
-    private SimpleDateFormat dateOnlyFormat = new SimpleDateFormat("dd/MM/yyyy");
+    private static final int MAX_DOCUMENTOS = 200;
+    private static final int MAX_BYTES_DOCUMENTO = 256 * 1024;
+    
+    // JsonParser não guarda estado (Gson 2.6): um para todas as requisições
+    private static final JsonParser PARSER = new JsonParser();
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+    
+    // Documento renderizado até o rodapé, por id do orçamento
+    private static final Map<Long, Documento> DOCUMENTOS = new ConcurrentHashMap<>();
 
     public ImprimirOrcamento() {
         super();
@@ -58,12 +78,12 @@ public class ImprimirOrcamento extends HttpServlet {
         response.setContentType("text/html");
         response.setCharacterEncoding("UTF-8");
         
-        PrintWriter out = response.getWriter();
+        OutputStream out = response.getOutputStream();
         
         String idStr = request.getParameter("id");
         
         if (idStr == null || idStr.isEmpty()) {
-            out.print(gerarPaginaErro("ID do orçamento não informado"));
+            out.write(bytes(gerarPaginaErro("ID do orçamento não informado")));
             return;
         }
         
@@ -74,373 +94,142 @@ public class ImprimirOrcamento extends HttpServlet {
             System.out.println("║  🖨️ GERANDO IMPRESSÃO DO ORÇAMENTO #" + orcamentoId);
             System.out.println("╚════════════════════════════════════════════════════════════════╝");
             
-            // Busca dados do orçamento
-            JsonObject orcamento = buscarOrcamento(orcamentoId);
+            Cabecalho orcamento;
+            List<Item> itens = null;
+            Documento documento;
             
-            if (orcamento == null) {
-                out.print(gerarPaginaErro("Orçamento #" + orcamentoId + " não encontrado"));
-                return;
+            try (Connection conn = ConnectionFactory.getInstance().getConnection()) {
+                // Busca dados do orçamento
+                orcamento = buscarOrcamento(conn, orcamentoId);
+                
+                if (orcamento == null) {
+                    out.write(bytes(gerarPaginaErro("Orçamento #" + orcamentoId + " não encontrado")));
+                    return;
+                }
+                
+                // Reimpressão da mesma versão: itens não são consultados
+                documento = DOCUMENTOS.get(orcamentoId);
+                if (documento == null || !documento.versao.equals(orcamento.versao)) {
+                    documento = null;
+                    itens = buscarItens(conn, orcamentoId);
+                }
             }
             
-            // Busca itens
-            List<JsonObject> itens = buscarItens(orcamentoId);
+            if (documento != null) {
+                System.out.println("🖨️ Orçamento #" + orcamentoId + " servido do cache");
+                out.write(documento.corpo);
+            } else {
+                // Gera HTML direto na resposta, guardando uma cópia
+                Html html = new Html(out, MAX_BYTES_DOCUMENTO);
+                gerarHTML(html, orcamento, itens);
+                
+                byte[] corpo = html.copia();
+                if (corpo != null) {
+                    if (DOCUMENTOS.size() >= MAX_DOCUMENTOS) {
+                        DOCUMENTOS.clear();
+                    }
+                    DOCUMENTOS.put(orcamentoId, new Documento(orcamento.versao, corpo));
+                }
+            }
             
-            // Gera HTML
-            String html = gerarHTML(orcamento, itens);
-            out.print(html);
+            // Rodapé (hora de geração: sempre a atual)
+            Html rodape = new Html(out, 0);
+            rodape.bytes(T_RODAPE);
+            rodape.texto(LocalDateTime.now().format(FORMATO_DATA));
+            rodape.bytes(T_FIM);
+            out.flush();
             
         } catch (NumberFormatException e) {
-            out.print(gerarPaginaErro("ID inválido: " + idStr));
+            out.write(bytes(gerarPaginaErro("ID inválido: " + idStr)));
         } catch (Exception e) {
             System.err.println("❌ Erro ao gerar impressão: " + e.getMessage());
             e.printStackTrace();
-            out.print(gerarPaginaErro("Erro ao gerar orçamento: " + e.getMessage()));
+            if (!response.isCommitted()) {
+                response.resetBuffer();
+                out.write(bytes(gerarPaginaErro("Erro ao gerar orçamento: " + e.getMessage())));
+            }
         }
     }
 
     /**
      * Busca dados do orçamento
      */
-    private JsonObject buscarOrcamento(long id) throws SQLException {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-        
-        try {
-            conn = ConnectionFactory.getInstance().getConnection();
-            
-            String sql = "SELECT * FROM orcamentos WHERE id = ?";
-            stmt = conn.prepareStatement(sql);
+    private Cabecalho buscarOrcamento(Connection conn, long id) throws SQLException {
+        // Versão: qualquer mudança no cabeçalho ou em qualquer item exibido troca o hash.
+        // QUOTE distingue NULL de texto vazio; o id do item entra para itens repetidos.
+        String sql =
+            "SELECT o.id, o.cliente_nome, o.total, o.data_hora, " +
+            "       SHA2(CONCAT_WS('|', QUOTE(o.cliente_nome), QUOTE(o.total), QUOTE(o.status), QUOTE(o.data_hora), " +
+            "            (SELECT CONCAT(COUNT(*), ':', IFNULL(BIT_XOR(CAST(CONV(LEFT(SHA2(CONCAT_WS('|', " +
+            "                    i.id, QUOTE(i.tipo), QUOTE(i.codigo_web), QUOTE(i.marca), QUOTE(i.descricao), " +
+            "                    QUOTE(i.olho), QUOTE(i.quantidade), QUOTE(i.preco_unitario), QUOTE(i.preco_total), " +
+            "                    QUOTE(i.tratamentos_json), QUOTE(i.coloracao_json)), 256), 16), 16, 10) AS UNSIGNED)), 0)) " +
+            "             FROM orcamento_itens i WHERE i.orcamento_id = o.id)), 256) AS versao " +
+            "FROM orcamentos o WHERE o.id = ?";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setLong(1, id);
             
-            rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                JsonObject orc = new JsonObject();
-                orc.addProperty("id", rs.getLong("id"));
-                orc.addProperty("clienteId", rs.getLong("cliente_id"));
-                orc.addProperty("clienteNome", rs.getString("cliente_nome"));
-                orc.addProperty("total", rs.getDouble("total"));
-                orc.addProperty("status", rs.getString("status"));
-                orc.addProperty("dataHora", rs.getString("data_hora"));
-                orc.addProperty("observacoes", rs.getString("observacoes"));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                
+                Cabecalho orc = new Cabecalho();
+                orc.id = rs.getLong("id");
+                orc.clienteNome = rs.getString("cliente_nome");
+                orc.total = Dinheiro.ler(rs, "total");
+                Timestamp dataHora = rs.getTimestamp("data_hora");
+                orc.dataHora = dataHora != null ? dataHora.toLocalDateTime().format(FORMATO_DATA) : "";
+                orc.versao = rs.getString("versao");
                 return orc;
             }
-            
-            return null;
-            
-        } finally {
-            if (rs != null) rs.close();
-            if (stmt != null) stmt.close();
-            if (conn != null) conn.close();
         }
     }
 
     /**
      * Busca itens do orçamento
      */
-    private List<JsonObject> buscarItens(long orcamentoId) throws SQLException {
-        List<JsonObject> itens = new ArrayList<>();
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
+    private List<Item> buscarItens(Connection conn, long orcamentoId) throws SQLException {
+        List<Item> itens = new ArrayList<>();
         
-        try {
-            conn = ConnectionFactory.getInstance().getConnection();
-            
-            String sql = "SELECT * FROM orcamento_itens WHERE orcamento_id = ? ORDER BY tipo, olho";
-            stmt = conn.prepareStatement(sql);
-            stmt.setLong(1, orcamentoId);
-            
-            rs = stmt.executeQuery();
-            
-            while (rs.next()) {
-                JsonObject item = new JsonObject();
-                item.addProperty("id", rs.getString("item_id"));
-                item.addProperty("tipo", rs.getString("tipo"));
-                item.addProperty("codigo", rs.getInt("codigo"));
-                item.addProperty("codigoWeb", rs.getString("codigo_web"));
-                item.addProperty("marca", rs.getString("marca"));
-                item.addProperty("familia", rs.getString("familia"));
-                item.addProperty("descricao", rs.getString("descricao"));
-                item.addProperty("olho", rs.getString("olho"));
-                item.addProperty("quantidade", rs.getDouble("quantidade"));
-                item.addProperty("precoUnitario", rs.getDouble("preco_unitario"));
-                item.addProperty("precoTotal", rs.getDouble("preco_total"));
-                item.addProperty("tratamentosJson", rs.getString("tratamentos_json"));
-                item.addProperty("coloracaoJson", rs.getString("coloracao_json"));
-                itens.add(item);
-            }
-            
-        } finally {
-            if (rs != null) rs.close();
-            if (stmt != null) stmt.close();
-            if (conn != null) conn.close();
-        }
+        String sql = 
+            "SELECT tipo, codigo_web, marca, descricao, olho, quantidade, preco_unitario, preco_total, " +
+            "       tratamentos_json, coloracao_json " +
+            "FROM orcamento_itens WHERE orcamento_id = ? ORDER BY tipo, olho";
         
-        return itens;
-    }
-
-    /**
-     * Gera o HTML completo do orçamento
-     */
-    private String gerarHTML(JsonObject orcamento, List<JsonObject> itens) {
-        StringBuilder html = new StringBuilder();
-        
-        String clienteNome = orcamento.get("clienteNome").getAsString();
-        double total = orcamento.get("total").getAsDouble();
-        String dataHora = orcamento.get("dataHora").getAsString();
-        long id = orcamento.get("id").getAsLong();
-        
-        // Separa lentes e produtos
-        List<JsonObject> lentes = new ArrayList<>();
-        List<JsonObject> produtos = new ArrayList<>();
-        
-        for (JsonObject item : itens) {
-            if ("lente".equals(item.get("tipo").getAsString())) {
-                lentes.add(item);
-            } else {
-                produtos.add(item);
-            }
-        }
-        
-        html.append("<!DOCTYPE html>\n");
-        html.append("<html lang=\"pt-BR\">\n");
-        html.append("<head>\n");
-        html.append("    <meta charset=\"UTF-8\">\n");
-        html.append("    <meta name=\"viewport\" content=\"width=device-width, initial-scale=1.0\">\n");
-        html.append("    <title>Orçamento #").append(id).append(" - ").append(clienteNome).append("</title>\n");
-        html.append(getCSS());
-        html.append("</head>\n");
-        html.append("<body>\n");
-        
-        // Container principal
-        html.append("<div class=\"container\">\n");
-        
-        // Botões de ação (não aparecem na impressão)
-        html.append("    <div class=\"no-print actions\">\n");
-        html.append("        <button onclick=\"window.print()\" class=\"btn btn-primary\">🖨️ Imprimir / Salvar PDF</button>\n");
-        html.append("        <button onclick=\"window.close()\" class=\"btn btn-secondary\">✕ Fechar</button>\n");
-        html.append("    </div>\n");
-        
-        // Cabeçalho
-        html.append("    <header class=\"header\">\n");
-        html.append("        <div class=\"logo\">\n");
-        html.append("            <h1>🔬 OptoFreela</h1>\n");
-        html.append("            <p>Sistema de Lentes Oftálmicas</p>\n");
-        html.append("        </div>\n");
-        html.append("        <div class=\"doc-info\">\n");
-        html.append("            <h2>ORÇAMENTO</h2>\n");
-        html.append("            <p class=\"doc-number\">#").append(String.format("%06d", id)).append("</p>\n");
-        html.append("            <p class=\"doc-date\">").append(formatarData(dataHora)).append("</p>\n");
-        html.append("        </div>\n");
-        html.append("    </header>\n");
-        
-        // Dados do cliente
-        html.append("    <section class=\"cliente-section\">\n");
-        html.append("        <h3>📋 Dados do Cliente</h3>\n");
-        html.append("        <div class=\"cliente-info\">\n");
-        html.append("            <p><strong>Nome:</strong> ").append(clienteNome).append("</p>\n");
-        html.append("        </div>\n");
-        html.append("    </section>\n");
-        
-        // Tabela de lentes
-        if (!lentes.isEmpty()) {
-            html.append("    <section class=\"itens-section\">\n");
-            html.append("        <h3>👓 Lentes Oftálmicas</h3>\n");
-            html.append("        <table class=\"itens-table\">\n");
-            html.append("            <thead>\n");
-            html.append("                <tr>\n");
-            html.append("                    <th>Olho</th>\n");
-            html.append("                    <th>Descrição</th>\n");
-            html.append("                    <th>Qtd</th>\n");
-            html.append("                    <th>Valor Unit.</th>\n");
-            html.append("                    <th>Total</th>\n");
-            html.append("                </tr>\n");
-            html.append("            </thead>\n");
-            html.append("            <tbody>\n");
-            
-            for (JsonObject lente : lentes) {
-                html.append(renderLinha(lente));
-            }
-            
-            html.append("            </tbody>\n");
-            html.append("        </table>\n");
-            html.append("    </section>\n");
-        }
-        
-        // Tabela de produtos
-        if (!produtos.isEmpty()) {
-            html.append("    <section class=\"itens-section\">\n");
-            html.append("        <h3>📦 Produtos</h3>\n");
-            html.append("        <table class=\"itens-table\">\n");
-            html.append("            <thead>\n");
-            html.append("                <tr>\n");
-            html.append("                    <th>Código</th>\n");
-            html.append("                    <th>Descrição</th>\n");
-            html.append("                    <th>Qtd</th>\n");
-            html.append("                    <th>Valor Unit.</th>\n");
-            html.append("                    <th>Total</th>\n");
-            html.append("                </tr>\n");
-            html.append("            </thead>\n");
-            html.append("            <tbody>\n");
-            
-            for (JsonObject produto : produtos) {
-                html.append(renderLinhaProduto(produto));
-            }
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, orcamentoId);
             
-            html.append("            </tbody>\n");
-            html.append("        </table>\n");
-            html.append("    </section>\n");
-        }
-        
-        // Total
-        html.append("    <section class=\"total-section\">\n");
-        html.append("        <div class=\"total-box\">\n");
-        html.append("            <span class=\"total-label\">TOTAL DO ORÇAMENTO</span>\n");
-        html.append("            <span class=\"total-value\">").append(currencyFormat.format(total)).append("</span>\n");
-        html.append("        </div>\n");
-        html.append("    </section>\n");
-        
-        // Validade
-        html.append("    <section class=\"validade-section\">\n");
-        html.append("        <p>⏰ <strong>Validade:</strong> Este orçamento é válido por 30 dias a partir da data de emissão.</p>\n");
-        html.append("        <p>📞 <strong>Dúvidas?</strong> Entre em contato conosco.</p>\n");
-        html.append("    </section>\n");
-        
-        // Rodapé
-        html.append("    <footer class=\"footer\">\n");
-        html.append("        <p>Documento gerado em ").append(dateFormat.format(new Date())).append("</p>\n");
-        html.append("        <p>OptoFreela - Sistema de Gestão Óptica</p>\n");
-        html.append("    </footer>\n");
-        
-        html.append("</div>\n");
-        html.append("</body>\n");
-        html.append("</html>");
-        
-        return html.toString();
-    }
-
-    /**
-     * Renderiza linha de lente com tratamentos e coloração
-     */
-    private String renderLinha(JsonObject item) {
-        StringBuilder html = new StringBuilder();
-        
-        String olho = item.has("olho") && !item.get("olho").isJsonNull() 
-            ? item.get("olho").getAsString() : "";
-        String descricao = item.has("descricao") && !item.get("descricao").isJsonNull() 
-            ? item.get("descricao").getAsString() : "";
-        String marca = item.has("marca") && !item.get("marca").isJsonNull() 
-            ? item.get("marca").getAsString() : "";
-        double quantidade = item.has("quantidade") ? item.get("quantidade").getAsDouble() : 0;
-        double precoUnitario = item.has("precoUnitario") ? item.get("precoUnitario").getAsDouble() : 0;
-        double precoTotal = item.has("precoTotal") ? item.get("precoTotal").getAsDouble() : 0;
-        
-        // Linha principal da lente
-        html.append("                <tr class=\"item-row\">\n");
-        html.append("                    <td class=\"olho-cell\"><span class=\"olho-badge ").append(olho.toLowerCase()).append("\">").append(olho).append("</span></td>\n");
-        html.append("                    <td>\n");
-        html.append("                        <div class=\"item-desc\">").append(descricao).append("</div>\n");
-        html.append("                        <div class=\"item-marca\">").append(marca).append("</div>\n");
-        html.append("                    </td>\n");
-        html.append("                    <td class=\"center\">").append(quantidade).append("</td>\n");
-        html.append("                    <td class=\"right\">").append(currencyFormat.format(precoUnitario)).append("</td>\n");
-        html.append("                    <td class=\"right bold\">").append(currencyFormat.format(precoTotal)).append("</td>\n");
-        html.append("                </tr>\n");
-        
-        // Tratamentos
-        String tratamentosJson = item.has("tratamentosJson") && !item.get("tratamentosJson").isJsonNull() 
-            ? item.get("tratamentosJson").getAsString() : null;
-        
-        if (tratamentosJson != null && !tratamentosJson.isEmpty()) {
-            try {
-                JsonParser parser = new JsonParser();
-                JsonArray tratamentos = parser.parse(tratamentosJson).getAsJsonArray();
-                for (JsonElement elem : tratamentos) {
-                    JsonObject trat = elem.getAsJsonObject();
-                    String nome = trat.has("nome") ? trat.get("nome").getAsString() : "";
-                    double valor = trat.has("valor") ? trat.get("valor").getAsDouble() : 0;
-                    
-                    html.append("                <tr class=\"extra-row\">\n");
-                    html.append("                    <td></td>\n");
-                    html.append("                    <td colspan=\"3\"><span class=\"extra-tag tratamento\">💎 ").append(nome).append("</span></td>\n");
-                    html.append("                    <td class=\"right extra-valor\">").append(currencyFormat.format(valor)).append("</td>\n");
-                    html.append("                </tr>\n");
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Item item = new Item();
+                    item.tipo = rs.getString("tipo");
+                    item.codigoWeb = rs.getString("codigo_web");
+                    item.marca = rs.getString("marca");
+                    item.descricao = rs.getString("descricao");
+                    item.olho = rs.getString("olho");
+                    item.quantidade = rs.getDouble("quantidade");
+                    item.precoUnitario = Dinheiro.ler(rs, "preco_unitario");
+                    item.precoTotal = Dinheiro.ler(rs, "preco_total");
+                    item.tratamentosJson = rs.getString("tratamentos_json");
+                    item.coloracaoJson = rs.getString("coloracao_json");
+                    itens.add(item);
                 }
-            } catch (Exception e) {
-                // Ignora erros de parse
-            }
-        }
-        
-        // Coloração
-        String coloracaoJson = item.has("coloracaoJson") && !item.get("coloracaoJson").isJsonNull() 
-            ? item.get("coloracaoJson").getAsString() : null;
-        
-        if (coloracaoJson != null && !coloracaoJson.isEmpty()) {
-            try {
-                JsonParser parser = new JsonParser();
-                JsonObject cor = parser.parse(coloracaoJson).getAsJsonObject();
-                String nome = cor.has("nome") ? cor.get("nome").getAsString() : "";
-                double valor = cor.has("valor") ? cor.get("valor").getAsDouble() : 0;
-                String hex = cor.has("hex") ? cor.get("hex").getAsString() : "#888";
-                
-                html.append("                <tr class=\"extra-row\">\n");
-                html.append("                    <td></td>\n");
-                html.append("                    <td colspan=\"3\"><span class=\"extra-tag coloracao\"><span class=\"cor-amostra\" style=\"background:").append(hex).append("\"></span>🎨 ").append(nome).append("</span></td>\n");
-                html.append("                    <td class=\"right extra-valor\">").append(currencyFormat.format(valor)).append("</td>\n");
-                html.append("                </tr>\n");
-            } catch (Exception e) {
-                // Ignora erros de parse
             }
         }
         
-        return html.toString();
-    }
-
-    /**
-     * Renderiza linha de produto
-     */
-    private String renderLinhaProduto(JsonObject item) {
-        StringBuilder html = new StringBuilder();
-        
-        String codigo = item.has("codigoWeb") && !item.get("codigoWeb").isJsonNull() 
-            ? item.get("codigoWeb").getAsString() : "";
-        String descricao = item.has("descricao") && !item.get("descricao").isJsonNull() 
-            ? item.get("descricao").getAsString() : "";
-        double quantidade = item.has("quantidade") ? item.get("quantidade").getAsDouble() : 0;
-        double precoUnitario = item.has("precoUnitario") ? item.get("precoUnitario").getAsDouble() : 0;
-        double precoTotal = item.has("precoTotal") ? item.get("precoTotal").getAsDouble() : 0;
-        
-        html.append("                <tr class=\"item-row\">\n");
-        html.append("                    <td class=\"center\">").append(codigo).append("</td>\n");
-        html.append("                    <td>").append(descricao).append("</td>\n");
-        html.append("                    <td class=\"center\">").append((int)quantidade).append("</td>\n");
-        html.append("                    <td class=\"right\">").append(currencyFormat.format(precoUnitario)).append("</td>\n");
-        html.append("                    <td class=\"right bold\">").append(currencyFormat.format(precoTotal)).append("</td>\n");
-        html.append("                </tr>\n");
-        
-        return html.toString();
+        return itens;
     }
 
-    /**
-     * Formata data do banco
-     */
-    private String formatarData(String dataStr) {
-        try {
-            SimpleDateFormat dbFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            Date data = dbFormat.parse(dataStr);
-            return dateFormat.format(data);
-        } catch (Exception e) {
-            return dataStr;
-        }
-    }
+    // ========================================
+    // TEMPLATE (trechos fixos em bytes)
+    // ========================================
 
     /**
-     * Retorna CSS do documento
+     * CSS do documento
      */
-    private String getCSS() {
-        return """
+    private static final String CSS = """
             <style>
                 * {
                     margin: 0;
@@ -756,6 +545,407 @@ public class ImprimirOrcamento extends HttpServlet {
                 }
             </style>
         """;
+
+    private static final byte[] T_INICIO = bytes(
+        "<!DOCTYPE html>\n" +
+        "<html lang=\"pt-BR\">\n" +
+        "<head>\n" +
+        "    <meta charset=\"UTF-8\">\n" +
+        "    <meta name=\"viewport\" content=\"width=device-width, initial-scale=1.0\">\n" +
+        "    <title>Orçamento #");
+    
+    private static final byte[] T_TITULO_CLIENTE = bytes(" - ");
+    
+    private static final byte[] T_CABECALHO = bytes(
+        "</title>\n" +
+        CSS +
+        "</head>\n" +
+        "<body>\n" +
+        "<div class=\"container\">\n" +
+        // Botões de ação (não aparecem na impressão)
+        "    <div class=\"no-print actions\">\n" +
+        "        <button onclick=\"window.print()\" class=\"btn btn-primary\">🖨️ Imprimir / Salvar PDF</button>\n" +
+        "        <button onclick=\"window.close()\" class=\"btn btn-secondary\">✕ Fechar</button>\n" +
+        "    </div>\n" +
+        "    <header class=\"header\">\n" +
+        "        <div class=\"logo\">\n" +
+        "            <h1>🔬 OptoFreela</h1>\n" +
+        "            <p>Sistema de Lentes Oftálmicas</p>\n" +
+        "        </div>\n" +
+        "        <div class=\"doc-info\">\n" +
+        "            <h2>ORÇAMENTO</h2>\n" +
+        "            <p class=\"doc-number\">#");
+    
+    private static final byte[] T_DATA = bytes(
+        "</p>\n" +
+        "            <p class=\"doc-date\">");
+    
+    private static final byte[] T_CLIENTE = bytes(
+        "</p>\n" +
+        "        </div>\n" +
+        "    </header>\n" +
+        "    <section class=\"cliente-section\">\n" +
+        "        <h3>📋 Dados do Cliente</h3>\n" +
+        "        <div class=\"cliente-info\">\n" +
+        "            <p><strong>Nome:</strong> ");
+    
+    private static final byte[] T_FIM_CLIENTE = bytes(
+        "</p>\n" +
+        "        </div>\n" +
+        "    </section>\n");
+    
+    private static final byte[] T_LENTES = bytes(
+        "    <section class=\"itens-section\">\n" +
+        "        <h3>👓 Lentes Oftálmicas</h3>\n" +
+        "        <table class=\"itens-table\">\n" +
+        "            <thead>\n" +
+        "                <tr>\n" +
+        "                    <th>Olho</th>\n" +
+        "                    <th>Descrição</th>\n" +
+        "                    <th>Qtd</th>\n" +
+        "                    <th>Valor Unit.</th>\n" +
+        "                    <th>Total</th>\n" +
+        "                </tr>\n" +
+        "            </thead>\n" +
+        "            <tbody>\n");
+    
+    private static final byte[] T_PRODUTOS = bytes(
+        "    <section class=\"itens-section\">\n" +
+        "        <h3>📦 Produtos</h3>\n" +
+        "        <table class=\"itens-table\">\n" +
+        "            <thead>\n" +
+        "                <tr>\n" +
+        "                    <th>Código</th>\n" +
+        "                    <th>Descrição</th>\n" +
+        "                    <th>Qtd</th>\n" +
+        "                    <th>Valor Unit.</th>\n" +
+        "                    <th>Total</th>\n" +
+        "                </tr>\n" +
+        "            </thead>\n" +
+        "            <tbody>\n");
+    
+    private static final byte[] T_FIM_TABELA = bytes(
+        "            </tbody>\n" +
+        "        </table>\n" +
+        "    </section>\n");
+    
+    // Linha de lente: olho (classe), olho, descrição, marca, qtd, unitário, total
+    private static final byte[] T_LENTE_OLHO = bytes(
+        "                <tr class=\"item-row\">\n" +
+        "                    <td class=\"olho-cell\"><span class=\"olho-badge ");
+    private static final byte[] T_LENTE_OLHO_TEXTO = bytes("\">");
+    private static final byte[] T_LENTE_DESCRICAO = bytes(
+        "</span></td>\n" +
+        "                    <td>\n" +
+        "                        <div class=\"item-desc\">");
+    private static final byte[] T_LENTE_MARCA = bytes(
+        "</div>\n" +
+        "                        <div class=\"item-marca\">");
+    private static final byte[] T_LENTE_QTD = bytes(
+        "</div>\n" +
+        "                    </td>\n" +
+        "                    <td class=\"center\">");
+    
+    // Linha de produto: código, descrição, qtd, unitário, total
+    private static final byte[] T_PRODUTO_CODIGO = bytes(
+        "                <tr class=\"item-row\">\n" +
+        "                    <td class=\"center\">");
+    private static final byte[] T_PRODUTO_DESCRICAO = bytes(
+        "</td>\n" +
+        "                    <td>");
+    private static final byte[] T_PRODUTO_QTD = bytes(
+        "</td>\n" +
+        "                    <td class=\"center\">");
+    
+    // Final comum das linhas de item
+    private static final byte[] T_ITEM_UNITARIO = bytes(
+        "</td>\n" +
+        "                    <td class=\"right\">");
+    private static final byte[] T_ITEM_TOTAL = bytes(
+        "</td>\n" +
+        "                    <td class=\"right bold\">");
+    private static final byte[] T_FIM_LINHA = bytes(
+        "</td>\n" +
+        "                </tr>\n");
+    
+    // Tratamento / coloração
+    private static final byte[] T_TRATAMENTO = bytes(
+        "                <tr class=\"extra-row\">\n" +
+        "                    <td></td>\n" +
+        "                    <td colspan=\"3\"><span class=\"extra-tag tratamento\">💎 ");
+    private static final byte[] T_COLORACAO = bytes(
+        "                <tr class=\"extra-row\">\n" +
+        "                    <td></td>\n" +
+        "                    <td colspan=\"3\"><span class=\"extra-tag coloracao\"><span class=\"cor-amostra\" style=\"background:");
+    private static final byte[] T_COLORACAO_NOME = bytes("\"></span>🎨 ");
+    private static final byte[] T_EXTRA_VALOR = bytes(
+        "</span></td>\n" +
+        "                    <td class=\"right extra-valor\">");
+    
+    private static final byte[] T_TOTAL = bytes(
+        "    <section class=\"total-section\">\n" +
+        "        <div class=\"total-box\">\n" +
+        "            <span class=\"total-label\">TOTAL DO ORÇAMENTO</span>\n" +
+        "            <span class=\"total-value\">");
+    
+    private static final byte[] T_FIM_TOTAL = bytes(
+        "</span>\n" +
+        "        </div>\n" +
+        "    </section>\n" +
+        "    <section class=\"validade-section\">\n" +
+        "        <p>⏰ <strong>Validade:</strong> Este orçamento é válido por 30 dias a partir da data de emissão.</p>\n" +
+        "        <p>📞 <strong>Dúvidas?</strong> Entre em contato conosco.</p>\n" +
+        "    </section>\n");
+    
+    // Rodapé: fora do cache
+    private static final byte[] T_RODAPE = bytes(
+        "    <footer class=\"footer\">\n" +
+        "        <p>Documento gerado em ");
+    
+    private static final byte[] T_FIM = bytes(
+        "</p>\n" +
+        "        <p>OptoFreela - Sistema de Gestão Óptica</p>\n" +
+        "    </footer>\n" +
+        "</div>\n" +
+        "</body>\n" +
+        "</html>");
+
+    // ========================================
+    // RENDERIZAÇÃO
+    // ========================================
+
+    /**
+     * Gera o HTML do orçamento (até antes do rodapé)
+     */
+    private void gerarHTML(Html html, Cabecalho orcamento, List<Item> itens) throws IOException {
+        // Separa lentes e produtos
+        List<Item> lentes = new ArrayList<>();
+        List<Item> produtos = new ArrayList<>();
+        
+        for (Item item : itens) {
+            if ("lente".equals(item.tipo)) {
+                lentes.add(item);
+            } else {
+                produtos.add(item);
+            }
+        }
+        
+        html.bytes(T_INICIO);
+        html.texto(Long.toString(orcamento.id));
+        html.bytes(T_TITULO_CLIENTE);
+        html.texto(orcamento.clienteNome);
+        html.bytes(T_CABECALHO);
+        html.texto(String.format("%06d", orcamento.id));
+        html.bytes(T_DATA);
+        html.texto(orcamento.dataHora);
+        html.bytes(T_CLIENTE);
+        html.texto(orcamento.clienteNome);
+        html.bytes(T_FIM_CLIENTE);
+        
+        // Tabela de lentes
+        if (!lentes.isEmpty()) {
+            html.bytes(T_LENTES);
+            for (Item lente : lentes) {
+                renderLinha(html, lente);
+            }
+            html.bytes(T_FIM_TABELA);
+        }
+        
+        // Tabela de produtos
+        if (!produtos.isEmpty()) {
+            html.bytes(T_PRODUTOS);
+            for (Item produto : produtos) {
+                renderLinhaProduto(html, produto);
+            }
+            html.bytes(T_FIM_TABELA);
+        }
+        
+        // Total + validade
+        html.bytes(T_TOTAL);
+        html.texto(moeda(orcamento.total));
+        html.bytes(T_FIM_TOTAL);
+    }
+
+    /**
+     * Renderiza linha de lente com tratamentos e coloração
+     */
+    private void renderLinha(Html html, Item item) throws IOException {
+        String olho = item.olho != null ? item.olho : "";
+        
+        // Linha principal da lente
+        html.bytes(T_LENTE_OLHO);
+        html.texto(olho.toLowerCase());
+        html.bytes(T_LENTE_OLHO_TEXTO);
+        html.texto(olho);
+        html.bytes(T_LENTE_DESCRICAO);
+        html.texto(item.descricao);
+        html.bytes(T_LENTE_MARCA);
+        html.texto(item.marca);
+        html.bytes(T_LENTE_QTD);
+        html.texto(String.valueOf(item.quantidade));
+        fecharLinha(html, item);
+        
+        // Tratamentos
+        if (item.tratamentosJson != null && !item.tratamentosJson.isEmpty()) {
+            try {
+                JsonArray tratamentos = PARSER.parse(item.tratamentosJson).getAsJsonArray();
+                for (JsonElement elem : tratamentos) {
+                    JsonObject trat = elem.getAsJsonObject();
+                    String nome = trat.has("nome") ? trat.get("nome").getAsString() : "";
+                    double valor = trat.has("valor") ? trat.get("valor").getAsDouble() : 0;
+                    
+                    html.bytes(T_TRATAMENTO);
+                    html.texto(nome);
+                    html.bytes(T_EXTRA_VALOR);
+                    html.texto(Dinheiro.de(valor).formatar());
+                    html.bytes(T_FIM_LINHA);
+                }
+            } catch (RuntimeException e) {
+                // Ignora erros de parse
+            }
+        }
+        
+        // Coloração
+        if (item.coloracaoJson != null && !item.coloracaoJson.isEmpty()) {
+            try {
+                JsonObject cor = PARSER.parse(item.coloracaoJson).getAsJsonObject();
+                String nome = cor.has("nome") ? cor.get("nome").getAsString() : "";
+                double valor = cor.has("valor") ? cor.get("valor").getAsDouble() : 0;
+                String hex = cor.has("hex") ? cor.get("hex").getAsString() : "#888";
+                
+                html.bytes(T_COLORACAO);
+                html.texto(hex);
+                html.bytes(T_COLORACAO_NOME);
+                html.texto(nome);
+                html.bytes(T_EXTRA_VALOR);
+                html.texto(Dinheiro.de(valor).formatar());
+                html.bytes(T_FIM_LINHA);
+            } catch (RuntimeException e) {
+                // Ignora erros de parse
+            }
+        }
+    }
+
+    /**
+     * Renderiza linha de produto
+     */
+    private void renderLinhaProduto(Html html, Item item) throws IOException {
+        html.bytes(T_PRODUTO_CODIGO);
+        html.texto(item.codigoWeb);
+        html.bytes(T_PRODUTO_DESCRICAO);
+        html.texto(item.descricao);
+        html.bytes(T_PRODUTO_QTD);
+        html.texto(Integer.toString((int) item.quantidade));
+        fecharLinha(html, item);
+    }
+
+    private void fecharLinha(Html html, Item item) throws IOException {
+        html.bytes(T_ITEM_UNITARIO);
+        html.texto(moeda(item.precoUnitario));
+        html.bytes(T_ITEM_TOTAL);
+        html.texto(moeda(item.precoTotal));
+        html.bytes(T_FIM_LINHA);
+    }
+
+    private static String moeda(Dinheiro valor) {
+        return (valor != null ? valor : Dinheiro.ZERO).formatar();
+    }
+
+    private static byte[] bytes(String texto) {
+        return texto.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Escreve no OutputStream da resposta e, até o limite, numa cópia para o cache.
+     * texto() escapa HTML; bytes() escreve trechos fixos do template.
+     */
+    private static final class Html {
+        private final OutputStream destino;
+        private final int limiteCopia;
+        private ByteArrayOutputStream copia;
+
+        Html(OutputStream destino, int limiteCopia) {
+            this.destino = destino;
+            this.limiteCopia = limiteCopia;
+            this.copia = limiteCopia > 0 ? new ByteArrayOutputStream(16 * 1024) : null;
+        }
+
+        void bytes(byte[] trecho) throws IOException {
+            destino.write(trecho);
+            if (copia != null) {
+                if (copia.size() + trecho.length > limiteCopia) {
+                    copia = null;   // grande demais para o cache
+                } else {
+                    copia.write(trecho);
+                }
+            }
+        }
+
+        void texto(String valor) throws IOException {
+            if (valor == null || valor.isEmpty()) return;
+            bytes(ImprimirOrcamento.bytes(escapar(valor)));
+        }
+
+        /** Cópia do que foi escrito, ou null se passou do limite. */
+        byte[] copia() {
+            return copia != null ? copia.toByteArray() : null;
+        }
+
+        private static String escapar(String valor) {
+            StringBuilder sb = null;
+            for (int i = 0; i < valor.length(); i++) {
+                char c = valor.charAt(i);
+                String troca;
+                switch (c) {
+                    case '<': troca = "&lt;"; break;
+                    case '>': troca = "&gt;"; break;
+                    case '&': troca = "&amp;"; break;
+                    case '"': troca = "&quot;"; break;
+                    case '\'': troca = "&#39;"; break;
+                    default: troca = null;
+                }
+                if (troca != null) {
+                    if (sb == null) {
+                        sb = new StringBuilder(valor.length() + 16).append(valor, 0, i);
+                    }
+                    sb.append(troca);
+                } else if (sb != null) {
+                    sb.append(c);
+                }
+            }
+            return sb != null ? sb.toString() : valor;
+        }
+    }
+
+    private static final class Cabecalho {
+        long id;
+        String clienteNome;
+        Dinheiro total;
+        String dataHora;
+        String versao;
+    }
+
+    private static final class Item {
+        String tipo;
+        String codigoWeb;
+        String marca;
+        String descricao;
+        String olho;
+        double quantidade;
+        Dinheiro precoUnitario;
+        Dinheiro precoTotal;
+        String tratamentosJson;
+        String coloracaoJson;
+    }
+
+    private static final class Documento {
+        final String versao;
+        final byte[] corpo;
+
+        Documento(String versao, byte[] corpo) {
+            this.versao = versao;
+            this.corpo = corpo;
+        }
     }
 
     /**
@@ -815,6 +1005,6 @@ public class ImprimirOrcamento extends HttpServlet {
                 </div>
             </body>
             </html>
-        """.formatted(mensagem);
+        """.formatted(Html.escapar(mensagem));
     }
 }
\ No newline at end of file
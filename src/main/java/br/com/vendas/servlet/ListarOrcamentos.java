@@ -7,19 +7,22 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
+import br.com.vendas.beans.UsuarioPrincipal;
 import br.com.vendas.dao.ConnectionFactory;
+import br.com.vendas.util.CursorPagina;
 import br.com.vendas.util.GsonUtils;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 
 /**
  * ListarOrcamentos.java
@@ -32,6 +35,12 @@ import jakarta.servlet.http.HttpSession;
  * GET /ListarOrcamentos?cliente=nome → Busca por nome do cliente
  * GET /ListarOrcamentos?id=123       → Busca orçamento específico
  * GET /ListarOrcamentos?status=PENDENTE → Filtra por status
+ * GET /ListarOrcamentos?cursor=...   → Próxima página (proximoCursor da anterior)
+ * 
+ * PAGINAÇÃO: por (data_hora, id), sem OFFSET; limit padrão 50, máximo 200.
+ * Resposta traz temMais e proximoCursor.
+ *   CREATE INDEX idx_orcamentos_vendedor_data ON orcamentos (vendedor_id, data_hora, id);
+ *   CREATE INDEX idx_orcamentos_loja_data ON orcamentos (id_loja, data_hora, id);
  * 
  * FILTRO AUTOMÁTICO:
  * - Filtra por id_usuario da sessão (cada vendedor vê apenas seus orçamentos)
@@ -41,6 +50,11 @@ import jakarta.servlet.http.HttpSession;
 public class ListarOrcamentos extends HttpServlet {
     private static final long serialVersionUID = 1L;
     
+    private static final int LIMITE_MAXIMO = 200;
+    
+    // Máximo de ids por consulta IN ao buscar itens
+    private static final int LOTE_IN = 500;
+    
     private Gson gson = GsonUtils.getGson();
 
     public ListarOrcamentos() {
@@ -58,40 +72,25 @@ public class ListarOrcamentos extends HttpServlet {
         JsonObject resultado = new JsonObject();
         
         try {
-            // ✅ NOVO: Obtém dados do usuário da sessão
-            HttpSession session = request.getSession(false);
-            if (session == null) {
-                throw new Exception("Sessão inválida. Faça login novamente.");
-            }
-            
-            Integer usuarioId = (Integer) session.getAttribute("usuarioId");
-            String usuarioNome = (String) session.getAttribute("usuarioNome");
-            Integer lojaId = (Integer) session.getAttribute("lojaId");
-            String perfilNome = (String) session.getAttribute("perfilNome");
-            
-            if (usuarioId == null) {
+            // Usuário resolvido pelo AuthFilter (token assinado ou sessão)
+            UsuarioPrincipal usuario = UsuarioPrincipal.de(request);
+            if (usuario == null) {
                 throw new Exception("Usuário não autenticado. Faça login novamente.");
             }
             
+            Integer usuarioId = usuario.getUsuarioId();
+            String usuarioNome = usuario.getNome();
+            Integer lojaId = usuario.getLojaId();
+            
             // Verifica se é admin (admin vê todos os orçamentos da loja)
-            boolean isAdmin = "Admin".equalsIgnoreCase(perfilNome) || 
-                              "Administrador".equalsIgnoreCase(perfilNome) ||
-                              "Gerente".equalsIgnoreCase(perfilNome);
+            boolean isAdmin = usuario.isAdministrador();
             
             // Parâmetros de filtro
             String clienteBusca = request.getParameter("cliente");
             String idBusca = request.getParameter("id");
             String statusBusca = request.getParameter("status");
-            String limitStr = request.getParameter("limit");
-            
-            int limit = 50;
-            if (limitStr != null && !limitStr.isEmpty()) {
-                try {
-                    limit = Integer.parseInt(limitStr);
-                } catch (NumberFormatException e) {
-                    limit = 50;
-                }
-            }
+            int limit = CursorPagina.limite(request.getParameter("limit"), 50, LIMITE_MAXIMO);
+            CursorPagina cursor = CursorPagina.ler(request.getParameter("cursor"));
             
             System.out.println("╔════════════════════════════════════════════════════════════════╗");
             System.out.println("║  📋 LISTANDO ORÇAMENTOS                                        ║");
@@ -103,19 +102,20 @@ public class ListarOrcamentos extends HttpServlet {
             
             // Busca orçamentos
             List<JsonObject> orcamentos = buscarOrcamentos(clienteBusca, idBusca, statusBusca, limit,
-                                                           usuarioId, lojaId, isAdmin);
-            
-            System.out.println("Total encontrado: " + orcamentos.size());
+                                                           cursor, usuarioId, lojaId, isAdmin);
             
             // Monta resposta
             JsonArray orcamentosArray = new JsonArray();
             for (JsonObject orc : orcamentos) {
                 orcamentosArray.add(orc);
             }
+            CursorPagina.paginar(orcamentosArray, limit, "dataHora", resultado);
+            
+            System.out.println("Total encontrado: " + orcamentosArray.size());
             
             resultado.addProperty("success", true);
             resultado.add("orcamentos", orcamentosArray);
-            resultado.addProperty("total", orcamentos.size());
+            resultado.addProperty("total", orcamentosArray.size());
             
         } catch (Exception e) {
             System.err.println("❌ Erro ao listar orçamentos: " + e.getMessage());
@@ -134,7 +134,7 @@ public class ListarOrcamentos extends HttpServlet {
      * ✅ ATUALIZADO: Filtra por usuário ou loja
      */
     private List<JsonObject> buscarOrcamentos(String cliente, String id, String status, int limit,
-                                               Integer usuarioId, Integer lojaId, boolean isAdmin) 
+                                               CursorPagina cursor, Integer usuarioId, Integer lojaId, boolean isAdmin) 
             throws SQLException {
         
         List<JsonObject> orcamentos = new ArrayList<>();
@@ -147,9 +147,8 @@ public class ListarOrcamentos extends HttpServlet {
             
             // Monta query dinâmica
             StringBuilder sql = new StringBuilder();
-            sql.append("SELECT o.*, ");
-            sql.append("       (SELECT COUNT(*) FROM orcamento_itens WHERE orcamento_id = o.id AND tipo = 'lente') as qtd_lentes, ");
-            sql.append("       (SELECT COUNT(*) FROM orcamento_itens WHERE orcamento_id = o.id AND tipo = 'produto') as qtd_produtos ");
+            // Contagens de lentes/produtos saem da busca de itens (sem subconsulta por linha)
+            sql.append("SELECT o.id, o.cliente_id, o.cliente_nome, o.total, o.status, o.data_hora, o.vendedor ");
             sql.append("FROM orcamentos o ");
             sql.append("WHERE 1=1 ");
             
@@ -184,9 +183,17 @@ public class ListarOrcamentos extends HttpServlet {
                 params.add(status);
             }
             
-            sql.append("ORDER BY o.data_hora DESC ");
+            // Página seguinte: depois da última (data_hora, id) já enviada
+            if (cursor != null) {
+                sql.append("AND (o.data_hora < ? OR (o.data_hora = ? AND o.id < ?)) ");
+                params.add(cursor.getValor());
+                params.add(cursor.getValor());
+                params.add(cursor.getId());
+            }
+            
+            sql.append("ORDER BY o.data_hora DESC, o.id DESC ");
             sql.append("LIMIT ?");
-            params.add(limit);
+            params.add(limit + 1);  // uma a mais: indica se há próxima página
             
             stmt = conn.prepareStatement(sql.toString());
             
@@ -204,6 +211,8 @@ public class ListarOrcamentos extends HttpServlet {
             
             rs = stmt.executeQuery();
             
+            Map<Long, JsonObject> porId = new LinkedHashMap<>();
+            
             while (rs.next()) {
                 JsonObject orc = new JsonObject();
                 orc.addProperty("id", rs.getLong("id"));
@@ -212,17 +221,21 @@ public class ListarOrcamentos extends HttpServlet {
                 orc.addProperty("total", rs.getDouble("total"));
                 orc.addProperty("status", rs.getString("status"));
                 orc.addProperty("dataHora", rs.getString("data_hora"));
-                orc.addProperty("qtdLentes", rs.getInt("qtd_lentes"));
-                orc.addProperty("qtdProdutos", rs.getInt("qtd_produtos"));
                 orc.addProperty("vendedor", rs.getString("vendedor"));  // ✅ NOVO
+                orc.add("itens", new JsonArray());
                 
-                // Busca itens do orçamento
-                JsonArray itens = buscarItensOrcamento(conn, rs.getLong("id"));
-                orc.add("itens", itens);
-                
+                porId.put(rs.getLong("id"), orc);
                 orcamentos.add(orc);
             }
             
+            // A linha extra (limit + 1) só indica próxima página: sem itens
+            if (orcamentos.size() > limit) {
+                porId.remove(orcamentos.get(limit).get("id").getAsLong());
+            }
+            
+            // Itens da página inteira em poucas consultas (IN), distribuídos em memória
+            buscarItensOrcamentos(conn, porId);
+            
         } finally {
             if (rs != null) rs.close();
             if (stmt != null) stmt.close();
@@ -233,37 +246,65 @@ public class ListarOrcamentos extends HttpServlet {
     }
 
     /**
-     * Busca itens de um orçamento específico
+     * Busca os itens de todos os orçamentos da página com WHERE orcamento_id IN (...),
+     * em blocos de LOTE_IN ids, e preenche "itens", "qtdLentes" e "qtdProdutos"
+     * de cada orçamento. Número de consultas independe do tamanho da página.
      */
-    private JsonArray buscarItensOrcamento(Connection conn, long orcamentoId) throws SQLException {
-        JsonArray itens = new JsonArray();
+    private void buscarItensOrcamentos(Connection conn, Map<Long, JsonObject> porId) throws SQLException {
+        for (JsonObject orc : porId.values()) {
+            orc.addProperty("qtdLentes", 0);
+            orc.addProperty("qtdProdutos", 0);
+        }
+        if (porId.isEmpty()) return;
         
-        String sql = "SELECT * FROM orcamento_itens WHERE orcamento_id = ? ORDER BY tipo, id";
+        List<Long> ids = new ArrayList<>(porId.keySet());
         
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setLong(1, orcamentoId);
+        for (int inicio = 0; inicio < ids.size(); inicio += LOTE_IN) {
+            List<Long> bloco = ids.subList(inicio, Math.min(inicio + LOTE_IN, ids.size()));
+            
+            StringBuilder sql = new StringBuilder(
+                "SELECT orcamento_id, item_id, tipo, codigo, descricao, marca, olho, quantidade, " +
+                "preco_unitario, preco_total, tratamentos_json, coloracao_json " +
+                "FROM orcamento_itens WHERE orcamento_id IN (");
+            for (int i = 0; i < bloco.size(); i++) {
+                sql.append(i == 0 ? "?" : ",?");
+            }
+            sql.append(") ORDER BY orcamento_id, tipo, id");
             
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    JsonObject item = new JsonObject();
-                    item.addProperty("id", rs.getString("item_id"));
-                    item.addProperty("tipo", rs.getString("tipo"));
-                    item.addProperty("codigo", rs.getInt("codigo"));
-                    item.addProperty("descricao", rs.getString("descricao"));
-                    item.addProperty("marca", rs.getString("marca"));
-                    item.addProperty("olho", rs.getString("olho"));
-                    item.addProperty("quantidade", rs.getDouble("quantidade"));
-                    item.addProperty("precoUnitario", rs.getDouble("preco_unitario"));
-                    item.addProperty("precoTotal", rs.getDouble("preco_total"));
-                    item.addProperty("tratamentos", rs.getString("tratamentos_json"));
-                    item.addProperty("coloracao", rs.getString("coloracao_json"));
-                    
-                    itens.add(item);
+            try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < bloco.size(); i++) {
+                    stmt.setLong(i + 1, bloco.get(i));
+                }
+                
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        JsonObject orc = porId.get(rs.getLong("orcamento_id"));
+                        String tipo = rs.getString("tipo");
+                        
+                        JsonObject item = new JsonObject();
+                        item.addProperty("id", rs.getString("item_id"));
+                        item.addProperty("tipo", tipo);
+                        item.addProperty("codigo", rs.getInt("codigo"));
+                        item.addProperty("descricao", rs.getString("descricao"));
+                        item.addProperty("marca", rs.getString("marca"));
+                        item.addProperty("olho", rs.getString("olho"));
+                        item.addProperty("quantidade", rs.getDouble("quantidade"));
+                        item.addProperty("precoUnitario", rs.getDouble("preco_unitario"));
+                        item.addProperty("precoTotal", rs.getDouble("preco_total"));
+                        item.addProperty("tratamentos", rs.getString("tratamentos_json"));
+                        item.addProperty("coloracao", rs.getString("coloracao_json"));
+                        
+                        orc.getAsJsonArray("itens").add(item);
+                        
+                        if ("lente".equals(tipo)) {
+                            orc.addProperty("qtdLentes", orc.get("qtdLentes").getAsInt() + 1);
+                        } else if ("produto".equals(tipo)) {
+                            orc.addProperty("qtdProdutos", orc.get("qtdProdutos").getAsInt() + 1);
+                        }
+                    }
                 }
             }
         }
-        
-        return itens;
     }
 
     @Override
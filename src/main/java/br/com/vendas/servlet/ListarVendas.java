@@ -14,13 +14,14 @@ import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
+import br.com.vendas.beans.UsuarioPrincipal;
 import br.com.vendas.dao.ConnectionFactory;
+import br.com.vendas.util.CursorPagina;
 import br.com.vendas.util.GsonUtils;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 
 /**
  * ListarVendas.java
@@ -34,6 +35,14 @@ import jakarta.servlet.http.HttpSession;
  * PARÂMETROS:
  * - status: Pendente, Pago, Cancelado, ou vazio para todos
  * - periodo: hoje, semana, mes, todos
+ * - limit: tamanho da página (padrão e máximo 200)
+ * - cursor: proximoCursor da página anterior (paginação por (data, id), sem OFFSET)
+ * 
+ * RESPOSTA: vendas, total, temMais, proximoCursor
+ * 
+ * Índices recomendados para a paginação:
+ *   CREATE INDEX idx_vendas_usuario_data ON vendas (id_usuario, data, id);
+ *   CREATE INDEX idx_vendas_loja_data ON vendas (id_loja, data, id);
  * 
  * FILTRO AUTOMÁTICO:
  * - Filtra por id_usuario da sessão (cada vendedor vê apenas suas vendas)
@@ -43,6 +52,8 @@ import jakarta.servlet.http.HttpSession;
 public class ListarVendas extends HttpServlet {
     private static final long serialVersionUID = 1L;
     
+    private static final int LIMITE_PADRAO = 200;
+    
     private Gson gson = GsonUtils.getGson();
 
     public ListarVendas() {
@@ -60,28 +71,23 @@ public class ListarVendas extends HttpServlet {
         JsonObject resultado = new JsonObject();
         
         try {
-            // ✅ NOVO: Obtém dados do usuário da sessão
-            HttpSession session = request.getSession(false);
-            if (session == null) {
-                throw new Exception("Sessão inválida. Faça login novamente.");
-            }
-            
-            Integer usuarioId = (Integer) session.getAttribute("usuarioId");
-            String usuarioNome = (String) session.getAttribute("usuarioNome");
-            Integer lojaId = (Integer) session.getAttribute("lojaId");
-            String perfilNome = (String) session.getAttribute("perfilNome");
-            
-            if (usuarioId == null) {
+            // Usuário resolvido pelo AuthFilter (token assinado ou sessão)
+            UsuarioPrincipal usuario = UsuarioPrincipal.de(request);
+            if (usuario == null) {
                 throw new Exception("Usuário não autenticado. Faça login novamente.");
             }
             
+            Integer usuarioId = usuario.getUsuarioId();
+            String usuarioNome = usuario.getNome();
+            Integer lojaId = usuario.getLojaId();
+            
             // Verifica se é admin (admin vê todas as vendas da loja)
-            boolean isAdmin = "Admin".equalsIgnoreCase(perfilNome) || 
-                              "Administrador".equalsIgnoreCase(perfilNome) ||
-                              "Gerente".equalsIgnoreCase(perfilNome);
+            boolean isAdmin = usuario.isAdministrador();
             
             String status = request.getParameter("status");
             String periodo = request.getParameter("periodo");
+            CursorPagina cursor = CursorPagina.ler(request.getParameter("cursor"));
+            int limite = CursorPagina.limite(request.getParameter("limit"), LIMITE_PADRAO, LIMITE_PADRAO);
             
             System.out.println("╔════════════════════════════════════════════════════════════════╗");
             System.out.println("║  🧾 LISTANDO VENDAS                                            ║");
@@ -96,7 +102,9 @@ public class ListarVendas extends HttpServlet {
             Connection conn = ConnectionFactory.getInstance().getConnection();
             
             try {
-                JsonArray vendas = buscarVendas(conn, status, periodo, usuarioId, lojaId, isAdmin);
+                JsonArray vendas = buscarVendas(conn, status, periodo, usuarioId, lojaId, isAdmin,
+                                                cursor, limite);
+                CursorPagina.paginar(vendas, limite, "data", resultado);
                 
                 resultado.add("vendas", vendas);
                 resultado.addProperty("total", vendas.size());
@@ -125,7 +133,8 @@ public class ListarVendas extends HttpServlet {
      * ✅ ATUALIZADO: Filtra por usuário ou loja
      */
     private JsonArray buscarVendas(Connection conn, String status, String periodo, 
-                                   Integer usuarioId, Integer lojaId, boolean isAdmin) throws SQLException {
+                                   Integer usuarioId, Integer lojaId, boolean isAdmin,
+                                   CursorPagina cursor, int limite) throws SQLException {
         JsonArray vendas = new JsonArray();
         
         StringBuilder sql = new StringBuilder();
@@ -187,8 +196,18 @@ public class ListarVendas extends HttpServlet {
             }
         }
         
-        sql.append("ORDER BY v.data DESC ");
-        sql.append("LIMIT 200");
+        // Página seguinte: depois da última (data, id) já enviada
+        if (cursor != null) {
+            sql.append("AND (v.data < ? OR (v.data = ? AND v.id < ?)) ");
+            params.add(cursor.getValor());
+            params.add(cursor.getValor());
+            params.add(cursor.getId());
+        }
+        
+        // id desempata vendas na mesma data (ordem estável entre páginas)
+        sql.append("ORDER BY v.data DESC, v.id DESC ");
+        sql.append("LIMIT ?");
+        params.add(limite + 1);  // uma a mais: indica se há próxima página
         
         try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
             // Seta parâmetros
@@ -196,6 +215,8 @@ public class ListarVendas extends HttpServlet {
             for (Object param : params) {
                 if (param instanceof Integer) {
                     stmt.setInt(idx++, (Integer) param);
+                } else if (param instanceof Long) {
+                    stmt.setLong(idx++, (Long) param);
                 } else if (param instanceof String) {
                     stmt.setString(idx++, (String) param);
                 }
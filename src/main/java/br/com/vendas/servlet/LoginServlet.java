@@ -1,15 +1,13 @@
 package br.com.vendas.servlet;
 
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 
-import br.com.vendas.beans.Otica;
-import br.com.vendas.beans.Perfil;
+import br.com.vendas.beans.TipoPerfil;
 import br.com.vendas.beans.Usuario;
-import br.com.vendas.dao.ConnectionFactory;
+import br.com.vendas.beans.UsuarioPrincipal;
+import br.com.vendas.dao.UsuarioDao;
+import br.com.vendas.util.SenhaHash;
+import br.com.vendas.util.TokenSessao;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -57,19 +55,13 @@ public class LoginServlet extends HttpServlet {
             return;
         }
         
-        Connection conn = null;
-        
         try {
-            System.out.println("📡 Obtendo conexão...");
-            conn = ConnectionFactory.getInstance().getConnection();
-            System.out.println("✅ Conexão obtida");
-            
-            // Busca usuário
+            // Busca usuário (índice normalizado + cache curto) e verifica hash no pool limitado
             System.out.println("🔍 Buscando usuário: " + username.trim());
-            Usuario usuario = autenticar(conn, username.trim(), senha.trim());
+            Usuario usuario = UsuarioDao.autenticar(username.trim(), senha.trim());
             
             if (usuario == null) {
-                System.out.println("❌ Usuário ou senha inválidos - autenticar() retornou null");
+                System.out.println("❌ Usuário ou senha inválidos - UsuarioDao.autenticar() retornou null");
                 response.sendRedirect("login.html?error=invalid");
                 return;
             }
@@ -98,6 +90,7 @@ public class LoginServlet extends HttpServlet {
             if (usuario.getPerfil() != null) {
                 session.setAttribute("perfilId", usuario.getPerfil().getId());
                 session.setAttribute("perfilNome", usuario.getPerfil().getNome());
+                session.setAttribute(TipoPerfil.ATRIBUTO_SESSAO, TipoPerfil.deNome(usuario.getPerfil().getNome()));
                 perfilNome = usuario.getPerfil().getNome();
                 System.out.println("👤 Perfil: " + perfilNome);
             } else {
@@ -107,6 +100,21 @@ public class LoginServlet extends HttpServlet {
             // Tempo de sessão: 8 horas
             session.setMaxInactiveInterval(8 * 60 * 60);
             
+            // Identidade tipada para AuthFilter e servlets
+            UsuarioPrincipal principal = new UsuarioPrincipal(
+                    usuario.getId(),
+                    usuario.getNome(),
+                    usuario.getOtica() != null ? usuario.getOtica().getIdOtica() : null,
+                    usuario.getPerfil() != null ? usuario.getPerfil().getId() : null,
+                    usuario.getPerfil() != null ? TipoPerfil.deNome(usuario.getPerfil().getNome()) : null);
+            session.setAttribute(UsuarioPrincipal.ATRIBUTO, principal);
+            
+            // Modo sem sessão fixa: identidade também no cookie assinado
+            TokenSessao tokenSessao = TokenSessao.doContexto(getServletContext());
+            if (tokenSessao != null) {
+                tokenSessao.gravarCookie(request, response, principal);
+            }
+            
             // ✅ NOVO - Determina página de destino baseado no perfil
             String paginaDestino = determinarPaginaDestino(perfilNome);
             
@@ -122,20 +130,14 @@ public class LoginServlet extends HttpServlet {
             
             response.sendRedirect(paginaDestino);
             
+        } catch (SenhaHash.Ocupado e) {
+            System.err.println("⏳ LOGIN RECUSADO (pool de hash ocupado): " + e.getMessage());
+            response.sendRedirect("login.html?error=busy");
+            
         } catch (Exception e) {
             System.err.println("❌ ERRO NO LOGIN: " + e.getMessage());
             e.printStackTrace();
             response.sendRedirect("login.html?error=system");
-            
-        } finally {
-            if (conn != null) {
-                try {
-                    conn.close();
-                    System.out.println("📡 Conexão fechada");
-                } catch (SQLException e) {
-                    e.printStackTrace();
-                }
-            }
         }
     }
 
@@ -150,111 +152,8 @@ public class LoginServlet extends HttpServlet {
             return "index.html"; // Padrão
         }
         
-        // Normaliza o nome do perfil para comparação
-        String perfilLower = perfilNome.toLowerCase().trim();
-        
-        switch (perfilLower) {
-            case "caixa":
-            case "operador de caixa":
-            case "operador_caixa":
-                return "caixa.html";
-                
-            case "vendedor":
-            case "vendedora":
-            case "atendente":
-                return "index.html";
-                
-            case "admin":
-            case "administrador":
-            case "gerente":
-                return "index.html"; // Admins usam o sistema completo
-                
-            default:
-                return "index.html";
-        }
-    }
-
-    /**
-     * Autentica usuário no banco de dados
-     */
-    private Usuario autenticar(Connection conn, String username, String senha) throws SQLException {
-        System.out.println("┌─────────────────────────────────────────────────────────────────");
-        System.out.println("│ 🔐 autenticar() - Executando query                             │");
-        System.out.println("│ Username: " + username);
-        System.out.println("│ Senha: ***");
-        
-        // LOWER() para busca case-insensitive
-        String sql = "SELECT u.id, u.nome, u.username, u.email, u.id_loja, u.id_perfil, " +
-                     "l.nome as loja_nome, l.endereco as loja_endereco, l.cidade as loja_cidade, " +
-                     "l.estado as loja_estado, l.telefone as loja_telefone, " +
-                     "p.nome as perfil_nome " +
-                     "FROM usuario u " +
-                     "LEFT JOIN loja l ON u.id_loja = l.id " +
-                     "LEFT JOIN perfil p ON u.id_perfil = p.id " +
-                     "WHERE LOWER(u.username) = LOWER(?) AND u.senha = ?";
-        
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, username);
-            stmt.setString(2, senha);
-            
-            System.out.println("│ Executando query...");
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    System.out.println("│ ✅ Registro encontrado!");
-                    
-                    Usuario usuario = new Usuario();
-                    usuario.setId(rs.getInt("id"));
-                    usuario.setNome(rs.getString("nome"));
-                    usuario.setUsername(rs.getString("username"));
-                    usuario.setEmail(rs.getString("email"));
-                    
-                    System.out.println("│ ID: " + usuario.getId());
-                    System.out.println("│ Nome: " + usuario.getNome());
-                    
-                    // Loja/Ótica
-                    int idLoja = rs.getInt("id_loja");
-                    System.out.println("│ id_loja: " + idLoja);
-                    
-                    if (idLoja > 0) {
-                        Otica otica = new Otica();
-                        otica.setIdOtica(idLoja);
-                        otica.setNomeOtica(rs.getString("loja_nome"));
-                        otica.setEnderecoOtica(rs.getString("loja_endereco"));
-                        otica.setCidadeOtica(rs.getString("loja_cidade"));
-                        otica.setEstadoOtica(rs.getString("loja_estado"));
-                        otica.setTelefoneOtica(rs.getString("loja_telefone"));
-                        usuario.setOtica(otica);
-                        System.out.println("│ Loja: " + otica.getNomeOtica());
-                    }
-                    
-                    // Perfil
-                    int idPerfil = rs.getInt("id_perfil");
-                    System.out.println("│ id_perfil: " + idPerfil);
-                    
-                    if (idPerfil > 0) {
-                        Perfil perfil = new Perfil();
-                        perfil.setId(idPerfil);
-                        perfil.setNome(rs.getString("perfil_nome"));
-                        usuario.setPerfil(perfil);
-                        System.out.println("│ Perfil: " + perfil.getNome());
-                    }
-                    
-                    System.out.println("│ ✅ Usuario criado com sucesso");
-                    System.out.println("└─────────────────────────────────────────────────────────────────");
-                    return usuario;
-                } else {
-                    System.out.println("│ ❌ Nenhum registro encontrado");
-                    System.out.println("└─────────────────────────────────────────────────────────────────");
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("│ ❌ ERRO SQL: " + e.getMessage());
-            System.out.println("└─────────────────────────────────────────────────────────────────");
-            throw e;
-        }
-        
-        return null;
+        // Mesma normalização gravada na sessão para o AuthFilter
+        return TipoPerfil.deNome(perfilNome).paginaInicial();
     }
 
     @Override
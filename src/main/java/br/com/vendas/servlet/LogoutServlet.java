@@ -1,7 +1,10 @@
 package br.com.vendas.servlet;
 
 import java.io.IOException;
+import java.sql.SQLException;
 
+import br.com.vendas.beans.UsuarioPrincipal;
+import br.com.vendas.util.TokenSessao;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -17,6 +20,9 @@ import jakarta.servlet.http.HttpSession;
  * GET /Logout
  * POST /Logout
  * 
+ * Com token assinado ativo, o logout revoga os tokens do usuário em todos
+ * os dispositivos (TokenSessao.revogar).
+ * 
  * REDIRECIONA:
  * - login.html
  * 
@@ -44,6 +50,20 @@ public class LogoutServlet extends HttpServlet {
     private void realizarLogout(HttpServletRequest request, HttpServletResponse response)
             throws IOException {
         
+        // Token assinado (se o modo estiver ativo): revoga antes de apagar o cookie,
+        // senão uma cópia do token continuaria valendo até expirar
+        TokenSessao tokenSessao = TokenSessao.doContexto(getServletContext());
+        if (tokenSessao != null) {
+            UsuarioPrincipal usuario = tokenSessao.verificar(request);
+            if (usuario != null) {
+                try {
+                    tokenSessao.revogar(usuario.getUsuarioId());
+                } catch (SQLException e) {
+                    System.err.println("❌ LOGOUT - falha ao revogar token: " + e.getMessage());
+                }
+            }
+        }
+        
         HttpSession session = request.getSession(false);
         
         if (session != null) {
@@ -60,6 +80,9 @@ public class LogoutServlet extends HttpServlet {
             session.invalidate();
         }
         
+        // Remove o token assinado (se o modo estiver ativo)
+        TokenSessao.removerCookie(request, response);
+        
         // Redireciona para login
         response.sendRedirect("login.html");
     }
@@ -5,6 +5,7 @@ import java.io.PrintWriter;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -16,13 +17,16 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
+import br.com.vendas.beans.UsuarioPrincipal;
 import br.com.vendas.dao.ConnectionFactory;
+import br.com.vendas.dao.GravadorAgrupado;
+import br.com.vendas.dao.ResumoOrcamentos;
+import br.com.vendas.util.Dinheiro;
 import br.com.vendas.util.GsonUtils;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 
 /**
  * SalvarOrcamento.java
@@ -44,11 +48,33 @@ public class SalvarOrcamento extends HttpServlet {
     
     @SuppressWarnings("deprecation")
     private JsonParser jsonParser = new JsonParser();
+    
+    // Commit agrupado (null = desligado, grava direto)
+    private GravadorAgrupado gravador;
 
     public SalvarOrcamento() {
         super();
     }
 
+    @Override
+    public void init() throws ServletException {
+        gravador = GravadorAgrupado.configurar(getServletContext(), "orcamentos");
+        
+        // Tabela do resumo diário criada fora de transação (CREATE = commit implícito)
+        try (Connection conn = ConnectionFactory.getInstance().getConnection()) {
+            ResumoOrcamentos.garantirEstrutura(conn);
+        } catch (Exception e) {
+            System.err.println("⚠️ Resumo diário de orçamentos não verificado: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (gravador != null) {
+            gravador.encerrar();
+        }
+    }
+
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
@@ -60,20 +86,16 @@ public class SalvarOrcamento extends HttpServlet {
         JsonObject resultado = new JsonObject();
         
         try {
-            // ✅ NOVO: Obtém dados do usuário da sessão
-            HttpSession session = request.getSession(false);
-            if (session == null) {
-                throw new Exception("Sessão inválida. Faça login novamente.");
-            }
-            
-            Integer usuarioId = (Integer) session.getAttribute("usuarioId");
-            String usuarioNome = (String) session.getAttribute("usuarioNome");
-            Integer lojaId = (Integer) session.getAttribute("lojaId");
-            
-            if (usuarioId == null) {
+            // Usuário resolvido pelo AuthFilter (token assinado ou sessão)
+            UsuarioPrincipal usuario = UsuarioPrincipal.de(request);
+            if (usuario == null) {
                 throw new Exception("Usuário não autenticado. Faça login novamente.");
             }
             
+            Integer usuarioId = usuario.getUsuarioId();
+            String usuarioNome = usuario.getNome();
+            Integer lojaId = usuario.getLojaId();
+            
             // ========================================
             // 1. RECUPERA DADOS DO REQUEST
             // ========================================
@@ -148,7 +170,7 @@ public class SalvarOrcamento extends HttpServlet {
             orcamento.clienteNome = clienteNome;
             orcamento.lentes = lentes;
             orcamento.produtos = produtos;
-            orcamento.total = totalStr != null ? Double.parseDouble(totalStr) : 0.0;
+            orcamento.total = totalStr != null && !totalStr.isEmpty() ? Dinheiro.parse(totalStr) : Dinheiro.ZERO;
             orcamento.dataHora = LocalDateTime.now();
             orcamento.status = "PENDENTE";
             orcamento.usuarioId = usuarioId;      // ✅ NOVO
@@ -159,7 +181,20 @@ public class SalvarOrcamento extends HttpServlet {
             // 5. SALVA NO BANCO DE DADOS
             // ========================================
             
-            Long orcamentoId = salvarNoBanco(orcamento, lentes, produtos);
+            Long orcamentoId;
+            try {
+                orcamentoId = salvarNoBanco(orcamento, lentes, produtos);
+            } catch (GravadorAgrupado.ResultadoIncerto e) {
+                // Lote sem desfecho: pode ter gravado, então não é falha (reenviar duplicaria)
+                System.err.println("⚠️ Orçamento com gravação não confirmada: " + e.getMessage());
+                resultado.addProperty("success", false);
+                resultado.addProperty("resultadoIncerto", true);
+                resultado.addProperty("message", "Não foi possível confirmar se o orçamento foi salvo. " +
+                        "Confira a lista de orçamentos antes de salvar novamente.");
+                out.print(gson.toJson(resultado));
+                out.flush();
+                return;
+            }
             
             if (orcamentoId == null) {
                 throw new Exception("Falha ao salvar orçamento no banco");
@@ -177,7 +212,7 @@ public class SalvarOrcamento extends HttpServlet {
             resultado.addProperty("orcamentoId", orcamentoId);
             resultado.addProperty("quantidadeLentes", lentes.size());
             resultado.addProperty("quantidadeProdutos", produtos.size());
-            resultado.addProperty("total", orcamento.total);
+            resultado.addProperty("total", orcamento.total.doubleValue());
             
         } catch (Exception e) {
             System.err.println("❌ Erro ao salvar orçamento: " + e.getMessage());
@@ -211,8 +246,8 @@ public class SalvarOrcamento extends HttpServlet {
         item.adicao = getDoubleSeguro(obj, "adicao");
         item.unidade = getStringSeguro(obj, "unidade");
         item.quantidade = getDoubleSeguro(obj, "quantidade");
-        item.precoUnitario = getDoubleSeguro(obj, "precoUnitario");
-        item.precoTotal = getDoubleSeguro(obj, "precoTotal");
+        item.precoUnitario = getDinheiroSeguro(obj, "precoUnitario");
+        item.precoTotal = getDinheiroSeguro(obj, "precoTotal");
         
         // Processa tratamentos
         if (obj.has("tratamentos") && obj.get("tratamentos").isJsonArray()) {
@@ -223,7 +258,7 @@ public class SalvarOrcamento extends HttpServlet {
                 Tratamento trat = new Tratamento();
                 trat.codigo = getIntSeguro(tratObj, "codigo");
                 trat.nome = getStringSeguro(tratObj, "nome");
-                trat.valor = getDoubleSeguro(tratObj, "valor");
+                trat.valor = getDinheiroSeguro(tratObj, "valor");
                 item.tratamentos.add(trat);
             }
         }
@@ -234,7 +269,7 @@ public class SalvarOrcamento extends HttpServlet {
             item.coloracao = new Coloracao();
             item.coloracao.nome = getStringSeguro(corObj, "nome");
             item.coloracao.tipo = getStringSeguro(corObj, "tipo");
-            item.coloracao.valor = getDoubleSeguro(corObj, "valor");
+            item.coloracao.valor = getDinheiroSeguro(corObj, "valor");
             item.coloracao.hex = getStringSeguro(corObj, "hex");
         }
         
@@ -254,8 +289,8 @@ public class SalvarOrcamento extends HttpServlet {
         item.descricao = getStringSeguro(obj, "descricao");
         item.unidade = getStringSeguro(obj, "unidade");
         item.quantidade = getDoubleSeguro(obj, "quantidade");
-        item.precoUnitario = getDoubleSeguro(obj, "precoUnitario");
-        item.precoTotal = getDoubleSeguro(obj, "precoTotal");
+        item.precoUnitario = getDinheiroSeguro(obj, "precoUnitario");
+        item.precoTotal = getDinheiroSeguro(obj, "precoTotal");
         
         return item;
     }
@@ -281,6 +316,12 @@ public class SalvarOrcamento extends HttpServlet {
         }
         return 0.0;
     }
+    
+    // Valor monetário lido do texto do número (centavos exatos)
+    private Dinheiro getDinheiroSeguro(JsonObject obj, String key) {
+        String texto = getStringSeguro(obj, key);
+        return texto != null && !texto.isEmpty() ? Dinheiro.parse(texto) : Dinheiro.ZERO;
+    }
 
     // ========================================
     // PERSISTÊNCIA NO BANCO
@@ -289,28 +330,49 @@ public class SalvarOrcamento extends HttpServlet {
     /**
      * Salva orçamento e itens no banco de dados
      * ✅ ATUALIZADO: Agora salva id_usuario, vendedor e id_loja
+     * 
+     * Com gravacaoAgrupada.ativo, entra no lote do GravadorAgrupado (um COMMIT
+     * para vários orçamentos simultâneos); o id só volta após o COMMIT.
+     * Lote sem desfecho (ResultadoIncerto) sobe para o chamador em vez de virar falha.
      */
-    private Long salvarNoBanco(Orcamento orcamento, List<ItemOrcamento> lentes, List<ItemOrcamento> produtos) {
-        Connection conn = null;
-        PreparedStatement stmtOrcamento = null;
-        PreparedStatement stmtItem = null;
-        ResultSet rs = null;
+    private Long salvarNoBanco(Orcamento orcamento, List<ItemOrcamento> lentes, List<ItemOrcamento> produtos)
+            throws GravadorAgrupado.ResultadoIncerto {
+        GravadorAgrupado.Gravacao gravacao = conn -> inserir(conn, orcamento, lentes, produtos);
         
         try {
-            conn = ConnectionFactory.getInstance().getConnection();
-            conn.setAutoCommit(false);
-            
-            // 1. Insere orçamento principal - ✅ ATUALIZADO com campos de usuário
-            // Usa vendedor_id (campo existente na tabela)
-            String sqlOrcamento = 
-                "INSERT INTO orcamentos (cliente_id, cliente_nome, total, status, data_hora, " +
-                "vendedor_id, id_loja, vendedor) " +
-                "VALUES (?, ?, ?, ?, NOW(), ?, ?, ?)";
+            Long orcamentoId = gravador != null ? gravador.gravar(gravacao) : null;
+            if (orcamentoId == null) {
+                // Modo desligado ou fila cheia: transação própria
+                orcamentoId = GravadorAgrupado.gravarDireto(gravacao);
+            }
+            return orcamentoId;
             
-            stmtOrcamento = conn.prepareStatement(sqlOrcamento, Statement.RETURN_GENERATED_KEYS);
+        } catch (GravadorAgrupado.ResultadoIncerto e) {
+            throw e;
+        } catch (Exception e) {
+            System.err.println("❌ Erro ao salvar no banco: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * INSERT do orçamento e dos itens na transação recebida (sem commit).
+     */
+    private Long inserir(Connection conn, Orcamento orcamento, List<ItemOrcamento> lentes,
+                         List<ItemOrcamento> produtos) throws SQLException {
+        // 1. Insere orçamento principal - ✅ ATUALIZADO com campos de usuário
+        // Usa vendedor_id (campo existente na tabela)
+        String sqlOrcamento = 
+            "INSERT INTO orcamentos (cliente_id, cliente_nome, total, status, data_hora, " +
+            "vendedor_id, id_loja, vendedor) " +
+            "VALUES (?, ?, ?, ?, NOW(), ?, ?, ?)";
+        
+        Long orcamentoId;
+        try (PreparedStatement stmtOrcamento = conn.prepareStatement(sqlOrcamento, Statement.RETURN_GENERATED_KEYS)) {
             stmtOrcamento.setObject(1, orcamento.clienteId);
             stmtOrcamento.setString(2, orcamento.clienteNome);
-            stmtOrcamento.setDouble(3, orcamento.total);
+            Dinheiro.vincular(stmtOrcamento, 3, orcamento.total);
             stmtOrcamento.setString(4, "PENDENTE");
             stmtOrcamento.setObject(5, orcamento.usuarioId);    // ✅ vendedor_id
             stmtOrcamento.setObject(6, orcamento.lojaId);       // ✅ id_loja
@@ -319,22 +381,26 @@ public class SalvarOrcamento extends HttpServlet {
             stmtOrcamento.executeUpdate();
             
             // Recupera ID gerado
-            rs = stmtOrcamento.getGeneratedKeys();
-            if (!rs.next()) {
-                throw new Exception("Não foi possível obter ID do orçamento");
+            try (ResultSet rs = stmtOrcamento.getGeneratedKeys()) {
+                if (!rs.next()) {
+                    throw new SQLException("Não foi possível obter ID do orçamento");
+                }
+                orcamentoId = rs.getLong(1);
             }
-            Long orcamentoId = rs.getLong(1);
-            
-            // 2. Insere itens (lentes)
-            String sqlItem = 
-                "INSERT INTO orcamento_itens " +
-                "(orcamento_id, item_id, tipo, codigo, codigo_web, marca, familia, descricao, " +
-                " olho, esf, cil, eixo, adicao, unidade, quantidade, preco_unitario, preco_total, " +
-                " tratamentos_json, coloracao_json) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-            
-            stmtItem = conn.prepareStatement(sqlItem);
-            
+        }
+        
+        // Resumo diário do dashboard, na mesma transação
+        ResumoOrcamentos.registrarNovo(conn, orcamento.lojaId, "PENDENTE", orcamento.total);
+        
+        // 2. Insere itens (lentes)
+        String sqlItem = 
+            "INSERT INTO orcamento_itens " +
+            "(orcamento_id, item_id, tipo, codigo, codigo_web, marca, familia, descricao, " +
+            " olho, esf, cil, eixo, adicao, unidade, quantidade, preco_unitario, preco_total, " +
+            " tratamentos_json, coloracao_json) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        
+        try (PreparedStatement stmtItem = conn.prepareStatement(sqlItem)) {
             for (ItemOrcamento item : lentes) {
                 stmtItem.setLong(1, orcamentoId);
                 stmtItem.setString(2, item.id);
@@ -351,11 +417,11 @@ public class SalvarOrcamento extends HttpServlet {
                 stmtItem.setDouble(13, item.adicao);
                 stmtItem.setString(14, item.unidade);
                 stmtItem.setDouble(15, item.quantidade);
-                stmtItem.setDouble(16, item.precoUnitario);
-                stmtItem.setDouble(17, item.precoTotal);
+                Dinheiro.vincular(stmtItem, 16, item.precoUnitario);
+                Dinheiro.vincular(stmtItem, 17, item.precoTotal);
                 stmtItem.setString(18, item.tratamentos != null ? gson.toJson(item.tratamentos) : null);
                 stmtItem.setString(19, item.coloracao != null ? gson.toJson(item.coloracao) : null);
-                
+            
                 stmtItem.addBatch();
             }
             
@@ -376,48 +442,18 @@ public class SalvarOrcamento extends HttpServlet {
                 stmtItem.setDouble(13, 0);
                 stmtItem.setString(14, item.unidade);
                 stmtItem.setDouble(15, item.quantidade);
-                stmtItem.setDouble(16, item.precoUnitario);
-                stmtItem.setDouble(17, item.precoTotal);
+                Dinheiro.vincular(stmtItem, 16, item.precoUnitario);
+                Dinheiro.vincular(stmtItem, 17, item.precoTotal);
                 stmtItem.setString(18, null);
                 stmtItem.setString(19, null);
-                
+            
                 stmtItem.addBatch();
             }
             
             stmtItem.executeBatch();
-            
-            // Commit
-            conn.commit();
-            
-            return orcamentoId;
-            
-        } catch (Exception e) {
-            System.err.println("❌ Erro ao salvar no banco: " + e.getMessage());
-            e.printStackTrace();
-            
-            if (conn != null) {
-                try {
-                    conn.rollback();
-                } catch (Exception ex) {
-                    ex.printStackTrace();
-                }
-            }
-            
-            return null;
-            
-        } finally {
-            try {
-                if (rs != null) rs.close();
-                if (stmtItem != null) stmtItem.close();
-                if (stmtOrcamento != null) stmtOrcamento.close();
-                if (conn != null) {
-                    conn.setAutoCommit(true);
-                    conn.close();
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
         }
+        
+        return orcamentoId;
     }
 
     // ========================================
@@ -432,7 +468,7 @@ public class SalvarOrcamento extends HttpServlet {
         public String clienteNome;
         public List<ItemOrcamento> lentes;
         public List<ItemOrcamento> produtos;
-        public double total;
+        public Dinheiro total;
         public LocalDateTime dataHora;
         public String status;
         public Integer usuarioId;     // ✅ NOVO
@@ -457,8 +493,8 @@ public class SalvarOrcamento extends HttpServlet {
         public double adicao;
         public String unidade;
         public double quantidade;
-        public double precoUnitario;
-        public double precoTotal;
+        public Dinheiro precoUnitario;
+        public Dinheiro precoTotal;
         public List<Tratamento> tratamentos;
         public Coloracao coloracao;
     }
@@ -468,7 +504,7 @@ public class SalvarOrcamento extends HttpServlet {
         
         public int codigo;
         public String nome;
-        public double valor;
+        public Dinheiro valor;  // gravado no JSON como número (GsonUtils)
     }
 
     public static class Coloracao implements java.io.Serializable {
@@ -476,7 +512,7 @@ public class SalvarOrcamento extends HttpServlet {
         
         public String nome;
         public String tipo;
-        public double valor;
+        public Dinheiro valor;
         public String hex;
     }
 }
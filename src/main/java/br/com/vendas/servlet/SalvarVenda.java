@@ -12,17 +12,20 @@ import java.sql.Types;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
+import br.com.vendas.beans.UsuarioPrincipal;
+import br.com.vendas.dao.ChavesIdempotencia;
 import br.com.vendas.dao.ConnectionFactory;
+import br.com.vendas.dao.VendaDao;
+import br.com.vendas.util.CacheAgregados;
+import br.com.vendas.util.Dinheiro;
 import br.com.vendas.util.GsonUtils;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 
 /**
  * SalvarVenda.java
@@ -38,6 +41,11 @@ import jakarta.servlet.http.HttpSession;
  * - usuarioNome: Nome do vendedor
  * - lojaId: ID da loja do usuário
  * 
+ * IDEMPOTÊNCIA:
+ * - "chave_idempotencia" (opcional, gerada pelo front por checkout): a mesma
+ *   chave reenviada devolve vendaId/idPedido da venda já gravada, com
+ *   "repetida": true, sem gravar de novo (ver ChavesIdempotencia)
+ * 
  * @author OptoFreela
  */
 public class SalvarVenda extends HttpServlet {
@@ -62,20 +70,16 @@ public class SalvarVenda extends HttpServlet {
         Connection conn = null;
         
         try {
-            // ✅ NOVO: Obtém dados do usuário da sessão
-            HttpSession session = request.getSession(false);
-            if (session == null) {
-                throw new Exception("Sessão inválida. Faça login novamente.");
-            }
-            
-            Integer usuarioId = (Integer) session.getAttribute("usuarioId");
-            String usuarioNome = (String) session.getAttribute("usuarioNome");
-            Integer lojaId = (Integer) session.getAttribute("lojaId");
-            
-            if (usuarioId == null) {
+            // Usuário resolvido pelo AuthFilter (token assinado ou sessão)
+            UsuarioPrincipal usuario = UsuarioPrincipal.de(request);
+            if (usuario == null) {
                 throw new Exception("Usuário não autenticado. Faça login novamente.");
             }
             
+            Integer usuarioId = usuario.getUsuarioId();
+            String usuarioNome = usuario.getNome();
+            Integer lojaId = usuario.getLojaId();
+            
             // Lê o body JSON
             StringBuilder sb = new StringBuilder();
             BufferedReader reader = request.getReader();
@@ -103,17 +107,18 @@ public class SalvarVenda extends HttpServlet {
             
             String clienteCpf = getStringOrNull(dados, "cliente_cpf");
             String clienteTelefone = getStringOrNull(dados, "cliente_telefone");
-            double subtotal = dados.has("subtotal") ? dados.get("subtotal").getAsDouble() : 0;
+            Dinheiro subtotal = getDinheiro(dados, "subtotal");
             String descontoTipo = getStringOrNull(dados, "desconto_tipo");
-            double descontoValor = dados.has("desconto_valor") ? dados.get("desconto_valor").getAsDouble() : 0;
-            double total = dados.has("total") ? dados.get("total").getAsDouble() : 0;
+            Dinheiro descontoValor = getDinheiro(dados, "desconto_valor");
+            Dinheiro total = getDinheiro(dados, "total");
             String observacoes = getStringOrNull(dados, "observacoes");
+            String chaveIdempotencia = getStringOrNull(dados, "chave_idempotencia");
             
             JsonArray itens = dados.has("itens") ? dados.get("itens").getAsJsonArray() : new JsonArray();
             JsonArray pagamentos = dados.has("pagamentos") ? dados.get("pagamentos").getAsJsonArray() : new JsonArray();
             
             System.out.println("Cliente: " + clienteNome);
-            System.out.println("Total: R$ " + total);
+            System.out.println("Total: " + total.formatar());
             System.out.println("Itens: " + itens.size());
             
             // Validações
@@ -129,29 +134,58 @@ public class SalvarVenda extends HttpServlet {
                 throw new Exception("A venda deve ter pelo menos uma forma de pagamento");
             }
             
+            if (chaveIdempotencia != null && !ChavesIdempotencia.chaveValida(chaveIdempotencia)) {
+                throw new Exception("Chave de idempotência inválida");
+            }
+            
             // Conexão com banco
             conn = ConnectionFactory.getInstance().getConnection();
+            
+            if (chaveIdempotencia != null) {
+                // Fora da transação (CREATE TABLE / DELETE em autocommit)
+                ChavesIdempotencia.garantirEstrutura(conn);
+                ChavesIdempotencia.limparExpiradas(conn);
+            }
+            
             conn.setAutoCommit(false);
             
             try {
+                // 0. Reservar a chave (retry da mesma venda devolve a já gravada)
+                if (chaveIdempotencia != null) {
+                    ChavesIdempotencia.Registro anterior =
+                            ChavesIdempotencia.reservar(conn, usuarioId, chaveIdempotencia);
+                    if (anterior != null) {
+                        conn.rollback();
+                        
+                        resultado.addProperty("success", true);
+                        resultado.addProperty("vendaId", anterior.vendaId);
+                        resultado.addProperty("idPedido", anterior.idPedido);
+                        resultado.addProperty("repetida", true);
+                        resultado.addProperty("message", "Venda já registrada");
+                        
+                        System.out.println("🔁 Venda repetida (chave " + chaveIdempotencia + "): ID=" +
+                                anterior.vendaId + ", Pedido=" + anterior.idPedido);
+                        
+                        out.print(gson.toJson(resultado));
+                        out.flush();
+                        return;
+                    }
+                }
+                
                 // 1. Gerar ID do pedido
-                long idPedido = gerarIdPedido(conn);
+                long idPedido = VendaDao.gerarIdPedido();
                 
                 // 2. Determinar tipo de venda
                 String tipoVenda = "normal";
                 Long idEmpresaConvenio = null;
                 String numeroAutorizacao = null;
                 
-                for (JsonElement elem : pagamentos) {
-                    JsonObject pag = elem.getAsJsonObject();
-                    String forma = getStringOrNull(pag, "forma");
-                    if ("CONVENIO".equals(forma)) {
-                        tipoVenda = "convenio";
-                        idEmpresaConvenio = pag.has("convenio_id") && !pag.get("convenio_id").isJsonNull() 
-                            ? pag.get("convenio_id").getAsLong() : null;
-                        numeroAutorizacao = getStringOrNull(pag, "autorizacao");
-                        break;
-                    }
+                JsonObject pagConvenio = VendaDao.pagamentoConvenio(pagamentos);
+                if (pagConvenio != null) {
+                    tipoVenda = "convenio";
+                    idEmpresaConvenio = pagConvenio.has("convenio_id") && !pagConvenio.get("convenio_id").isJsonNull() 
+                        ? pagConvenio.get("convenio_id").getAsLong() : null;
+                    numeroAutorizacao = getStringOrNull(pagConvenio, "autorizacao");
                 }
                 
                 // 3. Inserir venda - ✅ ATUALIZADO: usa id_usuario e id_loja da sessão
@@ -177,10 +211,10 @@ public class SalvarVenda extends HttpServlet {
                     }
                     
                     stmt.setString(idx++, usuarioNome);  // ✅ Nome do vendedor da sessão
-                    stmt.setDouble(idx++, subtotal);
-                    stmt.setDouble(idx++, descontoValor);
+                    Dinheiro.vincular(stmt, idx++, subtotal);
+                    Dinheiro.vincular(stmt, idx++, descontoValor);
                     stmt.setString(idx++, descontoTipo != null ? descontoTipo : "valor");
-                    stmt.setDouble(idx++, total);
+                    Dinheiro.vincular(stmt, idx++, total);
                     stmt.setString(idx++, observacoes);
                     stmt.setString(idx++, tipoVenda);
                     
@@ -204,95 +238,23 @@ public class SalvarVenda extends HttpServlet {
                 
                 System.out.println("✅ Venda inserida: ID=" + vendaId + ", Pedido=" + idPedido);
                 
-                // 4. Inserir itens
-                // ✅ CORRIGIDO: Combina tratamentos + coloração em um único JSON
-                String sqlItem = 
-                    "INSERT INTO itens_venda (id_venda, id_produto, descricao, quantidade, " +
-                    "preco_unitario, preco_tabela, subtotal, tratamentos, unidade, tipo) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-                
-                try (PreparedStatement stmt = conn.prepareStatement(sqlItem)) {
-                    for (JsonElement elem : itens) {
-                        JsonObject item = elem.getAsJsonObject();
-                        
-                        stmt.setLong(1, vendaId);
-                        stmt.setLong(2, item.has("codigo") ? item.get("codigo").getAsLong() : 0);
-                        stmt.setString(3, getStringOrNull(item, "descricao"));
-                        stmt.setDouble(4, item.has("quantidade") ? item.get("quantidade").getAsDouble() : 1);
-                        stmt.setDouble(5, item.has("preco_unitario") ? item.get("preco_unitario").getAsDouble() : 0);
-                        stmt.setDouble(6, item.has("preco_unitario") ? item.get("preco_unitario").getAsDouble() : 0);
-                        stmt.setDouble(7, item.has("preco_total") ? item.get("preco_total").getAsDouble() : 0);
-                        
-                        // ✅ NOVO: Combina tratamentos + coloração em um único JSON
-                        String tratamentosJson = montarTratamentosJson(item);
-                        if (tratamentosJson != null && !tratamentosJson.equals("[]")) {
-                            stmt.setString(8, tratamentosJson);
-                        } else {
-                            stmt.setNull(8, Types.VARCHAR);
-                        }
-                        
-                        stmt.setString(9, getStringOrNull(item, "unidade"));
-                        stmt.setString(10, getStringOrNull(item, "tipo"));
-                        
-                        stmt.addBatch();
-                    }
-                    
-                    stmt.executeBatch();
-                }
+                // 4. Inserir itens (INSERT de várias linhas; tratamentos + coloração num único JSON)
+                VendaDao.inserirItens(conn, vendaId, itens);
                 
                 System.out.println("✅ " + itens.size() + " itens inseridos");
                 
                 // 5. Inserir pagamentos na tabela: venda_pagamentos
-                String sqlPagamento = 
-                    "INSERT INTO venda_pagamentos (id_venda, forma_pagamento, valor, parcelas, " +
-                    "valor_parcela, bandeira, id_empresa_convenio, id_funcionario_convenio, " +
-                    "numero_autorizacao, status, observacoes) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 'PENDENTE', ?)";
-                
-                try (PreparedStatement stmt = conn.prepareStatement(sqlPagamento)) {
-                    for (JsonElement elem : pagamentos) {
-                        JsonObject pag = elem.getAsJsonObject();
-                        
-                        String forma = getStringOrNull(pag, "forma");
-                        double valor = pag.has("valor") ? pag.get("valor").getAsDouble() : 0;
-                        int parcelas = pag.has("parcelas") ? pag.get("parcelas").getAsInt() : 1;
-                        double valorParcela = parcelas > 0 ? valor / parcelas : valor;
-                        String bandeira = getStringOrNull(pag, "bandeira");
-                        String observacao = montarObservacaoPagamento(forma, bandeira, parcelas);
-                        
-                        stmt.setLong(1, vendaId);  // id_venda = vendas.id (auto-increment)
-                        stmt.setString(2, forma);   // forma_pagamento
-                        stmt.setDouble(3, valor);
-                        stmt.setInt(4, parcelas);
-                        stmt.setDouble(5, valorParcela);
-                        stmt.setString(6, bandeira);
-                        
-                        // Convênio
-                        if (pag.has("convenio_id") && !pag.get("convenio_id").isJsonNull()) {
-                            stmt.setLong(7, pag.get("convenio_id").getAsLong());
-                        } else {
-                            stmt.setNull(7, Types.BIGINT);
-                        }
-                        
-                        if (pag.has("funcionario_convenio_id") && !pag.get("funcionario_convenio_id").isJsonNull()) {
-                            stmt.setLong(8, pag.get("funcionario_convenio_id").getAsLong());
-                        } else {
-                            stmt.setNull(8, Types.BIGINT);
-                        }
-                        
-                        stmt.setString(9, getStringOrNull(pag, "autorizacao"));
-                        stmt.setString(10, observacao);
-                        
-                        stmt.addBatch();
-                    }
-                    
-                    stmt.executeBatch();
-                }
+                VendaDao.inserirPagamentos(conn, vendaId, pagamentos);
                 
                 System.out.println("✅ " + pagamentos.size() + " pagamentos inseridos");
                 
+                if (chaveIdempotencia != null) {
+                    ChavesIdempotencia.concluir(conn, usuarioId, chaveIdempotencia, vendaId, idPedido);
+                }
+                
                 // Commit
                 conn.commit();
+                CacheAgregados.invalidar(CaixaRecebimentoServlet.CACHE_TOTALIZADORES_NOME);
                 
                 resultado.addProperty("success", true);
                 resultado.addProperty("vendaId", vendaId);
@@ -332,22 +294,6 @@ public class SalvarVenda extends HttpServlet {
         out.flush();
     }
 
-    /**
-     * Gera próximo ID de pedido
-     */
-    private long gerarIdPedido(Connection conn) throws SQLException {
-        String sql = "SELECT COALESCE(MAX(id_pedido), 0) + 1 FROM vendas";
-        
-        try (PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            if (rs.next()) {
-                return rs.getLong(1);
-            }
-        }
-        
-        return 1;
-    }
-
     /**
      * Obtém string ou null de um JsonObject
      */
@@ -359,80 +305,10 @@ public class SalvarVenda extends HttpServlet {
     }
     
     /**
-     * ✅ Combina tratamentos + coloração em um único JSON
-     * 
-     * Estrutura resultante:
-     * [
-     *   { "tipo": "antireflexo", "codigo": 123, "nome": "Crizal Easy", "valor": 150.00 },
-     *   { "tipo": "coloracao", "codigo": 456, "nome": "Marrom Degradê", "valor": 50.00, "hex": "#8B4513" }
-     * ]
+     * Valor monetário do JSON, lido do texto do número (centavos exatos); ausente = zero
      */
-    private String montarTratamentosJson(JsonObject item) {
-        JsonArray resultado = new JsonArray();
-        
-        // 1. Adiciona tratamentos (usa tipo do frontend ou fallback para 'antireflexo')
-        if (item.has("tratamentos") && item.get("tratamentos").isJsonArray()) {
-            JsonArray tratamentos = item.get("tratamentos").getAsJsonArray();
-            for (JsonElement t : tratamentos) {
-                if (t.isJsonObject()) {
-                    JsonObject trat = t.getAsJsonObject();
-                    JsonObject novoTrat = new JsonObject();
-                    
-                    // Usa tipo do frontend ou fallback
-                    if (trat.has("tipo") && !trat.get("tipo").isJsonNull()) {
-                        novoTrat.add("tipo", trat.get("tipo"));
-                    } else {
-                        novoTrat.addProperty("tipo", "antireflexo");
-                    }
-                    
-                    if (trat.has("codigo")) novoTrat.add("codigo", trat.get("codigo"));
-                    if (trat.has("nome")) novoTrat.add("nome", trat.get("nome"));
-                    if (trat.has("valor")) novoTrat.add("valor", trat.get("valor"));
-                    
-                    resultado.add(novoTrat);
-                }
-            }
-        }
-        
-        // 2. Adiciona coloração (se existir)
-        if (item.has("coloracao") && !item.get("coloracao").isJsonNull()) {
-            JsonElement coloracaoEl = item.get("coloracao");
-            
-            if (coloracaoEl.isJsonObject()) {
-                JsonObject coloracao = coloracaoEl.getAsJsonObject();
-                JsonObject novaColoracao = new JsonObject();
-                novaColoracao.addProperty("tipo", "coloracao");
-                
-                if (coloracao.has("nome")) novaColoracao.add("nome", coloracao.get("nome"));
-                if (coloracao.has("valor")) novaColoracao.add("valor", coloracao.get("valor"));
-                if (coloracao.has("hex")) novaColoracao.add("hex", coloracao.get("hex"));
-                if (coloracao.has("tipo")) {
-                    // Tipo da coloração (Total, Degradê) - renomeia para evitar conflito
-                    novaColoracao.add("tipoColoracao", coloracao.get("tipo"));
-                }
-                
-                resultado.add(novaColoracao);
-            }
-        }
-        
-        return gson.toJson(resultado);
-    }
-    
-    /**
-     * ✅ Monta observação do pagamento
-     */
-    private String montarObservacaoPagamento(String forma, String bandeira, int parcelas) {
-        StringBuilder obs = new StringBuilder();
-        
-        if (bandeira != null && !bandeira.isEmpty()) {
-            obs.append(bandeira);
-        }
-        
-        if (parcelas > 1) {
-            if (obs.length() > 0) obs.append(" - ");
-            obs.append(parcelas).append("x");
-        }
-        
-        return obs.length() > 0 ? obs.toString() : null;
+    private Dinheiro getDinheiro(JsonObject obj, String key) {
+        String texto = getStringOrNull(obj, key);
+        return texto != null && !texto.isEmpty() ? Dinheiro.parse(texto) : Dinheiro.ZERO;
     }
 }
@@ -17,6 +17,7 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
 import br.com.vendas.dao.ConnectionFactory;
+import br.com.vendas.dao.VendaDao;
 import br.com.vendas.util.GsonUtils;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
@@ -134,8 +135,8 @@ public class SalvarVenda2 extends HttpServlet {
             conn.setAutoCommit(false);
             
             try {
-                // 1. Gerar ID do pedido
-                long idPedido = gerarIdPedido(conn);
+                // 1. Gerar ID do pedido (mesma sequência do SalvarVenda: MAX + 1 repetiria números reservados)
+                long idPedido = VendaDao.gerarIdPedido();
                 
                 // 2. Determinar tipo de venda
                 String tipoVenda = "normal";
@@ -315,22 +316,6 @@ public class SalvarVenda2 extends HttpServlet {
         out.flush();
     }
 
-    /**
-     * Gera próximo ID de pedido
-     */
-    private long gerarIdPedido(Connection conn) throws SQLException {
-        String sql = "SELECT COALESCE(MAX(id_pedido), 0) + 1 FROM vendas";
-        
-        try (PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            if (rs.next()) {
-                return rs.getLong(1);
-            }
-        }
-        
-        return 1;
-    }
-
     /**
      * Obtém string ou null de um JsonObject
      */
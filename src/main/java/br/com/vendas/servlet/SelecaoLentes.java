@@ -12,7 +12,9 @@ import java.util.Map;
 
 import com.google.gson.Gson;
 
+import br.com.vendas.auxiliares.FiltroGrau;
 import br.com.vendas.auxiliares.OpcoesCompleto;
+import br.com.vendas.auxiliares.RankingVariantes;
 import br.com.vendas.auxiliares.Variante;
 import br.com.vendas.beans.LenteComTratamento;
 import br.com.vendas.beans.LenteODeOE;
@@ -31,12 +33,20 @@ import jakarta.servlet.http.HttpServletResponse;
  * que vêm de fábrica com esse AR, o sistema busca lentes BASE
  * que são compatíveis com o tratamento via tabela familia_tratamento.
  * 
+ * MODO RANQUEADO (parâmetro topK):
+ * Retorna só as K melhores variantes por marca (ordem=preco|margem) e um
+ * cursor opaco (proximoCursor) para buscar mais de uma marca específica
+ * (parâmetro cursor). A resposta tem tamanho limitado mesmo para receitas
+ * que retornam milhares de lentes.
+ * 
  * @author OptoFreela
  */
 public class SelecaoLentes extends HttpServlet {
 
     private static final long serialVersionUID = 2107036021593819135L;
 
+    private static final int MAX_TOP_K = 100;
+
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
 
@@ -87,8 +97,8 @@ public class SelecaoLentes extends HttpServlet {
             olhodireito = filtro.converteFiltroCompleto(odesf + odadicao, odcil);
             olhoesquerdo = filtro.converteFiltroCompleto(oeesf + oeadicao, oecil);
         } else if ("meia_distancia".equalsIgnoreCase(visao)) {
-            olhodireito = filtro.transposicao(calcularMeiaDistancia(odesf, odadicao), odcil);
-            olhoesquerdo = filtro.transposicao(calcularMeiaDistancia(oeesf, oeadicao), oecil);
+            olhodireito = filtro.transposicao(FiltroGrau.calcularMeiaDistancia(odesf, odadicao), odcil);
+            olhoesquerdo = filtro.transposicao(FiltroGrau.calcularMeiaDistancia(oeesf, oeadicao), oecil);
         } else {
             olhodireito = filtro.transposicao(odesf, odcil);
             olhoesquerdo = filtro.transposicao(oeesf, oecil);
@@ -106,6 +116,21 @@ public class SelecaoLentes extends HttpServlet {
         System.out.println("OD Lentes: " + odLentes.size());
         System.out.println("OE Lentes: " + oeLentes.size());
 
+        // NOVO: Modo ranqueado (topK por marca + cursor para continuar uma marca)
+        String topKParam = request.getParameter("topK");
+        if (topKParam != null && !topKParam.isEmpty()) {
+            int k = Math.max(1, Math.min(parseIntSeguro(topKParam), MAX_TOP_K));
+            RankingVariantes.Cursor cursor = RankingVariantes.Cursor.decodificar(request.getParameter("cursor"));
+            String ordem = cursor != null ? cursor.getOrdem() : request.getParameter("ordem");
+
+            Map<String, PaginaMarca> ranqueado = agruparTopK(odLentes, oeLentes, new RankingVariantes(ordem, k), cursor,
+                    odesf, odcil, odeixo, odadicao, oeesf, oecil, oeeixo, oeadicao, visao);
+
+            response.setContentType("application/json;charset=UTF-8");
+            new Gson().toJson(ranqueado, response.getWriter());
+            return;
+        }
+
         // MODIFICADO: Usa o novo método de agrupamento
         Map<String, Map<String, Variante>> lentesAgrupadas = 
             agruparLentesComTratamento(odLentes, oeLentes, odesf, odcil, odeixo, odadicao, oeesf, oecil, oeeixo, oeadicao, visao);
@@ -172,6 +197,63 @@ public class SelecaoLentes extends HttpServlet {
         return agrupado;
     }
 
+    /**
+     * NOVO: Agrupa por marca mantendo só as K melhores variantes de cada uma.
+     * Com cursor, processa apenas a marca do cursor, a partir da última variante entregue.
+     * Os mapas de lente só são montados para as variantes selecionadas.
+     */
+    private Map<String, PaginaMarca> agruparTopK(
+            List<LenteComTratamento> od, List<LenteComTratamento> oe,
+            RankingVariantes ranking, RankingVariantes.Cursor cursor,
+            double odesf, double odcil, int odeixo, double odadicao,
+            double oeesf, double oecil, int oeeixo, double oeadicao,
+            String visao) {
+
+        Map<String, Map<String, RankingVariantes.Candidata>> porMarca = new LinkedHashMap<>();
+        adicionarCandidatas(porMarca, od, true, ranking, cursor);
+        adicionarCandidatas(porMarca, oe, false, ranking, cursor);
+
+        Map<String, PaginaMarca> resultado = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, RankingVariantes.Candidata>> marca : porMarca.entrySet()) {
+            RankingVariantes.Pagina pagina = ranking.selecionar(marca.getValue().values(), cursor);
+
+            PaginaMarca pm = new PaginaMarca();
+            pm.variantes = new LinkedHashMap<>();
+            for (RankingVariantes.Candidata c : pagina.getVariantes()) {
+                Variante variante = new Variante(new ArrayList<>(), new ArrayList<>());
+                for (LenteComTratamento lente : c.getOD()) {
+                    variante.getOD().add(criarLenteMapComTratamento(lente, "OD", odesf, odcil, odeixo, odadicao, visao));
+                }
+                for (LenteComTratamento lente : c.getOE()) {
+                    variante.getOE().add(criarLenteMapComTratamento(lente, "OE", oeesf, oecil, oeeixo, oeadicao, visao));
+                }
+                pm.variantes.put(c.getCodigoWeb(), variante);
+            }
+            pm.restantes = pagina.getRestantes();
+            pm.proximoCursor = pagina.getProximoCursor();
+            pm.ordem = ranking.getOrdem();
+
+            resultado.put(marca.getKey(), pm);
+        }
+
+        System.out.println("🏆 Modo ranqueado: " + resultado.size() + " marca(s), ordem " + ranking.getOrdem());
+        return resultado;
+    }
+
+    private void adicionarCandidatas(Map<String, Map<String, RankingVariantes.Candidata>> porMarca,
+            List<LenteComTratamento> lentes, boolean olhoDireito,
+            RankingVariantes ranking, RankingVariantes.Cursor cursor) {
+
+        for (LenteComTratamento lente : lentes) {
+            String marca = lente.getMarca();
+            if (cursor != null && !cursor.getMarca().equals(marca)) continue;
+
+            porMarca.computeIfAbsent(marca, m -> new LinkedHashMap<>())
+                    .computeIfAbsent(lente.getCodigoWeb(), cw -> ranking.novaCandidata(marca, cw))
+                    .adicionar(lente, olhoDireito);
+        }
+    }
+
     /**
      * MODIFICADO: Cria mapa da lente incluindo dados de tratamento adicional
      */
@@ -306,18 +388,18 @@ public class SelecaoLentes extends HttpServlet {
         }
     }
 
-    private double calcularMeiaDistancia(double esf, double adicao) {
-        double meiaAdicao = adicao * 0.7;
-        if (adicao < 2.00) {
-            meiaAdicao = Math.floor(meiaAdicao * 4) / 4.0;
-        } else {
-            meiaAdicao = Math.ceil(meiaAdicao * 4) / 4.0;
-        }
-        return esf + meiaAdicao;
-    }
-
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         doPost(request, response);
     }
+
+    /**
+     * Página de uma marca no modo ranqueado
+     */
+    private static class PaginaMarca {
+        Map<String, Variante> variantes;
+        int restantes;
+        String proximoCursor;
+        String ordem;
+    }
 }
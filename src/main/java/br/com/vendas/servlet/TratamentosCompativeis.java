@@ -12,6 +12,8 @@ import java.util.List;
 import com.google.gson.Gson;
 
 import br.com.vendas.dao.ConnectionFactory;
+import br.com.vendas.util.CatalogoVersao;
+import br.com.vendas.util.RespostaCatalogoCache;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
@@ -24,6 +26,8 @@ public class TratamentosCompativeis extends HttpServlet {
 	
 	  private static final long serialVersionUID = 1L;
 
+	  private static final RespostaCatalogoCache cache = new RespostaCatalogoCache("tratamentos-compativeis");
+
 	    @Override
 	    protected void doGet(HttpServletRequest request, HttpServletResponse response) 
 	            throws ServletException, IOException {
@@ -36,6 +40,12 @@ public class TratamentosCompativeis extends HttpServlet {
 	        
 	        System.out.println("🔍 TratamentosCompativeis - familia: " + familia + ", tratamento: " + tratamento);
 	        
+	        // Versão lida antes do banco: 304 / corpo em cache se nada mudou
+	        long versao = CatalogoVersao.atual();
+	        if (cache.responderDoCache(request, response, versao)) {
+	            return;
+	        }
+	        
 	        Object resultado;
 	        
 	        try {
@@ -54,6 +64,11 @@ public class TratamentosCompativeis extends HttpServlet {
 	        String json = new Gson().toJson(resultado);
 	        System.out.println("📤 Resposta: " + json);
 	        
+	        if (!(resultado instanceof ErrorResponse)) {
+	            cache.responder(request, response, versao, json);
+	            return;
+	        }
+	        
 	        PrintWriter out = response.getWriter();
 	        out.print(json);
 	        out.flush();
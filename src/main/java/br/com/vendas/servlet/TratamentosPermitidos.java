@@ -13,6 +13,8 @@ import com.google.gson.Gson;
 
 import br.com.vendas.beans.Tratamento;
 import br.com.vendas.dao.ConnectionFactory;
+import br.com.vendas.util.CatalogoVersao;
+import br.com.vendas.util.RespostaCatalogoCache;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
@@ -33,6 +35,8 @@ import jakarta.servlet.http.HttpServletResponse;
 public class TratamentosPermitidos extends HttpServlet {
     private static final long serialVersionUID = 1L;
 
+    private static final RespostaCatalogoCache cache = new RespostaCatalogoCache("tratamentos-permitidos");
+
     public TratamentosPermitidos() {
         super();
     }
@@ -49,7 +53,14 @@ public class TratamentosPermitidos extends HttpServlet {
         String familiaIdParam = request.getParameter("familiaId");
         String marcaIdParam = request.getParameter("marcaId");
         
+        // Versão lida antes do banco: 304 / corpo em cache se nada mudou
+        long versao = CatalogoVersao.atual();
+        if (cache.responderDoCache(request, response, versao)) {
+            return;
+        }
+        
         List<Tratamento> tratamentos = new ArrayList<>();
+        boolean erro = false;
         
         try {
             // Busca por prioridade: lente > família > marca
@@ -77,9 +88,11 @@ public class TratamentosPermitidos extends HttpServlet {
             
         } catch (NumberFormatException e) {
             System.err.println("Erro ao converter parâmetro: " + e.getMessage());
+            erro = true;
         } catch (SQLException e) {
             System.err.println("Erro SQL ao buscar tratamentos: " + e.getMessage());
             e.printStackTrace();
+            erro = true;
         }
         
         // Monta resposta JSON
@@ -90,6 +103,11 @@ public class TratamentosPermitidos extends HttpServlet {
         Gson gson = new Gson();
         String json = gson.toJson(resp);
         
+        if (!erro) {
+            cache.responder(request, response, versao, json);
+            return;
+        }
+        
         PrintWriter out = response.getWriter();
         out.print(json);
         out.flush();
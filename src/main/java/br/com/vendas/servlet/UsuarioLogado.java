@@ -10,6 +10,8 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 
+import br.com.vendas.beans.UsuarioPrincipal;
+
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 
@@ -57,10 +59,10 @@ public class UsuarioLogado extends HttpServlet {
         PrintWriter out = response.getWriter();
         JsonObject resultado = new JsonObject();
         
-        HttpSession session = request.getSession(false);
+        UsuarioPrincipal principal = UsuarioPrincipal.de(request);
         
-        // Verifica se está logado
-        if (session == null || session.getAttribute("usuario") == null) {
+        // Verifica se está logado (token assinado ou sessão)
+        if (principal == null) {
             resultado.addProperty("logado", false);
             out.print(gson.toJson(resultado));
             out.flush();
@@ -69,14 +71,17 @@ public class UsuarioLogado extends HttpServlet {
         
         resultado.addProperty("logado", true);
         
+        // Dados só de exibição (username, nomes de loja/perfil) vêm da sessão, se houver
+        HttpSession session = request.getSession(false);
+        
         // Dados do usuário
         JsonObject usuario = new JsonObject();
         
-        Integer usuarioId = (Integer) session.getAttribute("usuarioId");
-        String usuarioNome = (String) session.getAttribute("usuarioNome");
-        String usuarioUsername = (String) session.getAttribute("usuarioUsername");
+        Integer usuarioId = principal.getUsuarioId();
+        String usuarioNome = principal.getNome();
+        String usuarioUsername = session != null ? (String) session.getAttribute("usuarioUsername") : null;
         
-        usuario.addProperty("id", usuarioId != null ? usuarioId : 0);
+        usuario.addProperty("id", usuarioId);
         usuario.addProperty("nome", usuarioNome != null ? usuarioNome : "");
         usuario.addProperty("username", usuarioUsername != null ? usuarioUsername : "");
         
@@ -87,8 +92,8 @@ public class UsuarioLogado extends HttpServlet {
         resultado.add("usuario", usuario);
         
         // Dados da loja
-        Integer lojaId = (Integer) session.getAttribute("lojaId");
-        String lojaNome = (String) session.getAttribute("lojaNome");
+        Integer lojaId = principal.getLojaId();
+        String lojaNome = session != null ? (String) session.getAttribute("lojaNome") : null;
         
         if (lojaId != null && lojaId > 0) {
             JsonObject loja = new JsonObject();
@@ -98,8 +103,8 @@ public class UsuarioLogado extends HttpServlet {
         }
         
         // Dados do perfil
-        Integer perfilId = (Integer) session.getAttribute("perfilId");
-        String perfilNome = (String) session.getAttribute("perfilNome");
+        Integer perfilId = principal.getPerfilId();
+        String perfilNome = session != null ? (String) session.getAttribute("perfilNome") : principal.getPerfil().name();
         
         if (perfilId != null && perfilId > 0) {
             JsonObject perfil = new JsonObject();
@@ -1,7 +1,6 @@
 package br.com.vendas.servlet;
 
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -12,6 +11,8 @@ import java.util.List;
 import com.google.gson.Gson;
 
 import br.com.vendas.dao.ConnectionFactory;
+import br.com.vendas.util.CatalogoVersao;
+import br.com.vendas.util.RespostaCatalogoCache;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -32,6 +33,8 @@ import jakarta.servlet.http.HttpServletResponse;
  */
 public class VerificaColoracao extends HttpServlet {
     private static final long serialVersionUID = 1L;
+
+    private static final RespostaCatalogoCache cache = new RespostaCatalogoCache("verifica-coloracao");
     
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) 
@@ -53,7 +56,13 @@ public class VerificaColoracao extends HttpServlet {
         System.out.println("   marca = " + marca);
         System.out.println("   marcasDaFamilia = " + marcasDaFamilia);
         
-        try (PrintWriter out = response.getWriter()) {
+        // Versão lida antes do banco: 304 / corpo em cache se nada mudou
+        long versao = CatalogoVersao.atual();
+        if (cache.responderDoCache(request, response, versao)) {
+            return;
+        }
+        
+        try {
             Gson gson = new Gson();
             RespostaColoracao resposta = new RespostaColoracao();
             
@@ -79,7 +88,7 @@ public class VerificaColoracao extends HttpServlet {
             
             String jsonResponse = gson.toJson(resposta);
             System.out.println("📤 Resposta JSON: " + jsonResponse);
-            out.print(jsonResponse);
+            cache.responder(request, response, versao, jsonResponse);
             
         } catch (SQLException e) {
             System.out.println("❌ ERRO SQL no VerificaColoracao:");
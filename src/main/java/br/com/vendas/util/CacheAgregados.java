@@ -0,0 +1,210 @@
+package br.com.vendas.util;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache curto de respostas agregadas (dashboard, totalizadores, resumos),
+ * com cálculo único por chave (single-flight) e resposta velha enquanto
+ * revalida (stale-while-revalidate).
+ *
+ * - Dentro do TTL: devolve o JSON guardado, sem banco.
+ * - Vencido, mas dentro de staleMs: devolve o JSON velho e recalcula em
+ *   segundo plano (um cálculo por chave, mesmo com várias requisições).
+ * - Sem entrada ou velho demais: a primeira requisição calcula e as
+ *   simultâneas com a mesma chave esperam o mesmo resultado.
+ *
+ * Erro no cálculo não é guardado: as requisições que esperavam recebem o
+ * erro e a próxima tenta de novo. Erro na revalidação mantém o JSON velho.
+ *
+ * Chave = endpoint (nome do cache) + partes informadas pelo servlet
+ * (loja, período, data...). Instâncias registradas por nome, para que quem
+ * grava possa invalidar (ex.: pagamento confirmado → totalizadores do caixa).
+ *
+ * Uso no servlet:
+ * <pre>
+ *   private static final CacheAgregados CACHE = CacheAgregados.registrar("dashboardOrcamentos", 30_000, 300_000);
+ *   String json = CACHE.obter(CacheAgregados.chave(lojaId, periodo), () -&gt; gson.toJson(calcular(...)));
+ * </pre>
+ *
+ * @author OptoFreela
+ */
+public final class CacheAgregados {
+
+    private static final int MAX_ENTRADAS = 500;
+    private static final long ESPERA_MAX_MS = 60_000;
+
+    private static final Map<String, CacheAgregados> REGISTRO = new ConcurrentHashMap<>();
+
+    // Revalidações em segundo plano (poucas: cada chave tem no máximo uma)
+    private static final ExecutorService REVALIDACAO = new ThreadPoolExecutor(
+            1, 2, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(100), r -> {
+                Thread t = new Thread(r, "cache-agregados");
+                t.setDaemon(true);
+                return t;
+            });
+
+    /**
+     * Cálculo da resposta (JSON) de uma chave.
+     */
+    @FunctionalInterface
+    public interface Calculo {
+        String calcular() throws Exception;
+    }
+
+    private final String nome;
+    private final long ttlMs;
+    private final long staleMs;
+    private final Map<String, Entrada> entradas = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<String>> emCalculo = new ConcurrentHashMap<>();
+    private final AtomicLong geracao = new AtomicLong();   // muda a cada invalidar()
+
+    private CacheAgregados(String nome, long ttlMs, long staleMs) {
+        this.nome = nome;
+        this.ttlMs = ttlMs;
+        this.staleMs = staleMs;
+    }
+
+    /**
+     * Cache do endpoint; chamadas repetidas com o mesmo nome devolvem a mesma instância.
+     * @param ttlMs   tempo em que a resposta é servida como atual
+     * @param staleMs tempo extra em que a resposta vencida ainda é servida enquanto revalida
+     */
+    public static CacheAgregados registrar(String nome, long ttlMs, long staleMs) {
+        return REGISTRO.computeIfAbsent(nome, n -> new CacheAgregados(n, ttlMs, staleMs));
+    }
+
+    /**
+     * Descarta as respostas do cache (após gravação que muda os agregados).
+     * A próxima requisição de cada chave recalcula; cálculos iniciados antes
+     * respondem quem os esperava, mas não são guardados.
+     */
+    public static void invalidar(String nome) {
+        CacheAgregados cache = REGISTRO.get(nome);
+        if (cache != null) {
+            cache.geracao.incrementAndGet();
+            cache.entradas.clear();
+        }
+    }
+
+    /**
+     * Chave a partir das partes (null vira "*": todas as lojas, por exemplo).
+     */
+    public static String chave(Object... partes) {
+        StringBuilder sb = new StringBuilder();
+        for (Object parte : partes) {
+            sb.append(parte != null ? parte : "*").append('|');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * JSON da chave: do cache, de um cálculo em andamento, ou calculado agora.
+     */
+    public String obter(String chave, Calculo calculo) throws Exception {
+        long agora = System.currentTimeMillis();
+        Entrada entrada = entradas.get(chave);
+
+        if (entrada != null) {
+            long idade = agora - entrada.criadoEm;
+            if (idade < ttlMs) {
+                return entrada.json;
+            }
+            if (idade < ttlMs + staleMs) {
+                revalidar(chave, calculo);
+                return entrada.json;
+            }
+        }
+
+        return aguardar(calcularUnico(chave, calculo, true));
+    }
+
+    // ========================================
+    // Single-flight
+    // ========================================
+
+    /**
+     * Inicia o cálculo da chave, ou devolve o que já está em andamento.
+     * @param nestaThread true: calcula na thread atual (requisição); false: em segundo plano
+     */
+    private CompletableFuture<String> calcularUnico(String chave, Calculo calculo, boolean nestaThread) {
+        CompletableFuture<String> novo = new CompletableFuture<>();
+        CompletableFuture<String> existente = emCalculo.putIfAbsent(chave, novo);
+        if (existente != null) {
+            return existente;
+        }
+
+        Runnable tarefa = () -> executar(chave, calculo, novo);
+        if (nestaThread) {
+            tarefa.run();
+        } else {
+            try {
+                REVALIDACAO.execute(tarefa);
+            } catch (RuntimeException e) {
+                emCalculo.remove(chave, novo);
+                novo.completeExceptionally(e);
+            }
+        }
+        return novo;
+    }
+
+    private void executar(String chave, Calculo calculo, CompletableFuture<String> futuro) {
+        long geracaoInicio = geracao.get();
+        try {
+            String json = calculo.calcular();
+            if (geracao.get() == geracaoInicio) {
+                if (entradas.size() >= MAX_ENTRADAS) {
+                    entradas.clear();
+                }
+                entradas.put(chave, new Entrada(json, System.currentTimeMillis()));
+            }
+            futuro.complete(json);
+        } catch (Exception | Error e) {
+            futuro.completeExceptionally(e);
+        } finally {
+            emCalculo.remove(chave, futuro);
+        }
+    }
+
+    private void revalidar(String chave, Calculo calculo) {
+        if (emCalculo.containsKey(chave)) return;
+
+        calcularUnico(chave, calculo, false).whenComplete((json, erro) -> {
+            if (erro != null) {
+                System.err.println("⚠️ Cache " + nome + ": revalidação falhou (mantida resposta anterior): " +
+                        erro.getMessage());
+            }
+        });
+    }
+
+    private String aguardar(CompletableFuture<String> futuro) throws Exception {
+        try {
+            return futuro.get(ESPERA_MAX_MS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof Exception) throw (Exception) causa;
+            if (causa instanceof Error) throw (Error) causa;
+            throw e;
+        } catch (TimeoutException e) {
+            throw new Exception("Cache " + nome + ": cálculo sem resposta em " + ESPERA_MAX_MS + " ms", e);
+        }
+    }
+
+    private static final class Entrada {
+        final String json;
+        final long criadoEm;
+
+        Entrada(String json, long criadoEm) {
+            this.json = json;
+            this.criadoEm = criadoEm;
+        }
+    }
+}
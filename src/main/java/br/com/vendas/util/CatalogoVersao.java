@@ -0,0 +1,47 @@
+package br.com.vendas.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import br.com.vendas.dao.CatalogoLentesCache;
+import br.com.vendas.dao.CompatibilidadeTratamentoCache;
+
+/**
+ * Versão monotônica dos dados de catálogo (lentes, tratamentos, colorações
+ * e configurações de pagamento).
+ *
+ * Todo ponto que altera esses dados chama incrementar(). A versão é usada
+ * como base do ETag dos endpoints de catálogo (ver RespostaCatalogoCache) e
+ * também descarta os caches em memória do catálogo.
+ *
+ * Começa no instante da subida do servidor, então ETags emitidos antes de
+ * um restart nunca coincidem com os novos.
+ *
+ * Só LentesDao altera o catálogo pela aplicação; tratamentos, colorações e
+ * formas de pagamento (e qualquer alteração direta no banco) não passam por
+ * incrementar() e aparecem quando expiram os TTLs: corpo em cache de
+ * RespostaCatalogoCache (60 s) e caches em memória do catálogo (5 min).
+ *
+ * @author OptoFreela
+ */
+public final class CatalogoVersao {
+
+    private static final AtomicLong versao = new AtomicLong(System.currentTimeMillis());
+
+    private CatalogoVersao() {
+    }
+
+    public static long atual() {
+        return versao.get();
+    }
+
+    /**
+     * Registra alteração no catálogo: nova versão e caches descartados.
+     */
+    public static long incrementar() {
+        CatalogoLentesCache.invalidar();
+        CompatibilidadeTratamentoCache.invalidar();
+        long nova = versao.incrementAndGet();
+        System.out.println("🔄 Versão do catálogo: " + nova);
+        return nova;
+    }
+}
@@ -0,0 +1,120 @@
+package br.com.vendas.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Cursor opaco de paginação por chave (keyset / seek).
+ *
+ * Guarda a chave de ordenação da última linha da página (valor + id) e vira
+ * um token Base64 URL-safe para o parâmetro "cursor". A próxima página filtra
+ * "depois desta chave" em vez de OFFSET: com índice em (filtro, valor, id),
+ * a página N custa o mesmo que a primeira.
+ *
+ * <pre>
+ *   ... AND (v.data &lt; ? OR (v.data = ? AND v.id &lt; ?))
+ *   ORDER BY v.data DESC, v.id DESC LIMIT limite + 1
+ * </pre>
+ *
+ * Lê-se limite + 1 linhas: a sobra indica que há próxima página (temMais).
+ * O token não é assinado — os filtros de usuário/loja continuam no WHERE,
+ * então um cursor alterado só desloca a página dentro do que já é visível.
+ *
+ * @author OptoFreela
+ */
+public final class CursorPagina {
+
+    private static final String VERSAO = "1";
+
+    private final String valor;   // null = ordenação só por id
+    private final long id;
+
+    public CursorPagina(String valor, long id) {
+        this.valor = valor;
+        this.id = id;
+    }
+
+    /**
+     * Cursor do parâmetro da requisição, ou null se ausente (primeira página).
+     * @throws IllegalArgumentException se o token for inválido
+     */
+    public static CursorPagina ler(String token) {
+        if (token == null || token.isEmpty()) return null;
+
+        String texto;
+        try {
+            texto = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+
+        // VERSAO|id|valor (valor por último: pode conter '|'; ausente = null)
+        String[] partes = texto.split("\\|", 3);
+        if (partes.length < 2 || !VERSAO.equals(partes[0])) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+        try {
+            return new CursorPagina(partes.length == 3 ? partes[2] : null, Long.parseLong(partes[1]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+
+    public String getToken() {
+        String texto = VERSAO + "|" + id + (valor != null ? "|" + valor : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String getValor() {
+        return valor;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Fecha a página lida com limite + 1 linhas: descarta a sobra e grava em
+     * resultado "temMais" e "proximoCursor" (chave da última linha; null no fim).
+     * @param campoValor propriedade da linha com o valor ordenado (null = só id)
+     */
+    public static void paginar(JsonArray linhas, int limite, String campoValor, JsonObject resultado) {
+        boolean temMais = linhas.size() > limite;
+        if (temMais) {
+            linhas.remove(limite);
+        }
+
+        String proximo = null;
+        if (temMais) {
+            JsonObject ultima = linhas.get(limite - 1).getAsJsonObject();
+            String valor = null;
+            if (campoValor != null) {
+                JsonElement e = ultima.get(campoValor);
+                valor = e != null && !e.isJsonNull() ? e.getAsString() : "";
+            }
+            proximo = new CursorPagina(valor, ultima.get("id").getAsLong()).getToken();
+        }
+
+        resultado.addProperty("temMais", temMais);
+        resultado.addProperty("proximoCursor", proximo);
+    }
+
+    /**
+     * Tamanho de página do parâmetro "limit" (padrão se ausente/inválido, entre 1 e maximo).
+     */
+    public static int limite(String parametro, int padrao, int maximo) {
+        int limite = padrao;
+        if (parametro != null && !parametro.isEmpty()) {
+            try {
+                limite = Integer.parseInt(parametro.trim());
+            } catch (NumberFormatException e) {
+                limite = padrao;
+            }
+        }
+        return Math.max(1, Math.min(limite, maximo));
+    }
+}
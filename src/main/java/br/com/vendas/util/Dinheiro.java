@@ -0,0 +1,281 @@
+package br.com.vendas.util;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Valor monetário imutável em centavos (long).
+ *
+ * Soma, subtração, multiplicação por inteiro e parcelamento são aritmética
+ * de long: centavos exatos, sem erro acumulado de double. Fator fracionário e
+ * percentual chegam em double: são lidos pelo decimal mais curto que os
+ * representa (BigDecimal.valueOf: 0.1 é 0.1, não 0.1000000000000000055…) e o
+ * produto é arredondado uma única vez ao centavo. Usado nos beans (Produto,
+ * Lente), no carrinho, no DAO (leitura/gravação de colunas DECIMAL) e no Gson
+ * (GsonUtils grava como número: 123.45).
+ *
+ * Arredondamento: meio centavo para longe do zero.
+ *
+ * <pre>
+ *   Dinheiro total = Dinheiro.parse("1000.00");
+ *   Dinheiro[] parcelas = total.parcelar(3);   // 333.34, 333.33, 333.33
+ * </pre>
+ *
+ * @author OptoFreela
+ */
+public final class Dinheiro implements Comparable<Dinheiro>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final Dinheiro ZERO = new Dinheiro(0);
+
+    private final long centavos;
+
+    private Dinheiro(long centavos) {
+        this.centavos = centavos;
+    }
+
+    // ========================================
+    // Criação
+    // ========================================
+
+    public static Dinheiro deCentavos(long centavos) {
+        return centavos == 0 ? ZERO : new Dinheiro(centavos);
+    }
+
+    /**
+     * A partir de reais em double (arredonda ao centavo).
+     */
+    public static Dinheiro de(double reais) {
+        return deCentavos(centavos(reais));
+    }
+
+    /**
+     * Centavos de um valor em reais, sem criar objeto (uso nos beans).
+     */
+    public static long centavos(double reais) {
+        if (Double.isNaN(reais) || Double.isInfinite(reais)) {
+            throw new IllegalArgumentException("Valor monetário inválido: " + reais);
+        }
+        long c = Math.round(Math.abs(reais) * 100);
+        return reais < 0 ? -c : c;
+    }
+
+    /**
+     * Lê texto decimal ("123.45", "123,4", "-7", "1e2") sem passar por double
+     * quando possível; casas além da segunda são arredondadas.
+     * @throws NumberFormatException se não for número
+     */
+    public static Dinheiro parse(String texto) {
+        if (texto == null) throw new NumberFormatException("null");
+        String s = texto.trim();
+        int n = s.length();
+        if (n == 0) throw new NumberFormatException("vazio");
+
+        int i = 0;
+        boolean negativo = false;
+        char c0 = s.charAt(0);
+        if (c0 == '-' || c0 == '+') {
+            negativo = c0 == '-';
+            i++;
+        }
+
+        long inteiro = 0;
+        long fracao = 0;
+        int casas = 0;
+        boolean arredondaCima = false;
+        boolean temDigito = false;
+        boolean naFracao = false;
+
+        for (; i < n; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                temDigito = true;
+                int d = c - '0';
+                if (!naFracao) {
+                    inteiro = Math.addExact(Math.multiplyExact(inteiro, 10), d);
+                } else if (casas < 2) {
+                    fracao = fracao * 10 + d;
+                    casas++;
+                } else if (casas == 2) {
+                    arredondaCima = d >= 5;
+                    casas++;
+                }
+            } else if ((c == '.' || c == ',') && !naFracao) {
+                naFracao = true;
+            } else {
+                // Notação científica ou formato inesperado: via double
+                return de(Double.parseDouble(s.replace(',', '.')));
+            }
+        }
+        if (!temDigito) throw new NumberFormatException(texto);
+
+        if (casas == 1) fracao *= 10;
+        long c = Math.addExact(Math.multiplyExact(inteiro, 100), fracao) + (arredondaCima ? 1 : 0);
+        return deCentavos(negativo ? -c : c);
+    }
+
+    // ========================================
+    // JDBC (colunas DECIMAL)
+    // ========================================
+
+    /**
+     * Valor de uma coluna DECIMAL(…,2), ou null se NULL. Sem BigDecimal:
+     * DECIMAL com 2 casas volta exato do double até ~10^13.
+     */
+    public static Dinheiro ler(ResultSet rs, String coluna) throws SQLException {
+        double valor = rs.getDouble(coluna);
+        return rs.wasNull() ? null : de(valor);
+    }
+
+    /**
+     * Vincula o valor (null = NULL). centavos/100.0 é o double mais próximo
+     * do decimal, que o MySQL arredonda de volta para as mesmas 2 casas.
+     */
+    public static void vincular(PreparedStatement stmt, int indice, Dinheiro valor) throws SQLException {
+        if (valor == null) {
+            stmt.setNull(indice, Types.DECIMAL);
+        } else {
+            stmt.setDouble(indice, valor.doubleValue());
+        }
+    }
+
+    // ========================================
+    // Aritmética
+    // ========================================
+
+    public Dinheiro somar(Dinheiro outro) {
+        return outro.centavos == 0 ? this : deCentavos(Math.addExact(centavos, outro.centavos));
+    }
+
+    public Dinheiro subtrair(Dinheiro outro) {
+        return outro.centavos == 0 ? this : deCentavos(Math.subtractExact(centavos, outro.centavos));
+    }
+
+    public Dinheiro negar() {
+        return deCentavos(Math.negateExact(centavos));
+    }
+
+    public Dinheiro multiplicar(long quantidade) {
+        return quantidade == 1 ? this : deCentavos(Math.multiplyExact(centavos, quantidade));
+    }
+
+    /**
+     * Multiplica por quantidade fracionária (ex: 0.5 par), arredondando ao centavo.
+     */
+    public Dinheiro multiplicar(double fator) {
+        if (fator == 1) return this;
+        return deCentavos(arredondar(BigDecimal.valueOf(centavos).multiply(decimal(fator))));
+    }
+
+    /**
+     * Percentual do valor (ex: percentual(10) = 10%), arredondado ao centavo.
+     */
+    public Dinheiro percentual(double percentual) {
+        return deCentavos(arredondar(BigDecimal.valueOf(centavos).multiply(decimal(percentual)).movePointLeft(2)));
+    }
+
+    /**
+     * Divide em n parcelas que somam exatamente o valor: a sobra de centavos
+     * vai, um a um, para as primeiras parcelas.
+     */
+    public Dinheiro[] parcelar(int n) {
+        if (n <= 0) throw new IllegalArgumentException("Parcelas inválidas: " + n);
+
+        long base = centavos / n;
+        long sobra = centavos % n;  // mesmo sinal de centavos
+        long passo = Long.signum(sobra);
+
+        Dinheiro[] parcelas = new Dinheiro[n];
+        Dinheiro normal = deCentavos(base);
+        Dinheiro comSobra = deCentavos(base + passo);
+        for (int i = 0; i < n; i++) {
+            parcelas[i] = i < Math.abs(sobra) ? comSobra : normal;
+        }
+        return parcelas;
+    }
+
+    private static BigDecimal decimal(double valor) {
+        if (Double.isNaN(valor) || Double.isInfinite(valor)) {
+            throw new IllegalArgumentException("Fator inválido: " + valor);
+        }
+        return BigDecimal.valueOf(valor);
+    }
+
+    /**
+     * Centavos exatos → long, meio centavo para longe do zero.
+     * @throws ArithmeticException se não couber em long
+     */
+    private static long arredondar(BigDecimal centavos) {
+        return centavos.setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    // ========================================
+    // Consulta
+    // ========================================
+
+    public long getCentavos() {
+        return centavos;
+    }
+
+    public double doubleValue() {
+        return centavos / 100.0;
+    }
+
+    public boolean isZero() {
+        return centavos == 0;
+    }
+
+    public boolean isNegativo() {
+        return centavos < 0;
+    }
+
+    /**
+     * Formato brasileiro: "R$ 1.234,56".
+     */
+    public String formatar() {
+        long abs = Math.abs(centavos);
+        String inteiro = Long.toString(abs / 100);
+
+        StringBuilder sb = new StringBuilder(inteiro.length() + 8);
+        if (centavos < 0) sb.append('-');
+        sb.append("R$ ");
+        for (int i = 0; i < inteiro.length(); i++) {
+            if (i > 0 && (inteiro.length() - i) % 3 == 0) sb.append('.');
+            sb.append(inteiro.charAt(i));
+        }
+        long resto = abs % 100;
+        sb.append(',').append(resto < 10 ? "0" : "").append(resto);
+        return sb.toString();
+    }
+
+    /**
+     * Decimal com ponto e 2 casas ("123.45"), usado no JSON.
+     */
+    @Override
+    public String toString() {
+        long abs = Math.abs(centavos);
+        long resto = abs % 100;
+        return (centavos < 0 ? "-" : "") + (abs / 100) + (resto < 10 ? ".0" : ".") + resto;
+    }
+
+    @Override
+    public int compareTo(Dinheiro outro) {
+        return Long.compare(centavos, outro.centavos);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Dinheiro && ((Dinheiro) o).centavos == centavos;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(centavos);
+    }
+}
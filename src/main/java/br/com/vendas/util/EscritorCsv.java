@@ -0,0 +1,129 @@
+package br.com.vendas.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+
+/**
+ * CSV no formato do Excel em português: separador ";", decimal com vírgula,
+ * UTF-8 com BOM (acentos corretos ao abrir com duplo clique).
+ *
+ * Escreve direto no OutputStream, linha a linha, com buffer fixo: a memória
+ * não cresce com o número de linhas. Campos de texto com ; " ou quebra de
+ * linha vão entre aspas; texto iniciado por = + - @ recebe um apóstrofo
+ * (evita que o Excel o execute como fórmula).
+ *
+ * @author OptoFreela
+ */
+public final class EscritorCsv {
+
+    private static final char SEPARADOR = ';';
+    private static final int BUFFER = 16 * 1024;
+
+    private final Writer saida;
+    private boolean inicioLinha = true;
+    private long linhas;
+
+    public EscritorCsv(OutputStream out) throws IOException {
+        this.saida = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER);
+        saida.write('\uFEFF');
+    }
+
+    /**
+     * Linha de cabeçalho.
+     */
+    public void cabecalho(String... colunas) throws IOException {
+        for (String coluna : colunas) {
+            texto(coluna);
+        }
+        fimLinha();
+    }
+
+    public void texto(String valor) throws IOException {
+        separar();
+        if (valor == null || valor.isEmpty()) return;
+
+        if ("=+-@".indexOf(valor.charAt(0)) >= 0) {
+            valor = "'" + valor;
+        }
+
+        boolean aspas = false;
+        for (int i = 0; i < valor.length() && !aspas; i++) {
+            char c = valor.charAt(i);
+            aspas = c == SEPARADOR || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (aspas) {
+            saida.write('"');
+            saida.write(valor.replace("\"", "\"\""));
+            saida.write('"');
+        } else {
+            saida.write(valor);
+        }
+    }
+
+    public void inteiro(long valor) throws IOException {
+        separar();
+        saida.write(Long.toString(valor));
+    }
+
+    /**
+     * Número com vírgula decimal; NULL do banco (wasNull) → campo vazio.
+     */
+    public void decimal(double valor, boolean nulo) throws IOException {
+        separar();
+        if (nulo) return;
+        String texto = (valor == Math.rint(valor) && Math.abs(valor) < 1e15)
+                ? Long.toString((long) valor)
+                : Double.toString(valor);
+        saida.write(texto.replace('.', ','));
+    }
+
+    /**
+     * Valor monetário com 2 casas ("1234,56"); null → campo vazio.
+     */
+    public void dinheiro(Dinheiro valor) throws IOException {
+        separar();
+        if (valor == null) return;
+        saida.write(valor.toString().replace('.', ','));
+    }
+
+    /**
+     * Data/hora "yyyy-MM-dd HH:mm:ss" (reconhecida pelo Excel); null → vazio.
+     */
+    public void dataHora(Timestamp valor) throws IOException {
+        separar();
+        if (valor == null) return;
+        String texto = valor.toString();
+        int ponto = texto.lastIndexOf('.');
+        saida.write(ponto > 0 ? texto.substring(0, ponto) : texto);
+    }
+
+    public void fimLinha() throws IOException {
+        saida.write("\r\n");
+        inicioLinha = true;
+        linhas++;
+    }
+
+    /**
+     * Linhas escritas, incluindo o cabeçalho.
+     */
+    public long getLinhas() {
+        return linhas;
+    }
+
+    public void flush() throws IOException {
+        saida.flush();
+    }
+
+    private void separar() throws IOException {
+        if (!inicioLinha) {
+            saida.write(SEPARADOR);
+        }
+        inicioLinha = false;
+    }
+}
@@ -9,6 +9,7 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.TypeAdapter;
 import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
 
 public class GsonUtils {
@@ -49,6 +50,26 @@ public class GsonUtils {
                     return LocalDateTime.parse(str, formatterDateTime);
                 }
             })
+            // Dinheiro como número JSON (123.45), lido sem passar por double
+            .registerTypeAdapter(Dinheiro.class, new TypeAdapter<Dinheiro>() {
+                @Override
+                public void write(JsonWriter out, Dinheiro value) throws IOException {
+                    if (value != null) {
+                        out.jsonValue(value.toString());
+                    } else {
+                        out.nullValue();
+                    }
+                }
+
+                @Override
+                public Dinheiro read(JsonReader in) throws IOException {
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                        return null;
+                    }
+                    return Dinheiro.parse(in.nextString());
+                }
+            })
             .create();
 
     public static Gson getGson() {
@@ -0,0 +1,168 @@
+package br.com.vendas.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Cache HTTP para endpoints derivados do catálogo (Coloracao,
+ * TratamentosCompativeis, TratamentosPermitidos, VerificaColoracao,
+ * ConfiguracoesPagamento).
+ *
+ * - Corpo serializado (bytes) guardado por parâmetros enquanto a versão do
+ *   catálogo não muda e por no máximo ttlMs: tabelas que não passam por
+ *   CatalogoVersao.incrementar() (tratamentos, colorações, formas de
+ *   pagamento, alteradas direto no banco) aparecem após o TTL
+ * - ETag = SHA-256 do corpo: muda só quando o conteúdo muda, então um
+ *   recálculo após o TTL com o mesmo resultado ainda responde 304
+ * - ETag fraco (W/): o CompressaoFilter envia o mesmo corpo com e sem gzip,
+ *   que são equivalentes mas não idênticos byte a byte
+ * - If-None-Match igual ao ETag da entrada válida → 304, sem tocar no banco
+ *
+ * Uso no servlet:
+ * <pre>
+ *   long versao = CatalogoVersao.atual();
+ *   if (cache.responderDoCache(request, response, versao)) return;
+ *   ... monta o JSON ...
+ *   cache.responder(request, response, versao, json);   // só em caso de sucesso
+ * </pre>
+ *
+ * @author OptoFreela
+ */
+public class RespostaCatalogoCache {
+
+    private static final int MAX_ENTRADAS = 500;
+    private static final long TTL_PADRAO_MS = 60 * 1000L;
+
+    private final String nome;
+    private final long ttlMs;
+    private final Map<String, Entrada> entradas = new ConcurrentHashMap<>();
+
+    public RespostaCatalogoCache(String nome) {
+        this(nome, TTL_PADRAO_MS);
+    }
+
+    public RespostaCatalogoCache(String nome, long ttlMs) {
+        this.nome = nome;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Responde 304 ou o corpo em cache, se possível.
+     * @return true se a resposta já foi enviada
+     */
+    public boolean responderDoCache(HttpServletRequest request, HttpServletResponse response, long versao)
+            throws IOException {
+
+        Entrada entrada = entradas.get(chave(request));
+        if (entrada == null || entrada.versao != versao
+                || System.currentTimeMillis() - entrada.geradoEm > ttlMs) {
+            return false;
+        }
+
+        enviar(request, response, entrada);
+        return true;
+    }
+
+    /**
+     * Guarda o JSON gerado para a versão informada e o envia com ETag.
+     * A versão deve ser a lida ANTES de consultar o banco.
+     */
+    public void responder(HttpServletRequest request, HttpServletResponse response, long versao, String json)
+            throws IOException {
+
+        String chave = chave(request);
+        byte[] corpo = json.getBytes(StandardCharsets.UTF_8);
+        Entrada entrada = new Entrada(versao, corpo, etag(corpo));
+
+        if (entradas.size() >= MAX_ENTRADAS) {
+            entradas.clear();
+        }
+        entradas.put(chave, entrada);
+
+        enviar(request, response, entrada);
+    }
+
+    /**
+     * 304 se o cliente já tem este corpo (If-None-Match), senão o corpo.
+     */
+    private void enviar(HttpServletRequest request, HttpServletResponse response, Entrada entrada)
+            throws IOException {
+        response.setHeader("ETag", entrada.etag);
+        response.setHeader("Cache-Control", "no-cache");
+
+        if ("GET".equals(request.getMethod()) && etagConfere(request.getHeader("If-None-Match"), entrada.etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentLength(entrada.corpo.length);
+        OutputStream out = response.getOutputStream();
+        out.write(entrada.corpo);
+        out.flush();
+    }
+
+    /**
+     * Chave estável a partir dos parâmetros (GET ou POST), em ordem alfabética.
+     */
+    private String chave(HttpServletRequest request) {
+        Map<String, String[]> ordenados = new TreeMap<>(request.getParameterMap());
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String[]> e : ordenados.entrySet()) {
+            sb.append(e.getKey()).append('=').append(Arrays.toString(e.getValue())).append('&');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * W/"nome-sha256(corpo) em base64url".
+     */
+    private String etag(byte[] corpo) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(corpo);
+            return "W/\"" + nome + "-" + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    /**
+     * Comparação fraca (RFC 9110): ignora o prefixo W/ dos dois lados.
+     */
+    private boolean etagConfere(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        String opaco = semPrefixoFraco(etag);
+        for (String candidato : ifNoneMatch.split(",")) {
+            String valor = candidato.trim();
+            if (valor.equals("*") || semPrefixoFraco(valor).equals(opaco)) return true;
+        }
+        return false;
+    }
+
+    private static String semPrefixoFraco(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static final class Entrada {
+        final long versao;
+        final byte[] corpo;
+        final String etag;
+        final long geradoEm = System.currentTimeMillis();
+
+        Entrada(long versao, byte[] corpo, String etag) {
+            this.versao = versao;
+            this.corpo = corpo;
+            this.etag = etag;
+        }
+    }
+}
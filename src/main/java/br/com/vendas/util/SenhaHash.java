@@ -0,0 +1,166 @@
+package br.com.vendas.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Hash de senha com PBKDF2-HMAC-SHA256 (JDK, sem dependência externa).
+ *
+ * Formato gravado em usuario.senha_hash:
+ *   pbkdf2-sha256$iteracoes$saltBase64$hashBase64
+ *
+ * O cálculo é propositalmente lento, então roda num pool LIMITADO
+ * (núcleos da máquina, fila de 64): na abertura da loja, vários logins
+ * simultâneos esperam na fila em vez de ocupar todas as threads do Tomcat.
+ * Fila cheia ou espera acima de 10 s → SenhaHash.Ocupado.
+ *
+ * @author OptoFreela
+ */
+public final class SenhaHash {
+
+    private static final String PREFIXO = "pbkdf2-sha256";
+    private static final String ALGORITMO = "PBKDF2WithHmacSHA256";
+    private static final int ITERACOES = 210_000;
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final int FILA = 64;
+    private static final long ESPERA_MAX_MS = 10_000;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final ThreadPoolExecutor POOL;
+    static {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        AtomicInteger contador = new AtomicInteger();
+        POOL = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(FILA),
+                r -> {
+                    Thread t = new Thread(r, "senha-hash-" + contador.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        POOL.allowCoreThreadTimeOut(true);
+    }
+
+    private SenhaHash() {
+    }
+
+    /**
+     * Pool de hash saturado (muitos logins simultâneos).
+     */
+    public static class Ocupado extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        Ocupado(String msg, Throwable causa) {
+            super(msg, causa);
+        }
+    }
+
+    // ========================================
+    // Via pool limitado (usar nos servlets)
+    // ========================================
+
+    public static String gerar(String senha) throws Ocupado {
+        return executar(() -> gerarDireto(senha));
+    }
+
+    public static boolean verificar(String senha, String armazenado) throws Ocupado {
+        return executar(() -> verificarDireto(senha, armazenado));
+    }
+
+    /**
+     * Indica se o valor gravado está no formato deste hash.
+     */
+    public static boolean ehHash(String armazenado) {
+        return armazenado != null && armazenado.startsWith(PREFIXO + "$");
+    }
+
+    /**
+     * Comparação em tempo constante para senhas legadas em texto puro.
+     */
+    public static boolean igualTextoPuro(String senha, String armazenado) {
+        if (senha == null || armazenado == null) return false;
+        return MessageDigest.isEqual(senha.getBytes(StandardCharsets.UTF_8),
+                                     armazenado.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // ========================================
+    // Cálculo
+    // ========================================
+
+    private static String gerarDireto(String senha) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] hash = pbkdf2(senha, salt, ITERACOES, HASH_BITS);
+
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return PREFIXO + "$" + ITERACOES + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(hash);
+    }
+
+    private static boolean verificarDireto(String senha, String armazenado) {
+        if (senha == null || !ehHash(armazenado)) return false;
+
+        String[] partes = armazenado.split("\\$");
+        if (partes.length != 4) return false;
+
+        try {
+            int iteracoes = Integer.parseInt(partes[1]);
+            Base64.Decoder b64 = Base64.getDecoder();
+            byte[] salt = b64.decode(partes[2]);
+            byte[] esperado = b64.decode(partes[3]);
+
+            byte[] calculado = pbkdf2(senha, salt, iteracoes, esperado.length * 8);
+            return MessageDigest.isEqual(calculado, esperado);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static byte[] pbkdf2(String senha, byte[] salt, int iteracoes, int bits) {
+        PBEKeySpec spec = new PBEKeySpec(senha.toCharArray(), salt, iteracoes, bits);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITMO).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 indisponível", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static <T> T executar(Callable<T> tarefa) throws Ocupado {
+        Future<T> futuro;
+        try {
+            futuro = POOL.submit(tarefa);
+        } catch (RejectedExecutionException e) {
+            throw new Ocupado("Fila de verificação de senha cheia", e);
+        }
+
+        try {
+            return futuro.get(ESPERA_MAX_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            futuro.cancel(true);
+            throw new Ocupado("Tempo de verificação de senha esgotado", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Ocupado("Verificação de senha interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Erro ao calcular hash de senha", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package br.com.vendas.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import br.com.vendas.beans.TipoPerfil;
+import br.com.vendas.beans.UsuarioPrincipal;
+import br.com.vendas.dao.UsuarioDao;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Token de sessão assinado (HMAC-SHA256) em cookie, para rodar sem sessão
+ * fixa em um nó: qualquer Tomcat com o mesmo segredo valida o usuário.
+ *
+ * Formato: base64url(payload) + "." + base64url(hmac)
+ * payload: "2|usuarioId|lojaId|perfilId|PERFIL|expiraEpochSeg|sessaoVersao|nome"
+ *
+ * Modo OPCIONAL, ligado por context-param no web.xml:
+ * - tokenSessao.ativo   = true
+ * - tokenSessao.segredo = (ou variável de ambiente VENDAS_TOKEN_SEGREDO, preferível)
+ *
+ * REVOGAÇÃO: o token leva usuario.sessao_versao (migração
+ * WEB-INF/sql/migracoes/003_usuario_sessao_versao.sql). revogar() (logout)
+ * incrementa a coluna e todos os tokens do usuário deixam de valer: na hora
+ * neste nó, em até VERSAO_TTL_MS nos demais (a versão lida fica em cache).
+ *
+ * Tokens já verificados ficam num cache LRU (MAX_CACHE) até expirarem, então
+ * o HMAC só é recalculado na primeira requisição de cada token; a versão é
+ * conferida em toda requisição.
+ *
+ * @author OptoFreela
+ */
+public final class TokenSessao {
+
+    public static final String COOKIE = "VSESSAO";
+
+    private static final String ATRIBUTO = TokenSessao.class.getName();
+    private static final String ALGORITMO = "HmacSHA256";
+    private static final String VERSAO = "2";
+    private static final int VALIDADE_SEGUNDOS = 8 * 60 * 60;  // igual à sessão
+    private static final int MAX_CACHE = 5000;
+    private static final long VERSAO_TTL_MS = 30 * 1000;
+
+    private final SecretKeySpec chave;
+    private final Map<String, Verificado> verificados = Collections.synchronizedMap(
+            new LinkedHashMap<String, Verificado>(256, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Verificado> maisAntigo) {
+                    return size() > MAX_CACHE;
+                }
+            });
+    private final Map<Integer, VersaoLida> versoes = new ConcurrentHashMap<>();
+
+    private TokenSessao(byte[] segredo) {
+        this.chave = new SecretKeySpec(segredo, ALGORITMO);
+    }
+
+    /**
+     * Lê a configuração do contexto e registra a instância, se o modo estiver ativo.
+     * @return a instância, ou null se o modo estiver desligado
+     */
+    public static TokenSessao configurar(ServletContext contexto) {
+        if (!"true".equalsIgnoreCase(contexto.getInitParameter("tokenSessao.ativo"))) {
+            return null;
+        }
+
+        String segredo = System.getenv("VENDAS_TOKEN_SEGREDO");
+        if (segredo == null || segredo.isBlank()) {
+            segredo = contexto.getInitParameter("tokenSessao.segredo");
+        }
+        if (segredo == null || segredo.length() < 32) {
+            throw new IllegalStateException("tokenSessao.ativo=true exige segredo com pelo menos 32 caracteres");
+        }
+
+        TokenSessao token = new TokenSessao(segredo.getBytes(StandardCharsets.UTF_8));
+        contexto.setAttribute(ATRIBUTO, token);
+        System.out.println("🔏 Token de sessão assinado ATIVO");
+        return token;
+    }
+
+    /**
+     * Instância registrada no contexto, ou null se o modo estiver desligado.
+     */
+    public static TokenSessao doContexto(ServletContext contexto) {
+        return (TokenSessao) contexto.getAttribute(ATRIBUTO);
+    }
+
+    // ========================================
+    // Emissão
+    // ========================================
+
+    public String emitir(UsuarioPrincipal usuario) throws SQLException {
+        // Versão lida do banco na hora: o login não herda uma versão em cache
+        int sessaoVersao = UsuarioDao.sessaoVersao(usuario.getUsuarioId());
+        versoes.put(usuario.getUsuarioId(), new VersaoLida(sessaoVersao));
+
+        long expira = System.currentTimeMillis() / 1000 + VALIDADE_SEGUNDOS;
+        String payload = VERSAO
+                + "|" + usuario.getUsuarioId()
+                + "|" + (usuario.getLojaId() != null ? usuario.getLojaId() : "")
+                + "|" + (usuario.getPerfilId() != null ? usuario.getPerfilId() : "")
+                + "|" + usuario.getPerfil().name()
+                + "|" + expira
+                + "|" + sessaoVersao
+                + "|" + (usuario.getNome() != null ? usuario.getNome() : "");
+
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        Base64.Encoder b64 = Base64.getUrlEncoder().withoutPadding();
+        return b64.encodeToString(bytes) + "." + b64.encodeToString(assinar(bytes));
+    }
+
+    /**
+     * Grava o cookie do token na resposta (HttpOnly, SameSite=Lax).
+     */
+    public void gravarCookie(HttpServletRequest request, HttpServletResponse response, UsuarioPrincipal usuario)
+            throws SQLException {
+        Cookie cookie = new Cookie(COOKIE, emitir(usuario));
+        cookie.setHttpOnly(true);
+        cookie.setSecure(request.isSecure());
+        cookie.setPath(caminhoCookie(request));
+        cookie.setMaxAge(VALIDADE_SEGUNDOS);
+        cookie.setAttribute("SameSite", "Lax");
+        response.addCookie(cookie);
+    }
+
+    /**
+     * Remove o cookie do token (logout).
+     */
+    public static void removerCookie(HttpServletRequest request, HttpServletResponse response) {
+        Cookie cookie = new Cookie(COOKIE, "");
+        cookie.setHttpOnly(true);
+        cookie.setSecure(request.isSecure());
+        cookie.setPath(caminhoCookie(request));
+        cookie.setMaxAge(0);
+        response.addCookie(cookie);
+    }
+
+    /**
+     * Revoga todos os tokens do usuário (todos os dispositivos).
+     */
+    public void revogar(int usuarioId) throws SQLException {
+        UsuarioDao.revogarSessoes(usuarioId);
+        versoes.remove(usuarioId);
+        System.out.println("🔏 Tokens de sessão revogados: usuário " + usuarioId);
+    }
+
+    // ========================================
+    // Verificação
+    // ========================================
+
+    /**
+     * Principal do cookie da requisição, ou null se ausente, inválido ou expirado.
+     */
+    public UsuarioPrincipal verificar(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) return null;
+
+        for (Cookie c : cookies) {
+            if (COOKIE.equals(c.getName())) {
+                return verificar(c.getValue());
+            }
+        }
+        return null;
+    }
+
+    public UsuarioPrincipal verificar(String token) {
+        if (token == null || token.isEmpty()) return null;
+
+        long agora = System.currentTimeMillis() / 1000;
+
+        Verificado cache = verificados.get(token);
+        if (cache != null) {
+            if (cache.expira > agora && versaoValida(cache.principal.getUsuarioId(), cache.sessaoVersao)) {
+                return cache.principal;
+            }
+            verificados.remove(token);
+            return null;
+        }
+
+        int ponto = token.indexOf('.');
+        if (ponto <= 0) return null;
+
+        try {
+            Base64.Decoder b64 = Base64.getUrlDecoder();
+            byte[] payload = b64.decode(token.substring(0, ponto));
+            byte[] assinatura = b64.decode(token.substring(ponto + 1));
+
+            if (!MessageDigest.isEqual(assinar(payload), assinatura)) return null;
+
+            String[] campos = new String(payload, StandardCharsets.UTF_8).split("\\|", 8);
+            if (campos.length != 8 || !VERSAO.equals(campos[0])) return null;
+
+            long expira = Long.parseLong(campos[5]);
+            if (expira <= agora) return null;
+
+            int usuarioId = Integer.parseInt(campos[1]);
+            int sessaoVersao = Integer.parseInt(campos[6]);
+            if (!versaoValida(usuarioId, sessaoVersao)) return null;
+
+            UsuarioPrincipal principal = new UsuarioPrincipal(
+                    usuarioId,
+                    campos[7],
+                    campos[2].isEmpty() ? null : Integer.valueOf(campos[2]),
+                    campos[3].isEmpty() ? null : Integer.valueOf(campos[3]),
+                    TipoPerfil.valueOf(campos[4]));
+
+            verificados.put(token, new Verificado(principal, expira, sessaoVersao));
+            return principal;
+
+        } catch (IllegalArgumentException e) {
+            // Base64, número ou perfil inválido
+            return null;
+        }
+    }
+
+    /**
+     * Versão do token igual à atual do usuário (relida do banco a cada
+     * VERSAO_TTL_MS). Sem banco, recusa: token sem revogação conferida não vale.
+     */
+    private boolean versaoValida(int usuarioId, int sessaoVersao) {
+        long agora = System.currentTimeMillis();
+
+        VersaoLida lida = versoes.get(usuarioId);
+        if (lida == null || agora - lida.lidaEm >= VERSAO_TTL_MS) {
+            try {
+                lida = new VersaoLida(UsuarioDao.sessaoVersao(usuarioId));
+            } catch (SQLException e) {
+                System.err.println("❌ TokenSessao - versão do usuário " + usuarioId + " indisponível: " + e.getMessage());
+                return false;
+            }
+            versoes.put(usuarioId, lida);
+        }
+        return lida.versao == sessaoVersao;
+    }
+
+    private byte[] assinar(byte[] dados) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO);
+            mac.init(chave);
+            return mac.doFinal(dados);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC indisponível", e);
+        }
+    }
+
+    private static String caminhoCookie(HttpServletRequest request) {
+        String contexto = request.getContextPath();
+        return contexto.isEmpty() ? "/" : contexto;
+    }
+
+    private static final class Verificado {
+        final UsuarioPrincipal principal;
+        final long expira;
+        final int sessaoVersao;
+
+        Verificado(UsuarioPrincipal principal, long expira, int sessaoVersao) {
+            this.principal = principal;
+            this.expira = expira;
+            this.sessaoVersao = sessaoVersao;
+        }
+    }
+
+    private static final class VersaoLida {
+        final int versao;
+        final long lidaEm = System.currentTimeMillis();
+
+        VersaoLida(int versao) {
+            this.versao = versao;
+        }
+    }
+}
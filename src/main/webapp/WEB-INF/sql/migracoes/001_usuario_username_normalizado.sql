@@ -0,0 +1,35 @@
+-- ============================================================================
+-- 001 - usuario: username normalizado e senha_hash (UsuarioDao)
+--
+-- username_normalizado passa a ser coluna gerada STORED = LOWER(TRIM(username)):
+-- acompanha qualquer UPDATE/INSERT de username (renomear no banco troca o
+-- login na hora) e tem índice único, usado pelo login.
+--
+-- Rodar uma vez, fora do horário de uso (ALTER TABLE copia a tabela).
+-- O UsuarioDao só confere se a estrutura existe; sem esta migração o login
+-- segue pela busca antiga (sem índice) e pela senha em texto puro, com um
+-- aviso indicando este arquivo no log.
+-- ============================================================================
+
+-- 0. Conferência: usernames que colidem após normalizar impedem o índice único.
+--    Corrigir os retornados antes de seguir.
+SELECT LOWER(TRIM(username)) AS normalizado, COUNT(*) AS qtd, GROUP_CONCAT(id) AS ids
+FROM usuario
+GROUP BY LOWER(TRIM(username))
+HAVING COUNT(*) > 1;
+
+-- 1. Somente em bases onde a versão anterior criou a coluna comum em runtime
+--    (SHOW COLUMNS FROM usuario LIKE 'username_normalizado' retorna linha):
+-- ALTER TABLE usuario
+--   DROP INDEX idx_usuario_username_norm,
+--   DROP COLUMN username_normalizado;
+
+-- 2. Coluna gerada + índice único
+ALTER TABLE usuario
+  ADD COLUMN username_normalizado VARCHAR(100)
+      GENERATED ALWAYS AS (LOWER(TRIM(username))) STORED,
+  ADD UNIQUE INDEX uk_usuario_username_norm (username_normalizado);
+
+-- 3. Hash PBKDF2 da senha (omitir se a coluna já existir)
+ALTER TABLE usuario
+  ADD COLUMN senha_hash VARCHAR(255) NULL;
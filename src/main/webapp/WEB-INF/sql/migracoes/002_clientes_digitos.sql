@@ -0,0 +1,35 @@
+-- ============================================================================
+-- 002 - clientes: CPF e telefones só com dígitos (ClienteDao)
+--
+-- Colunas geradas STORED com os dígitos de cpfCliente, whatsCliente e
+-- telefoneCliente, indexadas para a busca exata no caixa. O MySQL as mantém
+-- em todo INSERT/UPDATE (inclusive fora da aplicação) e o ALTER preenche as
+-- linhas existentes. CPF vazio vira NULL (não conflita no índice único).
+--
+-- Rodar uma vez, fora do horário de uso (ALTER TABLE copia a tabela).
+-- Sem esta migração o ClienteDao segue com a busca antiga (REPLACE sem índice).
+-- ============================================================================
+
+-- 0. Conferência: CPFs repetidos impedem o índice único do passo 2.
+--    Corrigir os retornados ou usar o passo 2b.
+SELECT REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(cpfCliente, '.', ''), '-', ''), '/', ''), '(', ''), ')', ''), '+', ''), ' ', '') AS cpf, COUNT(*) AS qtd, GROUP_CONCAT(idCliente) AS ids
+FROM clientes
+WHERE cpfCliente IS NOT NULL AND REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(cpfCliente, '.', ''), '-', ''), '/', ''), '(', ''), ')', ''), '+', ''), ' ', '') <> ''
+GROUP BY REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(cpfCliente, '.', ''), '-', ''), '/', ''), '(', ''), ')', ''), '+', ''), ' ', '')
+HAVING COUNT(*) > 1;
+
+-- 1. Colunas geradas
+ALTER TABLE clientes
+  ADD COLUMN cpf_digitos VARCHAR(20)
+      AS (NULLIF(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(cpfCliente, '.', ''), '-', ''), '/', ''), '(', ''), ')', ''), '+', ''), ' ', ''), '')) STORED,
+  ADD COLUMN whats_digitos VARCHAR(20)
+      AS (NULLIF(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(whatsCliente, '.', ''), '-', ''), '/', ''), '(', ''), ')', ''), '+', ''), ' ', ''), '')) STORED,
+  ADD COLUMN telefone_digitos VARCHAR(20)
+      AS (NULLIF(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(telefoneCliente, '.', ''), '-', ''), '/', ''), '(', ''), ')', ''), '+', ''), ' ', ''), '')) STORED;
+
+-- 2. Índices
+CREATE UNIQUE INDEX uk_clientes_cpf_digitos ON clientes (cpf_digitos);
+-- 2b. Somente se o passo 0 retornou CPFs repetidos que não serão corrigidos agora:
+-- CREATE INDEX idx_clientes_cpf_digitos ON clientes (cpf_digitos);
+CREATE INDEX idx_clientes_whats_digitos ON clientes (whats_digitos);
+CREATE INDEX idx_clientes_telefone_digitos ON clientes (telefone_digitos);
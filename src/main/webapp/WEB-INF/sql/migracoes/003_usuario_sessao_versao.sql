@@ -0,0 +1,12 @@
+-- ============================================================================
+-- 003 - usuario: versão da sessão assinada (TokenSessao)
+--
+-- sessao_versao vai dentro de cada token emitido. Incrementar a coluna
+-- revoga todos os tokens do usuário (logout faz isso; para bloquear alguém
+-- direto no banco: UPDATE usuario SET sessao_versao = sessao_versao + 1 WHERE id = ?).
+--
+-- Necessária somente com tokenSessao.ativo = true. Rodar uma vez.
+-- ============================================================================
+
+ALTER TABLE usuario
+  ADD COLUMN sessao_versao INT NOT NULL DEFAULT 0;
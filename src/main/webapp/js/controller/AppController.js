@@ -711,10 +711,11 @@ export default class AppController extends EventEmitter {
         });
 
         this.controllers.orcamentos.on('orcamentoConvertido', ({ orcamento }) => {
-            console.log('💳 Orçamento convertido em venda:', orcamento.id);
+            console.log('💳 Convertendo orçamento em venda:', orcamento.id);
             
-            // Abre carrinho
-            this.controllers.carrinho.abrir();
+            // Pagamento em modo conversão: a venda sai do orçamento gravado (/ConverterOrcamento)
+            this.views.carrinho.fechar();
+            this.controllers.pagamento.abrir({ orcamentoId: orcamento.id });
         });
 
         this.controllers.orcamentos.on('orcamentoExcluido', ({ id }) => {
@@ -750,6 +751,11 @@ export default class AppController extends EventEmitter {
             // Atualiza badge do carrinho (agora zerado)
             this.atualizarBadgeCarrinho();
             
+            // Venda de orçamento: reflete o status na lista de orçamentos
+            if (dadosVenda.orcamentoId) {
+                this.controllers.orcamentos.marcarConvertido(dadosVenda.orcamentoId);
+            }
+            
             // Abre o comprovante da venda
             this.views.comprovante.abrir(dadosVenda);
         });
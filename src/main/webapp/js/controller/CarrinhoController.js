@@ -185,7 +185,7 @@ export default class CarrinhoController extends EventEmitter {
         if (info.origemTratamento === 'ADICIONAL' && info.tratamentoAdicionalNome) {
             tratamentos.push({
                 tipo: 'antireflexo',  // ✅ Tipo do tratamento
-                codigo: info.tratamentoAdicionalCodigo || 0,
+                codigo: info.tratamentoAdicionalId || 0,  // tratamento.id (SelecaoLentes)
                 nome: info.tratamentoAdicionalNome,
                 valor: info.tratamentoAdicionalValor || 0
             });
@@ -9,7 +9,7 @@
  * 
  * EVENTOS EMITIDOS (para AppController):
  * - 'orcamentoRecuperado'  → Orçamento carregado no carrinho { orcamento }
- * - 'orcamentoConvertido'  → Orçamento convertido em venda { orcamento }
+ * - 'orcamentoConvertido'  → Orçamento a converter em venda (ir ao pagamento) { orcamento }
  * - 'orcamentoExcluido'    → Orçamento excluído { id }
  * 
  * @author OptoFreela
@@ -212,13 +212,11 @@ export default class OrcamentosController extends EventEmitter {
         if (!confirma) return;
         
         try {
-            // Primeiro recupera no carrinho
+            // Carrega no carrinho só para exibir itens e total no pagamento;
+            // a venda é gravada pelo /ConverterOrcamento a partir do orçamento salvo
             await this.recuperarOrcamento(orcamento);
             
-            // Atualiza status do orçamento no servidor
-            await this.atualizarStatus(orcamento.id, 'CONVERTIDO');
-            
-            // Emite evento para ir direto ao pagamento
+            // Emite evento para ir direto ao pagamento (status muda no servidor, na mesma transação da venda)
             this.emit('orcamentoConvertido', { orcamento });
             
         } catch (error) {
@@ -277,34 +275,13 @@ export default class OrcamentosController extends EventEmitter {
     }
 
     /**
-     * Atualiza status de um orçamento
+     * Marca o orçamento como convertido na lista local (após o /ConverterOrcamento)
      */
-    async atualizarStatus(id, status) {
-        try {
-            const url = `${this.baseUrl}/AtualizarOrcamento`;
-            
-            const response = await fetch(url, {
-                method: 'POST',
-                headers: {
-                    'Content-Type': 'application/x-www-form-urlencoded'
-                },
-                body: `id=${id}&status=${status}`
-            });
-            
-            const data = await response.json();
-            
-            if (data.success) {
-                // Atualiza na lista local
-                const orc = this.orcamentos.find(o => o.id == id);
-                if (orc) orc.status = status;
-                this.view.render(this.orcamentos);
-            }
-            
-            return data;
-            
-        } catch (error) {
-            console.error('Erro ao atualizar status:', error);
-            throw error;
+    marcarConvertido(id) {
+        const orc = this.orcamentos.find(o => o.id == id);
+        if (orc) {
+            orc.status = 'CONVERTIDO';
+            this.view.render(this.orcamentos);
         }
     }
 
@@ -5,11 +5,12 @@
  * RESPONSABILIDADES:
  * - Carregar formas de pagamento, bandeiras e convênios
  * - Coordenar PagamentoView
- * - Salvar venda no servidor
+ * - Salvar venda no servidor (/SalvarVenda, ou /ConverterOrcamento quando
+ *   aberto para um orçamento: itens e valores saem do orçamento gravado)
  * - Emitir eventos para AppController
  * 
  * EVENTOS EMITIDOS (para AppController):
- * - 'vendaConfirmada'  → { venda } - Venda salva com sucesso
+ * - 'vendaConfirmada'  → { venda } - Venda salva com sucesso (orcamentoId na conversão)
  * - 'vendaCancelada'   → {}
  * 
  * @author OptoFreela
@@ -32,6 +33,13 @@ export default class PagamentoController extends EventEmitter {
         this.convenios = [];
         this.configCarregada = false;
         
+        // Idempotência: uma chave por checkout, reenviada nas novas tentativas
+        this.chaveIdempotencia = null;
+        this.salvando = false;
+        
+        // Conversão de orçamento: id do orçamento (null = venda do carrinho)
+        this.orcamentoId = null;
+        
         this.bindViewEvents();
     }
 
@@ -70,8 +78,9 @@ export default class PagamentoController extends EventEmitter {
 
     /**
      * Abre a tela de pagamento
+     * @param {Object} [opcoes] - { orcamentoId } para converter um orçamento
      */
-    async abrir() {
+    async abrir({ orcamentoId = null } = {}) {
         console.log('');
         console.log('╔════════════════════════════════════════════════════════════════╗');
         console.log('║  💳 ABRINDO TELA DE PAGAMENTO                                  ║');
@@ -98,6 +107,14 @@ export default class PagamentoController extends EventEmitter {
         console.log('📦 Carrinho:', carrinho.itens.length, 'itens');
         console.log('💰 Total:', carrinho.total);
         
+        // Novo checkout = nova chave (retries desta tela reaproveitam)
+        this.chaveIdempotencia = this.gerarChaveIdempotencia();
+        this.orcamentoId = orcamentoId;
+        
+        if (orcamentoId) {
+            console.log('📋 Conversão do orçamento #' + orcamentoId);
+        }
+        
         // Abre a view
         this.view.abrir(carrinho, this.formasPagamento, this.bandeiras, this.convenios);
     }
@@ -167,6 +184,13 @@ export default class PagamentoController extends EventEmitter {
     // ========================================
 
     async salvarVenda(dados) {
+        // Duplo clique: ignora enquanto a primeira requisição não volta
+        if (this.salvando) {
+            console.log('⏳ Venda já sendo salva, clique ignorado');
+            return;
+        }
+        this.salvando = true;
+        
         console.log('');
         console.log('╔════════════════════════════════════════════════════════════════╗');
         console.log('║  💾 SALVANDO VENDA                                             ║');
@@ -176,6 +200,11 @@ export default class PagamentoController extends EventEmitter {
         console.log('Pagamentos:', dados.pagamentos.length);
         
         try {
+            if (this.orcamentoId) {
+                await this.converterOrcamento(dados);
+                return;
+            }
+            
             // Prepara payload
             const payload = {
                 // Cliente
@@ -218,7 +247,10 @@ export default class PagamentoController extends EventEmitter {
                 })),
                 
                 // Observações
-                observacoes: dados.observacoes || null
+                observacoes: dados.observacoes || null,
+                
+                // Retry com a mesma chave devolve a venda já gravada
+                chave_idempotencia: this.chaveIdempotencia || (this.chaveIdempotencia = this.gerarChaveIdempotencia())
             };
             
             console.log('📤 Enviando payload:', payload);
@@ -237,6 +269,9 @@ export default class PagamentoController extends EventEmitter {
                 console.log('✅ Venda salva com sucesso!');
                 console.log('   ID:', result.vendaId);
                 console.log('   Pedido:', result.idPedido);
+                if (result.repetida) console.log('   🔁 Venda já registrada (retry)');
+                
+                this.chaveIdempotencia = null;
                 
                 // Guarda os itens ANTES de limpar o carrinho
                 const itensVenda = this.carrinhoModel.getTodosItens();
@@ -270,9 +305,76 @@ export default class PagamentoController extends EventEmitter {
         } catch (error) {
             console.error('❌ Erro ao salvar venda:', error);
             alert('Erro ao salvar venda: ' + error.message);
+        } finally {
+            this.salvando = false;
         }
     }
 
+    /**
+     * Conversão de orçamento: envia só o id, pagamentos e desconto; cliente,
+     * itens e subtotal o servidor lê do orçamento (status muda na mesma transação)
+     */
+    async converterOrcamento(dados) {
+        const orcamentoId = this.orcamentoId;
+        const subtotal = this.carrinhoModel.getTotal();
+        
+        const payload = {
+            orcamento_id: orcamentoId,
+            // Desconto sempre em reais: o percentual já vem aplicado no total
+            desconto_tipo: 'valor',
+            desconto_valor: Math.max(0, subtotal - dados.total).toFixed(2),
+            pagamentos: dados.pagamentos.map(pag => ({
+                forma: pag.forma,
+                valor: pag.valor,
+                parcelas: pag.parcelas,
+                bandeira: pag.bandeira,
+                convenio_id: pag.convenioId,
+                autorizacao: pag.autorizacao
+            })),
+            observacoes: dados.observacoes || null
+        };
+        
+        console.log('📤 Convertendo orçamento:', payload);
+        
+        const response = await fetch(`${this.baseUrl}/ConverterOrcamento`, {
+            method: 'POST',
+            headers: {
+                'Content-Type': 'application/json'
+            },
+            body: JSON.stringify(payload)
+        });
+        
+        const result = await response.json();
+        
+        if (!result.success) {
+            throw new Error(result.message || 'Erro ao converter orçamento');
+        }
+        
+        console.log('✅ Orçamento #' + orcamentoId + ' convertido!');
+        console.log('   ID:', result.vendaId);
+        console.log('   Pedido:', result.idPedido);
+        
+        this.chaveIdempotencia = null;
+        this.orcamentoId = null;
+        
+        const itensVenda = this.carrinhoModel.getTodosItens();
+        this.carrinhoModel.limpar();
+        this.view.fechar();
+        
+        this.emit('vendaConfirmada', {
+            id: result.vendaId,
+            idPedido: result.idPedido,
+            orcamentoId: orcamentoId,
+            cliente: dados.cliente,
+            subtotal: subtotal,
+            desconto: dados.desconto,
+            total: dados.total,
+            itens: itensVenda,
+            pagamentos: dados.pagamentos,
+            observacoes: dados.observacoes
+        });
+    }
+
     // ========================================
     // HELPERS
     // ========================================
@@ -283,6 +385,16 @@ export default class PagamentoController extends EventEmitter {
         return match ? match[0] : '';
     }
 
+    gerarChaveIdempotencia() {
+        if (window.crypto?.randomUUID) {
+            return window.crypto.randomUUID();
+        }
+        // Fallback (HTTP sem contexto seguro): 128 bits em hex
+        const bytes = new Uint8Array(16);
+        window.crypto.getRandomValues(bytes);
+        return Array.from(bytes, b => b.toString(16).padStart(2, '0')).join('');
+    }
+
     mostrarToast(mensagem) {
         // Verifica se existe função global de toast
         if (typeof window.showToast === 'function') {
@@ -86,6 +86,15 @@ export default class ApiService {
         return this.post('/SelecaoLentes', mergedParams);
     }
 
+    /**
+     * Contagem de lentes por valor de faceta (marca, material, índice...) para a receita
+     * @param {Object} params - Mesmos parâmetros de buscarLentes
+     * @returns {Promise<Object>} - { total, facetas: { marca: { valor: qtd } ... } }
+     */
+    async buscarFacetas(params) {
+        return this.post('/FacetasLentes', params);
+    }
+
     /**
      * Busca tratamentos compatíveis com família ou famílias compatíveis com tratamento
      * @param {Object} params - { familia } ou { tratamento }